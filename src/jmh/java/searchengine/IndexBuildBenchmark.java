@@ -0,0 +1,71 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to load a file of pages into an {@link InvertedIndexSearchEngine},
+ * for different numbers of threads.
+ * <p>
+ * By default a file of random pages is generated by {@link SyntheticCorpus}. Run with {@code -p corpus=data/enwiki-medium.txt}
+ * to measure a real data file instead.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class IndexBuildBenchmark {
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"50000"})
+    int pageCount;
+
+    @Param({""})
+    String corpus;
+
+    private Path file;
+    private boolean generated;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (!corpus.isEmpty()) {
+            file = Path.of(corpus);
+            return;
+        }
+        file = SyntheticCorpus.writeTemporary(pageCount, 42);
+        generated = true;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (generated) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public InvertedIndexSearchEngine loadPages() throws IOException {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(file.toString(), threads);
+        return searchEngine;
+    }
+}
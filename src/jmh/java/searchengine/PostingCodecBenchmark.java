@@ -0,0 +1,100 @@
+package searchengine;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding posting lists stored with each {@link PostingCodec} to iterating over a raw {@code int[]}.
+ * <p>
+ * The lists have random gaps with the given average, so a small gap is a frequent term. {@code decodeAll}
+ * reads every doc ID, and {@code advance} skips through the list like an intersection with a rarer list.
+ * The number of bytes per posting of each codec is printed when the benchmark is set up.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostingCodecBenchmark {
+    @Param({"array", "raw", "varInt", "blockPacked"})
+    String codec;
+
+    @Param({"2", "16", "1000"})
+    int averageGap;
+
+    @Param({"100000"})
+    int size;
+
+    private int[] docIds;
+    private byte[] encoded;
+    private int[] targets;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        docIds = new int[size];
+        int docId = 0;
+        for (int i = 0; i < size; i++) {
+            docId += 1 + random.nextInt(2 * averageGap - 1);
+            docIds[i] = docId;
+        }
+        targets = new int[size / 100];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = docIds[i * 100] + 1;
+        }
+        if (!codec.equals("array")) {
+            encoded = codec().encodeDocIds(docIds);
+            System.out.printf("%n%s, average gap %d: %.2f bytes per posting%n",
+                codec, averageGap, (double) encoded.length / size);
+        }
+    }
+
+    private PostingCodec codec() {
+        switch (codec) {
+            case "raw":
+                return PostingCodec.RAW;
+            case "varInt":
+                return PostingCodec.VAR_INT;
+            default:
+                return PostingCodec.BLOCK_PACKED;
+        }
+    }
+
+    private PostingIterator iterator() {
+        return encoded == null ? new ArrayPostingIterator(docIds) : codec().iterator(encoded, 0, size);
+    }
+
+    @Benchmark
+    public long decodeAll() {
+        PostingIterator iterator = iterator();
+        long sum = 0;
+        for (int docId = iterator.nextDoc(); docId != PostingIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+            sum += docId;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long advance() {
+        PostingIterator iterator = iterator();
+        long sum = 0;
+        for (int target : targets) {
+            sum += iterator.advance(target);
+        }
+        return sum;
+    }
+}
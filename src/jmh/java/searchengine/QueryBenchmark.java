@@ -0,0 +1,120 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures single-term lookups and AND and OR queries on an index of {@link SyntheticCorpus} pages.
+ * <p>
+ * Each benchmark cycles through 16 queries of one kind: {@code rare} queries only have words that are on a few pages,
+ * {@code common} queries only have words that are on most pages, and {@code mixed} queries combine both.
+ * {@code getMatchingWebPages} is measured with two clauses joined by OR. The queries are the same in every run, so results can be compared between commits.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class QueryBenchmark {
+    private static final int QUERY_COUNT = 16;
+
+    @Param({"rare", "common", "mixed"})
+    String queryType;
+
+    @Param({"20000"})
+    int pageCount;
+
+    private InvertedIndexSearchEngine searchEngine;
+    private QueryHandler queryHandler;
+    private String[] words;
+    private String[] andQueries;
+    private String[] orQueries;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = SyntheticCorpus.writeTemporary(pageCount, 42);
+        try {
+            searchEngine = new InvertedIndexSearchEngine();
+            searchEngine.loadPages(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+        // Queries are scored from the impacts of the postings, like the web server scores them
+        TermScorer termScorer = new ColumnarTermScorer(searchEngine);
+        searchEngine.scorePostings(termScorer);
+        queryHandler = new QueryHandler(searchEngine, termScorer);
+
+        Random random = new Random(7);
+        words = new String[QUERY_COUNT];
+        andQueries = new String[QUERY_COUNT];
+        orQueries = new String[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            words[i] = word(random, queryType.equals("common"));
+            andQueries[i] = clause(random);
+            orQueries[i] = clause(random) + " OR " + clause(random);
+        }
+        System.out.printf("%n%s: %d pages, e.g. %s has %d pages, %s has %d pages%n", queryType, searchEngine.getPageCount(),
+            words[0], searchEngine.search(words[0]).length, andQueries[0], queryHandler.andSearch(andQueries[0]).size());
+    }
+
+    /**
+     * Picks a word that is on most pages, or one that is on only a few.
+     */
+    private static String word(Random random, boolean common) {
+        return SyntheticCorpus.word(common ? random.nextInt(10) : 50000 + random.nextInt(SyntheticCorpus.VOCABULARY - 50000));
+    }
+
+    /**
+     * Creates the words of an AND clause. Two rare words are hardly ever on the same page, so a rare clause has one word.
+     */
+    private String clause(Random random) {
+        switch (queryType) {
+            case "rare":
+                return word(random, false);
+            case "common":
+                return word(random, true) + " " + word(random, true);
+            default:
+                return word(random, true) + " " + word(random, false);
+        }
+    }
+
+    private int nextQuery() {
+        next = (next + 1) % QUERY_COUNT;
+        return next;
+    }
+
+    @Benchmark
+    public int[] search() {
+        return searchEngine.search(words[nextQuery()]);
+    }
+
+    @Benchmark
+    public HashMap<Integer, Double> andSearch() {
+        return queryHandler.andSearch(andQueries[nextQuery()]);
+    }
+
+    @Benchmark
+    public List<Integer> getMatchingWebPages() {
+        return queryHandler.getMatchingWebPages(orQueries[nextQuery()]);
+    }
+}
@@ -0,0 +1,102 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long a {@link TermFrequencyScorer}, a {@link TFIDScorer} and a {@link ColumnarTermScorer} with
+ * either formula take to load the pages of a {@link SyntheticCorpus}, and to score a page for a term once they
+ * are loaded.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ScorerBenchmark {
+    private static final int LOOKUP_COUNT = 1024;
+
+    @Param({"tf", "tfidf", "columnar-tf", "columnar-tfidf"})
+    String scorer;
+
+    @Param({"20000"})
+    int pageCount;
+
+    private InvertedIndexSearchEngine searchEngine;
+    private List<List<String>> pages;
+    private TermScorer termScorer;
+    private String[] urls;
+    private String[] terms;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = SyntheticCorpus.writeTemporary(pageCount, 42);
+        try {
+            searchEngine = new InvertedIndexSearchEngine();
+            searchEngine.loadPages(file.toString());
+            pages = SyntheticCorpus.readPages(file);
+        } finally {
+            Files.delete(file);
+        }
+        termScorer = newScorer();
+        termScorer.loadPages(pages);
+        // A columnar scorer reads the impacts that the search engine computes with its formula
+        searchEngine.scorePostings(termScorer);
+
+        // Half of the lookups are for a term on the page, and half for a term that is not
+        Random random = new Random(7);
+        urls = new String[LOOKUP_COUNT];
+        terms = new String[LOOKUP_COUNT];
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            List<String> page = pages.get(random.nextInt(pages.size()));
+            urls[i] = page.get(0).replace("*page:", "");
+            terms[i] = i % 2 == 0 ? page.get(2 + random.nextInt(page.size() - 2)) : "missing" + i;
+        }
+    }
+
+    private TermScorer newScorer() {
+        switch (scorer) {
+            case "tf":
+                return new TermFrequencyScorer();
+            case "tfidf":
+                return new TFIDScorer();
+            case "columnar-tf":
+                return new ColumnarTermScorer(searchEngine, new TermFrequencyScorer());
+            default:
+                return new ColumnarTermScorer(searchEngine, new TFIDScorer());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TermScorer loadPages() {
+        TermScorer loaded = newScorer();
+        loaded.loadPages(pages);
+        return loaded;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public double getScore() {
+        next = (next + 1) % LOOKUP_COUNT;
+        return termScorer.getScore(urls[next], terms[next]);
+    }
+}
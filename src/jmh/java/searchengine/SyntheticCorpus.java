@@ -0,0 +1,89 @@
+package searchengine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates files of random pages for the benchmarks, so that they do not need the downloaded data files.
+ * <p>
+ * The pages are the same for the same seed. Each page has 50 to 450 words, and the words are skewed like in
+ * real text: {@code word0} is on almost every page, while words numbered in the tens of thousands are on only a few.
+ * Use {@link #word(int)} to name words of a known frequency in queries.
+ * </p>
+ */
+final class SyntheticCorpus {
+    /**
+     * The number of different words. Low word numbers are common, high ones are rare.
+     */
+    static final int VOCABULARY = 100000;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * Writes a file of random pages.
+     * @param file the file to write
+     * @param pageCount the number of pages
+     * @param seed the seed of the random words, so the same seed gives the same file
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, int pageCount, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int page = 0; page < pageCount; page++) {
+                writer.write("*PAGE:http://page" + page + ".com\n");
+                writer.write("Title " + page + "\n");
+                int length = 50 + random.nextInt(400);
+                for (int i = 0; i < length; i++) {
+                    // Skewed word numbers, so that a few words are very common
+                    writer.write(word((int) (Math.pow(random.nextDouble(), 4) * VOCABULARY)) + "\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a file of random pages to a new temporary file.
+     * @param pageCount the number of pages
+     * @param seed the seed of the random words
+     * @return the temporary file, which the caller must delete
+     * @throws IOException if the file cannot be written
+     */
+    static Path writeTemporary(int pageCount, long seed) throws IOException {
+        Path file = Files.createTempFile("corpus", ".txt");
+        write(file, pageCount, seed);
+        return file;
+    }
+
+    /**
+     * Reads the lowercase lines of each page of a file, which scorers that count the words themselves load,
+     * as the search engines do not keep them.
+     * @param file the file of pages
+     * @return the lines of each page, starting with its page line
+     * @throws IOException if the file cannot be read
+     */
+    static List<List<String>> readPages(Path file) throws IOException {
+        List<List<String>> pages = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.startsWith("*PAGE")) {
+                pages.add(new ArrayList<>());
+            }
+            pages.get(pages.size() - 1).add(line.toLowerCase());
+        }
+        return pages;
+    }
+
+    /**
+     * Returns the word with a number.
+     * @param number the number of the word. Below 10 the word is on most pages, above 50000 on very few.
+     * @return the word
+     */
+    static String word(int number) {
+        return "word" + number;
+    }
+}
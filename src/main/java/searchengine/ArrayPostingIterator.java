@@ -0,0 +1,53 @@
+package searchengine;
+
+/**
+ * Iterates over doc IDs in an array. {@link #advance(int)} uses a galloping search,
+ * like {@link PostingIntersection}.
+ */
+class ArrayPostingIterator implements PostingIterator {
+    private final int[] docIds;
+    private int index = -1;
+
+    /**
+     * Creates an iterator over an array of doc IDs.
+     * @param docIds the sorted doc IDs
+     */
+    ArrayPostingIterator(int[] docIds) {
+        this.docIds = docIds;
+    }
+
+    @Override
+    public int docId() {
+        if (index < 0) {
+            return -1;
+        }
+        return index < docIds.length ? docIds[index] : NO_MORE_DOCS;
+    }
+
+    @Override
+    public int nextDoc() {
+        if (index < docIds.length) {
+            index++;
+        }
+        return docId();
+    }
+
+    @Override
+    public int advance(int target) {
+        if (docId() >= target) {
+            return docId();
+        }
+        index = PostingIntersection.gallop(docIds, Math.max(index, 0), target);
+        return docId();
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return docIds.length;
+    }
+}
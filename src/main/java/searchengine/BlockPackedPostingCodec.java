@@ -0,0 +1,124 @@
+package searchengine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Packs the gaps of each block into the same number of bits, in the style of PForDelta.
+ * <p>
+ * The number of bits is chosen for each block so that the block is as small as possible. Gaps that do not
+ * fit are exceptions: their low bits are packed with the others, and their position and high bits are stored
+ * after the packed bits. A block is stored as the number of bits, the number of exceptions, the packed bits
+ * and then the exceptions. Decoding unpacks a whole block in one loop, reading each gap from the eight bytes
+ * it starts in.
+ * </p>
+ */
+class BlockPackedPostingCodec extends BlockPostingCodec {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    void encodeBlock(int[] gaps, int count, ByteWriter out) {
+        int bits = bestBitWidth(gaps, count);
+        long mask = (1L << bits) - 1;
+        int exceptions = 0;
+        for (int i = 0; i < count; i++) {
+            if ((gaps[i] & 0xFFFFFFFFL) > mask) {
+                exceptions++;
+            }
+        }
+        out.writeByte(bits);
+        out.writeByte(exceptions);
+
+        long buffer = 0;
+        int buffered = 0;
+        for (int i = 0; i < count; i++) {
+            buffer |= (gaps[i] & mask) << buffered;
+            buffered += bits;
+            while (buffered >= 8) {
+                out.writeByte((int) buffer);
+                buffer >>>= 8;
+                buffered -= 8;
+            }
+        }
+        if (buffered > 0) {
+            out.writeByte((int) buffer);
+        }
+
+        for (int i = 0; i < count; i++) {
+            if ((gaps[i] & 0xFFFFFFFFL) > mask) {
+                out.writeByte(i);
+                out.writeVarInt(gaps[i] >>> bits);
+            }
+        }
+    }
+
+    /**
+     * Finds the number of bits per gap that makes a block the smallest, counting the bytes of the exceptions.
+     */
+    private static int bestBitWidth(int[] gaps, int count) {
+        int bestBits = 32;
+        long bestSize = Long.MAX_VALUE;
+        for (int bits = 0; bits <= 32; bits++) {
+            long mask = (1L << bits) - 1;
+            long size = ((long) count * bits + 7) / 8;
+            for (int i = 0; i < count && size < bestSize; i++) {
+                if ((gaps[i] & 0xFFFFFFFFL) > mask) {
+                    size += 1 + varIntLength(gaps[i] >>> bits);
+                }
+            }
+            if (size < bestSize) {
+                bestSize = size;
+                bestBits = bits;
+            }
+        }
+        return bestBits;
+    }
+
+    @Override
+    void decodeBlock(ByteBuffer data, int offset, int count, int[] gaps) {
+        int bits = data.get(offset) & 0xFF;
+        int exceptions = data.get(offset + 1) & 0xFF;
+        int position = offset + 2;
+        long mask = (1L << bits) - 1;
+
+        // Read the bits of each gap from the eight bytes it starts in, except near the end of the buffer
+        int packedEnd = position + (count * bits + 7) / 8;
+        int bitPosition = 0;
+        int i = 0;
+        for (; i < count && position + (bitPosition >>> 3) + Long.BYTES <= data.limit(); i++) {
+            long word = (long) LONGS.get(data, position + (bitPosition >>> 3));
+            gaps[i] = (int) ((word >>> (bitPosition & 7)) & mask);
+            bitPosition += bits;
+        }
+        for (; i < count; i++) {
+            long word = 0;
+            int start = position + (bitPosition >>> 3);
+            for (int b = Math.min(packedEnd, data.limit()) - 1; b >= start; b--) {
+                word = (word << 8) | (data.get(b) & 0xFFL);
+            }
+            gaps[i] = (int) ((word >>> (bitPosition & 7)) & mask);
+            bitPosition += bits;
+        }
+        position = packedEnd;
+
+        for (int e = 0; e < exceptions; e++) {
+            int index = data.get(position++) & 0xFF;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            gaps[index] |= value << bits;
+        }
+    }
+}
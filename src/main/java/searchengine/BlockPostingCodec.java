@@ -0,0 +1,231 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A codec that splits the doc IDs into blocks of {@link PostingList#BLOCK_SIZE} and encodes the gaps between
+ * them block by block. The blocks line up with the blocks of the impact scores in {@link PostingList}.
+ * <p>
+ * The encoded list starts with skip data: the last doc ID of each block and where the block ends. An
+ * iterator uses it to find the block that can contain a target doc ID with a binary search, and only decodes
+ * that block. The gaps of the first doc ID of a block are taken from the last doc ID of the block before it,
+ * so each block can be decoded on its own.
+ * </p>
+ */
+abstract class BlockPostingCodec implements PostingCodec {
+    private static final int SKIP_ENTRY_BYTES = 2 * Integer.BYTES;
+
+    @Override
+    public byte[] encodeDocIds(int[] docIds) {
+        int blockCount = (docIds.length + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE;
+        byte[] skipData = new byte[blockCount * SKIP_ENTRY_BYTES];
+        ByteWriter blocks = new ByteWriter();
+        int[] gaps = new int[PostingList.BLOCK_SIZE];
+        int previous = 0;
+        for (int block = 0; block < blockCount; block++) {
+            int from = block * PostingList.BLOCK_SIZE;
+            int count = Math.min(PostingList.BLOCK_SIZE, docIds.length - from);
+            for (int i = 0; i < count; i++) {
+                gaps[i] = docIds[from + i] - previous;
+                previous = docIds[from + i];
+            }
+            encodeBlock(gaps, count, blocks);
+            writeInt(skipData, block * SKIP_ENTRY_BYTES, previous);
+            writeInt(skipData, block * SKIP_ENTRY_BYTES + Integer.BYTES, blocks.size());
+        }
+        byte[] data = Arrays.copyOf(skipData, skipData.length + blocks.size());
+        System.arraycopy(blocks.array(), 0, data, skipData.length, blocks.size());
+        return data;
+    }
+
+    @Override
+    public PostingIterator iterator(ByteBuffer data, int offset, int size) {
+        return new BlockIterator(data, offset, size);
+    }
+
+    /**
+     * Encodes the gaps of one block.
+     * @param gaps the gaps between the doc IDs of the block
+     * @param count the number of gaps, which is the block size except in the last block
+     * @param out where to write the encoded gaps
+     */
+    abstract void encodeBlock(int[] gaps, int count, ByteWriter out);
+
+    /**
+     * Decodes the gaps of one block.
+     * @param data the buffer with the encoded list
+     * @param offset the position of the block in the buffer
+     * @param count the number of gaps in the block
+     * @param gaps the array to decode the gaps into
+     */
+    abstract void decodeBlock(ByteBuffer data, int offset, int count, int[] gaps);
+
+    static void writeInt(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Returns the number of bytes of a variable-length integer.
+     */
+    static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * A growable array of bytes to encode into.
+     */
+    static class ByteWriter {
+        private byte[] data = new byte[64];
+        private int size;
+
+        void writeByte(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = (byte) value;
+        }
+
+        /**
+         * Writes 7 bits per byte, lowest first, with the high bit set in all but the last byte.
+         */
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] array() {
+            return data;
+        }
+    }
+
+    /**
+     * Decodes one block at a time into an array, and moves through the array.
+     */
+    private class BlockIterator implements PostingIterator {
+        private final ByteBuffer data;
+        private final int skipOffset;
+        private final int blocksOffset;
+        private final int size;
+        private final int blockCount;
+        private final int[] docIds = new int[PostingList.BLOCK_SIZE];
+        private int block = -1;
+        private int count;
+        private int index = -1;
+        private int docId = -1;
+
+        BlockIterator(ByteBuffer data, int offset, int size) {
+            this.data = data;
+            this.size = size;
+            this.blockCount = (size + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE;
+            this.skipOffset = offset;
+            this.blocksOffset = offset + blockCount * SKIP_ENTRY_BYTES;
+        }
+
+        private int lastDocId(int block) {
+            return data.getInt(skipOffset + block * SKIP_ENTRY_BYTES);
+        }
+
+        private int blockEnd(int block) {
+            return data.getInt(skipOffset + block * SKIP_ENTRY_BYTES + Integer.BYTES);
+        }
+
+        /**
+         * Decodes a block, and turns its gaps into doc IDs.
+         */
+        private void loadBlock(int newBlock) {
+            block = newBlock;
+            count = Math.min(PostingList.BLOCK_SIZE, size - block * PostingList.BLOCK_SIZE);
+            int start = block == 0 ? 0 : blockEnd(block - 1);
+            decodeBlock(data, blocksOffset + start, count, docIds);
+            int previous = block == 0 ? 0 : lastDocId(block - 1);
+            for (int i = 0; i < count; i++) {
+                previous += docIds[i];
+                docIds[i] = previous;
+            }
+            index = -1;
+        }
+
+        @Override
+        public int docId() {
+            return docId;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (docId == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+            if (index + 1 == count || block < 0) {
+                if (block + 1 == blockCount) {
+                    return end();
+                }
+                loadBlock(block + 1);
+            }
+            index++;
+            return docId = docIds[index];
+        }
+
+        @Override
+        public int advance(int target) {
+            if (docId >= target) {
+                return docId;
+            }
+            if (block < 0 || target > lastDocId(block)) {
+                // Binary search the skip data for the first later block that can contain the target
+                int low = block + 1;
+                int high = blockCount - 1;
+                while (low <= high) {
+                    int middle = (low + high) >>> 1;
+                    if (lastDocId(middle) < target) {
+                        low = middle + 1;
+                    } else {
+                        high = middle - 1;
+                    }
+                }
+                if (low == blockCount) {
+                    return end();
+                }
+                loadBlock(low);
+            }
+            do {
+                index++;
+            } while (docIds[index] < target);
+            return docId = docIds[index];
+        }
+
+        private int end() {
+            block = blockCount;
+            count = 0;
+            index = -1;
+            return docId = NO_MORE_DOCS;
+        }
+
+        @Override
+        public int index() {
+            if (docId == NO_MORE_DOCS) {
+                return size;
+            }
+            return block < 0 ? -1 : block * PostingList.BLOCK_SIZE + index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package searchengine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The statistics that the scores of a query depend on: the number of pages, the number of pages that contain each
+ * word of the query, and the words that each wildcard term of the query expands to.
+ * <p>
+ * A shard of a distributed index only knows the statistics of its own pages, and a word that is rare on one shard
+ * but common on the others would get a higher inverse document frequency there than in the whole index. So the
+ * {@link SearchCoordinator} first asks every shard for the statistics of a query, adds them up, and sends the sums
+ * to the shards with the query, which score their pages with them (see {@link GlobalStatisticsSearchEngine}).
+ * A page then gets the same score as in one index of all pages, and the results of the shards can be merged
+ * by score. A wildcard term expands to the first words with its prefix in all shards, like in one index.
+ * </p>
+ */
+class CollectionStatistics {
+    private int pageCount;
+    private final Map<String, Integer> documentFrequencies = new HashMap<>();
+    private final Map<String, List<String>> expansions = new HashMap<>();
+
+    /**
+     * Creates statistics of no pages, which the statistics of shards are added to.
+     */
+    CollectionStatistics() {
+    }
+
+    /**
+     * Collects the statistics of a query in one search engine.
+     * @param searchEngine the search engine of one shard
+     * @param query the decoded query, which can contain "OR" clauses
+     * @param maxExpansions the most words that a wildcard term expands to
+     * @return the statistics of the words of the query
+     */
+    static CollectionStatistics of(ReadOnlySearchEngine searchEngine, String query, int maxExpansions) {
+        CollectionStatistics statistics = new CollectionStatistics();
+        statistics.pageCount = searchEngine.getPageCount();
+        for (String clause : QueryHandler.orClauses(query)) {
+            for (QueryTerm term : QueryTerm.parse(clause, maxExpansions)) {
+                List<String> words = term.words();
+                if (term.isPrefix()) {
+                    String prefix = words.get(0);
+                    words = searchEngine.getTermsWithPrefix(prefix, maxExpansions);
+                    statistics.expansions.put(prefix, words);
+                }
+                for (String word : words) {
+                    statistics.documentFrequencies.put(word, searchEngine.getDocumentFrequency(word));
+                }
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Adds the statistics of a shard to these statistics.
+     * @param shard the statistics of the same query in another shard
+     * @param maxExpansions the most words that a wildcard term expands to. The first words of all shards are kept,
+     *                      which are among the first words of each shard.
+     */
+    void add(CollectionStatistics shard, int maxExpansions) {
+        pageCount += shard.pageCount;
+        shard.documentFrequencies.forEach((word, documentFrequency) ->
+            documentFrequencies.merge(word, documentFrequency, Integer::sum));
+        shard.expansions.forEach((prefix, words) -> {
+            TreeSet<String> merged = new TreeSet<>(TermDictionary.ORDER);
+            merged.addAll(expansions.getOrDefault(prefix, List.of()));
+            merged.addAll(words);
+            List<String> first = new ArrayList<>(maxExpansions);
+            for (String word : merged) {
+                if (first.size() == maxExpansions) {
+                    break;
+                }
+                first.add(word);
+            }
+            expansions.put(prefix, first);
+        });
+    }
+
+    /**
+     * Returns the number of pages.
+     * @return the number of pages of all shards
+     */
+    int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Returns the number of pages that contain a word of the query.
+     * @param word the word in lowercase
+     * @return the number of pages, or -1 if the word is not in the statistics
+     */
+    int getDocumentFrequency(String word) {
+        return documentFrequencies.getOrDefault(word, -1);
+    }
+
+    /**
+     * Returns the words that a wildcard term of the query expands to.
+     * @param prefix the prefix of the term in lowercase
+     * @return the words in sorted order, or null if the prefix is not in the statistics
+     */
+    List<String> getExpansions(String prefix) {
+        return expansions.get(prefix);
+    }
+
+    /**
+     * Writes the statistics for a request or response between the coordinator and a shard.
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written to
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(pageCount);
+        out.writeInt(documentFrequencies.size());
+        for (Map.Entry<String, Integer> entry : documentFrequencies.entrySet()) {
+            ShardProtocol.writeString(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        out.writeInt(expansions.size());
+        for (Map.Entry<String, List<String>> entry : expansions.entrySet()) {
+            ShardProtocol.writeString(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String word : entry.getValue()) {
+                ShardProtocol.writeString(out, word);
+            }
+        }
+    }
+
+    /**
+     * Reads statistics written by {@link #write(DataOutputStream)}.
+     * @param in the stream to read from
+     * @return the statistics
+     * @throws IOException if the stream cannot be read or ends too early
+     */
+    static CollectionStatistics read(DataInputStream in) throws IOException {
+        CollectionStatistics statistics = new CollectionStatistics();
+        statistics.pageCount = in.readInt();
+        int wordCount = in.readInt();
+        for (int i = 0; i < wordCount; i++) {
+            statistics.documentFrequencies.put(ShardProtocol.readString(in), in.readInt());
+        }
+        int prefixCount = in.readInt();
+        for (int i = 0; i < prefixCount; i++) {
+            String prefix = ShardProtocol.readString(in);
+            int expansionCount = in.readInt();
+            List<String> words = new ArrayList<>();
+            for (int j = 0; j < expansionCount; j++) {
+                words.add(ShardProtocol.readString(in));
+            }
+            statistics.expansions.put(prefix, words);
+        }
+        return statistics;
+    }
+}
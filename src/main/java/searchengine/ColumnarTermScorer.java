@@ -0,0 +1,101 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scorer that reads the score of a page for a term from the impact of its posting, stored in the primitive
+ * arrays of the postings of a search engine.
+ * <p>
+ * The impacts are computed by the search engine with the {@link TermScorer#getImpact(int, int, int, int)} formula
+ * of another scorer, when this scorer is given to {@link SearchEngine#scorePostings(TermScorer)}, so they are
+ * the scores that scorer gives the pages. Looking up a score is a search in the doc IDs of the term and an array
+ * read, instead of splitting the URL and two hash lookups of boxed doubles, and the scores take no memory
+ * besides the postings of the index.
+ * </p>
+ * <p>
+ * The scores of a query come from the postings of the search engine that is given to
+ * {@link #addScores(ReadOnlySearchEngine, int[], String, double[])}, which may be a view that computes other impacts,
+ * such as a {@link GlobalStatisticsSearchEngine}. {@link #getScore(String, String)} reads the postings of the search
+ * engine the scorer was created for.
+ * </p>
+ */
+public class ColumnarTermScorer implements TermScorer {
+    private final SearchEngine searchEngine;
+    private final TermScorer formula;
+
+    /**
+     * Constructs a scorer for the postings of a search engine that uses the term frequency formula.
+     * @param searchEngine the search engine whose postings hold the scores
+     */
+    public ColumnarTermScorer(SearchEngine searchEngine) {
+        this(searchEngine, new TermFrequencyScorer());
+    }
+
+    /**
+     * Constructs a scorer for the postings of a search engine that uses the formula of another scorer.
+     * @param searchEngine the search engine whose postings hold the scores
+     * @param formula the scorer whose {@link TermScorer#getImpact(int, int, int, int)} computes the scores
+     */
+    public ColumnarTermScorer(SearchEngine searchEngine, TermScorer formula) {
+        this.searchEngine = searchEngine;
+        this.formula = formula;
+    }
+
+    /**
+     * Does nothing, as the scores are in the postings of the search engine, and pages are found by their URL
+     * with {@link SearchEngine#getDocId(String)}.
+     * @param pages Not used.
+     */
+    public void loadPages(List<List<String>> pages) {
+    }
+
+    /**
+     * Gets the score of a page for a term, finding the page by its URL in the search engine.
+     * @param url The URL of the page to score, in any case. Anything after " - " is ignored.
+     * @param searchTerm The term to score the page for.
+     * @return The score of the first page with the URL, or 0.0 if the page or the term is not found.
+     */
+    public double getScore(String url, String searchTerm) {
+        int end = url.indexOf(" - ");
+        int docId = searchEngine.getDocId(end < 0 ? url : url.substring(0, end));
+        return docId < 0 ? 0.0 : getScore(docId, searchTerm);
+    }
+
+    /**
+     * Gets the score of a page for a term by its doc ID.
+     * @param docId The doc ID of the page to score.
+     * @param searchTerm The term to score the page for.
+     * @return The score of the page, or 0.0 if the page does not contain the term.
+     */
+    public double getScore(int docId, String searchTerm) {
+        PostingList postings = searchEngine.getPostings(searchTerm);
+        int index = Arrays.binarySearch(postings.docIds(), docId);
+        return index < 0 ? 0.0 : postings.impact(index);
+    }
+
+    /**
+     * Adds the scores of pages for a term, looking the term up once and walking its postings
+     * in step with the given doc IDs.
+     */
+    @Override
+    public void addScores(ReadOnlySearchEngine searchEngine, int[] pages, String searchTerm, double[] pageScores) {
+        searchEngine.getPostings(searchTerm).addImpacts(pages, pageScores);
+    }
+
+    /**
+     * Returns the scorer whose formula computes the scores.
+     * @return the other scorer
+     */
+    TermScorer formula() {
+        return formula;
+    }
+
+    /**
+     * Computes the score of a posting with the formula of the other scorer.
+     */
+    @Override
+    public double getImpact(int frequency, int pageLength, int documentFrequency, int pageCount) {
+        return formula.getImpact(frequency, pageLength, documentFrequency, pageCount);
+    }
+}
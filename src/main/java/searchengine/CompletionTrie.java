@@ -0,0 +1,231 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A trie over the terms of a {@link TermDictionary} that stores the most common completions of every prefix,
+ * for autocompletion as the user types.
+ * <p>
+ * The terms with a prefix are a range of ordinals in the sorted dictionary, so a node of the trie is that range.
+ * A node whose range has more than {@link #MAX_COMPLETIONS} terms has a child for each code point that follows its
+ * prefix, and the ordinals of its {@link #MAX_COMPLETIONS} terms on the most pages, which are computed when the trie
+ * is built from the completions of its children. A lookup follows one child per code point of the prefix, so it
+ * costs O(length of the prefix) whatever the number of terms, instead of reading every term with the prefix to rank
+ * them. A node with fewer terms has no children: its terms are ranked when it is looked up, which costs no more than
+ * reading its stored completions would. The most common term with the prefix comes first, and terms on as many
+ * pages in sorted order.
+ * </p>
+ * <p>
+ * The nodes, the edges and the completions are int arrays, and the terms themselves are only in the dictionary,
+ * so the trie takes a few ints per node and {@link #MAX_COMPLETIONS} per node with children. A trie does not change
+ * once it is built, so it can be used by many threads.
+ * </p>
+ */
+class CompletionTrie {
+    /**
+     * The number of completions stored for each prefix, and the most a lookup returns.
+     */
+    static final int MAX_COMPLETIONS = 10;
+
+    static final CompletionTrie EMPTY = build(TermDictionary.EMPTY, new int[0]);
+
+    private final TermDictionary terms;
+    private final int[] documentFrequencies;
+
+    // Node i has the ordinals from first[i] to end[i], and the edges from childStart[i] to childEnd[i]
+    private final int[] first;
+    private final int[] end;
+    private final int[] childStart;
+    private final int[] childEnd;
+    // The stored completions of node i start at completionStart[i], or it is -1 if the node has no children
+    private final int[] completionStart;
+    // The code points of the edges, sorted for each node, and the nodes they lead to
+    private final int[] edgeCodePoints;
+    private final int[] edgeNodes;
+    private final int[] completions;
+    private final int root;
+
+    private CompletionTrie(TermDictionary terms, int[] documentFrequencies, Builder builder, int root) {
+        this.terms = terms;
+        this.documentFrequencies = documentFrequencies;
+        this.first = builder.first.toArray();
+        this.end = builder.end.toArray();
+        this.childStart = builder.childStart.toArray();
+        this.childEnd = builder.childEnd.toArray();
+        this.completionStart = builder.completionStart.toArray();
+        this.edgeCodePoints = builder.edgeCodePoints.toArray();
+        this.edgeNodes = builder.edgeNodes.toArray();
+        this.completions = builder.completions.toArray();
+        this.root = root;
+    }
+
+    /**
+     * Builds the trie of the terms of a dictionary.
+     * @param terms the terms
+     * @param documentFrequencies the number of pages that contain each term, by ordinal
+     * @return the trie
+     * @throws IllegalArgumentException if the number of frequencies is not the number of terms
+     */
+    static CompletionTrie build(TermDictionary terms, int[] documentFrequencies) {
+        if (documentFrequencies.length != terms.size()) {
+            throw new IllegalArgumentException(documentFrequencies.length + " document frequencies for "
+                + terms.size() + " terms");
+        }
+        String[] sortedTerms = new String[terms.size()];
+        Iterator<String> iterator = terms.iterator();
+        for (int i = 0; i < sortedTerms.length; i++) {
+            sortedTerms[i] = iterator.next();
+        }
+        Builder builder = new Builder(sortedTerms, documentFrequencies);
+        int root = builder.node(0, sortedTerms.length, 0);
+        return new CompletionTrie(terms, documentFrequencies, builder, root);
+    }
+
+    /**
+     * Finds the most common terms that start with a prefix.
+     * @param prefix the prefix, in lowercase
+     * @param count the most terms to return, up to {@link #MAX_COMPLETIONS}
+     * @return the terms with the prefix, on the most pages first
+     */
+    List<String> complete(String prefix, int count) {
+        int node = root;
+        int position = 0;
+        while (position < prefix.length() && completionStart[node] >= 0) {
+            int codePoint = prefix.codePointAt(position);
+            int edge = Arrays.binarySearch(edgeCodePoints, childStart[node], childEnd[node], codePoint);
+            if (edge < 0) {
+                return new ArrayList<>();
+            }
+            node = edgeNodes[edge];
+            position += Character.charCount(codePoint);
+        }
+
+        int limit = Math.min(count, MAX_COMPLETIONS);
+        List<String> result = new ArrayList<>(Math.max(0, limit));
+        if (completionStart[node] >= 0) {
+            for (int i = 0; i < limit; i++) {
+                result.add(terms.term(completions[completionStart[node] + i]));
+            }
+            return result;
+        }
+        // A node without children has few terms, which are filtered by the rest of the prefix and ranked here
+        long[] keys = new long[end[node] - first[node]];
+        int size = 0;
+        for (int ordinal = first[node]; ordinal < end[node]; ordinal++) {
+            if (position == prefix.length() || terms.term(ordinal).startsWith(prefix)) {
+                keys[size++] = rankKey(ordinal, documentFrequencies);
+            }
+        }
+        Arrays.sort(keys, 0, size);
+        for (int i = 0; i < Math.min(limit, size); i++) {
+            result.add(terms.term((int) keys[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of nodes of the trie.
+     * @return the number of prefixes that have a node, including the empty prefix
+     */
+    int nodeCount() {
+        return first.length;
+    }
+
+    /**
+     * Combines the number of pages of a term and its ordinal into a key that sorts the most common terms first,
+     * and terms on as many pages by ordinal.
+     */
+    private static long rankKey(int ordinal, int[] documentFrequencies) {
+        return (long) (Integer.MAX_VALUE - documentFrequencies[ordinal]) << 32 | ordinal;
+    }
+
+    /**
+     * Builds the nodes of a trie depth first from the sorted terms.
+     */
+    private static final class Builder {
+        final String[] sortedTerms;
+        final int[] documentFrequencies;
+        final IntArrayList first = new IntArrayList();
+        final IntArrayList end = new IntArrayList();
+        final IntArrayList childStart = new IntArrayList();
+        final IntArrayList childEnd = new IntArrayList();
+        final IntArrayList completionStart = new IntArrayList();
+        final IntArrayList edgeCodePoints = new IntArrayList();
+        final IntArrayList edgeNodes = new IntArrayList();
+        final IntArrayList completions = new IntArrayList();
+
+        Builder(String[] sortedTerms, int[] documentFrequencies) {
+            this.sortedTerms = sortedTerms;
+            this.documentFrequencies = documentFrequencies;
+        }
+
+        /**
+         * Adds the node of the terms from {@code from} to {@code to}, which share their first {@code depth} chars,
+         * and the nodes below it.
+         * @return the index of the node
+         */
+        int node(int from, int to, int depth) {
+            int node = first.size();
+            first.add(from);
+            end.add(to);
+            childStart.add(0);
+            childEnd.add(0);
+            completionStart.add(-1);
+            if (to - from <= MAX_COMPLETIONS) {
+                return node;
+            }
+
+            // Only the shortest term can be the prefix itself, and the others are grouped by their next code point
+            IntArrayList candidates = new IntArrayList();
+            int start = from;
+            if (sortedTerms[start].length() == depth) {
+                candidates.add(start++);
+            }
+            IntArrayList codePoints = new IntArrayList();
+            IntArrayList children = new IntArrayList();
+            while (start < to) {
+                int codePoint = sortedTerms[start].codePointAt(depth);
+                int stop = start + 1;
+                while (stop < to && sortedTerms[stop].codePointAt(depth) == codePoint) {
+                    stop++;
+                }
+                int child = node(start, stop, depth + Character.charCount(codePoint));
+                codePoints.add(codePoint);
+                children.add(child);
+                if (completionStart.get(child) >= 0) {
+                    for (int i = 0; i < MAX_COMPLETIONS; i++) {
+                        candidates.add(completions.get(completionStart.get(child) + i));
+                    }
+                } else {
+                    for (int ordinal = start; ordinal < stop; ordinal++) {
+                        candidates.add(ordinal);
+                    }
+                }
+                start = stop;
+            }
+
+            // The edges of a node are added together, after those of the nodes below it
+            childStart.set(node, edgeCodePoints.size());
+            for (int i = 0; i < children.size(); i++) {
+                edgeCodePoints.add(codePoints.get(i));
+                edgeNodes.add(children.get(i));
+            }
+            childEnd.set(node, edgeCodePoints.size());
+
+            // The most common terms with the prefix are among the most common terms of each child
+            long[] keys = new long[candidates.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = rankKey(candidates.get(i), documentFrequencies);
+            }
+            Arrays.sort(keys);
+            completionStart.set(node, completions.size());
+            for (int i = 0; i < MAX_COMPLETIONS; i++) {
+                completions.add((int) keys[i]);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bitset that many threads can read while one thread at a time sets bits, without copying it on every change.
+ * <p>
+ * The bits are kept in an {@link AtomicLongArray}, so a bit that is set is seen by every read that starts after
+ * {@link #set(int)} returns. The array is only copied when a bit beyond its end is set, and then to twice the size,
+ * so a bitset of n bits is copied a logarithmic number of times. Readers that still hold the old array only miss
+ * bits that were set after they started.
+ * </p>
+ * <p>
+ * Thread safety: {@link #get(int)} may be called by any thread at any time, but calls of {@link #set(int)}
+ * must not run at the same time, for example because they hold the same lock.
+ * </p>
+ */
+class ConcurrentBitSet {
+    private volatile AtomicLongArray words = new AtomicLongArray(1);
+
+    /**
+     * Checks if a bit is set.
+     * @param index the index of the bit, which is not negative
+     * @return true if the bit is set
+     */
+    boolean get(int index) {
+        AtomicLongArray current = words;
+        int word = index >>> 6;
+        return word < current.length() && (current.get(word) & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets a bit. Must not be called by two threads at the same time.
+     * @param index the index of the bit, which is not negative
+     */
+    void set(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int word = index >>> 6;
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            // Bits are only set by one thread at a time, so no bit is set in the old array while it is copied
+            AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+            current = grown;
+        }
+        current.set(word, current.get(word) | (1L << index));
+    }
+}
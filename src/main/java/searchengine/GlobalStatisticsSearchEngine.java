@@ -0,0 +1,132 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A view of the search engine of one shard of a distributed index that scores its postings with the statistics
+ * of all shards.
+ * <p>
+ * The postings of a word are the postings of the shard, with impacts computed by the formula of a term scorer from
+ * the number of pages that contain the word in all shards and the number of pages of all shards, instead of those
+ * of the shard (see {@link CollectionStatistics}). A wildcard term expands to the words of the statistics. A
+ * {@link QueryHandler} on the view therefore gives each page of the shard the score it would get in one index of
+ * all pages, and prunes with the block maxima of those impacts. The view is made for one query, and only the words
+ * of that query are scored again; everything else is read from the search engine of the shard. The view only
+ * answers queries: the pages and impacts of the shard are loaded and scored by its own search engine.
+ * </p>
+ */
+class GlobalStatisticsSearchEngine implements ReadOnlySearchEngine {
+    private final ReadOnlySearchEngine shard;
+    private final TermScorer formula;
+    private final CollectionStatistics statistics;
+
+    /**
+     * Creates a view of a search engine.
+     * @param shard the search engine of the shard
+     * @param formula the scorer whose {@link TermScorer#getImpact(int, int, int, int)} computes the impacts
+     * @param statistics the statistics of the query in all shards
+     */
+    GlobalStatisticsSearchEngine(ReadOnlySearchEngine shard, TermScorer formula, CollectionStatistics statistics) {
+        this.shard = shard;
+        this.formula = formula;
+        this.statistics = statistics;
+    }
+
+    public int[] search(String searchTerm) {
+        return shard.search(searchTerm);
+    }
+
+    /**
+     * Looks up the postings of a term in the shard, with impacts computed from the statistics of all shards
+     * if the term is in them.
+     * @param searchTerm the term to look up
+     * @return the postings of the shard, which are not changed
+     */
+    public PostingList getPostings(String searchTerm) {
+        String term = searchTerm.toLowerCase();
+        PostingList postings = shard.getPostings(term);
+        int documentFrequency = statistics.getDocumentFrequency(term);
+        if (documentFrequency < 0 || postings.size() == 0) {
+            return postings;
+        }
+        float[] impacts = new float[postings.size()];
+        for (int i = 0; i < impacts.length; i++) {
+            impacts[i] = (float) formula.getImpact(postings.frequency(i), shard.getPageLength(postings.docId(i)),
+                documentFrequency, statistics.getPageCount());
+        }
+        return postings.withImpacts(impacts);
+    }
+
+    /**
+     * Returns the words that a prefix expands to in all shards, if the prefix is in the statistics.
+     * @param prefix the prefix of the terms
+     * @param maxTerms the most terms to return
+     * @return at most {@code maxTerms} terms with the prefix, in sorted order. Some may not be in this shard.
+     */
+    public List<String> getTermsWithPrefix(String prefix, int maxTerms) {
+        List<String> expansions = statistics.getExpansions(prefix.toLowerCase());
+        if (expansions == null) {
+            return shard.getTermsWithPrefix(prefix, maxTerms);
+        }
+        return expansions.subList(0, Math.min(maxTerms, expansions.size()));
+    }
+
+    public List<String> getTermsWithin(String word, int maxEdits, int prefixLength) {
+        return shard.getTermsWithin(word, maxEdits, prefixLength);
+    }
+
+    public List<String> getCompletions(String prefix, int count) {
+        return shard.getCompletions(prefix, count);
+    }
+
+    /**
+     * Returns the number of pages of all shards that contain a term, if it is in the statistics.
+     * @param searchTerm the term to look up
+     * @return the number of pages
+     */
+    public int getDocumentFrequency(String searchTerm) {
+        int documentFrequency = statistics.getDocumentFrequency(searchTerm.toLowerCase());
+        return documentFrequency >= 0 ? documentFrequency : shard.getDocumentFrequency(searchTerm);
+    }
+
+    public String getUrl(int docId) {
+        return shard.getUrl(docId);
+    }
+
+    public String getTitle(int docId) {
+        return shard.getTitle(docId);
+    }
+
+    public int getPageLength(int docId) {
+        return shard.getPageLength(docId);
+    }
+
+    public int getDocId(String url) {
+        return shard.getDocId(url);
+    }
+
+    /**
+     * Returns a view of each segment of the shard that scores its postings with the statistics of all shards.
+     * @return the views, in order of their doc IDs
+     */
+    public List<ReadOnlySearchEngine> getSegments() {
+        List<ReadOnlySearchEngine> segments = new ArrayList<>();
+        for (ReadOnlySearchEngine segment : shard.getSegments()) {
+            segments.add(new GlobalStatisticsSearchEngine(segment, formula, statistics));
+        }
+        return segments;
+    }
+
+    public boolean isDeleted(int docId) {
+        return shard.isDeleted(docId);
+    }
+
+    /**
+     * Returns the number of pages of the shard, as doc IDs are those of the shard.
+     * @return the number of pages of the shard
+     */
+    public int getPageCount() {
+        return shard.getPageCount();
+    }
+}
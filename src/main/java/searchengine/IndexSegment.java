@@ -0,0 +1,201 @@
+package searchengine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable part of a {@link SegmentedSearchEngine}: the inverted index of a range of consecutive doc IDs.
+ * <p>
+ * The doc IDs in the postings of a segment are the doc IDs of the whole engine, so the postings of
+ * consecutive segments can be appended to each other without renumbering, and merging segments
+ * keeps the doc IDs of their pages. The document table of a segment has one entry per doc ID of its range,
+ * including pages that have been deleted.
+ * </p>
+ * <p>
+ * The postings of a published segment have impact scores, which the engine computes once when the segment is
+ * written (see {@link #withImpacts(TermScorer, IndexSegment[], int)}), so that queries read them in place.
+ * </p>
+ */
+class IndexSegment {
+    /**
+     * The first doc ID of the segment.
+     */
+    final int base;
+    final TermDictionary terms;
+    final PostingList[] postingLists;
+    /**
+     * The most common completions of the prefixes of the terms, by their number of pages in this segment,
+     * including the deleted pages.
+     */
+    final CompletionTrie completions;
+    private final String[] urls;
+    private final String[] titles;
+    private final int[] pageLengths;
+    private final UrlTable urlTable;
+
+    private IndexSegment(int base, TermDictionary terms, PostingList[] postingLists,
+                         String[] urls, String[] titles, int[] pageLengths) {
+        this.base = base;
+        this.terms = terms;
+        this.postingLists = postingLists;
+        int[] documentFrequencies = new int[postingLists.length];
+        for (int ordinal = 0; ordinal < postingLists.length; ordinal++) {
+            documentFrequencies[ordinal] = postingLists[ordinal].size();
+        }
+        this.completions = CompletionTrie.build(terms, documentFrequencies);
+        this.urls = urls;
+        this.titles = titles;
+        this.pageLengths = pageLengths;
+        this.urlTable = new UrlTable(base, urls.length, this::getUrl);
+    }
+
+    private IndexSegment(IndexSegment segment, PostingList[] postingLists) {
+        this.base = segment.base;
+        this.terms = segment.terms;
+        this.postingLists = postingLists;
+        this.completions = segment.completions;
+        this.urls = segment.urls;
+        this.titles = segment.titles;
+        this.pageLengths = segment.pageLengths;
+        this.urlTable = segment.urlTable;
+    }
+
+    /**
+     * Creates a segment from a partial index whose pages get the doc IDs from {@code base}.
+     * @param base the doc ID of the first page of the partial index
+     * @param index the partial index, numbered from 0
+     * @return the segment with the pages of the partial index
+     */
+    static IndexSegment of(int base, PartialIndex index) {
+        Map<String, PostingListBuilder> postings = new HashMap<>();
+        for (Map.Entry<String, PostingListBuilder> entry : index.postings.entrySet()) {
+            PostingListBuilder builder = new PostingListBuilder();
+            builder.addAll(entry.getValue(), base);
+            postings.put(entry.getKey(), builder);
+        }
+        int[] pageLengths = new int[index.pageCount()];
+        for (int i = 0; i < pageLengths.length; i++) {
+            pageLengths[i] = index.pageLengths.get(i);
+        }
+        return of(base, postings, index.urls.toArray(new String[0]), index.titles.toArray(new String[0]), pageLengths);
+    }
+
+    /**
+     * Merges consecutive segments into one, and drops the postings of deleted pages.
+     * @param segments segments whose doc ID ranges follow each other, in order
+     * @param deleted the doc IDs of the deleted pages
+     * @return the segment with the pages of all segments
+     */
+    static IndexSegment merge(List<IndexSegment> segments, ConcurrentBitSet deleted) {
+        Map<String, PostingListBuilder> postings = new HashMap<>();
+        int pageCount = 0;
+        for (IndexSegment segment : segments) {
+            pageCount += segment.pageCount();
+            int ordinal = 0;
+            for (String term : segment.terms) {
+                PostingList list = segment.postingLists[ordinal++];
+                PostingListBuilder builder = null;
+                for (int i = 0; i < list.size(); i++) {
+                    if (!deleted.get(list.docId(i))) {
+                        if (builder == null) {
+                            // A term is only kept if one of its pages is not deleted
+                            builder = postings.computeIfAbsent(term, k -> new PostingListBuilder());
+                        }
+                        builder.add(list.docId(i), list.frequency(i));
+                    }
+                }
+            }
+        }
+
+        String[] urls = new String[pageCount];
+        String[] titles = new String[pageCount];
+        int[] pageLengths = new int[pageCount];
+        int position = 0;
+        for (IndexSegment segment : segments) {
+            System.arraycopy(segment.urls, 0, urls, position, segment.pageCount());
+            System.arraycopy(segment.titles, 0, titles, position, segment.pageCount());
+            System.arraycopy(segment.pageLengths, 0, pageLengths, position, segment.pageCount());
+            position += segment.pageCount();
+        }
+        return of(segments.get(0).base, postings, urls, titles, pageLengths);
+    }
+
+    private static IndexSegment of(int base, Map<String, PostingListBuilder> postings,
+                                   String[] urls, String[] titles, int[] pageLengths) {
+        TermDictionary terms = TermDictionary.of(postings.keySet());
+        PostingList[] postingLists = new PostingList[terms.size()];
+        int ordinal = 0;
+        for (String term : terms) {
+            postingLists[ordinal++] = postings.get(term).build();
+        }
+        return new IndexSegment(base, terms, postingLists, urls, titles, pageLengths);
+    }
+
+    /**
+     * Returns a copy of this segment whose postings are scored with the statistics of a whole engine. The document
+     * frequency of a term is its number of pages in this segment and the other segments, including deleted pages.
+     * @param scorer the scorer whose {@link TermScorer#getImpact(int, int, int, int)} computes the impacts
+     * @param others the other segments of the engine
+     * @param pageCount the number of pages of the engine
+     * @return the scored segment, which shares everything else with this one
+     */
+    IndexSegment withImpacts(TermScorer scorer, IndexSegment[] others, int pageCount) {
+        PostingList[] scored = new PostingList[postingLists.length];
+        int ordinal = 0;
+        for (String term : terms) {
+            PostingList postings = postingLists[ordinal];
+            int documentFrequency = postings.size();
+            for (IndexSegment other : others) {
+                documentFrequency += other.getPostings(term).size();
+            }
+            float[] impacts = new float[postings.size()];
+            for (int i = 0; i < impacts.length; i++) {
+                impacts[i] = (float) scorer.getImpact(postings.frequency(i), getPageLength(postings.docId(i)),
+                    documentFrequency, pageCount);
+            }
+            scored[ordinal++] = postings.withImpacts(impacts);
+        }
+        return new IndexSegment(this, scored);
+    }
+
+    /**
+     * Returns the postings of a term in this segment, including those of deleted pages.
+     * @param term the term in lowercase
+     * @return the postings, or an empty list if no page of the segment contains the term
+     */
+    PostingList getPostings(String term) {
+        int ordinal = terms.ordinal(term);
+        return ordinal >= 0 ? postingLists[ordinal] : PostingList.EMPTY;
+    }
+
+    /**
+     * Returns the number of doc IDs in the range of the segment, including deleted pages.
+     * @return the number of pages
+     */
+    int pageCount() {
+        return urls.length;
+    }
+
+    String getUrl(int docId) {
+        return urls[docId - base];
+    }
+
+    /**
+     * Finds the first page of the segment with a URL, ignoring case.
+     * @param url the URL of the page
+     * @param deleted the doc IDs of the deleted pages, which are not found
+     * @return the doc ID of the page, or -1 if no page of the segment that is not deleted has the URL
+     */
+    int getDocId(String url, ConcurrentBitSet deleted) {
+        return urlTable.find(url, this::getUrl, docId -> !deleted.get(docId));
+    }
+
+    String getTitle(int docId) {
+        return titles[docId - base];
+    }
+
+    int getPageLength(int docId) {
+        return pageLengths[docId - base];
+    }
+}
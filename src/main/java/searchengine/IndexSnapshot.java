@@ -0,0 +1,241 @@
+package searchengine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an inverted index to a binary snapshot file, which {@link SnapshotSearchEngine} can open
+ * with memory mapping instead of parsing the pages again.
+ * <p>
+ * The snapshot holds the document table, a hash table from URL to doc ID that ignores case (see {@link UrlTable}),
+ * the front-coded blocks of the {@link TermDictionary}, and the postings of each term with their frequencies, impact scores
+ * and the highest impact of each block of {@link PostingList#BLOCK_SIZE} postings, in the order
+ * of the term ordinals, followed by the name of the formula that computed the impacts (see
+ * {@link #formulaName(TermScorer)}), so that a search engine with the same formula can use them as they are. The doc IDs of each term are compressed with the {@link PostingCodec} that suits them.
+ * All numbers are big-endian.
+ * The file starts with a header of fixed size:
+ * </p>
+ * <ul>
+ * <li>magic number and format version</li>
+ * <li>number of pages, number of terms, capacity of the URL table and length of the longest term</li>
+ * <li>the position of each section in the file</li>
+ * </ul>
+ * <p>
+ * A snapshot with another version is not read, and the index is built from the pages instead.
+ * </p>
+ */
+public class IndexSnapshot {
+    static final int MAGIC = 0x53454958;
+    static final int VERSION = 6;
+
+    /**
+     * The sections of the file, in the order they are written. Their positions are stored in the header.
+     */
+    static final int DOC_OFFSETS = 0;
+    static final int DOC_DATA = 1;
+    static final int PAGE_LENGTHS = 2;
+    static final int URL_TABLE = 3;
+    static final int TERM_BLOCKS = 4;
+    static final int TERM_DATA = 5;
+    static final int POSTING_DATA = 6;
+    static final int POSTING_OFFSETS = 7;
+    static final int IMPACT_FORMULA = 8;
+    static final int SECTION_COUNT = 9;
+
+    static final int HEADER_BYTES = 6 * Integer.BYTES + SECTION_COUNT * Long.BYTES;
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * Returns the path of the snapshot of a file of pages.
+     * @param filename the name of the file containing the pages
+     * @return the path of its snapshot, next to the file
+     */
+    public static Path snapshotPath(String filename) {
+        return Paths.get(filename + ".idx");
+    }
+
+    /**
+     * Checks if a snapshot exists and was written after the file of pages was last changed.
+     * @param snapshot the path of the snapshot
+     * @param source the path of the file of pages
+     * @return true if the snapshot can be used instead of the file
+     * @throws IOException if the modification times cannot be read
+     */
+    public static boolean isUpToDate(Path snapshot, Path source) throws IOException {
+        return Files.exists(snapshot)
+            && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(source)) > 0;
+    }
+
+    /**
+     * Writes the index of a search engine to a snapshot file.
+     * The snapshot is written to a temporary file first, so a reader never sees half a snapshot.
+     * @param searchEngine the search engine with the loaded and scored pages
+     * @param file the path of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(InvertedIndexSearchEngine searchEngine, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int pageCount = searchEngine.getPageCount();
+        TermDictionary terms = searchEngine.terms;
+        PostingList[] postingLists = searchEngine.postingLists;
+        long[] sections = new long[SECTION_COUNT];
+        int[] urlTable = searchEngine.urlTable.slots();
+        int urlTableCapacity = urlTable.length;
+
+        try (CountingOutputStream counter = new CountingOutputStream(Files.newOutputStream(temporary));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(counter, 1 << 16))) {
+            out.write(new byte[HEADER_BYTES]);
+
+            // Document table: the offset of each page's record, then the records with URL and title
+            List<byte[]> urls = new ArrayList<>(pageCount);
+            List<byte[]> titles = new ArrayList<>(pageCount);
+            sections[DOC_OFFSETS] = position(out, counter);
+            long offset = 0;
+            for (int docId = 0; docId < pageCount; docId++) {
+                urls.add(searchEngine.getUrl(docId).getBytes(StandardCharsets.UTF_8));
+                titles.add(searchEngine.getTitle(docId).getBytes(StandardCharsets.UTF_8));
+                out.writeLong(offset);
+                offset += Integer.BYTES + urls.get(docId).length + titles.get(docId).length;
+            }
+            out.writeLong(offset);
+            sections[DOC_DATA] = position(out, counter);
+            for (int docId = 0; docId < pageCount; docId++) {
+                out.writeInt(urls.get(docId).length);
+                out.write(urls.get(docId));
+                out.write(titles.get(docId));
+            }
+
+            sections[PAGE_LENGTHS] = position(out, counter);
+            for (int docId = 0; docId < pageCount; docId++) {
+                out.writeInt(searchEngine.pageLengths.get(docId));
+            }
+
+            // URL table: open addressing with linear probing, -1 marks an empty slot
+            sections[URL_TABLE] = position(out, counter);
+            for (int docId : urlTable) {
+                out.writeInt(docId);
+            }
+
+            // Term dictionary: the offset of each block, then the front-coded blocks
+            sections[TERM_BLOCKS] = position(out, counter);
+            for (int blockOffset : terms.blockOffsets()) {
+                out.writeInt(blockOffset);
+            }
+            sections[TERM_DATA] = position(out, counter);
+            out.write(terms.data());
+
+            // Postings: the size, encoded doc IDs, frequencies, impacts and block maxima of each term,
+            // then their offsets
+            sections[POSTING_DATA] = position(out, counter);
+            long[] postingOffsets = new long[postingLists.length];
+            offset = 0;
+            for (int termId = 0; termId < postingLists.length; termId++) {
+                PostingList postings = postingLists[termId];
+                byte[] docIds = PostingCodec.encode(postings.docIds());
+                postingOffsets[termId] = offset;
+                offset += 2 * Integer.BYTES + docIds.length + 2L * Integer.BYTES * postings.size()
+                    + (long) Float.BYTES * postings.blockCount();
+                out.writeInt(postings.size());
+                out.writeInt(docIds.length);
+                out.write(docIds);
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeInt(postings.frequency(i));
+                }
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeFloat(postings.impact(i));
+                }
+                for (int block = 0; block < postings.blockCount(); block++) {
+                    out.writeFloat(postings.blockMaxImpact(block));
+                }
+            }
+            sections[POSTING_OFFSETS] = position(out, counter);
+            for (long postingOffset : postingOffsets) {
+                out.writeLong(postingOffset);
+            }
+
+            sections[IMPACT_FORMULA] = position(out, counter);
+            byte[] formula = formulaName(searchEngine.impactScorer).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(formula.length);
+            out.write(formula);
+        }
+
+        writeHeader(temporary, pageCount, terms.size(), urlTableCapacity, terms.maxTermLength(), sections);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeHeader(Path file, int pageCount, int termCount, int urlTableCapacity,
+            int maxTermLength, long[] sections) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(pageCount).putInt(termCount).putInt(urlTableCapacity)
+            .putInt(maxTermLength);
+        for (long section : sections) {
+            header.putLong(section);
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    private static long position(DataOutputStream out, CountingOutputStream counter) throws IOException {
+        out.flush();
+        return counter.count;
+    }
+
+    /**
+     * Returns the name of the formula that a scorer computes impacts with. Scorers that use the formula of another
+     * scorer have the name of that formula, so impacts written with one of them can be read with any of the others.
+     * @param termScorer the scorer
+     * @return the name of the class of the formula
+     */
+    static String formulaName(TermScorer termScorer) {
+        if (termScorer instanceof ColumnarTermScorer) {
+            return formulaName(((ColumnarTermScorer) termScorer).formula());
+        }
+        if (termScorer instanceof PostingScorer) {
+            return formulaName(((PostingScorer) termScorer).formula());
+        }
+        return termScorer.getClass().getName();
+    }
+
+
+    /**
+     * An output stream that counts the bytes written through it.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+}
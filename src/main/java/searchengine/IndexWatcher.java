@@ -0,0 +1,126 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the configuration file and the file of pages it names, and reloads the index of a web server
+ * when either of them changes.
+ * <p>
+ * A file is often written in several steps, so the watcher waits until the files have not changed for
+ * {@link #QUIET_MILLIS} milliseconds before it asks for a reload. The reload itself runs in the background
+ * of the web server (see {@link WebServer#scheduleReload(String)}), which ignores it for a segmented index.
+ * </p>
+ */
+public class IndexWatcher implements Runnable {
+    static final long QUIET_MILLIS = 500;
+
+    private final WebServer server;
+    private final Path configFile;
+    private final WatchService watchService;
+    private Path pagesFile;
+
+    private IndexWatcher(WebServer server, Path configFile) throws IOException {
+        this.server = server;
+        this.configFile = configFile.toAbsolutePath().normalize();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        watchDirectory(this.configFile);
+        pagesFile = Paths.get(server.getFilename()).toAbsolutePath().normalize();
+        watchDirectory(pagesFile);
+    }
+
+    /**
+     * Starts watching the files on a daemon thread.
+     * @param server the web server whose index is reloaded
+     * @param configFile the configuration file, which contains the name of the file of pages
+     * @return the watcher, which can be closed to stop watching
+     * @throws IOException if the files cannot be watched
+     */
+    public static IndexWatcher start(WebServer server, Path configFile) throws IOException {
+        IndexWatcher watcher = new IndexWatcher(server, configFile);
+        Thread thread = new Thread(watcher, "index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    /**
+     * Stops watching the files.
+     * @throws IOException if the watch service cannot be closed
+     */
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Waits for changes of the files, and asks for a reload after each burst of changes.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                boolean changed = handleEvents(watchService.take());
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= handleEvents(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was stopped
+        }
+    }
+
+    /**
+     * Checks if the events of a directory are about the watched files.
+     * @return true if the configuration file or the file of pages changed
+     */
+    private boolean handleEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost, so one of them may have been about the files
+                changed = true;
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            changed |= file.equals(configFile) || file.equals(pagesFile);
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Reads the name of the file of pages from the configuration file, and reloads it.
+     */
+    private void reload() {
+        try {
+            String filename = Files.readString(configFile).strip();
+            pagesFile = Paths.get(filename).toAbsolutePath().normalize();
+            watchDirectory(pagesFile);
+            server.scheduleReload(filename);
+        } catch (IOException e) {
+            System.err.println("Could not read " + configFile + ", keeping the current index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Watches the directory of a file. Watching a directory twice has no effect.
+     */
+    private void watchDirectory(Path file) throws IOException {
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+}
@@ -0,0 +1,93 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints.
+ * Used while building posting lists, so that doc IDs are not boxed into Integer objects.
+ */
+class IntArrayList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty list with a small initial capacity.
+     */
+    IntArrayList() {
+        this(4);
+    }
+
+    /**
+     * Constructs an empty list with the given initial capacity.
+     * @param capacity the initial capacity of the list
+     */
+    IntArrayList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     * @param value the value to append
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Returns the value at the given position.
+     * @param index the position of the value
+     * @return the value at the given position
+     */
+    int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at the given position.
+     * @param index the position of the value
+     * @param value the new value
+     */
+    void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        values[index] = value;
+    }
+
+    /**
+     * Returns the last value in the list.
+     * @return the last value, or -1 if the list is empty
+     */
+    int last() {
+        return size == 0 ? -1 : values[size - 1];
+    }
+
+    /**
+     * Returns the number of values in the list.
+     * @return the size of the list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all values from the list.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the values into an array of exactly the right length.
+     * @return a new array with the values of the list
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
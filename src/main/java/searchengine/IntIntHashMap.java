@@ -0,0 +1,131 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int values, with open addressing and linear probing.
+ * Used on hot paths where a {@code Map<Integer, Integer>} would box every key and value.
+ */
+class IntIntHashMap {
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructs an empty map with a small initial capacity.
+     */
+    IntIntHashMap() {
+        this(8);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without growing.
+     * @param expectedSize the number of entries
+     */
+    IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Returns the value of a key.
+     * @param key the key, which must not be {@link Integer#MIN_VALUE}
+     * @param missing the value to return if the key is not in the map
+     * @return the value of the key, or {@code missing}
+     */
+    int get(int key, int missing) {
+        for (int slot = slot(key); ; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == FREE) {
+                return missing;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a key.
+     * @param key the key, which must not be {@link Integer#MIN_VALUE}
+     * @param value the new value of the key
+     */
+    void put(int key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("The key " + key + " is reserved");
+        }
+        int slot = slot(key);
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (keys[slot] == FREE) {
+            // Keep the table at most half full, so that probes stay short
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                put(key, value);
+                return;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Removes a key from the map, if it is there.
+     * @param key the key to remove
+     */
+    void remove(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Move later keys of the same probe run back into the hole, so that lookups never stop early
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = FREE;
+        size--;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     * @return the size of the map
+     */
+    int size() {
+        return size;
+    }
+
+    private int slot(int key) {
+        // Spread consecutive doc IDs over the table
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (keys.length - 1);
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[keys.length];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -1,98 +1,307 @@
 package searchengine;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The InvertedIndexSearchEngine class implements a search engine using an inverted index.
  * It allows loading pages from a file and searching for terms within those pages.
+ * <p>
+ * Every loaded page gets a dense integer doc ID, which is its position in the document table.
+ * The index maps each term to a {@link PostingList} with the sorted doc IDs of the pages that contain it,
+ * and each page is listed only once per term, together with the term frequency and impact score.
+ * The terms are kept in a compressed {@link TermDictionary}, and the posting lists in an array by term ordinal.
+ * </p>
+ * <p>
+ * A positional index also stores the positions of each term on each page in its postings, which phrase and
+ * proximity queries need. It is chosen when the search engine is created, as the positions make the index larger
+ * (see {@link #positionsSizeInBytes()}).
+ * </p>
  */
 
 public class InvertedIndexSearchEngine implements SearchEngine {
-    List<List<String>> pages = new ArrayList<>();
-    Map<String, ArrayList<String>> pageIndex = new HashMap<String, ArrayList<String>>();
+    List<String> urls = new ArrayList<>();
+    List<String> titles = new ArrayList<>();
+    IntArrayList pageLengths = new IntArrayList();
+    UrlTable urlTable = new UrlTable(0, 0, urls::get);
 
     /**
-     * Loads pages from a file and builds the inverted index.
+     * The sorted terms of the index. The postings of the term with ordinal i are in {@code postingLists[i]}.
+     */
+    TermDictionary terms = TermDictionary.EMPTY;
+    PostingList[] postingLists = new PostingList[0];
+
+    /**
+     * The most common completions of the prefixes of the terms, built with the term dictionary.
+     */
+    CompletionTrie completions = CompletionTrie.EMPTY;
+
+    /**
+     * The scorer whose formula is used for the impact scores of the postings.
+     */
+    TermScorer impactScorer = new TermFrequencyScorer();
+
+    private final boolean positional;
+
+    /**
+     * The number of threads that load the pages and score the postings.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates an empty search engine without positions.
+     */
+    public InvertedIndexSearchEngine() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty search engine.
+     * @param positional whether the index stores the positions of the terms, for phrase and proximity queries
+     */
+    public InvertedIndexSearchEngine(boolean positional) {
+        this.positional = positional;
+    }
+
+    /**
+     * Loads pages from a file and builds the inverted index, using one thread per available processor.
      * @param filename the name of the file containing the pages
      * @throws IOException if an I/O error occurs while reading from the file
      */
     public void loadPages(String filename) throws IOException {
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename))) {
-            String line;
-            List<String> pageBuffer = new ArrayList<>();
-
-            // Read the file line by line, check if the line has a title and content, and process the page
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("*PAGE")) {
-                    if (!pageBuffer.isEmpty()) {
-                        if (hasTitleAndContent(pageBuffer, 0)) {
-                            processPage(pageBuffer);
-                        }
-                        pageBuffer.clear();
-                    }
-                }
-                pageBuffer.add(line);
-            }
-
-            if (!pageBuffer.isEmpty()) {
-                processPage(pageBuffer);
-            }
-        }
+        loadPages(filename, Runtime.getRuntime().availableProcessors());
+    }
 
+    /**
+     * Loads pages from a file and builds the inverted index with the given number of threads.
+     * The pages get the same doc IDs whatever the number of threads.
+     * @param filename the name of the file containing the pages
+     * @param parallelism the number of threads that read and index the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    public void loadPages(String filename, int parallelism) throws IOException {
+        this.parallelism = Math.max(1, parallelism);
+        addPages(ParallelIndexBuilder.build(Paths.get(filename), parallelism, positional));
     }
 
     /**
-     * Processes a single page buffer, extracts the URL and title, and adds words to the inverted index.
-     * @param pageBuffer the list of strings representing the content of a page
+     * Adds the pages of a partial index after the pages already loaded, and scores the postings.
+     * @param loaded the partial index of the loaded pages
      */
-    private void processPage(List<String> pageBuffer) {
-        String url = pageBuffer.get(0);
-        url = url.replace("*PAGE:", ""); 
-        String title = pageBuffer.size() > 1 ? pageBuffer.get(1).toLowerCase() : "";
+    private void addPages(PartialIndex loaded) {
+        int offset = getPageCount();
+        urls.addAll(loaded.urls);
+        titles.addAll(loaded.titles);
+        for (int i = 0; i < loaded.pageLengths.size(); i++) {
+            pageLengths.add(loaded.pageLengths.get(i));
+        }
+        urlTable = new UrlTable(0, urls.size(), urls::get);
 
-        // Add all words to the inverted index
-        for (String word : pageBuffer) {
-            if (!word.equalsIgnoreCase(pageBuffer.get(0))) {
-            pageIndex.computeIfAbsent(word.toLowerCase(), k -> new ArrayList<>())
-                    .add(url + " - " + title);
+        // Pages are numbered in load order, so the new postings come after any postings loaded earlier
+        Set<String> allTerms = new HashSet<>(loaded.postings.keySet());
+        terms.forEach(allTerms::add);
+        TermDictionary merged = TermDictionary.of(allTerms);
+        PostingList[] mergedLists = new PostingList[merged.size()];
+        Iterator<String> sortedTerms = merged.iterator();
+        for (int ordinal = 0; ordinal < mergedLists.length; ordinal++) {
+            String term = sortedTerms.next();
+            PostingListBuilder added = loaded.postings.get(term);
+            int existing = offset == 0 ? -1 : terms.ordinal(term);
+            if (existing < 0) {
+                mergedLists[ordinal] = added.build();
+            } else if (added == null) {
+                mergedLists[ordinal] = postingLists[existing];
+            } else {
+                PostingListBuilder builder = new PostingListBuilder(positional);
+                builder.addAll(postingLists[existing]);
+                builder.addAll(added, offset);
+                mergedLists[ordinal] = builder.build();
             }
         }
-    
-        // Collect all terms in lowercase and add them to the list of pages
-        List<String> terms = new ArrayList<>();
-        for (String term : pageBuffer) {
-            terms.add(term.toLowerCase());
+        terms = merged;
+        postingLists = mergedLists;
+        int[] documentFrequencies = new int[mergedLists.length];
+        for (int ordinal = 0; ordinal < mergedLists.length; ordinal++) {
+            documentFrequencies[ordinal] = mergedLists[ordinal].size();
         }
-        pages.add(terms);
-}
+        completions = CompletionTrie.build(merged, documentFrequencies);
+        scorePostings(impactScorer);
+    }
 
     /**
-     * Returns the list of pages.
-     * @return a list of lists. Each inner list represents a page.
+     * Computes the impact score of every posting with the formula of the given scorer, with as many threads
+     * as loaded the pages.
+     * <p>
+     * The postings are scored in a pool of their own rather than the common pool, which the {@link QueryHandler}
+     * uses for the ranges of large queries, so that scoring a new index while the old one answers queries
+     * takes no more threads than {@code searchengine.reloadThreads}.
+     * </p>
+     * @param termScorer the scorer whose {@link TermScorer#getImpact(int, int, int, int)} is used
+     */
+    public void scorePostings(TermScorer termScorer) {
+        impactScorer = termScorer;
+        int pageCount = getPageCount();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            // A parallel stream that is started in a pool runs its tasks in that pool
+            pool.invoke(ForkJoinTask.adapt(() -> Arrays.stream(postingLists).parallel().forEach(postings -> {
+                float[] impacts = new float[postings.size()];
+                for (int i = 0; i < impacts.length; i++) {
+                    int pageLength = pageLengths.get(postings.docId(i));
+                    impacts[i] = (float) termScorer.getImpact(postings.frequency(i), pageLength, postings.size(),
+                        pageCount);
+                }
+                postings.setImpacts(impacts);
+            })));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The words of the pages are not kept after they are indexed, only their URLs, titles and lengths.
+     * @return an empty list
      */
     public List<List<String>> getPages() {
-        return pages;
+        return Collections.emptyList();
     }
 
     /**
      * Search() searches for pages containing the specified term.
      *
      * @param searchTerm the term to search for
-     * @return a list of URLs and titles of pages containing the term
+     * @return the sorted doc IDs of the pages containing the term
+     */
+    public int[] search(String searchTerm) {
+        return getPostings(searchTerm).docIds();
+    }
+
+    /**
+     * Returns the postings of a term, with their frequencies and impact scores.
+     *
+     * @param searchTerm the term to look up
+     * @return the postings of the term, or an empty list if no page contains it
+     */
+    public PostingList getPostings(String searchTerm) {
+        int ordinal = terms.ordinal(searchTerm.toLowerCase());
+        return ordinal >= 0 ? postingLists[ordinal] : PostingList.EMPTY;
+    }
+
+    /**
+     * Returns the terms that start with a prefix, from a range of the term dictionary.
+     *
+     * @param prefix the prefix of the terms
+     * @param maxTerms the most terms to return
+     * @return at most {@code maxTerms} terms with the prefix, in sorted order
      */
-    public ArrayList<String> search(String searchTerm) {
-        String searchTermToLower = searchTerm.toLowerCase();
-        if (pageIndex.containsKey(searchTermToLower)) {
-            return pageIndex.get(searchTermToLower);
+    public List<String> getTermsWithPrefix(String prefix, int maxTerms) {
+        return terms.termsWithPrefix(prefix.toLowerCase(), maxTerms);
+    }
+
+    /**
+     * Returns the terms within a number of edits of a word, found with a Levenshtein automaton.
+     *
+     * @param word the word
+     * @param maxEdits the largest distance of a term to the word
+     * @param prefixLength the number of code points at the start of the word that the terms must start with
+     * @return the terms within the distance, in sorted order
+     */
+    public List<String> getTermsWithin(String word, int maxEdits, int prefixLength) {
+        return terms.termsWithin(new LevenshteinAutomaton(word.toLowerCase(), maxEdits, prefixLength));
+    }
+
+    /**
+     * Returns the most common terms that start with a prefix, from the completion trie.
+     *
+     * @param prefix the prefix of the terms
+     * @param count the most terms to return, up to {@link CompletionTrie#MAX_COMPLETIONS}
+     * @return at most {@code count} terms with the prefix, the terms on the most pages first
+     */
+    public List<String> getCompletions(String prefix, int count) {
+        return completions.complete(prefix.toLowerCase(), count);
+    }
+
+    /**
+     * Returns the number of pages that contain a term.
+     *
+     * @param searchTerm the term to look up
+     * @return the size of the postings of the term
+     */
+    public int getDocumentFrequency(String searchTerm) {
+        return getPostings(searchTerm).size();
+    }
+
+    /**
+     * Checks if the index stores the positions of the terms.
+     * @return true if the postings have positions
+     */
+    public boolean isPositional() {
+        return positional;
+    }
+
+    /**
+     * Returns the number of bytes the positions of all postings take.
+     * @return the size of the positions, or 0 if the index is not positional
+     */
+    public long positionsSizeInBytes() {
+        long size = 0;
+        for (PostingList postings : postingLists) {
+            size += postings.positionsSizeInBytes();
         }
-        return new ArrayList<String>();
+        return size;
+    }
+
+    /**
+     * Returns the URL of a loaded page.
+     * @param docId the doc ID of the page
+     * @return the URL of the page
+     */
+    public String getUrl(int docId) {
+        return urls.get(docId);
+    }
+
+    /**
+     * Finds a loaded page by its URL in the URL table of the index.
+     * @param url the URL of the page
+     * @return the doc ID of the first page with the URL, ignoring case, or -1 if there is no such page
+     */
+    public int getDocId(String url) {
+        return urlTable.find(url, urls::get, docId -> true);
+    }
+
+    /**
+     * Returns the lowercase title of a loaded page.
+     * @param docId the doc ID of the page
+     * @return the title of the page
+     */
+    public String getTitle(int docId) {
+        return titles.get(docId);
+    }
+
+    /**
+     * Returns the number of terms on a loaded page.
+     * @param docId the doc ID of the page
+     * @return the length of the page
+     */
+    public int getPageLength(int docId) {
+        return pageLengths.get(docId);
+    }
+
+    /**
+     * Returns the number of loaded pages. Doc IDs go from 0 to this number minus one.
+     * @return the number of loaded pages
+     */
+    public int getPageCount() {
+        return urls.size();
     }
 
   /**
@@ -103,19 +312,7 @@ public class InvertedIndexSearchEngine implements SearchEngine {
    * @return true if the line has a title and a content, false if not
    */
     public boolean hasTitleAndContent(List<String> lines, int index) {
-        if (!lines.get(index).startsWith("*PAGE")) {
-            return false;
-        }
-        if (index + 2 >= lines.size()) {
-            return false;
-        }
-        if (lines.get(index + 1) == null || lines.get(index + 1).isEmpty()) {
-            return false;
-        }
-        if (lines.get(index + 2) == null || lines.get(index + 2).isEmpty()) {
-            return false;
-        }
-        return true;
- } 
+        return PartialIndex.hasTitleAndContent(lines, index);
+    }
 
-}
\ No newline at end of file
+}
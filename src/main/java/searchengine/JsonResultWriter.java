@@ -0,0 +1,155 @@
+package searchengine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes search results as a JSON array of {@code {"url": "...", "title": "..."}} objects to a stream,
+ * or suggestions as a JSON array of strings.
+ * <p>
+ * The strings are escaped and encoded to UTF-8 straight into a reused buffer, which is written to the stream
+ * whenever it is full. No Strings or byte arrays are created per result, and the client receives the first
+ * results while later ones are still being written.
+ * </p>
+ */
+public class JsonResultWriter implements Closeable {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The most bytes one char can be written as: a \\uXXXX escape.
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int length;
+    private boolean firstResult = true;
+
+    /**
+     * Creates a writer of results.
+     * @param out the stream to write the JSON array to
+     */
+    public JsonResultWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes one result to the array.
+     * @param url the URL of the page
+     * @param title the title of the page
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeResult(String url, String title) throws IOException {
+        writeAscii(firstResult ? "[{\"url\": \"" : ", {\"url\": \"");
+        firstResult = false;
+        writeEscaped(url);
+        writeAscii("\", \"title\": \"");
+        writeEscaped(title);
+        writeAscii("\"}");
+    }
+
+    /**
+     * Writes one string to the array.
+     * @param value the string
+     * @throws IOException if the stream cannot be written to
+     */
+    public void writeString(String value) throws IOException {
+        writeAscii(firstResult ? "[\"" : ", \"");
+        firstResult = false;
+        writeEscaped(value);
+        writeAscii("\"");
+    }
+
+    /**
+     * Ends the array, and writes and closes the stream.
+     * @throws IOException if the stream cannot be written to
+     */
+    @Override
+    public void close() throws IOException {
+        writeAscii(firstResult ? "[]" : "]");
+        flushBuffer();
+        out.close();
+    }
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (length == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Writes a string as the content of a JSON string: quotes, backslashes and control characters are
+     * escaped, and all other characters are encoded to UTF-8.
+     */
+    private void writeEscaped(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (length > BUFFER_SIZE - MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer[length++] = '\\';
+                buffer[length++] = (byte) c;
+            } else if (c < 0x20) {
+                writeControl(c);
+            } else if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | c >> 6);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate cannot be encoded, so it is replaced like String.getBytes does
+                buffer[length++] = '?';
+            } else {
+                buffer[length++] = (byte) (0xE0 | c >> 12);
+                buffer[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+    }
+
+    private void writeControl(char c) {
+        buffer[length++] = '\\';
+        switch (c) {
+            case '\n':
+                buffer[length++] = 'n';
+                break;
+            case '\r':
+                buffer[length++] = 'r';
+                break;
+            case '\t':
+                buffer[length++] = 't';
+                break;
+            case '\b':
+                buffer[length++] = 'b';
+                break;
+            case '\f':
+                buffer[length++] = 'f';
+                break;
+            default:
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX[c >> 4];
+                buffer[length++] = HEX[c & 0xF];
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
@@ -0,0 +1,204 @@
+package searchengine;
+
+/**
+ * An automaton that accepts the strings within a number of edits of a word: insertions, deletions and
+ * substitutions of one code point each (the Levenshtein distance).
+ * <p>
+ * A state is a row of the edit distance table of the word against the code points read so far: entry j is the
+ * distance between the first j code points of the word and the input. A transition computes the next row from the
+ * previous one in O(length of the word). The automaton is run over the terms of a {@link TermDictionary} in sorted
+ * order, so terms that share a prefix share the states of that prefix, and as soon as no entry of a row is within
+ * the distance, no string with that prefix can be accepted. The terms after it are skipped to the next string
+ * that can be accepted (see {@link #nextCodePoint(int[], int)}): from most states, only the code points
+ * of the word lead to a state that can still match, so the terms that start with any other code point are skipped
+ * with one lookup.
+ * </p>
+ * <p>
+ * An automaton can also require the first code points of a string to be those of the word. Spelling mistakes are
+ * rarely in the first letter, and with that letter fixed only the range of terms that start with it is read.
+ * </p>
+ * <p>
+ * Entries larger than the distance are all stored as the distance plus one, which keeps them small and does not
+ * change which strings are accepted. An automaton has no mutable state, so it can be used by many threads.
+ * </p>
+ */
+final class LevenshteinAutomaton {
+    private final int[] word;
+    private final int maxEdits;
+    private final int prefixLength;
+
+    /**
+     * Creates an automaton for a word.
+     * @param word the word that accepted strings are close to
+     * @param maxEdits the largest distance of an accepted string, from 0 to 2
+     * @throws IllegalArgumentException if the distance is out of range
+     */
+    LevenshteinAutomaton(String word, int maxEdits) {
+        this(word, maxEdits, 0);
+    }
+
+    /**
+     * Creates an automaton for a word that only accepts strings that start like the word.
+     * @param word the word that accepted strings are close to
+     * @param maxEdits the largest distance of an accepted string, from 0 to 2
+     * @param prefixLength the number of code points at the start of the word that accepted strings must start with,
+     *                     or all of them if the word is shorter
+     * @throws IllegalArgumentException if the distance or the prefix length is out of range
+     */
+    LevenshteinAutomaton(String word, int maxEdits, int prefixLength) {
+        if (maxEdits < 0 || maxEdits > 2) {
+            throw new IllegalArgumentException("maxEdits must be between 0 and 2, but was " + maxEdits);
+        }
+        if (prefixLength < 0) {
+            throw new IllegalArgumentException("prefixLength must not be negative, but was " + prefixLength);
+        }
+        this.word = word.codePoints().toArray();
+        this.maxEdits = maxEdits;
+        this.prefixLength = Math.min(prefixLength, this.word.length);
+    }
+
+    /**
+     * Returns the number of code points of the word.
+     * @return the length of the word
+     */
+    int length() {
+        return word.length;
+    }
+
+    /**
+     * Returns the largest distance of an accepted string.
+     * @return the number of edits
+     */
+    int maxEdits() {
+        return maxEdits;
+    }
+
+    /**
+     * Returns the start of the word that accepted strings must start with.
+     * @return the first code points of the word, or an empty string if any string may be accepted
+     */
+    String prefix() {
+        return new String(word, 0, prefixLength);
+    }
+
+    /**
+     * Returns the number of code points of the word that accepted strings must start with.
+     * @return the length of the prefix
+     */
+    int prefixLength() {
+        return prefixLength;
+    }
+
+    /**
+     * Returns the state before any input: the distances of the prefixes of the word to the empty string.
+     * @return a new row of {@code length() + 1} entries
+     */
+    int[] start() {
+        int[] row = new int[word.length + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = Math.min(j, maxEdits + 1);
+        }
+        return row;
+    }
+
+    /**
+     * Computes the state after reading one more code point.
+     * @param row the current state
+     * @param codePoint the code point read
+     * @param next the array that receives the next state, of {@code length() + 1} entries
+     * @return true if some string that starts with the input can still be accepted, like {@link #canMatch(int[])}
+     */
+    boolean step(int[] row, int codePoint, int[] next) {
+        int min = next[0] = Math.min(row[0] + 1, maxEdits + 1);
+        for (int j = 1; j < next.length; j++) {
+            int substitution = row[j - 1] + (word[j - 1] == codePoint ? 0 : 1);
+            int distance = Math.min(substitution, Math.min(row[j] + 1, next[j - 1] + 1));
+            next[j] = Math.min(distance, maxEdits + 1);
+            min = Math.min(min, distance);
+        }
+        return min <= maxEdits;
+    }
+
+    /**
+     * Finds the smallest code point after a given one that leads from a state to a state that can still match.
+     * <p>
+     * A code point that does not match the word at any position adds one to the smallest entry of the row, so it
+     * leads to a state that can match only if the smallest entry is below the distance. Otherwise, only a code
+     * point of the word at a position j where the entry j is within the distance leads to such a state, by
+     * keeping that entry, so the result is found from the row without computing the next states.
+     * </p>
+     * @param row the current state
+     * @param after the code point that the result must be larger than
+     * @return the code point, or -1 if no larger code point leads to a state that can match
+     */
+    int nextCodePoint(int[] row, int after) {
+        int min = row[0];
+        for (int distance : row) {
+            min = Math.min(min, distance);
+        }
+        if (min < maxEdits) {
+            // Any code point will do
+            int codePoint = after + 1;
+            if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+                codePoint = Character.MAX_SURROGATE + 1;
+            }
+            return codePoint <= Character.MAX_CODE_POINT ? codePoint : -1;
+        }
+        int next = -1;
+        for (int j = 0; j < word.length; j++) {
+            if (row[j] <= maxEdits && word[j] > after && (next < 0 || word[j] < next)) {
+                next = word[j];
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Checks if some string that starts with the input read so far can be accepted.
+     * @param row the current state
+     * @return false if every string with this prefix is too far from the word
+     */
+    boolean canMatch(int[] row) {
+        for (int distance : row) {
+            if (distance <= maxEdits) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the distance of the input read so far to the word.
+     * @param row the current state
+     * @return the distance, or {@code maxEdits() + 1} if it is larger than the distance of the automaton.
+     *         The prefix is not checked.
+     */
+    int distance(int[] row) {
+        return row[word.length];
+    }
+
+    /**
+     * Computes the distance of a string to the word.
+     * @param string the string to compare
+     * @return the Levenshtein distance, or {@code maxEdits() + 1} if it is larger than the distance of the automaton
+     */
+    int distance(String string) {
+        if (!string.startsWith(prefix())) {
+            return maxEdits + 1;
+        }
+        int[] row = start();
+        int[] next = new int[row.length];
+        for (int i = 0; i < string.length(); ) {
+            int codePoint = string.codePointAt(i);
+            boolean canMatch = step(row, codePoint, next);
+            int[] previous = row;
+            row = next;
+            next = previous;
+            if (!canMatch) {
+                return maxEdits + 1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return distance(row);
+    }
+}
@@ -0,0 +1,297 @@
+package searchengine;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a log of queries against a web server and reports its throughput and latency.
+ * <p>
+ * The queries are sent in the order of the log, which is repeated until the time is up. There are two modes:
+ * </p>
+ * <ul>
+ * <li>closed loop - a number of clients each send a query and wait for its response before sending the next one,
+ * which measures the highest throughput of the server.</li>
+ * <li>open loop - queries are sent at a fixed rate whether or not earlier ones have been answered, like users do.
+ * The latency of a query is measured from the time it should have been sent, so a server that falls behind
+ * shows it in the latency instead of slowing the load down.</li>
+ * </ul>
+ * <p>
+ * Run it with {@code gradle loadTest -PloadArgs="--log queries.txt --mode open --rate 500"}. With {@code --pages}
+ * a server for a file of pages is started in the same process, so no other server has to be running.
+ * </p>
+ */
+public class LoadGenerator {
+    private final HttpClient client;
+    private final List<URI> requests = new ArrayList<>();
+    private final Duration timeout;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Creates a load generator for a log of queries.
+     * @param baseUrl the address of the server, such as {@code http://localhost:8080}
+     * @param queries the queries to send, as the user typed them
+     * @param k the number of results to ask for, or 0 for all of them
+     * @param timeout how long to wait for a response before it counts as an error
+     */
+    public LoadGenerator(String baseUrl, List<String> queries, int k, Duration timeout) {
+        for (String query : queries) {
+            if (!query.isBlank()) {
+                String parameters = "q=" + URLEncoder.encode(query.strip(), StandardCharsets.UTF_8) + (k > 0 ? "&k=" + k : "");
+                requests.add(URI.create(baseUrl + "/search?" + parameters));
+            }
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("The query log has no queries");
+        }
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    private HttpRequest nextRequest() {
+        URI uri = requests.get((int) (next.getAndIncrement() % requests.size()));
+        return HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+    }
+
+    /**
+     * Sends queries from a number of clients that each wait for the previous response.
+     * @param clients the number of concurrent clients
+     * @param duration how long to send queries
+     * @return the measured throughput and latency
+     * @throws InterruptedException if the thread is interrupted while waiting for the clients
+     */
+    public Report runClosedLoop(int clients, Duration duration) throws InterruptedException {
+        Report report = new Report();
+        long end = System.nanoTime() + duration.toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(nextRequest(), BodyHandlers.discarding());
+                        report.record(start, response.statusCode() < 400);
+                    } catch (IOException e) {
+                        report.record(start, false);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "load-client-" + i);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report.finish(duration);
+        return report;
+    }
+
+    /**
+     * Sends queries at a fixed rate, without waiting for earlier responses.
+     * @param rate the number of queries per second
+     * @param duration how long to send queries
+     * @return the measured throughput and latency. Queries that were sent but not answered within the timeout
+     *         after the end are counted as failed queries, with the time they waited as their latency.
+     * @throws InterruptedException if the thread is interrupted while sending or waiting for responses
+     */
+    public Report runOpenLoop(double rate, Duration duration) throws InterruptedException {
+        Report report = new Report();
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<SentQuery> pending = new ArrayList<>();
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            // Sleep until the query is due. A query that is late is sent right away, and its latency includes the delay
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            SentQuery query = new SentQuery(scheduled);
+            query.response = client.sendAsync(nextRequest(), BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    query.record(report, error == null && response.statusCode() < 400);
+                    return null;
+                });
+            pending.add(query);
+            pending.removeIf(sent -> sent.response.isDone());
+        }
+        try {
+            CompletableFuture.allOf(pending.stream().map(sent -> sent.response).toArray(CompletableFuture<?>[]::new))
+                .get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            // A query that timed out is a failed query that waited until now, and is recorded like the others,
+            // so that the errors are part of the requests and the slowest queries are part of the latencies
+            for (SentQuery query : pending) {
+                query.record(report, false);
+                query.response.cancel(true);
+            }
+        }
+        report.finish(duration);
+        return report;
+    }
+
+    /**
+     * A query of an open loop that may still be waiting for its response. It is recorded once, either when its
+     * response arrives or when it times out, whichever happens first.
+     */
+    private static class SentQuery {
+        private final long due;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private CompletableFuture<?> response;
+
+        SentQuery(long due) {
+            this.due = due;
+        }
+
+        void record(Report report, boolean success) {
+            if (recorded.compareAndSet(false, true)) {
+                report.record(due, success);
+            }
+        }
+    }
+
+    /**
+     * The throughput, latency and errors of a run.
+     */
+    public static class Report {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private double seconds;
+
+        private void record(long start, boolean success) {
+            latencies.record(System.nanoTime() - start);
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        private void finish(Duration duration) {
+            seconds = duration.toNanos() / 1e9;
+        }
+
+        /**
+         * Returns the number of queries that were answered or failed.
+         * @return the number of queries
+         */
+        public long requests() {
+            return latencies.count();
+        }
+
+        /**
+         * Returns the number of queries that failed, timed out or got an error status.
+         * @return the number of errors
+         */
+        public long errors() {
+            return errors.sum();
+        }
+
+        /**
+         * Returns the number of queries answered per second.
+         * @return the throughput
+         */
+        public double throughput() {
+            return (requests() - errors()) / seconds;
+        }
+
+        /**
+         * Returns a percentile of the latencies.
+         * @param quantile the fraction of queries that were at most this slow
+         * @return the latency in nanoseconds
+         */
+        public long percentile(double quantile) {
+            return latencies.percentile(quantile);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.1f/s p50=%.2fms p99=%.2fms p999=%.2fms max=%.2fms",
+                requests(), errors(), throughput(), percentile(0.5) / 1e6, percentile(0.99) / 1e6,
+                percentile(0.999) / 1e6, percentile(1.0) / 1e6);
+        }
+    }
+
+    /**
+     * Runs a load test.
+     * <ul>
+     * <li>{@code --log file} - the query log, one query per line (required)</li>
+     * <li>{@code --url address} - the server, {@code http://localhost:8080} by default</li>
+     * <li>{@code --pages file} - starts a server for this file of pages on the port of {@code --url} first</li>
+     * <li>{@code --mode closed|open} - closed loop by default</li>
+     * <li>{@code --clients n} - the clients of a closed loop, 8 by default</li>
+     * <li>{@code --rate n} - the queries per second of an open loop, 100 by default</li>
+     * <li>{@code --duration seconds} - 30 by default, after a warmup of {@code --warmup seconds}, 5 by default</li>
+     * <li>{@code --k n} - the number of results to ask for, all of them by default</li>
+     * <li>{@code --timeout seconds} - 10 by default</li>
+     * </ul>
+     *
+     * @param args the options.
+     * @throws IOException if the query log or the file of pages cannot be read.
+     * @throws InterruptedException if the run is interrupted.
+     */
+    public static void main(String... args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option instead of " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("log")) {
+            System.err.println("Usage: LoadGenerator --log queries.txt [--url http://localhost:8080] [--pages file]"
+                + " [--mode closed|open] [--clients 8] [--rate 100] [--duration 30] [--warmup 5] [--k 0] [--timeout 10]");
+            System.exit(2);
+        }
+        String url = options.getOrDefault("url", "http://localhost:8080");
+        WebServer server = null;
+        if (options.containsKey("pages")) {
+            server = new WebServer(URI.create(url).getPort(), options.get("pages"));
+        }
+
+        LoadGenerator generator = new LoadGenerator(url, Files.readAllLines(Paths.get(options.get("log"))),
+            Integer.parseInt(options.getOrDefault("k", "0")),
+            Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10"))));
+        boolean open = options.getOrDefault("mode", "closed").equals("open");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "8"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "5")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+
+        if (!warmup.isZero()) {
+            Report report = open ? generator.runOpenLoop(rate, warmup) : generator.runClosedLoop(clients, warmup);
+            System.out.println("warmup: " + report);
+        }
+        Report report = open ? generator.runOpenLoop(rate, duration) : generator.runClosedLoop(clients, duration);
+        System.out.println((open ? "open loop at " + rate + "/s: " : "closed loop with " + clients + " clients: ") + report);
+
+        if (server != null) {
+            server.server.stop(0);
+        }
+        // The daemon threads of the server and the client do not keep the JVM running
+        System.exit(report.errors() == 0 ? 0 : 1);
+    }
+}
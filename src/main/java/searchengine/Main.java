@@ -1,23 +1,65 @@
 package searchengine;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class Main {
   /**
  * The entry point for the search engine.
  * <p>
- * It reads the configuration file and starts the web server on the specified port.
+ * Without arguments, it reads the configuration file and starts the web server on the specified port.
+ * The index is reloaded in the background when the configuration file or the file it names changes,
+ * unless it is segmented, as a reload would lose the pages added and deleted through {@code /admin/pages}.
  * </p>
+ * <p>
+ * An index that is too large for one machine can be split by doc ID range over several shard servers
+ * and searched through a {@link SearchCoordinator}:
+ * </p>
+ * <ul>
+ * <li>{@code split <pages> <shards> <directory>} - writes the pages of a file into one file per shard.</li>
+ * <li>{@code shard <port> <pages>} - starts a web server that answers the coordinator from one shard file.</li>
+ * <li>{@code coordinator <port> <shard URI>...} - starts the coordinator of the shards, given in the order of
+ * their files, such as {@code http://localhost:8081}.</li>
+ * </ul>
  *
  * @param args Command-line arguments.
  * @throws IOException If there is an error reading the configuration file.
  */
   public static void main(final String... args) throws IOException {
+    if (args.length == 4 && args[0].equals("split")) {
+      for (Path shardFile : SearchCoordinator.splitPages(Paths.get(args[1]), Integer.parseInt(args[2]),
+          Paths.get(args[3]))) {
+        System.out.println(shardFile);
+      }
+      return;
+    }
+    if (args.length == 3 && args[0].equals("shard")) {
+      new WebServer(Integer.parseInt(args[1]), args[2], true);
+      return;
+    }
+    if (args.length >= 3 && args[0].equals("coordinator")) {
+      List<URI> shards = new ArrayList<>();
+      for (int i = 2; i < args.length; i++) {
+        shards.add(URI.create(args[i]));
+      }
+      new SearchCoordinator(Integer.parseInt(args[1]), shards, SearchCoordinator.SHARD_TIMEOUT,
+          WebServer.MAX_EXPANSIONS);
+      return;
+    }
+    if (args.length > 0) {
+      System.err.println("Usage: Main [split <pages> <shards> <directory> | shard <port> <pages>"
+          + " | coordinator <port> <shard URI>...]");
+      System.exit(2);
+    }
     String filename = Files.readString(Paths.get("config.txt")).strip();
-    int PORT = 8080; 
-    new WebServer(PORT, filename);
+    int PORT = 8080;
+    WebServer server = new WebServer(PORT, filename);
+    IndexWatcher.start(server, Paths.get("config.txt"));
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only file that is memory-mapped in chunks, so that it can be larger than
+ * the 2 GB a single mapping can hold. Values are read by their position in the file
+ * and are big-endian, as written by {@link java.io.DataOutputStream}.
+ * <p>
+ * Reads do not change any state, so a mapped file can be read by many threads at once.
+ * </p>
+ */
+class MappedFile {
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    private MappedFile(MappedByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps a whole file into memory.
+     * @param file the file to map
+     * @return the mapped file
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    static MappedFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+            return new MappedFile(chunks, size);
+        }
+    }
+
+    /**
+     * Returns the size of the file.
+     * @return the number of bytes in the file
+     */
+    long size() {
+        return size;
+    }
+
+    byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    int getInt(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        if (offset + Integer.BYTES <= chunk.limit()) {
+            return chunk.getInt(offset);
+        }
+        // The value crosses into the next chunk
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << 8) | (getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    long getLong(long position) {
+        return ((long) getInt(position) << 32) | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+    }
+
+    float getFloat(long position) {
+        return Float.intBitsToFloat(getInt(position));
+    }
+
+    /**
+     * Copies bytes from the file into an array.
+     * @param position the position of the first byte
+     * @param bytes the array to fill
+     */
+    void getBytes(long position, byte[] bytes) {
+        int copied = 0;
+        while (copied < bytes.length) {
+            MappedByteBuffer chunk = chunks[(int) ((position + copied) >>> CHUNK_BITS)];
+            int offset = (int) ((position + copied) & (CHUNK_SIZE - 1));
+            int length = Math.min(bytes.length - copied, chunk.limit() - offset);
+            chunk.get(offset, bytes, copied, length);
+            copied += length;
+        }
+    }
+
+    /**
+     * Returns a view of bytes of the file, without copying them unless they cross from one chunk into the next.
+     * @param position the position of the first byte
+     * @param length the number of bytes
+     * @return a big-endian buffer whose position 0 is the first byte
+     */
+    ByteBuffer slice(long position, int length) {
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_BITS)];
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+        if (offset + length <= chunk.limit()) {
+            return chunk.slice(offset, length);
+        }
+        byte[] bytes = new byte[length];
+        getBytes(position, bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Decodes a UTF-8 string from the file.
+     * @param position the position of the first byte
+     * @param length the number of bytes
+     * @return the decoded string
+     */
+    String getString(long position, int length) {
+        byte[] bytes = new byte[length];
+        getBytes(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,132 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads and indexes the pages in a range of a file by memory-mapping it.
+ * <p>
+ * The mapped bytes are scanned for line breaks and {@code *PAGE} lines directly, and each
+ * line is looked up in a {@link TermTable} from its bytes. Lines are not decoded into Strings
+ * one by one, which the loader did before, so loading creates far less garbage: apart from
+ * the first line of each page, a String is only created for a term that has not been seen before.
+ * The pages are indexed exactly like {@link PartialIndex#addPage(List)} would index their lines.
+ * </p>
+ */
+class MappedPageReader {
+    private final MappedByteBuffer buffer;
+    private final PartialIndex index;
+    private final TermTable termTable;
+
+    /**
+     * The start and end positions of the lines of the current page.
+     */
+    private final IntArrayList lineStarts = new IntArrayList();
+    private final IntArrayList lineEnds = new IntArrayList();
+
+    private MappedPageReader(MappedByteBuffer buffer, boolean positional) {
+        this.buffer = buffer;
+        this.index = new PartialIndex(positional);
+        this.termTable = new TermTable(positional);
+    }
+
+    /**
+     * Reads and indexes the pages in one range of a file.
+     * A page at the end of the last range is indexed even if it has no title or content,
+     * like the last page of a file read from start to end.
+     * @param channel the file to read
+     * @param start the position of the first byte of the range
+     * @param end the position after the last byte of the range
+     * @param lastRange whether the range ends at the end of the file
+     * @param positional whether the postings record the positions of the words
+     * @return the partial index of the pages in the range
+     * @throws IOException if an I/O error occurs while mapping the file, or the range is too large to map
+     */
+    static PartialIndex indexRange(FileChannel channel, long start, long end, boolean lastRange, boolean positional)
+            throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Range of " + (end - start) + " bytes is too large to map");
+        }
+        MappedPageReader reader = new MappedPageReader(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start),
+            positional);
+        reader.readPages(lastRange);
+        reader.termTable.forEach(reader.index.postings::put);
+        return reader.index;
+    }
+
+    /**
+     * Splits the mapped bytes into lines and pages, and indexes each page when it ends.
+     * Lines end with "\n", "\r" or "\r\n", like in {@link java.io.BufferedReader#readLine()}.
+     * @param lastRange whether the range ends at the end of the file
+     */
+    private void readPages(boolean lastRange) {
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n' && buffer.get(lineEnd) != '\r') {
+                lineEnd++;
+            }
+
+            if (isPageLine(position, lineEnd) && lineStarts.size() > 0) {
+                if (hasTitleAndContent()) {
+                    addPage();
+                }
+                lineStarts.clear();
+                lineEnds.clear();
+            }
+            lineStarts.add(position);
+            lineEnds.add(lineEnd);
+
+            if (lineEnd + 1 < limit && buffer.get(lineEnd) == '\r' && buffer.get(lineEnd + 1) == '\n') {
+                position = lineEnd + 2;
+            } else {
+                position = lineEnd + 1;
+            }
+        }
+
+        if (lineStarts.size() > 0 && (lastRange || hasTitleAndContent())) {
+            addPage();
+        }
+    }
+
+    private boolean isPageLine(int start, int end) {
+        return end - start >= 5 && buffer.get(start) == '*' && buffer.get(start + 1) == 'P'
+            && buffer.get(start + 2) == 'A' && buffer.get(start + 3) == 'G' && buffer.get(start + 4) == 'E';
+    }
+
+    /**
+     * Checks if the current page starts with a page line, followed by a title and content,
+     * like {@link PartialIndex#hasTitleAndContent(List, int)}.
+     */
+    private boolean hasTitleAndContent() {
+        return isPageLine(lineStarts.get(0), lineEnds.get(0))
+            && lineStarts.size() > 2
+            && lineEnds.get(1) > lineStarts.get(1)
+            && lineEnds.get(2) > lineStarts.get(2);
+    }
+
+    /**
+     * Adds the current page to the partial index.
+     */
+    private void addPage() {
+        String pageLine = TermTable.decode(buffer, lineStarts.get(0), lineEnds.get(0));
+        String title = "";
+
+        int docId = index.pageCount();
+        for (int i = 1; i < lineStarts.size(); i++) {
+            int slot = termTable.find(buffer, lineStarts.get(i), lineEnds.get(i));
+            String term = termTable.term(slot);
+            if (i == 1) {
+                title = term;
+            }
+            if (!term.equalsIgnoreCase(pageLine)) {
+                termTable.postings(slot).addOccurrence(docId, i - 1);
+            }
+        }
+
+        index.addDocument(pageLine.replace("*PAGE:", ""), title, lineStarts.size() - 1);
+    }
+}
@@ -0,0 +1,205 @@
+package searchengine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures where the time of queries goes, and exports the measurements in the Prometheus text format.
+ * <p>
+ * A query is split into {@link Stage stages}, and the time of each stage is recorded in a {@link LatencyHistogram}.
+ * A {@link Timer} measures the stages of one query on one thread, and records them all when the query is done,
+ * so a stage that runs several times in a query, like the lookup of each clause, is recorded as one duration.
+ * Recording is lock-free, and only costs a call to {@link System#nanoTime()} per stage.
+ * </p>
+ */
+public class Metrics {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * The stages of a query.
+     */
+    public enum Stage {
+        /** Decoding and normalizing the query from the URL. */
+        DECODE,
+        /** Looking up the query in the query cache, without computing its results on a miss. */
+        CACHE,
+        /** Splitting the query into clauses and words. */
+        PARSE,
+        /** Looking up the postings of the words. */
+        LOOKUP,
+        /** Intersecting the postings of the words of a clause. */
+        INTERSECT,
+        /** Scoring the pages of the clauses. */
+        SCORE,
+        /** Merging the clauses and sorting the pages by score. */
+        SORT,
+        /** Encoding and sending the results as JSON. */
+        JSON,
+        /** The whole request, from its arrival to the last byte of the response. */
+        REQUEST;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final int STAGE_COUNT = Stage.values().length;
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_COUNT];
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder results = new LongAdder();
+
+    /**
+     * Creates metrics without any recorded queries.
+     */
+    public Metrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Starts measuring the stages of a query on the current thread.
+     * @return a timer whose time starts now
+     */
+    public Timer startTimer() {
+        return new Timer();
+    }
+
+    /**
+     * Records the duration of a stage.
+     * @param stage the stage
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the histogram of a stage.
+     * @param stage the stage
+     * @return the durations of the stage
+     */
+    public LatencyHistogram histogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Counts an answered query.
+     * @param resultCount the number of pages the query found
+     */
+    public void countQuery(int resultCount) {
+        queries.increment();
+        results.add(resultCount);
+    }
+
+    /**
+     * Returns the number of answered queries.
+     * @return the number of queries since the metrics were created
+     */
+    public long queries() {
+        return queries.sum();
+    }
+
+    /**
+     * Writes the metrics, the statistics of a query cache and of the JVM in the Prometheus text format.
+     * Durations are written in seconds, and the quantiles are over all queries since the metrics were created.
+     * @param queryCache the query cache whose hits and misses are written
+     * @return the metrics as text
+     */
+    public String toPrometheus(QueryCache queryCache) {
+        StringBuilder out = new StringBuilder();
+        header(out, "searchengine_stage_seconds", "summary", "Time spent in each stage of a query.");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histogram(stage);
+            for (double quantile : QUANTILES) {
+                out.append("searchengine_stage_seconds{stage=\"").append(stage.label)
+                    .append("\",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.percentile(quantile))).append('\n');
+            }
+            out.append("searchengine_stage_seconds_sum{stage=\"").append(stage.label).append("\"} ")
+                .append(seconds(histogram.sum())).append('\n');
+            out.append("searchengine_stage_seconds_count{stage=\"").append(stage.label).append("\"} ")
+                .append(histogram.count()).append('\n');
+        }
+
+        counter(out, "searchengine_queries_total", "Number of answered queries.", queries.sum());
+        counter(out, "searchengine_results_total", "Number of pages found by all queries.", results.sum());
+        counter(out, "searchengine_query_cache_hits_total", "Number of queries answered from the cache.", queryCache.hits());
+        counter(out, "searchengine_query_cache_misses_total", "Number of queries that were not in the cache.",
+            queryCache.misses());
+        gauge(out, "searchengine_query_cache_entries", "Number of cached queries.", queryCache.size());
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        gauge(out, "jvm_memory_heap_used_bytes", "Used heap memory.", heap.getUsed());
+        gauge(out, "jvm_memory_heap_committed_bytes", "Heap memory committed by the JVM.", heap.getCommitted());
+        gauge(out, "jvm_memory_heap_max_bytes", "Maximum heap memory, or -1 if there is no maximum.", heap.getMax());
+        gauge(out, "jvm_threads_live", "Number of live threads.", ManagementFactory.getThreadMXBean().getThreadCount());
+
+        header(out, "jvm_gc_collections_total", "counter", "Number of garbage collections.");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collections_total{gc=\"").append(collector.getName()).append("\"} ")
+                .append(Math.max(0, collector.getCollectionCount())).append('\n');
+        }
+        header(out, "jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collections.");
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collection_seconds_total{gc=\"").append(collector.getName()).append("\"} ")
+                .append(Math.max(0, collector.getCollectionTime()) / 1000.0).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    /**
+     * Measures the stages of one query. A timer is used by one thread only.
+     */
+    public class Timer {
+        private final long[] nanos = new long[STAGE_COUNT];
+        private final boolean[] used = new boolean[nanos.length];
+        private long last = System.nanoTime();
+
+        private Timer() {
+        }
+
+        /**
+         * Adds the time since the last lap, or since the timer was started, to a stage.
+         * @param stage the stage that has just ended
+         */
+        public void lap(Stage stage) {
+            long now = System.nanoTime();
+            nanos[stage.ordinal()] += now - last;
+            used[stage.ordinal()] = true;
+            last = now;
+        }
+
+        /**
+         * Records the time of every stage that had a lap.
+         */
+        public void finish() {
+            for (int i = 0; i < nanos.length; i++) {
+                if (used[i]) {
+                    stages[i].record(nanos[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package searchengine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the inverted index of a file of pages on several threads.
+ * <p>
+ * The file is split into byte ranges that each start at a line beginning with {@code *PAGE},
+ * so that no page is split between two ranges. Each range is memory-mapped and indexed by a
+ * fork-join task into a {@link PartialIndex} with a {@link MappedPageReader}, and the partial
+ * indexes are appended to each other in the order of their ranges. The pages therefore get the
+ * same doc IDs as when the file is read from start to end on one thread.
+ * </p>
+ */
+class ParallelIndexBuilder {
+    private static final byte[] PAGE_MARKER = "*PAGE".getBytes(StandardCharsets.US_ASCII);
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Ranges smaller than this are not split further, as the tasks would cost more than they save.
+     */
+    private static final long MIN_RANGE_BYTES = 1 << 20;
+
+    /**
+     * Ranges larger than this are split further, as a range must fit in one memory mapping.
+     */
+    private static final long MAX_RANGE_BYTES = 1 << 30;
+
+    /**
+     * The number of ranges per thread. Having more ranges than threads lets idle threads steal work.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    private ParallelIndexBuilder() {
+    }
+
+    /**
+     * Reads and indexes all pages of a file.
+     * @param file the file containing the pages
+     * @param parallelism the number of threads to use
+     * @return a partial index with all pages of the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    static PartialIndex build(Path file, int parallelism) throws IOException {
+        return build(file, parallelism, false);
+    }
+
+    /**
+     * Reads and indexes all pages of a file.
+     * @param file the file containing the pages
+     * @param parallelism the number of threads to use
+     * @param positional whether the postings record the positions of the words
+     * @return a partial index with all pages of the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    static PartialIndex build(Path file, int parallelism, boolean positional) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long rangeCount = Math.min((long) parallelism * RANGES_PER_THREAD, channel.size() / MIN_RANGE_BYTES);
+            rangeCount = Math.max(rangeCount, channel.size() / MAX_RANGE_BYTES + 1);
+            return build(channel, parallelism, (int) rangeCount, positional);
+        }
+    }
+
+    /**
+     * Reads and indexes all pages of a file, split into about the given number of ranges.
+     * @param file the file containing the pages
+     * @param parallelism the number of threads to use
+     * @param rangeCount the number of ranges to split the file into
+     * @return a partial index with all pages of the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    static PartialIndex build(Path file, int parallelism, int rangeCount) throws IOException {
+        return build(file, parallelism, rangeCount, false);
+    }
+
+    /**
+     * Reads and indexes all pages of a file, split into about the given number of ranges.
+     * @param file the file containing the pages
+     * @param parallelism the number of threads to use
+     * @param rangeCount the number of ranges to split the file into
+     * @param positional whether the postings record the positions of the words
+     * @return a partial index with all pages of the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    static PartialIndex build(Path file, int parallelism, int rangeCount, boolean positional) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return build(channel, parallelism, rangeCount, positional);
+        }
+    }
+
+    private static PartialIndex build(FileChannel channel, int parallelism, int rangeCount, boolean positional)
+            throws IOException {
+        long[] boundaries = splitAtPages(channel, rangeCount);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new RangeTask(channel, boundaries, 0, boundaries.length - 1, positional));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits a file into ranges of about equal size that start at {@code *PAGE} lines.
+     * @param channel the file to split
+     * @param rangeCount the wanted number of ranges
+     * @return the start of each range followed by the size of the file. There may be fewer
+     *         ranges than wanted if the file has few pages.
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    static long[] splitAtPages(FileChannel channel, int rangeCount) throws IOException {
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        for (int i = 1; i < rangeCount; i++) {
+            long target = Math.max(size * i / rangeCount, boundaries.get(boundaries.size() - 1) + 1);
+            long start = nextPageStart(channel, target);
+            if (start >= size) {
+                break;
+            }
+            boundaries.add(start);
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Finds the first line at or after a position that starts with {@code *PAGE}.
+     * @param channel the file to search
+     * @param from the position to search from, which must be larger than 0
+     * @return the position of the line, or the size of the file if there is no such line
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    private static long nextPageStart(FileChannel channel, long from) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+
+        // Each chunk starts one byte early, so that the byte before a candidate line is known
+        long chunkStart = from - 1;
+        while (chunkStart < size) {
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer, chunkStart + buffer.position()) >= 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+            int read = buffer.position();
+            for (int i = 1; i + PAGE_MARKER.length <= read; i++) {
+                if ((bytes[i - 1] == '\n' || bytes[i - 1] == '\r') && startsWithMarker(bytes, i)) {
+                    return chunkStart + i;
+                }
+            }
+            if (chunkStart + read >= size) {
+                break;
+            }
+            // The next chunk overlaps this one, so that a marker across the chunk end is found
+            chunkStart += read - PAGE_MARKER.length;
+        }
+        return size;
+    }
+
+    private static boolean startsWithMarker(byte[] bytes, int position) {
+        for (int i = 0; i < PAGE_MARKER.length; i++) {
+            if (bytes[position + i] != PAGE_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A fork-join task that indexes a run of consecutive ranges.
+     * It splits the run in two halves, indexes them in parallel, and appends the second
+     * partial index to the first, so that the pages keep the order of the file.
+     */
+    private static class RangeTask extends RecursiveTask<PartialIndex> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int fromRange;
+        private final int toRange;
+        private final boolean positional;
+
+        RangeTask(FileChannel channel, long[] boundaries, int fromRange, int toRange, boolean positional) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.fromRange = fromRange;
+            this.toRange = toRange;
+            this.positional = positional;
+        }
+
+        @Override
+        protected PartialIndex compute() {
+            if (toRange - fromRange == 1) {
+                try {
+                    boolean lastRange = toRange == boundaries.length - 1;
+                    return MappedPageReader.indexRange(channel, boundaries[fromRange], boundaries[toRange], lastRange,
+                        positional);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (fromRange + toRange) >>> 1;
+            RangeTask first = new RangeTask(channel, boundaries, fromRange, middle, positional);
+            first.fork();
+            PartialIndex second = new RangeTask(channel, boundaries, middle, toRange, positional).compute();
+            PartialIndex index = first.join();
+            index.append(second);
+            return index;
+        }
+    }
+}
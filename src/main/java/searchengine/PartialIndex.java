@@ -0,0 +1,126 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index of part of the pages of a file, as built by one thread while loading.
+ * <p>
+ * The pages of a partial index are numbered from 0 in the order they were added.
+ * Partial indexes of consecutive parts of a file are combined with {@link #append(PartialIndex)},
+ * which renumbers the appended pages so that they follow the pages already in the index.
+ * </p>
+ * <p>
+ * The position of a word on a page is the number of its line after the page line, so the title is at position 0.
+ * </p>
+ */
+class PartialIndex {
+    final List<String> urls = new ArrayList<>();
+    final List<String> titles = new ArrayList<>();
+    final IntArrayList pageLengths = new IntArrayList();
+    final Map<String, PostingListBuilder> postings = new HashMap<>();
+    final boolean positional;
+
+    /**
+     * Creates an empty partial index whose postings do not record positions.
+     */
+    PartialIndex() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty partial index.
+     * @param positional whether the postings record the positions of the words
+     */
+    PartialIndex(boolean positional) {
+        this.positional = positional;
+    }
+
+    /**
+     * Returns the number of pages in the partial index.
+     * @return the number of pages
+     */
+    int pageCount() {
+        return urls.size();
+    }
+
+    /**
+     * Processes a single page buffer, extracts the URL and title, and adds words to the index.
+     * @param pageBuffer the list of strings representing the content of a page
+     */
+    void addPage(List<String> pageBuffer) {
+        String url = pageBuffer.get(0);
+        url = url.replace("*PAGE:", "");
+        String title = pageBuffer.size() > 1 ? pageBuffer.get(1).toLowerCase() : "";
+        int docId = pageCount();
+
+        // Add all words to the inverted index, once per page with their frequency
+        for (int i = 0; i < pageBuffer.size(); i++) {
+            String word = pageBuffer.get(i);
+            if (!word.equalsIgnoreCase(pageBuffer.get(0))) {
+                postings.computeIfAbsent(word.toLowerCase(), k -> new PostingListBuilder(positional))
+                    .addOccurrence(docId, i - 1);
+            }
+        }
+
+        // The words are not kept once they are indexed, only the number of lines after the page line
+        addDocument(url, title, pageBuffer.size() - 1);
+    }
+
+    /**
+     * Adds a page to the document table, without adding its words to the index.
+     * @param url the URL of the page
+     * @param title the title of the page in lowercase
+     * @param pageLength the number of lines of the page after the page line
+     * @return the doc ID of the page
+     */
+    int addDocument(String url, String title, int pageLength) {
+        int docId = pageCount();
+        urls.add(url);
+        titles.add(title);
+        pageLengths.add(pageLength);
+        return docId;
+    }
+
+    /**
+     * Adds all pages of another partial index after the pages of this one.
+     * @param other the partial index of the part of the file that comes right after this one
+     */
+    void append(PartialIndex other) {
+        int offset = pageCount();
+        urls.addAll(other.urls);
+        titles.addAll(other.titles);
+        for (int i = 0; i < other.pageLengths.size(); i++) {
+            pageLengths.add(other.pageLengths.get(i));
+        }
+        for (Map.Entry<String, PostingListBuilder> entry : other.postings.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new PostingListBuilder(positional))
+                .addAll(entry.getValue(), offset);
+        }
+    }
+
+  /**
+   * Checks if the line in the file has a title and content.
+   * 
+   * @param lines is the list of lines in the file
+   * @param index is the index of the line to check
+   * @return true if the line has a title and a content, false if not
+   */
+    static boolean hasTitleAndContent(List<String> lines, int index) {
+        if (!lines.get(index).startsWith("*PAGE")) {
+            return false;
+        }
+        if (index + 2 >= lines.size()) {
+            return false;
+        }
+        if (lines.get(index + 1) == null || lines.get(index + 1).isEmpty()) {
+            return false;
+        }
+        if (lines.get(index + 2) == null || lines.get(index + 2).isEmpty()) {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the sorted doc IDs of a posting list into bytes, and iterates over encoded doc IDs.
+ * <p>
+ * There are three codecs: {@link #RAW} stores each doc ID in four bytes, {@link #VAR_INT} stores the gaps
+ * between doc IDs as variable-length integers, and {@link #BLOCK_PACKED} packs the gaps of each block into
+ * as few bits as most of them need. {@link #encode(int[])} picks the smallest codec for each list and stores its ID
+ * in the first byte, so that {@link #iterator(byte[], int)} can read any encoded list.
+ * </p>
+ * <p>
+ * Iterators read the encoded doc IDs from a {@link ByteBuffer}, so that the lists of a memory-mapped snapshot
+ * are read where they are in the file, without being copied to the heap first.
+ * </p>
+ */
+public interface PostingCodec {
+    PostingCodec RAW = new RawPostingCodec();
+    PostingCodec VAR_INT = new VarIntPostingCodec();
+    PostingCodec BLOCK_PACKED = new BlockPackedPostingCodec();
+
+    /**
+     * Returns the ID that is stored in front of lists encoded with this codec.
+     * @return the ID of the codec
+     */
+    byte id();
+
+    /**
+     * Encodes doc IDs with this codec.
+     * @param docIds the sorted doc IDs, without duplicates
+     * @return the encoded doc IDs, without the codec ID
+     */
+    byte[] encodeDocIds(int[] docIds);
+
+    /**
+     * Creates an iterator over doc IDs encoded with this codec.
+     * @param data the buffer with the encoded doc IDs, which is read with absolute positions and not changed
+     * @param offset the position of the encoded doc IDs in the buffer
+     * @param size the number of doc IDs
+     * @return an iterator positioned before the first doc ID
+     */
+    PostingIterator iterator(ByteBuffer data, int offset, int size);
+
+    /**
+     * Creates an iterator over doc IDs encoded with this codec.
+     * @param data the array with the encoded doc IDs
+     * @param offset the position of the encoded doc IDs in the array
+     * @param size the number of doc IDs
+     * @return an iterator positioned before the first doc ID
+     */
+    default PostingIterator iterator(byte[] data, int offset, int size) {
+        return iterator(ByteBuffer.wrap(data), offset, size);
+    }
+
+    /**
+     * Encodes doc IDs with the codec that makes them the smallest, and stores the ID of the codec in the first byte.
+     * @param docIds the sorted doc IDs, without duplicates
+     * @return the ID of the codec, followed by the encoded doc IDs
+     */
+    static byte[] encode(int[] docIds) {
+        PostingCodec codec = RAW;
+        byte[] encoded = RAW.encodeDocIds(docIds);
+        for (PostingCodec candidate : new PostingCodec[] {VAR_INT, BLOCK_PACKED}) {
+            byte[] candidateEncoded = candidate.encodeDocIds(docIds);
+            if (candidateEncoded.length < encoded.length) {
+                codec = candidate;
+                encoded = candidateEncoded;
+            }
+        }
+        byte[] data = new byte[encoded.length + 1];
+        data[0] = codec.id();
+        System.arraycopy(encoded, 0, data, 1, encoded.length);
+        return data;
+    }
+
+    /**
+     * Creates an iterator over doc IDs encoded by {@link #encode(int[])}.
+     * @param data the ID of the codec, followed by the encoded doc IDs
+     * @param size the number of doc IDs
+     * @return an iterator positioned before the first doc ID
+     * @throws IllegalArgumentException if the codec ID is not known
+     */
+    static PostingIterator iterator(byte[] data, int size) {
+        return iterator(ByteBuffer.wrap(data), size);
+    }
+
+    /**
+     * Creates an iterator over doc IDs encoded by {@link #encode(int[])}, such as those of a snapshot.
+     * @param data the ID of the codec at position 0, followed by the encoded doc IDs
+     * @param size the number of doc IDs
+     * @return an iterator positioned before the first doc ID
+     * @throws IllegalArgumentException if the codec ID is not known
+     */
+    static PostingIterator iterator(ByteBuffer data, int size) {
+        return forId(data.get(0)).iterator(data, 1, size);
+    }
+
+    /**
+     * Decodes all doc IDs encoded by {@link #encode(int[])}.
+     * @param data the ID of the codec, followed by the encoded doc IDs
+     * @param size the number of doc IDs
+     * @return the sorted doc IDs
+     */
+    static int[] decode(byte[] data, int size) {
+        return decode(ByteBuffer.wrap(data), size);
+    }
+
+    /**
+     * Decodes all doc IDs encoded by {@link #encode(int[])}.
+     * @param data the ID of the codec at position 0, followed by the encoded doc IDs
+     * @param size the number of doc IDs
+     * @return the sorted doc IDs
+     */
+    static int[] decode(ByteBuffer data, int size) {
+        int[] docIds = new int[size];
+        PostingIterator iterator = iterator(data, size);
+        for (int i = 0; i < size; i++) {
+            docIds[i] = iterator.nextDoc();
+        }
+        return docIds;
+    }
+
+    /**
+     * Returns the codec with an ID.
+     * @param id the ID of the codec
+     * @return the codec
+     * @throws IllegalArgumentException if no codec has the ID
+     */
+    static PostingCodec forId(byte id) {
+        for (PostingCodec codec : new PostingCodec[] {RAW, VAR_INT, BLOCK_PACKED}) {
+            if (codec.id() == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown posting codec " + id);
+    }
+}
@@ -0,0 +1,161 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Intersects sorted posting lists of doc IDs for AND queries.
+ * <p>
+ * The lists are intersected from the shortest to the longest. Every doc ID that is still
+ * a candidate is looked up in the next list with a galloping (exponential) search that
+ * starts where the previous lookup stopped, so the cost grows with the length of the
+ * shortest list and only logarithmically with the length of the longer ones.
+ * </p>
+ */
+public class PostingIntersection {
+    private static final int[] NO_PAGES = new int[0];
+
+    private PostingIntersection() {
+    }
+
+    /**
+     * Finds the doc IDs that are present in all of the given lists.
+     * @param postingLists sorted arrays of doc IDs without duplicates
+     * @return a sorted array of the doc IDs that are common to all lists.
+     *         If only one list is given, that list itself is returned, so the result must not be modified.
+     */
+    public static int[] intersect(List<int[]> postingLists) {
+        if (postingLists.isEmpty()) {
+            return NO_PAGES;
+        }
+
+        // The rarest term decides how many candidates there can be at most
+        int[][] lists = postingLists.toArray(new int[0][]);
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        if (lists[0].length == 0) {
+            return NO_PAGES;
+        }
+
+        int[] candidates = lists[0];
+        int size = candidates.length;
+        for (int i = 1; i < lists.length && size > 0; i++) {
+            int[] result = candidates == lists[0] ? new int[size] : candidates;
+            size = intersect(candidates, size, lists[i], 0, result);
+            candidates = result;
+        }
+
+        return size == candidates.length ? candidates : Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * Finds the doc IDs that are present in all of the given lists, like {@link #intersect(List)}, but splits
+     * the shortest list into ranges of doc IDs that are intersected in parallel on the common fork-join pool.
+     * Each range only looks at the part of the longer lists between its first doc ID and the first doc ID of
+     * the next range, so the ranges share nothing but the input lists.
+     *
+     * @param postingLists sorted arrays of doc IDs without duplicates
+     * @param rangeSize the most doc IDs of the shortest list in one range
+     * @return a sorted array of the doc IDs that are common to all lists.
+     *         If only one list is given, that list itself is returned, so the result must not be modified.
+     */
+    static int[] intersectInParallel(List<int[]> postingLists, int rangeSize) {
+        int[][] lists = postingLists.toArray(new int[0][]);
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        if (lists.length < 2 || lists[0].length <= rangeSize) {
+            return intersect(postingLists);
+        }
+
+        int[] shortest = lists[0];
+        int rangeCount = (shortest.length + rangeSize - 1) / rangeSize;
+        int[][] ranges = new int[rangeCount][];
+        IntStream.range(0, rangeCount).parallel().forEach(range -> {
+            int from = range * rangeSize;
+            int[] candidates = Arrays.copyOfRange(shortest, from, Math.min(shortest.length, from + rangeSize));
+            int size = candidates.length;
+            for (int i = 1; i < lists.length && size > 0; i++) {
+                int start = gallop(lists[i], 0, candidates[0]);
+                size = intersect(candidates, size, lists[i], start, candidates);
+            }
+            ranges[range] = size == candidates.length ? candidates : Arrays.copyOf(candidates, size);
+        });
+
+        int total = 0;
+        for (int[] range : ranges) {
+            total += range.length;
+        }
+        int[] result = new int[total];
+        int position = 0;
+        for (int[] range : ranges) {
+            System.arraycopy(range, 0, result, position, range.length);
+            position += range.length;
+        }
+        return result;
+    }
+
+    /**
+     * Intersects the first {@code size} candidates with a longer list.
+     * The result may be written into the candidates array itself, because the result
+     * never gets ahead of the candidate that is being looked up.
+     *
+     * @param candidates the sorted candidate doc IDs
+     * @param size the number of candidates in use
+     * @param list the sorted list to look the candidates up in
+     * @param start the position in the list to start looking from, before which all doc IDs are smaller than
+     *              the first candidate
+     * @param result the array that receives the common doc IDs
+     * @return the number of common doc IDs written to result
+     */
+    private static int intersect(int[] candidates, int size, int[] list, int start, int[] result) {
+        int found = 0;
+        int position = start;
+        for (int i = 0; i < size; i++) {
+            position = gallop(list, position, candidates[i]);
+            if (position == list.length) {
+                break;
+            }
+            if (list[position] == candidates[i]) {
+                result[found++] = candidates[i];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first position at or after {@code from} whose doc ID is not smaller than the target.
+     * The search first doubles its step until it passes the target and then does a binary search
+     * in the last step, so targets close to the start position are found in a few comparisons.
+     *
+     * @param list a sorted array of doc IDs
+     * @param from the position to start from
+     * @param target the doc ID to look for
+     * @return the position of the first doc ID that is at least the target, or the length of the list
+     */
+    static int gallop(int[] list, int from, int target) {
+        if (from >= list.length || list[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < list.length && list[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, list.length);
+
+        // list[low] < target, and list[high] >= target if high is inside the list
+        low++;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (list[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
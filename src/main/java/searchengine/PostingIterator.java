@@ -0,0 +1,49 @@
+package searchengine;
+
+/**
+ * Iterates over the sorted doc IDs of a posting list, which may be compressed.
+ * <p>
+ * An iterator starts before the first doc ID. {@link #nextDoc()} moves to the next doc ID, and
+ * {@link #advance(int)} skips ahead to the first doc ID that is at least a target, which compressed
+ * lists do without decoding the blocks in between. Both return {@link #NO_MORE_DOCS} at the end of the list.
+ * </p>
+ */
+public interface PostingIterator {
+    /**
+     * The doc ID returned when the iterator is past the end of the list. It is larger than every doc ID.
+     */
+    int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * Returns the current doc ID.
+     * @return the current doc ID, -1 before the first call to {@link #nextDoc()} or {@link #advance(int)},
+     *         or {@link #NO_MORE_DOCS} at the end of the list
+     */
+    int docId();
+
+    /**
+     * Moves to the next doc ID of the list.
+     * @return the next doc ID, or {@link #NO_MORE_DOCS} if there is none
+     */
+    int nextDoc();
+
+    /**
+     * Moves to the first doc ID that is at least the target. The iterator never moves backwards,
+     * so if the current doc ID is already at least the target, it is returned again.
+     * @param target the doc ID to look for
+     * @return the first doc ID that is at least the target, or {@link #NO_MORE_DOCS} if there is none
+     */
+    int advance(int target);
+
+    /**
+     * Returns the position of the current doc ID in the list, which is the index of its frequency and impact.
+     * @return the position of the current doc ID, -1 before the first doc ID
+     */
+    int index();
+
+    /**
+     * Returns the number of doc IDs in the list.
+     * @return the size of the list
+     */
+    int size();
+}
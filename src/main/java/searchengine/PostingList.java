@@ -0,0 +1,294 @@
+package searchengine;
+
+/**
+ * The postings of one term: the sorted doc IDs of the pages that contain the term,
+ * how many times the term occurs on each page, and the impact score of each posting.
+ * <p>
+ * The impact of a posting is the score the page gets for the term, as computed by
+ * {@link TermScorer#getImpact(int, int, int, int)}. The postings are split into blocks of
+ * {@link #BLOCK_SIZE}, and the highest impact of each block is stored, so that a query can
+ * skip whole blocks that cannot change its top results.
+ * </p>
+ * <p>
+ * A positional list also stores where the term occurs on each page, as the number of the line after the page line,
+ * so that phrase and proximity queries can be answered from the index (see {@link ProximityPostingIterator}).
+ * The positions of a posting are stored as the gaps between them, as variable-length integers in one byte array,
+ * and only where each block of postings starts is stored, so finding the positions of a posting skips the positions
+ * of the postings before it in its block.
+ * </p>
+ */
+public class PostingList {
+    /**
+     * The number of postings in each block of the list.
+     */
+    static final int BLOCK_SIZE = 128;
+
+    static final PostingList EMPTY = new PostingList(new int[0], new int[0]);
+
+    private final int[] docIds;
+    private final int[] frequencies;
+    private final byte[] positions;
+    private final int[] positionBlockOffsets;
+    private float[] impacts;
+    private float[] blockMaxImpacts;
+    private float maxImpact;
+
+    /**
+     * Creates a posting list without impact scores. All impacts are 0 until
+     * {@link #setImpacts(float[])} is called.
+     * @param docIds the sorted doc IDs of the pages that contain the term
+     * @param frequencies the number of times the term occurs on each of those pages
+     */
+    PostingList(int[] docIds, int[] frequencies) {
+        this(docIds, frequencies, null, null);
+    }
+
+    /**
+     * Creates a posting list without impact scores, with the positions of the term on each page.
+     * @param docIds the sorted doc IDs of the pages that contain the term
+     * @param frequencies the number of times the term occurs on each of those pages
+     * @param positions the encoded positions of all postings, or null if the list has no positions
+     * @param positionBlockOffsets where the positions of each block of {@link #BLOCK_SIZE} postings start
+     *                             in {@code positions}
+     */
+    PostingList(int[] docIds, int[] frequencies, byte[] positions, int[] positionBlockOffsets) {
+        this.docIds = docIds;
+        this.frequencies = frequencies;
+        this.positions = positions;
+        this.positionBlockOffsets = positionBlockOffsets;
+        setImpacts(new float[docIds.length]);
+    }
+
+    /**
+     * Creates a posting list whose frequencies and impacts are read by a subclass when a posting is visited, such as
+     * the postings of a snapshot. The subclass overrides {@link #frequency(int)}, {@link #impact(int)} and
+     * {@link #withImpacts(float[])}.
+     * @param docIds the sorted doc IDs of the pages that contain the term
+     * @param blockMaxImpacts the highest impact of each block of the list
+     */
+    PostingList(int[] docIds, float[] blockMaxImpacts) {
+        this.docIds = docIds;
+        this.frequencies = null;
+        this.positions = null;
+        this.positionBlockOffsets = null;
+        float max = 0f;
+        for (float blockMaxImpact : blockMaxImpacts) {
+            max = Math.max(max, blockMaxImpact);
+        }
+        this.blockMaxImpacts = blockMaxImpacts;
+        this.maxImpact = max;
+    }
+
+    /**
+     * Returns the number of pages in the list.
+     * @return the number of postings
+     */
+    public int size() {
+        return docIds.length;
+    }
+
+    /**
+     * Returns the doc IDs of the list. The returned array must not be modified.
+     * @return the sorted doc IDs
+     */
+    public int[] docIds() {
+        return docIds;
+    }
+
+    /**
+     * Returns an iterator over the doc IDs of the list.
+     * @return an iterator positioned before the first doc ID
+     */
+    public PostingIterator iterator() {
+        return new ArrayPostingIterator(docIds);
+    }
+
+    /**
+     * Returns the doc ID at a position in the list.
+     * @param index the position of the posting
+     * @return the doc ID of the posting
+     */
+    public int docId(int index) {
+        return docIds[index];
+    }
+
+    /**
+     * Returns how many times the term occurs on the page at a position in the list.
+     * @param index the position of the posting
+     * @return the term frequency of the posting
+     */
+    public int frequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * Checks if the list stores the positions of the term on each page.
+     * @return true if {@link #positions(int)} can be called
+     */
+    public boolean hasPositions() {
+        return positions != null;
+    }
+
+    /**
+     * Returns where the term occurs on the page at a position in the list.
+     * @param index the position of the posting
+     * @return the sorted positions of the term on the page, one per occurrence
+     * @throws IllegalStateException if the list has no positions
+     */
+    public int[] positions(int index) {
+        return positionReader().positions(index);
+    }
+
+    /**
+     * Creates a reader for the positions of postings that are visited in increasing order.
+     * @return a reader before the first posting
+     * @throws IllegalStateException if the list has no positions
+     */
+    PositionReader positionReader() {
+        if (positions == null) {
+            throw new IllegalStateException("The posting list has no positions");
+        }
+        return new PositionReader();
+    }
+
+    /**
+     * Reads the positions of postings. When the next posting read is in the same block as the last one,
+     * the reader skips from there instead of from the start of the block, so reading the postings of a block
+     * in order reads each of its positions once.
+     */
+    final class PositionReader {
+        /**
+         * The posting whose positions start at {@link #offset}.
+         */
+        private int index;
+        private int offset;
+
+        private PositionReader() {
+            this.offset = positionBlockOffsets.length > 0 ? positionBlockOffsets[0] : 0;
+        }
+
+        /**
+         * Returns where the term occurs on the page at a position in the list.
+         * @param target the position of the posting
+         * @return the sorted positions of the term on the page, one per occurrence
+         */
+        int[] positions(int target) {
+            int block = target / BLOCK_SIZE;
+            if (target < index || block != index / BLOCK_SIZE) {
+                index = block * BLOCK_SIZE;
+                offset = positionBlockOffsets[block];
+            }
+            for (; index < target; index++) {
+                // Skip one variable-length integer per occurrence on the earlier pages of the block
+                for (int remaining = frequencies[index]; remaining > 0; offset++) {
+                    if (positions[offset] >= 0) {
+                        remaining--;
+                    }
+                }
+            }
+            int[] result = new int[frequencies[target]];
+            int position = 0;
+            for (int i = 0; i < result.length; i++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = positions[offset++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                position += gap;
+                result[i] = position;
+            }
+            index++;
+            return result;
+        }
+    }
+
+    /**
+     * Returns the number of bytes the positions take, including where the positions of each block start.
+     * @return the size of the positions, or 0 if the list has no positions
+     */
+    long positionsSizeInBytes() {
+        return positions == null ? 0 : positions.length + (long) positionBlockOffsets.length * Integer.BYTES;
+    }
+
+    /**
+     * Returns the impact score of the posting at a position in the list.
+     * @param index the position of the posting
+     * @return the impact score of the posting
+     */
+    public float impact(int index) {
+        return impacts[index];
+    }
+
+    /**
+     * Adds the impact scores of some pages to their scores, walking the list in step with the pages.
+     * @param pages the sorted doc IDs of the pages
+     * @param scores the score of each page, which the impact of its posting is added to if the list has one
+     */
+    void addImpacts(int[] pages, double[] scores) {
+        int position = 0;
+        for (int i = 0; i < pages.length && position < docIds.length; i++) {
+            position = PostingIntersection.gallop(docIds, position, pages[i]);
+            if (position < docIds.length && docIds[position] == pages[i]) {
+                scores[i] += impact(position);
+            }
+        }
+    }
+
+    /**
+     * Returns the highest impact score in the list.
+     * @return the highest impact, or 0 if the list is empty
+     */
+    public float maxImpact() {
+        return maxImpact;
+    }
+
+    /**
+     * Returns the highest impact score in a block of the list.
+     * Block {@code b} holds the postings from {@code b * BLOCK_SIZE} up to {@code (b + 1) * BLOCK_SIZE}.
+     * @param block the number of the block
+     * @return the highest impact in the block
+     */
+    public float blockMaxImpact(int block) {
+        return blockMaxImpacts[block];
+    }
+
+    /**
+     * Returns the number of blocks in the list.
+     * @return the number of blocks
+     */
+    public int blockCount() {
+        return blockMaxImpacts.length;
+    }
+
+    /**
+     * Returns a list with the same postings and positions as this one, but other impact scores.
+     * This list is not changed, so it can still be shared by other threads.
+     * @param impacts the impact score of each posting, in the order of the doc IDs
+     * @return the new list, which shares the doc IDs, frequencies and positions of this one
+     */
+    PostingList withImpacts(float[] impacts) {
+        PostingList list = new PostingList(docIds, frequencies, positions, positionBlockOffsets);
+        list.setImpacts(impacts);
+        return list;
+    }
+
+    /**
+     * Replaces the impact scores of the list and recomputes the block maxima.
+     * @param impacts the impact score of each posting, in the order of the doc IDs
+     */
+    void setImpacts(float[] impacts) {
+        float[] blockMax = new float[(impacts.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        float max = 0f;
+        for (int i = 0; i < impacts.length; i++) {
+            int block = i / BLOCK_SIZE;
+            blockMax[block] = Math.max(blockMax[block], impacts[i]);
+            max = Math.max(max, impacts[i]);
+        }
+        this.impacts = impacts;
+        this.blockMaxImpacts = blockMax;
+        this.maxImpact = max;
+    }
+}
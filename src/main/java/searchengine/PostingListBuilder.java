@@ -0,0 +1,140 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * Collects the postings of one term while pages are being loaded.
+ * Pages must be added in increasing doc ID order, and a page that contains the term
+ * several times is added once per occurrence, which counts its term frequency.
+ * A positional builder also records the position of each occurrence, in increasing order per page.
+ */
+class PostingListBuilder {
+    private final IntArrayList docIds = new IntArrayList();
+    private final IntArrayList frequencies = new IntArrayList();
+    private final IntArrayList positions;
+
+    /**
+     * Creates a builder that does not record positions.
+     */
+    PostingListBuilder() {
+        this(false);
+    }
+
+    /**
+     * Creates a builder.
+     * @param positional whether to record the positions given to {@link #addOccurrence(int, int)}.
+     *                   Postings without positions cannot be added to a positional builder.
+     */
+    PostingListBuilder(boolean positional) {
+        this.positions = positional ? new IntArrayList() : null;
+    }
+
+    /**
+     * Records one occurrence of the term on a page.
+     * @param docId the doc ID of the page, which must not be smaller than the last one added
+     */
+    void add(int docId) {
+        if (docIds.last() == docId) {
+            int last = frequencies.size() - 1;
+            frequencies.set(last, frequencies.get(last) + 1);
+        } else {
+            docIds.add(docId);
+            frequencies.add(1);
+        }
+    }
+
+    /**
+     * Records one occurrence of the term on a page at a position.
+     * @param docId the doc ID of the page, which must not be smaller than the last one added
+     * @param position the position of the occurrence, which must be larger than the last one on the same page.
+     *                 It is ignored if the builder does not record positions.
+     */
+    void addOccurrence(int docId, int position) {
+        add(docId);
+        if (positions != null) {
+            positions.add(position);
+        }
+    }
+
+    /**
+     * Records a page with a known term frequency.
+     * @param docId the doc ID of the page, which must be larger than the last one added
+     * @param frequency the number of times the term occurs on the page
+     */
+    void add(int docId, int frequency) {
+        docIds.add(docId);
+        frequencies.add(frequency);
+    }
+
+    /**
+     * Returns the number of pages added so far.
+     * @return the number of pages that contain the term
+     */
+    int size() {
+        return docIds.size();
+    }
+
+    /**
+     * Appends all postings of a list.
+     * @param postings postings whose doc IDs are all larger than the last one added
+     */
+    void addAll(PostingList postings) {
+        if (positions != null && !postings.hasPositions()) {
+            throw new IllegalArgumentException("Cannot add postings without positions to a positional list");
+        }
+        for (int i = 0; i < postings.size(); i++) {
+            add(postings.docId(i), postings.frequency(i));
+            if (positions != null) {
+                for (int position : postings.positions(i)) {
+                    positions.add(position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends all postings of another builder, shifting their doc IDs.
+     * @param other the builder whose postings are appended
+     * @param offset the number added to each of its doc IDs, so that they all come after the last one added
+     */
+    void addAll(PostingListBuilder other, int offset) {
+        if (positions != null && other.positions == null) {
+            throw new IllegalArgumentException("Cannot add postings without positions to a positional list");
+        }
+        for (int i = 0; i < other.docIds.size(); i++) {
+            add(other.docIds.get(i) + offset, other.frequencies.get(i));
+        }
+        if (positions != null) {
+            for (int i = 0; i < other.positions.size(); i++) {
+                positions.add(other.positions.get(i));
+            }
+        }
+    }
+
+    /**
+     * Builds the posting list from the collected postings.
+     * @return a new posting list without impact scores
+     */
+    PostingList build() {
+        if (positions == null) {
+            return new PostingList(docIds.toArray(), frequencies.toArray());
+        }
+        // The positions of each page are stored as gaps from the previous position, starting from 0
+        BlockPostingCodec.ByteWriter encoded = new BlockPostingCodec.ByteWriter();
+        int[] blockOffsets = new int[(docIds.size() + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE];
+        int next = 0;
+        for (int i = 0; i < docIds.size(); i++) {
+            if (i % PostingList.BLOCK_SIZE == 0) {
+                blockOffsets[i / PostingList.BLOCK_SIZE] = encoded.size();
+            }
+            int previous = 0;
+            for (int j = 0; j < frequencies.get(i); j++) {
+                int position = positions.get(next++);
+                encoded.writeVarInt(position - previous);
+                previous = position;
+            }
+        }
+        return new PostingList(docIds.toArray(), frequencies.toArray(),
+            Arrays.copyOf(encoded.array(), encoded.size()), blockOffsets);
+    }
+}
@@ -0,0 +1,80 @@
+package searchengine;
+
+import java.util.List;
+
+/**
+ * A scorer that reads the statistics it needs from the postings of a {@link SnapshotSearchEngine},
+ * instead of counting terms on the pages, which a snapshot does not store.
+ * <p>
+ * The score of a page for a term is computed with the {@link TermScorer#getImpact(int, int, int, int)}
+ * formula of another scorer, so it is the same score that scorer gives the posting in the index.
+ * </p>
+ */
+public class PostingScorer implements TermScorer {
+    private final SnapshotSearchEngine searchEngine;
+    private final TermScorer formula;
+
+    /**
+     * Constructs a scorer for the pages of a snapshot.
+     * @param searchEngine the search engine with the opened snapshot
+     * @param formula the scorer whose formula computes the scores
+     */
+    public PostingScorer(SnapshotSearchEngine searchEngine, TermScorer formula) {
+        this.searchEngine = searchEngine;
+        this.formula = formula;
+    }
+
+    /**
+     * Gets the score of a page for a term from the posting of the page.
+     * @param url The URL of the page to score.
+     * @param searchTerm The term to score the page for.
+     * @return The score of the page, or 0.0 if the page does not contain the term.
+     */
+    public double getScore(String url, String searchTerm) {
+        int docId = searchEngine.getDocId(url);
+        if (docId < 0) {
+            return 0.0;
+        }
+        double[] score = new double[1];
+        searchEngine.addImpacts(searchTerm, new int[] {docId}, score);
+        return score[0];
+    }
+
+    /**
+     * Adds the scores of pages for a term from its postings. In the snapshot, the scorer skips to each page
+     * without decoding the whole list (see {@link SnapshotSearchEngine#addImpacts(String, int[], double[])}).
+     * Another search engine, such as a {@link GlobalStatisticsSearchEngine} view of the snapshot, may compute
+     * other impacts, so they are read from its postings.
+     */
+    @Override
+    public void addScores(ReadOnlySearchEngine searchEngine, int[] pages, String searchTerm, double[] scores) {
+        if (searchEngine == this.searchEngine) {
+            this.searchEngine.addImpacts(searchTerm, pages, scores);
+        } else {
+            searchEngine.getPostings(searchTerm).addImpacts(pages, scores);
+        }
+    }
+
+    /**
+     * Returns the scorer whose formula computes the scores.
+     * @return the other scorer
+     */
+    TermScorer formula() {
+        return formula;
+    }
+
+    /**
+     * Computes the score of a posting with the formula of the other scorer.
+     */
+    @Override
+    public double getImpact(int frequency, int pageLength, int documentFrequency, int pageCount) {
+        return formula.getImpact(frequency, pageLength, documentFrequency, pageCount);
+    }
+
+    /**
+     * Does nothing, as the scores come from the snapshot.
+     * @param pages Not used.
+     */
+    public void loadPages(List<List<String>> pages) {
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Merges sorted posting lists into the postings of the pages that are in any of them, for prefix queries,
+ * whose term matches the pages of every word it expands to.
+ * <p>
+ * The lists are merged with a k-way merge: a binary min-heap holds the index of each list that is not used up,
+ * ordered by the doc ID the list is on, so the next doc ID is always at the root. The heap and the positions
+ * in the lists are int arrays, so merging n postings from k lists costs O(n log k) and boxes nothing,
+ * where collecting the doc IDs in a set would box every one of them and sort them again afterwards.
+ * </p>
+ */
+public class PostingUnion {
+    private PostingUnion() {
+    }
+
+    /**
+     * Finds the pages that are in any of the given lists.
+     * @param postingLists posting lists with sorted doc IDs
+     * @return the postings of the pages in any list. The frequency of a page is the sum of its frequencies in the
+     *         lists, its impact the highest of its impacts, and the list has no positions.
+     *         If only one list is given, that list itself is returned.
+     */
+    public static PostingList union(List<PostingList> postingLists) {
+        if (postingLists.isEmpty()) {
+            return PostingList.EMPTY;
+        }
+        if (postingLists.size() == 1) {
+            return postingLists.get(0);
+        }
+
+        PostingList[] lists = postingLists.toArray(new PostingList[0]);
+        int[] positions = new int[lists.length];
+        int[] heap = new int[lists.length];
+        int heapSize = 0;
+        int total = 0;
+        for (int i = 0; i < lists.length; i++) {
+            if (lists[i].size() > 0) {
+                heap[heapSize++] = i;
+                total += lists[i].size();
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, lists, positions);
+        }
+
+        // The union is at most as long as all lists together
+        int[] docIds = new int[total];
+        int[] frequencies = new int[total];
+        float[] impacts = new float[total];
+        int size = 0;
+        while (heapSize > 0) {
+            int list = heap[0];
+            int position = positions[list];
+            int docId = lists[list].docId(position);
+            if (size > 0 && docIds[size - 1] == docId) {
+                frequencies[size - 1] += lists[list].frequency(position);
+                impacts[size - 1] = Math.max(impacts[size - 1], lists[list].impact(position));
+            } else {
+                docIds[size] = docId;
+                frequencies[size] = lists[list].frequency(position);
+                impacts[size] = lists[list].impact(position);
+                size++;
+            }
+            if (++positions[list] == lists[list].size()) {
+                // The list is used up, so the last list of the heap takes its place
+                heap[0] = heap[--heapSize];
+            }
+            if (heapSize > 0) {
+                siftDown(heap, heapSize, 0, lists, positions);
+            }
+        }
+
+        PostingList union = new PostingList(Arrays.copyOf(docIds, size), Arrays.copyOf(frequencies, size));
+        union.setImpacts(Arrays.copyOf(impacts, size));
+        return union;
+    }
+
+    /**
+     * Moves a list down the heap until the doc IDs of its children are not smaller than its own.
+     */
+    private static void siftDown(int[] heap, int heapSize, int index, PostingList[] lists, int[] positions) {
+        int list = heap[index];
+        int docId = currentDocId(list, lists, positions);
+        while (2 * index + 1 < heapSize) {
+            int child = 2 * index + 1;
+            int childDocId = currentDocId(heap[child], lists, positions);
+            if (child + 1 < heapSize) {
+                int rightDocId = currentDocId(heap[child + 1], lists, positions);
+                if (rightDocId < childDocId) {
+                    child++;
+                    childDocId = rightDocId;
+                }
+            }
+            if (docId <= childDocId) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = list;
+    }
+
+    private static int currentDocId(int list, PostingList[] lists, int[] positions) {
+        return lists[list].docId(positions[list]);
+    }
+}
@@ -0,0 +1,203 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * Iterates over the pages that contain several words close to each other, from the postings of the words.
+ * <p>
+ * The doc IDs of the words are intersected like in a conjunction: the iterator of the rarest word leads, and the
+ * others advance to its doc ID. Only when all words are on a page are their positions decoded, from the postings
+ * of that page, and checked:
+ * </p>
+ * <ul>
+ * <li>a phrase matches if the words occur at consecutive positions, in order;</li>
+ * <li>a proximity match ({@code NEAR/k}) needs an occurrence of each of two words at most k positions apart,
+ * in either order;</li>
+ * <li>a conjunction does not look at positions, for postings without them.</li>
+ * </ul>
+ * The pages are never read again, so the postings of a phrase or proximity query must have positions.
+ */
+class ProximityPostingIterator implements PostingIterator {
+    private static final int PHRASE = -1;
+    private static final int CONJUNCTION = -2;
+
+    private final PostingList[] lists;
+    private final PostingIterator[] iterators;
+    private final PostingList.PositionReader[] readers;
+    private final int lead;
+    private final int maxDistance;
+    private int docId = -1;
+    private int matches;
+
+    private ProximityPostingIterator(int maxDistance, PostingList... lists) {
+        if (maxDistance != CONJUNCTION) {
+            for (PostingList list : lists) {
+                if (!list.hasPositions()) {
+                    throw new IllegalArgumentException("Phrase and proximity queries need postings with positions");
+                }
+            }
+        }
+        this.lists = lists;
+        this.maxDistance = maxDistance;
+        this.iterators = new PostingIterator[lists.length];
+        this.readers = new PostingList.PositionReader[lists.length];
+        int rarest = 0;
+        for (int i = 0; i < lists.length; i++) {
+            iterators[i] = lists[i].iterator();
+            if (maxDistance != CONJUNCTION) {
+                readers[i] = lists[i].positionReader();
+            }
+            if (lists[i].size() < lists[rarest].size()) {
+                rarest = i;
+            }
+        }
+        this.lead = rarest;
+    }
+
+    /**
+     * Creates an iterator over the pages that contain words at consecutive positions.
+     * @param lists the postings of the words of the phrase, in the order of the phrase, with positions
+     * @return an iterator positioned before the first page of the phrase
+     * @throws IllegalArgumentException if a list has no positions
+     */
+    static ProximityPostingIterator phrase(PostingList... lists) {
+        return new ProximityPostingIterator(PHRASE, lists);
+    }
+
+    /**
+     * Creates an iterator over the pages where two words occur at most a number of positions apart.
+     * @param maxDistance the largest number of positions between the words, where 1 means next to each other
+     * @param first the postings of one word, with positions
+     * @param second the postings of the other word, with positions
+     * @return an iterator positioned before the first page with both words close together
+     * @throws IllegalArgumentException if a list has no positions
+     */
+    static ProximityPostingIterator near(int maxDistance, PostingList first, PostingList second) {
+        return new ProximityPostingIterator(Math.max(0, maxDistance), first, second);
+    }
+
+    /**
+     * Creates an iterator over the pages that contain all words anywhere, without looking at positions.
+     * @param lists the postings of the words
+     * @return an iterator positioned before the first page with all words
+     */
+    static ProximityPostingIterator conjunction(PostingList... lists) {
+        return new ProximityPostingIterator(CONJUNCTION, lists);
+    }
+
+    @Override
+    public int docId() {
+        return docId;
+    }
+
+    @Override
+    public int nextDoc() {
+        return docId == NO_MORE_DOCS ? NO_MORE_DOCS : advance(docId + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+        if (docId >= target) {
+            return docId;
+        }
+        int candidate = iterators[lead].advance(target);
+        while (candidate != NO_MORE_DOCS) {
+            int next = candidate;
+            for (int i = 0; i < iterators.length && next == candidate; i++) {
+                next = iterators[i].advance(candidate);
+            }
+            if (next != candidate) {
+                // A word is not on the candidate page, so the next candidate is the next page it is on
+                candidate = iterators[lead].advance(next);
+                continue;
+            }
+            matches = countMatches();
+            if (matches > 0) {
+                return docId = candidate;
+            }
+            candidate = iterators[lead].nextDoc();
+        }
+        return docId = NO_MORE_DOCS;
+    }
+
+    /**
+     * Returns the position of the current page in the postings of the first word.
+     * @return the index of the current page in the first list, -1 before the first page
+     */
+    @Override
+    public int index() {
+        return docId < 0 ? -1 : iterators[0].index();
+    }
+
+    /**
+     * Returns the number of pages of the rarest word, which is the most pages the iterator can return.
+     * @return an upper bound of the number of pages
+     */
+    @Override
+    public int size() {
+        return lists[lead].size();
+    }
+
+    /**
+     * Returns how many times the words match on the current page: the number of occurrences of the phrase,
+     * the number of occurrences of the first word close to the second, or 1 for a conjunction.
+     * @return the number of matches on the current page
+     */
+    int matches() {
+        return matches;
+    }
+
+    /**
+     * Returns the sum of the impacts of the words on the current page.
+     * @return the score of the current page
+     */
+    float impact() {
+        float impact = 0f;
+        for (int i = 0; i < lists.length; i++) {
+            impact += lists[i].impact(iterators[i].index());
+        }
+        return impact;
+    }
+
+    /**
+     * Counts the matches of the positions of the words on the page that all iterators are on.
+     */
+    private int countMatches() {
+        if (maxDistance == CONJUNCTION) {
+            return 1;
+        }
+        int[] first = readers[0].positions(iterators[0].index());
+        if (maxDistance == PHRASE) {
+            int[][] positions = new int[lists.length][];
+            for (int i = 1; i < lists.length; i++) {
+                positions[i] = readers[i].positions(iterators[i].index());
+            }
+            int count = 0;
+            for (int start : first) {
+                boolean match = true;
+                for (int i = 1; i < lists.length && match; i++) {
+                    match = Arrays.binarySearch(positions[i], start + i) >= 0;
+                }
+                if (match) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Both lists of positions are sorted, so a sliding window over the second finds the close ones
+        int[] second = readers[1].positions(iterators[1].index());
+        int count = 0;
+        int low = 0;
+        for (int position : first) {
+            // Positions are not negative, so the differences cannot overflow, whatever the distance
+            while (low < second.length && position - second[low] > maxDistance) {
+                low++;
+            }
+            if (low < second.length && second[low] - position <= maxDistance) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
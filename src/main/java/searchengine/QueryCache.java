@@ -0,0 +1,224 @@
+package searchengine;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded cache of search results, shared by the threads that handle requests.
+ * <p>
+ * Queries are cached by their normalized form (see {@link #normalize(String)}), so that queries that only
+ * differ in URL encoding, case or the order of their words and clauses share one entry. The cache is split
+ * into segments by the hash of the key, and each segment is a {@link LinkedHashMap} in access order that
+ * evicts its least recently used entries when it is full. A thread only locks the segment of its key, and
+ * results are computed outside the lock.
+ * </p>
+ * <p>
+ * The cache is bounded both in entries and in the doc IDs it holds, as the results of a common word can have
+ * millions of pages. The doc IDs are stored in an {@code int[]} per entry, and the results of a query that
+ * alone would take more than the doc IDs of one segment are not cached at all.
+ * </p>
+ * <p>
+ * The cache must be invalidated when the index changes. Results computed before an invalidation are not
+ * stored afterwards, even if their computation ends after it.
+ * </p>
+ */
+public class QueryCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * The default number of doc IDs the cache holds, which take 4 MB.
+     */
+    public static final long DEFAULT_MAX_RESULTS = 1 << 20;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates an empty cache that holds at most {@link #DEFAULT_MAX_RESULTS} doc IDs.
+     * @param capacity the most entries the cache holds. With a capacity of 0 nothing is cached.
+     */
+    public QueryCache(int capacity) {
+        this(capacity, DEFAULT_MAX_RESULTS);
+    }
+
+    /**
+     * Creates an empty cache.
+     * @param capacity the most entries the cache holds. With a capacity of 0 nothing is cached.
+     * @param maxResults the most doc IDs the entries hold together
+     */
+    public QueryCache(int capacity, long maxResults) {
+        int segmentCapacity = (capacity + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        long segmentMaxResults = maxResults / SEGMENT_COUNT;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentCapacity, segmentMaxResults);
+        }
+    }
+
+    /**
+     * Normalizes a query from a URL: it is decoded and lowercased, the terms of each clause are sorted
+     * (a phrase or {@code NEAR/k} term is one term, see {@link QueryTerm}),
+     * and the clauses are sorted without duplicates. The normalized query finds the same pages as the query,
+     * and its words are scored in lowercase, which is how they are looked up in the index.
+     * @param query the query as it appears in the URL, which can contain "OR" clauses
+     * @return the normalized query, which is not URL-encoded
+     */
+    public static String normalize(String query) {
+        String decodedQuery = URLDecoder.decode(query, StandardCharsets.UTF_8).toLowerCase();
+        TreeSet<String> clauses = new TreeSet<>();
+        for (String clause : decodedQuery.split("(?i)\\s+OR\\s+")) {
+            // Phrases and NEAR terms are kept together, as the order of their words matters
+            String[] terms = QueryTerm.parse(clause).stream().map(QueryTerm::toString).toArray(String[]::new);
+            Arrays.sort(terms);
+            clauses.add(String.join(" ", terms));
+        }
+        return String.join(" OR ", clauses);
+    }
+
+    /**
+     * Returns the cached results of a query, or computes and caches them.
+     * @param normalizedQuery the query, as returned by {@link #normalize(String)}, prefixed with anything else
+     *                        its results depend on, such as the version of the index
+     * @param k the number of results asked for, or 0 for all of them
+     * @param search computes the results on a miss
+     * @return the results of the query, which must not be modified
+     */
+    public List<Integer> get(String normalizedQuery, int k, Supplier<List<Integer>> search) {
+        String key = k + ":" + normalizedQuery;
+        Segment segment = segments[(key.hashCode() & 0x7FFFFFFF) % SEGMENT_COUNT];
+        int[] cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return new Results(cached);
+        }
+
+        misses.increment();
+        long startGeneration = generation.get();
+        List<Integer> searched = search.get();
+        int[] results = new int[searched.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = searched.get(i);
+        }
+        synchronized (segment) {
+            if (generation.get() == startGeneration) {
+                segment.add(key, results);
+            }
+        }
+        return new Results(results);
+    }
+
+    /**
+     * Removes all entries, because the index they were computed from has changed.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns how many lookups found their results in the cache.
+     * @return the number of hits since the cache was created
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many lookups had to compute their results.
+     * @return the number of misses since the cache was created
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cached queries.
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * One segment of the cache: a map in access order that removes its eldest entries when it is full.
+     */
+    private static class Segment extends LinkedHashMap<String, int[]> {
+        private final int capacity;
+        private final long maxResults;
+        private long results;
+
+        Segment(int capacity, long maxResults) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.maxResults = maxResults;
+        }
+
+        /**
+         * Caches the results of a query, unless they alone would fill the segment.
+         */
+        void add(String key, int[] docIds) {
+            if (capacity == 0 || docIds.length > maxResults) {
+                return;
+            }
+            int[] replaced = put(key, docIds);
+            results += docIds.length - (replaced == null ? 0 : replaced.length);
+            Iterator<Map.Entry<String, int[]>> eldest = entrySet().iterator();
+            while (size() > capacity || results > maxResults) {
+                results -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            results = 0;
+        }
+    }
+
+    /**
+     * The doc IDs of an entry as a list that cannot be modified. The doc IDs are only boxed when they are read.
+     */
+    private static class Results extends AbstractList<Integer> implements RandomAccess {
+        private final int[] docIds;
+
+        Results(int[] docIds) {
+            this.docIds = docIds;
+        }
+
+        @Override
+        public Integer get(int index) {
+            return docIds[index];
+        }
+
+        @Override
+        public int size() {
+            return docIds.length;
+        }
+    }
+}
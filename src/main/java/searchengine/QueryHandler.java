@@ -1,7 +1,7 @@
 package searchengine;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 
@@ -9,10 +9,44 @@ import java.nio.charset.StandardCharsets;
  * A class to handle user queries for a search engine.
  * This class processes queries and gets web pages based on AND or OR logic.
  * The class orders the pages based on the relevance of the search terms.
+ * Besides words, a clause can contain quoted phrases, {@code NEAR/k} terms and trailing wildcards such as
+ * {@code denm*} (see {@link QueryTerm}).
+ * The time of each stage of a query is recorded in {@link Metrics}.
+ * <p>
+ * A query is answered from each segment of the search engine in turn (see {@link ReadOnlySearchEngine#getSegments()}),
+ * and the deleted pages that the postings of a segment still contain are skipped.
+ * </p>
+ * <p>
+ * A query whose clauses have many candidate pages is answered in parallel on the common fork-join pool:
+ * the clauses are intersected and scored at the same time, and the candidates of a large clause are split
+ * into ranges of doc IDs. Smaller queries are answered on the calling thread, where the overhead of
+ * splitting would cost more than it saves.
+ * </p>
+ * <p>
+ * A query handler keeps no state between queries, so one handler can answer queries from many threads at once,
+ * as long as its search engine and term scorer allow concurrent reads (see {@link SearchEngine} and {@link TermScorer}).
+ * </p>
  */
 public class QueryHandler {
-    private final SearchEngine searchEngine;
-    private TermScorer termScorer;
+    /**
+     * The default number of words that a wildcard term such as {@code denm*} expands to.
+     */
+    public static final int DEFAULT_MAX_EXPANSIONS = 64;
+
+    /**
+     * The number of candidate pages, summed over the clauses of a query, from which the query is answered in
+     * parallel, set with the system property {@code searchengine.parallelThreshold}. The candidates of a clause
+     * are the pages of its rarest term.
+     */
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("searchengine.parallelThreshold", 1 << 15);
+
+    private static final int[] NO_PAGES = new int[0];
+
+    private final ReadOnlySearchEngine searchEngine;
+    private final TermScorer termScorer;
+    private final Metrics metrics;
+    private final int maxExpansions;
+    private final int parallelThreshold;
 
     /**
      * Constructor to create a QueryHandler object.
@@ -22,9 +56,68 @@ public class QueryHandler {
      * @param searchEngine the search engine to look up words in the query.
      * @param termScorer the term scorer to calculate the relevance of pages.
      */
-    public QueryHandler(SearchEngine searchEngine, TermScorer termScorer) {
+    public QueryHandler(ReadOnlySearchEngine searchEngine, TermScorer termScorer) {
+        this(searchEngine, termScorer, new Metrics());
+    }
+
+    /**
+     * Constructor to create a QueryHandler object that records the time of its queries in shared metrics.
+     *
+     * @param searchEngine the search engine to look up words in the query.
+     * @param termScorer the term scorer to calculate the relevance of pages.
+     * @param metrics the metrics that the stages of the queries are recorded in.
+     */
+    public QueryHandler(ReadOnlySearchEngine searchEngine, TermScorer termScorer, Metrics metrics) {
+        this(searchEngine, termScorer, metrics, DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * Constructor to create a QueryHandler object with a limit on the words a wildcard term expands to.
+     *
+     * @param searchEngine the search engine to look up words in the query.
+     * @param termScorer the term scorer to calculate the relevance of pages.
+     * @param metrics the metrics that the stages of the queries are recorded in.
+     * @param maxExpansions the most words that a wildcard term such as {@code denm*} is expanded to,
+     *                      the first ones in sorted order.
+     */
+    public QueryHandler(ReadOnlySearchEngine searchEngine, TermScorer termScorer, Metrics metrics, int maxExpansions) {
+        this(searchEngine, termScorer, metrics, maxExpansions, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Constructor to create a QueryHandler object that answers large queries in parallel.
+     *
+     * @param searchEngine the search engine to look up words in the query.
+     * @param termScorer the term scorer to calculate the relevance of pages.
+     * @param metrics the metrics that the stages of the queries are recorded in.
+     * @param maxExpansions the most words that a wildcard term such as {@code denm*} is expanded to,
+     *                      the first ones in sorted order.
+     * @param parallelThreshold the number of candidate pages of a query from which it is answered in parallel,
+     *                          and four times the most candidates of a clause in one range of doc IDs.
+     *                          {@link Integer#MAX_VALUE} answers every query on the calling thread.
+     */
+    public QueryHandler(ReadOnlySearchEngine searchEngine, TermScorer termScorer, Metrics metrics, int maxExpansions,
+            int parallelThreshold) {
+        if (maxExpansions < 1) {
+            throw new IllegalArgumentException("maxExpansions must be at least 1, but was " + maxExpansions);
+        }
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("parallelThreshold must not be negative, but was "
+                + parallelThreshold);
+        }
         this.searchEngine = searchEngine;
         this.termScorer = termScorer;
+        this.metrics = metrics;
+        this.maxExpansions = maxExpansions;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the metrics that the stages of the queries are recorded in.
+     * @return the metrics of this query handler.
+     */
+    public Metrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -32,27 +125,125 @@ public class QueryHandler {
      * It splits the query into words and finds pages that contain all of them.
      * The method then calculates the relevance of each page based on the search terms.
      * @param query the search query containing words to be matched.
-     * @return a HashMap where the keys are page URLs and the values are their scores.
+     * @return a HashMap where the keys are doc IDs of the pages and the values are their scores.
      */
  
-    public HashMap<String, Double> andSearch(String query) {
-        Set<String> results = new HashSet<>();
+    public HashMap<Integer, Double> andSearch(String query) {
+        Metrics.Timer timer = metrics.startTimer();
+        HashMap<Integer, Double> pagesWithScores = andSearch(query, timer);
+        timer.finish();
+        return pagesWithScores;
+    }
 
-        List<String> clauseWords = Arrays.asList(query.split("\\s+"));
-        List<List<String>> pageLists = clauseWords.stream()
-            .map(word -> searchEngine.search(word.toLowerCase()))
-            .collect(Collectors.toList());
-        Set<String> clauseResult = findCommonPages(pageLists);
-        results.addAll(clauseResult);
+    /**
+     * Helper method to search for the pages that contain all words of a clause, timing each stage.
+     * @param query the words of the clause.
+     * @param timer the timer of the query that the clause belongs to.
+     * @return a HashMap where the keys are doc IDs of the pages and the values are their scores.
+     */
+    private HashMap<Integer, Double> andSearch(String query, Metrics.Timer timer) {
+        List<QueryTerm> terms = QueryTerm.parse(query, maxExpansions);
+        timer.lap(Metrics.Stage.PARSE);
+        HashMap<Integer, Double> pagesWithScores = new HashMap<>();
+        for (ReadOnlySearchEngine segment : searchEngine.getSegments()) {
+            Clause clause = lookUp(terms, segment);
+            timer.lap(Metrics.Stage.LOOKUP);
+            intersect(clause, 0);
+            timer.lap(Metrics.Stage.INTERSECT);
+            score(clause, 0);
+            for (int i = 0; i < clause.pages.length; i++) {
+                pagesWithScores.put(clause.pages[i], clause.scores[i]);
+            }
+            timer.lap(Metrics.Stage.SCORE);
+        }
+        return pagesWithScores;
+    }
 
-        HashMap<String, Double> pagesWithScores = new HashMap<>();
-        for (String page : clauseResult) {
-           for (String word : clauseWords) {
-               pagesWithScores.put(page, pagesWithScores.getOrDefault(page, 0.0) + termScorer.getScore(page, word));
-           }
+    /**
+     * Helper method to look up the pages of the terms of a clause in one segment of the search engine.
+     * @param terms the parsed terms of the clause.
+     * @param segment the segment to look the terms up in.
+     * @return the clause, which is not intersected yet.
+     */
+    private static Clause lookUp(List<QueryTerm> terms, ReadOnlySearchEngine segment) {
+        // A term without any pages means that no page can contain all terms
+        List<int[]> pageLists = new ArrayList<>();
+        for (QueryTerm term : terms) {
+            int[] pages = term.pages(segment);
+            if (pages.length == 0) {
+                pageLists.clear();
+                break;
+            }
+            pageLists.add(pages);
         }
+        return new Clause(terms, segment, pageLists);
+    }
 
-        return pagesWithScores;
+    /**
+     * Helper method to find the pages that contain all terms of a clause, without the deleted pages.
+     * @param clause the clause that was looked up.
+     * @param rangeSize the most candidates in one range of doc IDs that is intersected in parallel,
+     *                  or 0 to intersect on the calling thread.
+     */
+    private static void intersect(Clause clause, int rangeSize) {
+        if (clause.pageLists.isEmpty()) {
+            clause.pages = NO_PAGES;
+        } else if (rangeSize == 0) {
+            clause.pages = withoutDeleted(clause.segment, PostingIntersection.intersect(clause.pageLists));
+        } else {
+            clause.pages = withoutDeleted(clause.segment,
+                PostingIntersection.intersectInParallel(clause.pageLists, rangeSize));
+        }
+    }
+
+    /**
+     * Helper method to drop the deleted pages from the pages of a segment.
+     * @param segment the segment of the pages.
+     * @param pages the sorted doc IDs of the pages, which are not changed.
+     * @return the pages that are not deleted, or the same array if none are.
+     */
+    private static int[] withoutDeleted(ReadOnlySearchEngine segment, int[] pages) {
+        int[] live = null;
+        int size = 0;
+        for (int i = 0; i < pages.length; i++) {
+            if (segment.isDeleted(pages[i])) {
+                if (live == null) {
+                    live = Arrays.copyOf(pages, pages.length);
+                    size = i;
+                }
+            } else if (live != null) {
+                live[size++] = pages[i];
+            }
+        }
+        return live == null ? pages : Arrays.copyOf(live, size);
+    }
+
+    /**
+     * Helper method to score the pages of a clause with the sum of the scores of its terms.
+     * @param clause the clause that was intersected.
+     * @param rangeSize the most pages in one range of doc IDs that is scored in parallel,
+     *                  or 0 to score on the calling thread.
+     */
+    private void score(Clause clause, int rangeSize) {
+        int[] pages = clause.pages;
+        double[] scores = new double[pages.length];
+        if (rangeSize == 0 || pages.length <= rangeSize) {
+            for (QueryTerm term : clause.terms) {
+                term.addScores(clause.segment, termScorer, pages, scores);
+            }
+        } else {
+            // Each range scores a copy of its pages, and writes the scores into its own part of the array
+            IntStream.range(0, (pages.length + rangeSize - 1) / rangeSize).parallel().forEach(range -> {
+                int from = range * rangeSize;
+                int[] rangePages = Arrays.copyOfRange(pages, from, Math.min(pages.length, from + rangeSize));
+                double[] rangeScores = new double[rangePages.length];
+                for (QueryTerm term : clause.terms) {
+                    term.addScores(clause.segment, termScorer, rangePages, rangeScores);
+                }
+                System.arraycopy(rangeScores, 0, scores, from, rangeScores.length);
+            });
+        }
+        clause.scores = scores;
     }
 
     /**
@@ -61,49 +252,306 @@ public class QueryHandler {
      * The method then calculates the relevance of each page based on the search terms.
      * The pages are ordered by relevance.
      * @param query the search query, which can contain "OR" clauses.
-     * @return a list of page URLs sorted by relevance in descending order.
+     * @return a list of doc IDs sorted by relevance in descending order.
+     *         Use {@link SearchEngine#getUrl(int)} and {@link SearchEngine#getTitle(int)} to display them.
+     */
+    public List<Integer> getMatchingWebPages(String query) {
+        Metrics.Timer timer = metrics.startTimer();
+        List<Integer> sortedKeys = getMatchingWebPages(query, timer);
+        timer.finish();
+        return sortedKeys;
+    }
 
+    /**
+     * Gets the pages that match any part of the query, like {@link #getMatchingWebPages(String)},
+     * and adds the time of each stage to a timer that the caller finishes.
+     * @param query the search query, which can contain "OR" clauses.
+     * @param timer the timer of the query.
+     * @return a list of doc IDs sorted by relevance in descending order.
      */
-    public List<String> getMatchingWebPages(String query) {
+    List<Integer> getMatchingWebPages(String query, Metrics.Timer timer) {
         String decodedQuery = URLDecoder.decode(query, StandardCharsets.UTF_8);
-        String[] orClauses = decodedQuery.split("(?i)\\s+OR\\s+");
+        timer.lap(Metrics.Stage.DECODE);
+        String[] orClauses = orClauses(decodedQuery);
+        timer.lap(Metrics.Stage.PARSE);
 
-        HashMap<String, Double> results = new HashMap<String, Double>();
+        // Each clause is looked up in every segment, so the clauses of one OR clause follow each other
+        List<ReadOnlySearchEngine> segments = searchEngine.getSegments();
+        List<Clause> clauses = new ArrayList<>();
+        long candidates = 0;
         for (String searchTerm : orClauses) {
-            HashMap<String, Double> andResults = andSearch(searchTerm);
-            for (String page : andResults.keySet()) {
-                if (results.containsKey(page)) {
-                   results.put(page, Math.max(results.get(page), andResults.get(page)));
-               } else {
-                   results.put(page, andResults.get(page));
-               }
+            List<QueryTerm> terms = QueryTerm.parse(searchTerm, maxExpansions);
+            timer.lap(Metrics.Stage.PARSE);
+            for (ReadOnlySearchEngine segment : segments) {
+                Clause clause = lookUp(terms, segment);
+                clauses.add(clause);
+                candidates += clause.candidates();
             }
+            timer.lap(Metrics.Stage.LOOKUP);
         }
 
-        List<String> sortedKeys = results.entrySet().stream()
-           .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()))
-           .map(Map.Entry::getKey)
-           .collect(Collectors.toList());
+        if (candidates < parallelThreshold) {
+            for (Clause clause : clauses) {
+                intersect(clause, 0);
+                timer.lap(Metrics.Stage.INTERSECT);
+                score(clause, 0);
+                timer.lap(Metrics.Stage.SCORE);
+            }
+        } else {
+            // A query just over the threshold is still split into a few ranges
+            int rangeSize = Math.max(1, parallelThreshold / 4);
+            clauses.parallelStream().forEach(clause -> intersect(clause, rangeSize));
+            timer.lap(Metrics.Stage.INTERSECT);
+            clauses.parallelStream().forEach(clause -> score(clause, rangeSize));
+            timer.lap(Metrics.Stage.SCORE);
+        }
+
+        // Merge the sorted pages of the clauses, keeping the best score of a page
+        int[] pages = NO_PAGES;
+        double[] scores = new double[0];
+        for (int first = 0; first < clauses.size(); first += segments.size()) {
+            Clause clause = append(clauses.subList(first, first + segments.size()));
+            if (pages.length == 0) {
+                pages = clause.pages;
+                scores = clause.scores;
+                continue;
+            }
+            int[] mergedPages = new int[pages.length + clause.pages.length];
+            double[] mergedScores = new double[mergedPages.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < pages.length || j < clause.pages.length) {
+                if (j == clause.pages.length || (i < pages.length && pages[i] < clause.pages[j])) {
+                    mergedPages[size] = pages[i];
+                    mergedScores[size++] = scores[i++];
+                } else if (i == pages.length || clause.pages[j] < pages[i]) {
+                    mergedPages[size] = clause.pages[j];
+                    mergedScores[size++] = clause.scores[j++];
+                } else {
+                    mergedPages[size] = pages[i];
+                    mergedScores[size++] = Math.max(scores[i++], clause.scores[j++]);
+                }
+            }
+            pages = Arrays.copyOf(mergedPages, size);
+            scores = Arrays.copyOf(mergedScores, size);
+        }
+
+        // The sort is stable, so pages with the same score stay in the order of their doc IDs
+        double[] pageScores = scores;
+        Integer[] order = new Integer[pages.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(pageScores[b], pageScores[a]));
+        List<Integer> sortedKeys = new ArrayList<>(order.length);
+        for (int position : order) {
+            sortedKeys.add(pages[position]);
+        }
+        timer.lap(Metrics.Stage.SORT);
 
         return sortedKeys;
     }
 
     /**
-     * Helper method to find pages that are common across all given lists.
-     * Used for AND searches to find pages containing all words.
-     * @param pageLists a list of lists of page URLs
-     * @return a set of page URLs that are common across all lists
+     * Helper method to append the pages of one clause in each segment, whose doc IDs follow each other.
+     * @param clauses the clause in each segment, in order of the segments, which have been scored.
+     * @return the first clause, with the pages and scores of all of them.
+     */
+    private static Clause append(List<Clause> clauses) {
+        Clause first = clauses.get(0);
+        if (clauses.size() > 1) {
+            int size = 0;
+            for (Clause clause : clauses) {
+                size += clause.pages.length;
+            }
+            int[] pages = new int[size];
+            double[] scores = new double[size];
+            int position = 0;
+            for (Clause clause : clauses) {
+                System.arraycopy(clause.pages, 0, pages, position, clause.pages.length);
+                System.arraycopy(clause.scores, 0, scores, position, clause.scores.length);
+                position += clause.pages.length;
+            }
+            first.pages = pages;
+            first.scores = scores;
+        }
+        return first;
+    }
+
+    /**
+     * This method gets the k most relevant pages that match any part of the query.
+     * <p>
+     * The query is handled like in {@link #getMatchingWebPages(String)}, but the pages are ranked by
+     * the impact scores stored in the index, and pages that cannot be among the k best are skipped:
+     * the clauses are evaluated from the highest possible score to the lowest, a clause is skipped when
+     * even its best page cannot beat the k-th best score found so far, and within a clause whole blocks
+     * of postings are skipped when their highest impacts cannot beat it either.
+     * </p>
+     * @param query the search query, which can contain "OR" clauses.
+     * @param k the number of pages to return.
+     * @return a list of at most k doc IDs sorted by relevance in descending order.
+     */
+    public List<Integer> getTopWebPages(String query, int k) {
+        Metrics.Timer timer = metrics.startTimer();
+        List<Integer> results = getTopWebPages(query, k, timer);
+        timer.finish();
+        return results;
+    }
+
+    /**
+     * Gets the k most relevant pages that match any part of the query, like {@link #getTopWebPages(String, int)},
+     * and adds the time of each stage to a timer that the caller finishes.
+     * @param query the search query, which can contain "OR" clauses.
+     * @param k the number of pages to return.
+     * @param timer the timer of the query.
+     * @return a list of at most k doc IDs sorted by relevance in descending order.
+     */
+    List<Integer> getTopWebPages(String query, int k, Metrics.Timer timer) {
+        TopKCollector collector = collectTopWebPages(query, k, timer);
+        List<Integer> results = collector.results();
+        timer.lap(Metrics.Stage.SORT);
+        return results;
+    }
+
+    /**
+     * Collects the k most relevant pages that match any part of the query, like {@link #getTopWebPages(String, int)},
+     * with their scores, which the shards of a distributed index send to the {@link SearchCoordinator}.
+     * @param query the search query, which can contain "OR" clauses.
+     * @param k the number of pages to collect.
+     * @param timer the timer of the query.
+     * @return the collector of the top pages.
+     */
+    TopKCollector collectTopWebPages(String query, int k, Metrics.Timer timer) {
+        String decodedQuery = URLDecoder.decode(query, StandardCharsets.UTF_8);
+        timer.lap(Metrics.Stage.DECODE);
+        String[] orClauses = orClauses(decodedQuery);
+        timer.lap(Metrics.Stage.PARSE);
+
+        List<List<QueryTerm>> parsedClauses = new ArrayList<>();
+        for (String clause : orClauses) {
+            parsedClauses.add(QueryTerm.parse(clause, maxExpansions));
+        }
+        timer.lap(Metrics.Stage.PARSE);
+
+        // No query has more results than there are pages, so a huge k cannot make the collector huge
+        TopKCollector collector = new TopKCollector(Math.max(1, Math.min(k, searchEngine.getPageCount())));
+        for (ReadOnlySearchEngine segment : searchEngine.getSegments()) {
+            // Look up the postings of each clause in the segment, rarest term first
+            List<PostingList[]> clauses = new ArrayList<>();
+            for (List<QueryTerm> terms : parsedClauses) {
+                PostingList[] postingLists = terms.stream()
+                    .map(term -> term.postings(segment))
+                    .sorted(Comparator.comparingInt(PostingList::size))
+                    .toArray(PostingList[]::new);
+                if (postingLists.length > 0 && postingLists[0].size() > 0) {
+                    clauses.add(postingLists);
+                }
+            }
+            clauses.sort(Comparator.comparingDouble(QueryHandler::maxScore).reversed());
+            timer.lap(Metrics.Stage.LOOKUP);
+
+            for (PostingList[] clause : clauses) {
+                if (maxScore(clause) <= collector.threshold()) {
+                    // The remaining clauses have even lower maximum scores
+                    break;
+                }
+                collectClause(segment, clause, collector);
+            }
+            timer.lap(Metrics.Stage.SCORE);
+        }
+        return collector;
+    }
+
+    /**
+     * Splits a decoded query into its "OR" clauses.
+     * @param decodedQuery the query.
+     * @return the clauses, without "OR".
+     */
+    static String[] orClauses(String decodedQuery) {
+        return decodedQuery.split("(?i)\\s+OR\\s+");
+    }
+
+    /**
+     * Helper method to find the highest score a page can get from a clause.
+     * @param postingLists the postings of the words in the clause
+     * @return the sum of the highest impacts of the words
      */
-    private Set<String> findCommonPages(List<List<String>> pageLists) {
-        if (pageLists.isEmpty()) {
-            return Collections.emptySet();
+    private static double maxScore(PostingList[] postingLists) {
+        double maxScore = 0.0;
+        for (PostingList postings : postingLists) {
+            maxScore += postings.maxImpact();
         }
+        return maxScore;
+    }
+
+    /**
+     * Helper method to offer the pages that contain all words of a clause to a collector.
+     * The pages of the rarest word are visited block by block, and a block is skipped
+     * when its highest impact plus the highest impacts of the other words cannot beat
+     * the current threshold of the collector. Deleted pages are skipped.
+     * @param segment the segment that the postings were looked up in
+     * @param postingLists the postings of the words in the clause, shortest first
+     * @param collector the collector of the top pages
+     */
+    private void collectClause(ReadOnlySearchEngine segment, PostingList[] postingLists, TopKCollector collector) {
+        PostingList rarest = postingLists[0];
+        double otherMaxScore = maxScore(postingLists) - rarest.maxImpact();
+        int[] positions = new int[postingLists.length];
 
-        Set<String> commonPages = new HashSet<>(pageLists.get(0));
-        for (List<String> pages : pageLists) {
-            commonPages.retainAll(pages);
+        for (int block = 0; block < rarest.blockCount(); block++) {
+            if (rarest.blockMaxImpact(block) + otherMaxScore <= collector.threshold()) {
+                continue;
+            }
+            int end = Math.min(rarest.size(), (block + 1) * PostingList.BLOCK_SIZE);
+            for (int i = block * PostingList.BLOCK_SIZE; i < end; i++) {
+                int docId = rarest.docId(i);
+                double score = rarest.impact(i);
+                boolean inAllLists = true;
+                for (int w = 1; w < postingLists.length && inAllLists; w++) {
+                    PostingList postings = postingLists[w];
+                    positions[w] = PostingIntersection.gallop(postings.docIds(), positions[w], docId);
+                    if (positions[w] == postings.size()) {
+                        // No later page can contain this word
+                        return;
+                    }
+                    inAllLists = postings.docId(positions[w]) == docId;
+                    score += postings.impact(positions[w]);
+                }
+                if (inAllLists && !segment.isDeleted(docId)) {
+                    collector.offer(docId, score);
+                }
+            }
         }
+    }
 
-        return commonPages;
+    /**
+     * The terms of a clause and the pages of one segment that match it, which are filled in stage by stage.
+     */
+    private static final class Clause {
+        private final List<QueryTerm> terms;
+        private final ReadOnlySearchEngine segment;
+        // The pages of each term, or none if a term has no pages
+        private final List<int[]> pageLists;
+        private int[] pages;
+        private double[] scores;
+
+        Clause(List<QueryTerm> terms, ReadOnlySearchEngine segment, List<int[]> pageLists) {
+            this.terms = terms;
+            this.segment = segment;
+            this.pageLists = pageLists;
+        }
+
+        /**
+         * Returns the number of pages that can match the clause at most.
+         * @return the number of pages of its rarest term.
+         */
+        int candidates() {
+            int candidates = pageLists.isEmpty() ? 0 : Integer.MAX_VALUE;
+            for (int[] pages : pageLists) {
+                candidates = Math.min(candidates, pages.length);
+            }
+            return candidates;
+        }
     }
 }
@@ -0,0 +1,214 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One term of a clause of a query: a word, a word with a trailing wildcard such as {@code denm*}, a quoted phrase
+ * such as {@code "new york"}, or two words that must be close to each other, such as {@code new NEAR/3 york}.
+ * <p>
+ * A wildcard term matches the pages of any indexed word that starts with the text before the {@code *}. The words
+ * are a range of the sorted term dictionary (see {@link SearchEngine#getTermsWithPrefix(String, int)}), of which
+ * only the first few are used, so that a short prefix does not merge the postings of thousands of words, and their
+ * postings are merged with {@link PostingUnion}. A page gets the highest score of the words it contains.
+ * </p>
+ * <p>
+ * A page matches a phrase if it contains the words on consecutive lines in order, and it matches {@code NEAR/k}
+ * if it contains the two words at most k lines apart in either order. Both are evaluated from the positions in
+ * the postings (see {@link ProximityPostingIterator}). If the index has no positions, they match the pages that
+ * contain all their words, like the words of a clause without quotes.
+ * </p>
+ */
+final class QueryTerm {
+    private static final Pattern TERM = Pattern.compile(
+        "\"([^\"]*)\"?|(\\S+)\\s+NEAR/(\\d+)\\s+(\\S+)|\\S+", Pattern.CASE_INSENSITIVE);
+    private static final int PHRASE = -1;
+    private static final int PREFIX = -2;
+    /**
+     * The largest distance of a {@code NEAR/k} term. Larger distances, which no page is long enough for, are
+     * lowered to it rather than parsed into a number that does not fit.
+     */
+    static final int MAX_DISTANCE = 999_999_999;
+
+    private final String[] words;
+    private final int maxDistance;
+    private final int maxExpansions;
+
+    private QueryTerm(String[] words, int maxDistance, int maxExpansions) {
+        this.words = words;
+        this.maxDistance = maxDistance;
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Splits a clause into its terms, with the default number of words a wildcard expands to.
+     * A quote that is not closed runs to the end of the clause.
+     * @param clause the words of one clause, without "OR"
+     * @return the terms of the clause, with their words in lowercase
+     */
+    static List<QueryTerm> parse(String clause) {
+        return parse(clause, QueryHandler.DEFAULT_MAX_EXPANSIONS);
+    }
+
+    /**
+     * Splits a clause into its terms. A quote that is not closed runs to the end of the clause.
+     * @param clause the words of one clause, without "OR"
+     * @param maxExpansions the most words a wildcard term expands to
+     * @return the terms of the clause, with their words in lowercase
+     */
+    static List<QueryTerm> parse(String clause, int maxExpansions) {
+        List<QueryTerm> terms = new ArrayList<>();
+        Matcher matcher = TERM.matcher(clause);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                String[] words = matcher.group(1).toLowerCase().trim().split("\\s+");
+                if (!words[0].isEmpty()) {
+                    terms.add(new QueryTerm(words, words.length == 1 ? 0 : PHRASE, maxExpansions));
+                }
+            } else if (matcher.group(2) != null) {
+                String[] words = {matcher.group(2).toLowerCase(), matcher.group(4).toLowerCase()};
+                // The order of the words does not matter, so equal terms are written the same way
+                Arrays.sort(words);
+                String digits = matcher.group(3).replaceFirst("^0+(?=\\d)", "");
+                int maxDistance = digits.length() > 9 ? MAX_DISTANCE : Integer.parseInt(digits);
+                terms.add(new QueryTerm(words, Math.max(1, maxDistance), maxExpansions));
+            } else {
+                String word = matcher.group().toLowerCase();
+                // A lone "*" would match every word, so it is looked up as a word like any other
+                if (word.length() > 1 && word.endsWith("*")) {
+                    String prefix = word.substring(0, word.length() - 1);
+                    terms.add(new QueryTerm(new String[] {prefix}, PREFIX, maxExpansions));
+                } else {
+                    terms.add(new QueryTerm(new String[] {word}, 0, maxExpansions));
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Checks if the term is a word with a trailing wildcard.
+     * @return true if the term matches the words that start with its prefix
+     */
+    boolean isPrefix() {
+        return maxDistance == PREFIX;
+    }
+
+    /**
+     * Returns the words of the term.
+     * @return the words in lowercase, or for a wildcard term its prefix
+     */
+    List<String> words() {
+        return Arrays.asList(words);
+    }
+
+    /**
+     * Finds the pages that match the term.
+     * @param searchEngine the search engine to look the words up in
+     * @return the sorted doc IDs of the pages
+     */
+    int[] pages(ReadOnlySearchEngine searchEngine) {
+        return maxDistance == 0 ? searchEngine.search(words[0]) : postings(searchEngine).docIds();
+    }
+
+    /**
+     * Adds the scores of pages for the term: the sum of the scores of its words, or for a wildcard term the highest
+     * score of the words it expands to.
+     * @param searchEngine the search engine to look the words up in
+     * @param termScorer the scorer of the words
+     * @param pages the sorted doc IDs of the pages to score
+     * @param scores the scores of the pages, at the same positions, which the scores of the term are added to
+     */
+    void addScores(ReadOnlySearchEngine searchEngine, TermScorer termScorer, int[] pages, double[] scores) {
+        if (maxDistance != PREFIX) {
+            for (String word : words) {
+                termScorer.addScores(searchEngine, pages, word, scores);
+            }
+            return;
+        }
+        double[] best = new double[pages.length];
+        double[] wordScores = new double[pages.length];
+        for (String word : searchEngine.getTermsWithPrefix(words[0], maxExpansions)) {
+            Arrays.fill(wordScores, 0.0);
+            termScorer.addScores(searchEngine, pages, word, wordScores);
+            for (int i = 0; i < pages.length; i++) {
+                best[i] = Math.max(best[i], wordScores[i]);
+            }
+        }
+        for (int i = 0; i < pages.length; i++) {
+            scores[i] += best[i];
+        }
+    }
+
+    /**
+     * Finds the pages that match the term, and scores them with the sum of the impacts of its words.
+     * @param searchEngine the search engine to look the words up in
+     * @return the postings of the term. For a phrase or proximity term, the frequency of a posting is the number of
+     *         matches on its page, and the list has no positions. For a wildcard term, the postings are
+     *         those of {@link PostingUnion#union(List)}.
+     */
+    PostingList postings(ReadOnlySearchEngine searchEngine) {
+        if (maxDistance == PREFIX) {
+            List<PostingList> lists = new ArrayList<>();
+            for (String word : searchEngine.getTermsWithPrefix(words[0], maxExpansions)) {
+                lists.add(searchEngine.getPostings(word));
+            }
+            return PostingUnion.union(lists);
+        }
+        if (words.length == 1) {
+            return searchEngine.getPostings(words[0]);
+        }
+        PostingList[] lists = new PostingList[words.length];
+        boolean positional = true;
+        for (int i = 0; i < words.length; i++) {
+            lists[i] = searchEngine.getPostings(words[i]);
+            if (lists[i].size() == 0) {
+                return PostingList.EMPTY;
+            }
+            positional &= lists[i].hasPositions();
+        }
+        ProximityPostingIterator iterator;
+        if (!positional) {
+            iterator = ProximityPostingIterator.conjunction(lists);
+        } else if (maxDistance == PHRASE) {
+            iterator = ProximityPostingIterator.phrase(lists);
+        } else {
+            iterator = ProximityPostingIterator.near(maxDistance, lists[0], lists[1]);
+        }
+
+        // The rarest word bounds the number of matching pages
+        int[] docIds = new int[iterator.size()];
+        int[] frequencies = new int[docIds.length];
+        float[] impacts = new float[docIds.length];
+        int count = 0;
+        while (iterator.nextDoc() != PostingIterator.NO_MORE_DOCS) {
+            docIds[count] = iterator.docId();
+            frequencies[count] = iterator.matches();
+            impacts[count] = iterator.impact();
+            count++;
+        }
+        PostingList postings = new PostingList(Arrays.copyOf(docIds, count), Arrays.copyOf(frequencies, count));
+        postings.setImpacts(Arrays.copyOf(impacts, count));
+        return postings;
+    }
+
+    /**
+     * Writes the term like it is written in a query, with its words in lowercase.
+     */
+    @Override
+    public String toString() {
+        if (maxDistance == PREFIX) {
+            return words[0] + "*";
+        }
+        if (words.length == 1) {
+            return words[0];
+        }
+        if (maxDistance == PHRASE) {
+            return "\"" + String.join(" ", words) + "\"";
+        }
+        return words[0] + " near/" + maxDistance + " " + words[1];
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores each doc ID in four big-endian bytes, without compression.
+ */
+class RawPostingCodec implements PostingCodec {
+
+    @Override
+    public byte id() {
+        return 0;
+    }
+
+    @Override
+    public byte[] encodeDocIds(int[] docIds) {
+        byte[] data = new byte[docIds.length * Integer.BYTES];
+        for (int i = 0; i < docIds.length; i++) {
+            BlockPostingCodec.writeInt(data, i * Integer.BYTES, docIds[i]);
+        }
+        return data;
+    }
+
+    @Override
+    public PostingIterator iterator(ByteBuffer data, int offset, int size) {
+        int[] docIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            docIds[i] = data.getInt(offset + i * Integer.BYTES);
+        }
+        return new ArrayPostingIterator(docIds);
+    }
+}
@@ -0,0 +1,115 @@
+package searchengine;
+
+import java.util.List;
+
+/**
+ * The methods of a search engine that answer queries, without those that load pages or score postings.
+ * <p>
+ * A {@link QueryHandler} only reads its search engine, so it can answer queries from a view of another search
+ * engine, like a {@link GlobalStatisticsSearchEngine}, that has no pages of its own to load.
+ * </p>
+ * <p>
+ * Thread safety: all methods may be called by many threads at once, and must not change the search engine.
+ * </p>
+ */
+public interface ReadOnlySearchEngine {
+    /**
+     * Searches for a given term across the loaded web pages.
+     * @param searchTerm the term to search for.
+     * @return the doc IDs of the pages containing the search term, sorted in ascending order.
+     */
+    public int[] search(String searchTerm);
+
+    /**
+     * Retrieves the postings of a term, with the term frequency and impact score of each page.
+     * @param searchTerm the term to look up.
+     * @return the postings of the term, in the same order as {@link #search(String)}.
+     */
+    public PostingList getPostings(String searchTerm);
+
+    /**
+     * Retrieves the indexed terms that start with a prefix, for prefix and wildcard queries.
+     * @param prefix the prefix of the terms, in lowercase.
+     * @param maxTerms the most terms to return.
+     * @return at most {@code maxTerms} terms with the prefix, sorted in UTF-8 order.
+     */
+    public List<String> getTermsWithPrefix(String prefix, int maxTerms);
+
+    /**
+     * Retrieves the indexed terms within a number of edits of a word, for spelling suggestions.
+     * @param word the word, in lowercase.
+     * @param maxEdits the largest Levenshtein distance of a term to the word, from 0 to 2.
+     * @param prefixLength the number of code points at the start of the word that the terms must start with.
+     * @return the terms within the distance, sorted in UTF-8 order.
+     */
+    public List<String> getTermsWithin(String word, int maxEdits, int prefixLength);
+
+    /**
+     * Retrieves the most common indexed terms that start with a prefix, for autocompletion.
+     * @param prefix the prefix of the terms, in lowercase.
+     * @param count the most terms to return.
+     * @return at most {@code count} terms with the prefix, the terms on the most pages first.
+     */
+    public List<String> getCompletions(String prefix, int count);
+
+    /**
+     * Retrieves the number of pages that contain a term, without reading its postings if possible.
+     * @param searchTerm the term to look up.
+     * @return the number of pages, the same as the size of {@link #getPostings(String)}.
+     */
+    public int getDocumentFrequency(String searchTerm);
+
+    /**
+     * Retrieves the URL of a loaded web page.
+     * @param docId the doc ID of the page, as returned by {@link #search(String)}.
+     * @return the URL of the page.
+     */
+    public String getUrl(int docId);
+
+    /**
+     * Retrieves the title of a loaded web page.
+     * @param docId the doc ID of the page, as returned by {@link #search(String)}.
+     * @return the title of the page.
+     */
+    public String getTitle(int docId);
+
+    /**
+     * Retrieves the number of terms on a loaded web page, which scores are normalized by.
+     * @param docId the doc ID of the page, as returned by {@link #search(String)}.
+     * @return the length of the page.
+     */
+    public int getPageLength(int docId);
+
+    /**
+     * Finds a loaded web page by its URL, without reading the URLs of the other pages.
+     * @param url the URL of the page, in any case.
+     * @return the doc ID of the first page with the URL, or -1 if there is no such page.
+     */
+    public int getDocId(String url);
+
+    /**
+     * Retrieves the number of loaded web pages.
+     * @return the number of pages. Doc IDs go from 0 to this number minus one.
+     */
+    public int getPageCount();
+
+    /**
+     * Retrieves views of the parts of the search engine that a query is answered from one after the other, such as
+     * the segments of a {@link SegmentedSearchEngine}. Each view holds the postings of a range of doc IDs, which
+     * comes after the range of the view before it, and answers everything else like the whole search engine.
+     * The postings of a view may still contain deleted pages, which a query skips with {@link #isDeleted(int)}.
+     * @return the views, in order of their doc IDs. By default the search engine is its only view.
+     */
+    public default List<ReadOnlySearchEngine> getSegments() {
+        return List.of(this);
+    }
+
+    /**
+     * Checks if a page has been deleted, for the views of {@link #getSegments()} whose postings still contain it.
+     * @param docId the doc ID of the page.
+     * @return true if the page was deleted. By default no page is.
+     */
+    public default boolean isDeleted(int docId) {
+        return false;
+    }
+}
@@ -0,0 +1,284 @@
+package searchengine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Answers queries from an index that is split by doc ID range over several shard servers, by asking all shards
+ * (scatter) and merging their results (gather).
+ * <p>
+ * Each shard is a {@link WebServer} that has loaded one part of the pages, for example a file written by
+ * {@link #splitPages(Path, int, Path)}, and answers the requests of {@link ShardProtocol}. A query is sent to all
+ * shards at once in two rounds: first for the {@link CollectionStatistics} of its words in each shard, which are
+ * added up, and then for the best pages of each shard scored with the statistics of all shards. Every page therefore
+ * gets the score it would get in one index of all pages, and the best k pages of all shards are the best k of
+ * the pages the shards return, merged by score.
+ * </p>
+ * <p>
+ * A shard that does not answer a round within the timeout, or answers with an error, is left out of the query,
+ * so a slow shard makes the results partial instead of late. The number of shards left out is sent in the
+ * {@code X-Missing-Shards} header of the response. The coordinator serves the web interface and {@code /search}
+ * like a {@link WebServer}, but not the suggestions of the shards.
+ * </p>
+ */
+public class SearchCoordinator {
+    /**
+     * How long a shard has to answer each round of a query, set with the system property
+     * {@code searchengine.shardTimeoutMillis}.
+     */
+    static final Duration SHARD_TIMEOUT = Duration.ofMillis(Long.getLong("searchengine.shardTimeoutMillis", 2000));
+
+    private final List<URI> shards;
+    private final Duration timeout;
+    private final int maxExpansions;
+    private final HttpClient client;
+    HttpServer server;
+    ExecutorService executor;
+    private final StaticAsset indexPage;
+    private final StaticAsset favicon;
+    private final StaticAsset code;
+    private final StaticAsset style;
+
+    /**
+     * Starts a coordinator of shard servers.
+     * @param port the number of the port on which the coordinator listens
+     * @param shards the base URIs of the shards, such as {@code http://localhost:8081}, in the order of their
+     *               doc ID ranges
+     * @param timeout how long a shard has to answer each round of a query
+     * @param maxExpansions the most words that a wildcard term expands to
+     * @throws IOException if the files of the web interface cannot be read or the server cannot be started
+     */
+    SearchCoordinator(int port, List<URI> shards, Duration timeout, int maxExpansions) throws IOException {
+        this.shards = List.copyOf(shards);
+        this.timeout = timeout;
+        this.maxExpansions = maxExpansions;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+
+        indexPage = StaticAsset.load("web/index.html", "text/html", "no-cache");
+        favicon = StaticAsset.load("web/favicon.ico", "image/x-icon", "public, max-age=86400");
+        code = StaticAsset.load("web/code.js", "application/javascript", "no-cache");
+        style = StaticAsset.load("web/style.css", "text/css", "no-cache");
+
+        server = WebServer.createServer(port);
+        executor = WebServer.createExecutor(WebServer.EXECUTOR, WebServer.THREADS);
+        server.setExecutor(executor);
+        server.createContext("/", io -> {
+            if (io.getRequestURI().getPath().equals("/")) {
+                WebServer.serveAsset(io, indexPage);
+            } else {
+                WebServer.respond(io, 404, "text/plain", "Not found".getBytes(WebServer.CHARSET));
+            }
+        });
+        server.createContext("/search", io -> search(io));
+        server.createContext("/favicon.ico", io -> WebServer.serveAsset(io, favicon));
+        server.createContext("/code.js", io -> WebServer.serveAsset(io, code));
+        server.createContext("/style.css", io -> WebServer.serveAsset(io, style));
+        server.start();
+        System.out.println("SearchCoordinator running on http://localhost:" + server.getAddress().getPort()
+            + " with " + shards.size() + " shards");
+    }
+
+    /**
+     * Finds the best pages of all shards for a query.
+     * @param query the decoded query, which can contain "OR" clauses
+     * @param k the number of pages, or 0 for all pages that match the query
+     * @return the pages, best first, and the number of shards that did not answer
+     */
+    Results search(String query, int k) {
+        List<Integer> allShards = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            allShards.add(shard);
+        }
+        List<byte[]> statisticsResponses = send(ShardProtocol.STATISTICS_PATH, allShards,
+            ShardProtocol.statisticsRequest(query));
+        CollectionStatistics statistics = new CollectionStatistics();
+        List<Integer> answered = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try {
+                if (statisticsResponses.get(shard) != null) {
+                    statistics.add(ShardProtocol.readStatisticsResponse(statisticsResponses.get(shard)), maxExpansions);
+                    answered.add(shard);
+                }
+            } catch (IOException e) {
+                // A shard that sends something else than statistics is left out like one that does not answer
+            }
+        }
+
+        List<byte[]> searchResponses = send(ShardProtocol.SEARCH_PATH, answered,
+            ShardProtocol.searchRequest(query, k, statistics));
+        List<ShardProtocol.Hit> hits = new ArrayList<>();
+        int missingShards = shards.size();
+        for (int i = 0; i < answered.size(); i++) {
+            try {
+                if (searchResponses.get(i) != null) {
+                    hits.addAll(ShardProtocol.readSearchResponse(answered.get(i), searchResponses.get(i)));
+                    missingShards--;
+                }
+            } catch (IOException e) {
+                // Left out, like above
+            }
+        }
+        // The hits are in shard order, and the sort is stable, so pages with the same score keep the order
+        // in which their shards ranked them
+        hits.sort(Comparator.comparingDouble((ShardProtocol.Hit hit) -> hit.score).reversed());
+        if (k > 0 && hits.size() > k) {
+            hits = new ArrayList<>(hits.subList(0, k));
+        }
+        return new Results(hits, missingShards);
+    }
+
+    /**
+     * Sends a request to several shards at once, and waits for their answers until the timeout.
+     * @param path the path of the request on the shards
+     * @param shardNumbers the numbers of the shards to send the request to
+     * @param body the body of the request
+     * @return the bodies of the responses, in the order of the shard numbers, with null for the shards that
+     *         did not answer in time or did not answer with 200 OK
+     */
+    private List<byte[]> send(String path, List<Integer> shardNumbers, byte[] body) {
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int shard : shardNumbers) {
+            HttpRequest request = HttpRequest.newBuilder(shards.get(shard).resolve(path))
+                .timeout(timeout)
+                .header("Content-Type", ShardProtocol.MIME)
+                .POST(BodyPublishers.ofByteArray(body))
+                .build();
+            responses.add(client.sendAsync(request, BodyHandlers.ofByteArray())
+                .thenApply(response -> response.statusCode() == 200 ? response.body() : null)
+                .completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> null));
+        }
+        List<byte[]> bodies = new ArrayList<>();
+        for (CompletableFuture<byte[]> response : responses) {
+            bodies.add(response.join());
+        }
+        return bodies;
+    }
+
+    /**
+     * Handles a search request like {@link WebServer#search(HttpExchange)}: the {@code q} parameter is the query,
+     * and the optional {@code k} parameter the number of results. The response is a JSON array of the URLs and
+     * titles of the pages, best first.
+     *
+     * @param io the HTTP exchange object that contains the request and allows sending the response.
+     */
+    void search(HttpExchange io) {
+        String query = WebServer.queryParameter(io, "q");
+        String topK = WebServer.queryParameter(io, "k");
+        int k = topK.matches("[1-9][0-9]{0,8}") ? Integer.parseInt(topK) : 0;
+        Results results = search(query, k);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (JsonResultWriter json = new JsonResultWriter(body)) {
+            for (ShardProtocol.Hit hit : results.hits) {
+                json.writeResult(hit.url, hit.title);
+            }
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+        }
+        io.getResponseHeaders().set("X-Missing-Shards", Integer.toString(results.missingShards));
+        WebServer.respond(io, 200, "application/json", body.toByteArray());
+    }
+
+    /**
+     * Stops the coordinator.
+     */
+    void stop() {
+        server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Splits a file of pages into files of consecutive pages, one per shard, so that the pages of shard i have the
+     * doc IDs after those of shard i - 1. The shards get the same number of pages, give or take one.
+     * @param file the file of pages
+     * @param shardCount the number of shards
+     * @param directory the directory of the shard files
+     * @return the shard files, named after the file of pages with the number of the shard
+     * @throws IOException if the file cannot be read or a shard file cannot be written
+     * @throws IllegalArgumentException if the number of shards is not positive
+     */
+    static List<Path> splitPages(Path file, int shardCount, Path directory) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1, but was " + shardCount);
+        }
+        // Pages are split on lines that start with *PAGE, like ParallelIndexBuilder does, and every byte is kept
+        long pageCount = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith("*PAGE")) {
+                    pageCount++;
+                }
+            }
+        }
+
+        String name = file.getFileName().toString().replaceFirst("\\.txt$", "");
+        List<Path> shardFiles = new ArrayList<>();
+        List<BufferedWriter> writers = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            for (int shard = 0; shard < shardCount; shard++) {
+                Path shardFile = directory.resolve(name + "-shard" + shard + ".txt");
+                shardFiles.add(shardFile);
+                writers.add(Files.newBufferedWriter(shardFile, StandardCharsets.ISO_8859_1));
+            }
+            long page = -1;
+            BufferedWriter writer = null;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith("*PAGE")) {
+                    page++;
+                    writer = writers.get((int) (page * shardCount / pageCount));
+                }
+                if (writer != null) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+        } finally {
+            for (BufferedWriter writer : writers) {
+                writer.close();
+            }
+        }
+        return shardFiles;
+    }
+
+    /**
+     * The merged results of the shards for a query.
+     */
+    static final class Results {
+        /**
+         * The best pages of all shards, best first.
+         */
+        final List<ShardProtocol.Hit> hits;
+        /**
+         * The number of shards that did not answer in time, whose pages are missing from the results.
+         */
+        final int missingShards;
+
+        Results(List<ShardProtocol.Hit> hits, int missingShards) {
+            this.hits = hits;
+            this.missingShards = missingShards;
+        }
+    }
+}
@@ -2,13 +2,22 @@ package searchengine;
 
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Interface for a search engine that provides methods to load web pages, and perform searches.
+ * <p>
+ * The methods that answer queries are those of {@link ReadOnlySearchEngine}, which is all that a query needs.
+ * </p>
+ * <p>
+ * Thread safety: once {@link #loadPages(String)} and {@link #scorePostings(TermScorer)} have returned,
+ * all other methods may be called by many threads at once, and must not change the search engine.
+ * Loading and scoring must not run at the same time as any other call, and must happen before the calls
+ * of other threads, for example by finishing before the tasks that use the search engine are submitted
+ * to an executor.
+ * </p>
  */
-public interface SearchEngine {
+public interface SearchEngine extends ReadOnlySearchEngine {
    /**
      * Loads web pages from a specified file.
      * @param filename the name of the file containing the pages to load.
@@ -17,16 +26,15 @@ public interface SearchEngine {
    public void loadPages(String filename) throws IOException;
 
    /**
-     * Searches for a given term across the loaded web pages.
-     * @param searchTerm the term to search for.
-     * @return a list of URLs and titles of pages containing the search term.
+     * Computes the impact score of every posting with the formula of a term scorer.
+     * @param termScorer the scorer that decides how postings are scored.
      */
-   public ArrayList<String> search(String searchTerm);
+   public void scorePostings(TermScorer termScorer);
 
    /**
-     * Retrieves the list of all loaded web pages.
+     * Retrieves the list of all loaded web pages. The search engines of this package do not keep the words of
+     * their pages once they are indexed, and return an empty list.
      * @return a list of pages, where each page is represented as a list of strings.
      */
    public List<List<String>> getPages();
 }
-
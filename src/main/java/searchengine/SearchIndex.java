@@ -0,0 +1,146 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * One version of the index that the web server answers queries from: a search engine, its term scorer,
+ * the query handler that uses them and the suggester of corrections of misspelled words.
+ * <p>
+ * A search index does not change once it is loaded, so a new version of the pages is loaded into a new search index,
+ * which the web server then publishes in place of the old one. A request takes the index it uses once, so it
+ * finds its pages and their URLs and titles in the same version, even if a new version is published meanwhile.
+ * The exception is an index loaded with {@link #loadSegmented(String, long, int, int)}, whose
+ * {@link SegmentedSearchEngine} has pages added and deleted while it answers queries.
+ * </p>
+ */
+class SearchIndex {
+    /**
+     * The number of the version. Each index that replaces another has a higher version.
+     */
+    final long version;
+    final SearchEngine searchEngine;
+    final TermScorer termScorer;
+    final QueryHandler queryHandler;
+    final SpellingSuggester spellingSuggester;
+
+    private SearchIndex(long version, SearchEngine searchEngine, TermScorer termScorer, int maxExpansions) {
+        this.version = version;
+        this.searchEngine = searchEngine;
+        this.termScorer = termScorer;
+        // One query handler answers all requests, see the thread-safety contract of SearchEngine and TermScorer
+        this.queryHandler = new QueryHandler(searchEngine, termScorer, new Metrics(), maxExpansions);
+        this.spellingSuggester = new SpellingSuggester(searchEngine);
+    }
+
+    /**
+     * Opens the snapshot of a file of pages if it is up to date, otherwise loads the pages and writes a snapshot.
+     * A snapshot has no positions, so a positional index is always loaded from the pages.
+     * @param filename the name of the file that contains the webpages
+     * @param version the version of the index
+     * @param parallelism the number of threads that load the pages if there is no snapshot
+     * @param positional whether the index stores positions for phrase and NEAR queries
+     * @param maxExpansions the most words that a wildcard term of a query expands to
+     * @return the loaded and scored index
+     * @throws IOException if the file cannot be read
+     */
+    static SearchIndex load(String filename, long version, int parallelism, boolean positional, int maxExpansions)
+            throws IOException {
+        // By default, we use the Term Frequency formula
+        // Change it to new TFIDScorer() to use the TFIDF formula
+        TermScorer formula = new TermFrequencyScorer();
+
+        SnapshotSearchEngine snapshot = positional ? null : openSnapshot(filename);
+        if (snapshot != null) {
+            TermScorer postingScorer = new PostingScorer(snapshot, formula);
+            // The stored impacts are used as they are, unless the snapshot was scored with another formula
+            if (!IndexSnapshot.formulaName(formula).equals(snapshot.getImpactFormula())) {
+                snapshot.scorePostings(postingScorer);
+            }
+            return new SearchIndex(version, snapshot, postingScorer, maxExpansions);
+        }
+        InvertedIndexSearchEngine loaded = new InvertedIndexSearchEngine(positional);
+        loaded.loadPages(filename, parallelism);
+        if (positional) {
+            System.out.printf("The positions of %s take %.1f MB%n", filename, loaded.positionsSizeInBytes() / 1e6);
+        }
+        // The scores are the impacts of the postings, so the scorer keeps nothing of its own
+        TermScorer scorer = new ColumnarTermScorer(loaded, formula);
+        loaded.scorePostings(scorer);
+        writeSnapshot(loaded, filename);
+        return new SearchIndex(version, loaded, scorer, maxExpansions);
+    }
+
+    /**
+     * Loads the pages of a file into a {@link SegmentedSearchEngine}, to which pages can then be added and from which
+     * they can be deleted. The postings are scored with the same formula as those of {@link #load}, when they are
+     * looked up. A segmented index is always loaded from the pages, and has no positions.
+     * @param filename the name of the file that contains the webpages
+     * @param version the version of the index
+     * @param parallelism the number of threads that load the pages
+     * @param maxExpansions the most words that a wildcard term of a query expands to
+     * @return the loaded index
+     * @throws IOException if the file cannot be read
+     */
+    static SearchIndex loadSegmented(String filename, long version, int parallelism, int maxExpansions)
+            throws IOException {
+        SegmentedSearchEngine segmented = new SegmentedSearchEngine();
+        segmented.loadPages(filename, parallelism);
+        // The scorer reads the impacts of the postings of all segments, which the engine computes with its formula
+        TermScorer scorer = new ColumnarTermScorer(segmented, new TermFrequencyScorer());
+        segmented.scorePostings(scorer);
+        return new SearchIndex(version, segmented, scorer, maxExpansions);
+    }
+
+    /**
+     * Returns the key of the cached results of a query in this index. The results of a segmented index change with
+     * its pages, so its keys also have the generation of its search engine, and a change is never answered with
+     * results cached before it.
+     * @param normalizedQuery the normalized query, see {@link QueryCache#normalize(String)}
+     * @return the key of the results of the query
+     */
+    String cacheKey(String normalizedQuery) {
+        if (searchEngine instanceof SegmentedSearchEngine) {
+            return version + "." + ((SegmentedSearchEngine) searchEngine).getGeneration() + "@" + normalizedQuery;
+        }
+        return version + "@" + normalizedQuery;
+    }
+
+    /**
+     * Opens the snapshot of a file of pages, if it was written after the file was last changed.
+     *
+     * @param filename the name of the file that contains the webpages.
+     * @return the search engine with the opened snapshot, or null if the pages must be loaded from the file.
+     */
+    static SnapshotSearchEngine openSnapshot(String filename) {
+        Path snapshotPath = IndexSnapshot.snapshotPath(filename);
+        try {
+            if (!IndexSnapshot.isUpToDate(snapshotPath, Paths.get(filename))) {
+                return null;
+            }
+            SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+            snapshot.loadPages(snapshotPath.toString());
+            return snapshot;
+        } catch (IOException e) {
+            System.err.println("Could not open index snapshot " + snapshotPath + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of the loaded pages, so that the next start does not have to load them again.
+     * The server works without a snapshot, so a failure is only logged.
+     *
+     * @param searchEngine the search engine with the loaded pages.
+     * @param filename the name of the file that contains the webpages.
+     */
+    static void writeSnapshot(InvertedIndexSearchEngine searchEngine, String filename) {
+        Path snapshotPath = IndexSnapshot.snapshotPath(filename);
+        try {
+            IndexSnapshot.write(searchEngine, snapshotPath);
+        } catch (IOException e) {
+            System.err.println("Could not write index snapshot " + snapshotPath + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,833 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A search engine whose pages can be added and deleted while it answers queries.
+ * <p>
+ * The index is split into segments, like a log-structured merge tree. New pages are indexed into a small
+ * mutable segment in memory, so adding a page only costs the time to index that page. When the mutable segment
+ * holds {@code flushThreshold} pages it is flushed into an immutable {@link IndexSegment}. A background thread
+ * merges {@link #MERGE_FACTOR} consecutive segments whenever they are of the same size tier, so there are only
+ * a logarithmic number of segments. Deleted pages are marked in a {@link ConcurrentBitSet} of tombstones, and their
+ * postings are dropped when their segment is merged.
+ * </p>
+ * <p>
+ * Doc IDs are given out in increasing order and are never reused, and each segment holds a range of consecutive doc IDs.
+ * A query is therefore answered from one segment after the other (see {@link #getSegments()}): the postings of an
+ * immutable segment are read in place, and deleted pages are skipped as they are visited. The impact scores of an
+ * immutable segment are computed once, when it is flushed, merged or loaded, with the document frequencies and the
+ * number of pages of the immutable segments at that time, which include deleted pages until they are merged away.
+ * Only the postings of the mutable segment are scored when they are looked up, so adding a page costs no query more
+ * than the postings of the mutable segment. With a formula that uses these statistics, such as TF-IDF, the impacts of
+ * a segment lag behind the changes made after it was written until it is merged; the term frequency does not use them.
+ * </p>
+ * <p>
+ * The postings of a term in the whole engine, for {@link #getPostings(String)}, are the postings of each segment
+ * appended in order and without the deleted pages. They are cached until the next page is added or deleted.
+ * </p>
+ * <p>
+ * Thread safety: unlike other search engines, pages may be added and deleted while other threads query the engine.
+ * The immutable segments are replaced, never changed, and they, the tombstones and the cached postings are read
+ * without a lock. Writers, and readers of the mutable segment, hold the lock of the engine for as long as it takes
+ * to change one page, to copy and score one posting list of the mutable segment or to flush it.
+ * </p>
+ */
+public class SegmentedSearchEngine implements SearchEngine {
+    /**
+     * The number of segments of one size tier that are merged into one segment of the next tier.
+     */
+    static final int MERGE_FACTOR = 4;
+
+    static final int DEFAULT_FLUSH_THRESHOLD = 1000;
+
+    /**
+     * The most postings that the cache of scored postings holds, counting each term as one more posting.
+     */
+    static final int POSTINGS_CACHE_SIZE = 1 << 22;
+
+    private final int flushThreshold;
+    private final Object lock = new Object();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-merger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The immutable segments, in order of their doc IDs. The array is replaced when segments are flushed or merged.
+     */
+    private volatile IndexSegment[] segments = new IndexSegment[0];
+
+    /**
+     * The doc IDs of the deleted pages. Bits are only set under the lock.
+     */
+    private final ConcurrentBitSet deleted = new ConcurrentBitSet();
+    private volatile int deletedCount;
+
+    /**
+     * The postings of the terms looked up in the whole engine since the last change. It is replaced, under the lock,
+     * whenever a page is added or deleted, a merge drops deleted pages or the formula of the impacts changes.
+     */
+    private volatile PostingsCache postingsCache = new PostingsCache(0);
+
+    /**
+     * The mutable segment, whose pages have doc IDs from {@code memoryBase}. Both are guarded by the lock.
+     */
+    private PartialIndex memory = new PartialIndex();
+    private int memoryBase;
+
+    /**
+     * The scorer whose formula is used for the impact scores of the postings. It is guarded by the lock.
+     */
+    private TermScorer impactScorer = new TermFrequencyScorer();
+
+    /**
+     * Creates an empty search engine that flushes its mutable segment every {@value #DEFAULT_FLUSH_THRESHOLD} pages.
+     */
+    public SegmentedSearchEngine() {
+        this(DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Creates an empty search engine.
+     * @param flushThreshold the number of pages after which the mutable segment is flushed
+     */
+    public SegmentedSearchEngine(int flushThreshold) {
+        if (flushThreshold < 1) {
+            throw new IllegalArgumentException("The flush threshold must be positive, not " + flushThreshold);
+        }
+        this.flushThreshold = flushThreshold;
+    }
+
+    /**
+     * Loads the pages of a file into one new segment, after the pages already in the engine,
+     * using one thread per available processor.
+     * @param filename the name of the file containing the pages
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    public void loadPages(String filename) throws IOException {
+        loadPages(filename, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads the pages of a file into one new segment, after the pages already in the engine.
+     * @param filename the name of the file containing the pages
+     * @param parallelism the number of threads that read and index the file
+     * @throws IOException if an I/O error occurs while reading from the file
+     */
+    public void loadPages(String filename, int parallelism) throws IOException {
+        PartialIndex loaded = ParallelIndexBuilder.build(Paths.get(filename), parallelism);
+        synchronized (lock) {
+            flushMemory();
+            IndexSegment segment = IndexSegment.of(memoryBase, loaded)
+                .withImpacts(impactScorer, segments, memoryBase + loaded.pageCount());
+            publish(segment);
+            memoryBase += segment.pageCount();
+            changed();
+        }
+        merger.execute(this::mergeSegments);
+    }
+
+    /**
+     * Adds a page to the mutable segment. The page is found by queries as soon as this method returns.
+     * @param lines the lines of the page as they appear in a file of pages: the {@code *PAGE:} line with the URL,
+     *              the title and the words of the page
+     * @return the doc ID of the page
+     */
+    public int addPage(List<String> lines) {
+        boolean flushed;
+        int docId;
+        synchronized (lock) {
+            docId = memoryBase + memory.pageCount();
+            memory.addPage(lines);
+            changed();
+            flushed = memory.pageCount() >= flushThreshold;
+            if (flushed) {
+                flushMemory();
+            }
+        }
+        if (flushed) {
+            merger.execute(this::mergeSegments);
+        }
+        return docId;
+    }
+
+    /**
+     * Deletes a page. Queries no longer find the page as soon as this method returns.
+     * @param docId the doc ID of the page
+     * @return true if the page was deleted, false if there is no such page or it was already deleted
+     */
+    public boolean deletePage(int docId) {
+        synchronized (lock) {
+            if (docId < 0 || docId >= getPageCount() || deleted.get(docId)) {
+                return false;
+            }
+            deleted.set(docId);
+            deletedCount++;
+            changed();
+            return true;
+        }
+    }
+
+    /**
+     * Checks if a page has been deleted.
+     * @param docId the doc ID of the page
+     * @return true if the page was deleted
+     */
+    public boolean isDeleted(int docId) {
+        return deleted.get(docId);
+    }
+
+    /**
+     * Drops the cached postings, after a change that makes them out of date. Must be called under the lock.
+     * Flushes do not call this, as a flushed segment is scored with the statistics that its postings were scored
+     * with in the mutable segment, and neither do merges that drop no deleted pages.
+     */
+    private void changed() {
+        postingsCache = new PostingsCache(postingsCache.generation + 1);
+    }
+
+    /**
+     * Returns the number of changes to the pages of the engine or the formula of its impacts, so that results of
+     * queries can be cached until the next change.
+     * @return a number that grows with every change
+     */
+    public long getGeneration() {
+        return postingsCache.generation;
+    }
+
+    /**
+     * Flushes the mutable segment into an immutable segment, if it has any pages.
+     */
+    public void flush() {
+        synchronized (lock) {
+            flushMemory();
+        }
+        merger.execute(this::mergeSegments);
+    }
+
+    private void flushMemory() {
+        if (memory.pageCount() == 0) {
+            return;
+        }
+        IndexSegment segment = IndexSegment.of(memoryBase, memory)
+            .withImpacts(impactScorer, segments, memoryBase + memory.pageCount());
+        publish(segment);
+        // The segment is published before the mutable segment is emptied, and both happen under the lock
+        memoryBase += segment.pageCount();
+        memory = new PartialIndex();
+    }
+
+    private void publish(IndexSegment segment) {
+        IndexSegment[] published = Arrays.copyOf(segments, segments.length + 1);
+        published[published.length - 1] = segment;
+        segments = published;
+    }
+
+    /**
+     * Merges segments until no {@link #MERGE_FACTOR} consecutive segments are of the same size tier.
+     * Only runs on the merger thread, so no other thread removes segments while a merge is running.
+     */
+    private void mergeSegments() {
+        while (true) {
+            IndexSegment[] current = segments;
+            int from = findMerge(current);
+            if (from < 0) {
+                return;
+            }
+            List<IndexSegment> merging = List.of(Arrays.copyOfRange(current, from, from + MERGE_FACTOR));
+            TermScorer scorer;
+            synchronized (lock) {
+                scorer = impactScorer;
+            }
+            IndexSegment last = current[current.length - 1];
+            IndexSegment merged = IndexSegment.merge(merging, deleted)
+                .withImpacts(scorer, without(current, from, MERGE_FACTOR), last.base + last.pageCount());
+            boolean dropped = false;
+            for (int docId = merged.base; docId < merged.base + merged.pageCount() && !dropped; docId++) {
+                dropped = deleted.get(docId);
+            }
+            synchronized (lock) {
+                // Segments flushed during the merge were appended after the merged ones, so they are still at from
+                IndexSegment[] latest = segments;
+                IndexSegment[] replaced = new IndexSegment[latest.length - MERGE_FACTOR + 1];
+                System.arraycopy(latest, 0, replaced, 0, from);
+                replaced[from] = merged;
+                System.arraycopy(latest, from + MERGE_FACTOR, replaced, from + 1, latest.length - from - MERGE_FACTOR);
+                segments = replaced;
+                if (dropped) {
+                    // The document frequencies that the postings are scored with no longer count the dropped pages
+                    changed();
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores the postings of every segment again, with the formula of a new scorer.
+     * Only runs on the merger thread, so no merge replaces a segment while it is scored.
+     */
+    private void rescoreSegments(TermScorer termScorer) {
+        IndexSegment[] current = segments;
+        if (current.length == 0) {
+            return;
+        }
+        IndexSegment last = current[current.length - 1];
+        IndexSegment[] rescored = new IndexSegment[current.length];
+        for (int i = 0; i < current.length; i++) {
+            rescored[i] = current[i].withImpacts(termScorer, without(current, i, 1), last.base + last.pageCount());
+        }
+        synchronized (lock) {
+            // Flushes only append segments, so the segments that were scored are still the first ones
+            IndexSegment[] replaced = segments.clone();
+            System.arraycopy(rescored, 0, replaced, 0, rescored.length);
+            segments = replaced;
+            changed();
+        }
+    }
+
+    private static IndexSegment[] without(IndexSegment[] segments, int from, int count) {
+        IndexSegment[] others = new IndexSegment[segments.length - count];
+        System.arraycopy(segments, 0, others, 0, from);
+        System.arraycopy(segments, from + count, others, from, segments.length - from - count);
+        return others;
+    }
+
+    /**
+     * Finds the first run of {@link #MERGE_FACTOR} consecutive segments of the same size tier.
+     * A segment of tier t holds fewer than {@code flushThreshold * MERGE_FACTOR^(t + 1)} pages. Merging the oldest
+     * run first keeps the tiers decreasing from the first segment to the last, even when segments were flushed
+     * faster than they could be merged.
+     * @return the index of the first segment to merge, or -1 if no segments should be merged
+     */
+    private int findMerge(IndexSegment[] current) {
+        int runStart = 0;
+        for (int i = 1; i < current.length; i++) {
+            if (tier(current[i]) != tier(current[runStart])) {
+                runStart = i;
+            } else if (i - runStart + 1 == MERGE_FACTOR) {
+                return runStart;
+            }
+        }
+        return -1;
+    }
+
+    private int tier(IndexSegment segment) {
+        int tier = 0;
+        for (long limit = (long) flushThreshold * MERGE_FACTOR; segment.pageCount() >= limit; limit *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Waits until the merges that were started before this call have finished.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void awaitMerges() throws InterruptedException {
+        try {
+            merger.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of immutable segments.
+     * @return the number of segments, without the mutable segment
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Uses the formula of a scorer for the impact scores of the postings, and scores the immutable segments again.
+     * Returns once the segments are scored, after the merges that were started before this call.
+     * @param termScorer the scorer whose {@link TermScorer#getImpact(int, int, int, int)} is used
+     */
+    public void scorePostings(TermScorer termScorer) {
+        synchronized (lock) {
+            impactScorer = termScorer;
+            changed();
+        }
+        try {
+            merger.submit(() -> rescoreSegments(termScorer)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring the segments", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * The pages are not kept after they are indexed.
+     * @return an empty list
+     */
+    public List<List<String>> getPages() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Searches for pages containing the specified term.
+     * @param searchTerm the term to search for
+     * @return the sorted doc IDs of the pages containing the term, without deleted pages
+     */
+    public int[] search(String searchTerm) {
+        return getPostings(searchTerm).docIds();
+    }
+
+    /**
+     * Returns the terms that start with a prefix in any segment. A term whose pages are all deleted may still be
+     * returned until its segment is merged, and has empty postings.
+     * @param prefix the prefix of the terms
+     * @param maxTerms the most terms to return
+     * @return at most {@code maxTerms} terms with the prefix, in sorted order
+     */
+    public List<String> getTermsWithPrefix(String prefix, int maxTerms) {
+        String lowerCasePrefix = prefix.toLowerCase();
+        TreeSet<String> terms = new TreeSet<>(TermDictionary.ORDER);
+        for (IndexSegment segment : segments) {
+            terms.addAll(segment.terms.termsWithPrefix(lowerCasePrefix, maxTerms));
+        }
+        synchronized (lock) {
+            for (String term : memory.postings.keySet()) {
+                if (term.startsWith(lowerCasePrefix)) {
+                    terms.add(term);
+                }
+            }
+        }
+        List<String> result = new ArrayList<>(maxTerms);
+        for (String term : terms) {
+            if (result.size() == maxTerms) {
+                break;
+            }
+            result.add(term);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the terms within a number of edits of a word in any segment. Like with
+     * {@link #getTermsWithPrefix(String, int)}, a term may only be on deleted pages.
+     * @param word the word
+     * @param maxEdits the largest distance of a term to the word
+     * @param prefixLength the number of code points at the start of the word that the terms must start with
+     * @return the terms within the distance, in sorted order
+     */
+    public List<String> getTermsWithin(String word, int maxEdits, int prefixLength) {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(word.toLowerCase(), maxEdits, prefixLength);
+        TreeSet<String> terms = new TreeSet<>(TermDictionary.ORDER);
+        for (IndexSegment segment : segments) {
+            terms.addAll(segment.terms.termsWithin(automaton));
+        }
+        synchronized (lock) {
+            String prefix = automaton.prefix();
+            for (String term : memory.postings.keySet()) {
+                if (term.startsWith(prefix) && automaton.distance(term) <= maxEdits) {
+                    terms.add(term);
+                }
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * Returns the most common terms that start with a prefix. The candidates are the most common completions
+     * in each segment, from their completion tries, and the most common terms of the mutable segment with the prefix.
+     * They are ranked by their number of pages in the whole engine, without the deleted pages, so a term that is
+     * common overall but never among the most common of any segment may be missed.
+     * @param prefix the prefix of the terms
+     * @param count the most terms to return, up to {@link CompletionTrie#MAX_COMPLETIONS}
+     * @return at most {@code count} terms with the prefix, the terms on the most pages first
+     */
+    public List<String> getCompletions(String prefix, int count) {
+        String lowerCasePrefix = prefix.toLowerCase();
+        Set<String> candidates = new HashSet<>();
+        for (IndexSegment segment : segments) {
+            candidates.addAll(segment.completions.complete(lowerCasePrefix, CompletionTrie.MAX_COMPLETIONS));
+        }
+        List<String> memoryTerms = new ArrayList<>();
+        Map<String, Integer> memoryFrequencies = new HashMap<>();
+        synchronized (lock) {
+            for (Map.Entry<String, PostingListBuilder> entry : memory.postings.entrySet()) {
+                if (entry.getKey().startsWith(lowerCasePrefix)) {
+                    memoryTerms.add(entry.getKey());
+                    memoryFrequencies.put(entry.getKey(), entry.getValue().size());
+                }
+            }
+        }
+        memoryTerms.sort(Comparator.comparing((String term) -> memoryFrequencies.get(term), Comparator.<Integer>reverseOrder())
+            .thenComparing(TermDictionary.ORDER));
+        candidates.addAll(memoryTerms.subList(0, Math.min(CompletionTrie.MAX_COMPLETIONS, memoryTerms.size())));
+
+        Map<String, Integer> documentFrequencies = new HashMap<>();
+        for (String candidate : candidates) {
+            int documentFrequency = getDocumentFrequency(candidate);
+            if (documentFrequency > 0) {
+                documentFrequencies.put(candidate, documentFrequency);
+            }
+        }
+        List<String> result = new ArrayList<>(documentFrequencies.keySet());
+        result.sort(Comparator.comparing((String term) -> documentFrequencies.get(term), Comparator.<Integer>reverseOrder())
+            .thenComparing(TermDictionary.ORDER));
+        int limit = Math.max(0, Math.min(count, CompletionTrie.MAX_COMPLETIONS));
+        return new ArrayList<>(result.subList(0, Math.min(limit, result.size())));
+    }
+
+    /**
+     * Returns the number of pages that contain a term, without the deleted pages.
+     * @param searchTerm the term to look up
+     * @return the size of the postings of the term
+     */
+    public int getDocumentFrequency(String searchTerm) {
+        return getPostings(searchTerm).size();
+    }
+
+    /**
+     * Returns the postings of a term from all segments, without the deleted pages. They are read from the cache if
+     * the term was looked up since the last change, and otherwise collected from the segments and added to the cache.
+     * @param searchTerm the term to look up
+     * @return the postings of the term, or an empty list if no page contains it
+     */
+    public PostingList getPostings(String searchTerm) {
+        String term = searchTerm.toLowerCase();
+        PostingList cached = postingsCache.postings.get(term);
+        if (cached != null) {
+            return cached;
+        }
+        PostingsCache cache;
+        List<ReadOnlySearchEngine> views;
+        synchronized (lock) {
+            // The segments are read with the cache of the same generation, so that no postings of an older one are added to it
+            cache = postingsCache;
+            views = getSegments();
+        }
+
+        // The segments hold consecutive ranges of doc IDs, so their postings are appended in order
+        List<PostingList> lists = new ArrayList<>(views.size());
+        int size = 0;
+        for (ReadOnlySearchEngine view : views) {
+            PostingList postings = view.getPostings(term);
+            lists.add(postings);
+            for (int i = 0; i < postings.size(); i++) {
+                if (!deleted.get(postings.docId(i))) {
+                    size++;
+                }
+            }
+        }
+        if (size == 0) {
+            cache.add(term, PostingList.EMPTY);
+            return PostingList.EMPTY;
+        }
+        int[] docIds = new int[size];
+        int[] frequencies = new int[size];
+        float[] impacts = new float[size];
+        int position = 0;
+        for (PostingList postings : lists) {
+            for (int i = 0; i < postings.size(); i++) {
+                if (!deleted.get(postings.docId(i))) {
+                    docIds[position] = postings.docId(i);
+                    frequencies[position] = postings.frequency(i);
+                    impacts[position++] = postings.impact(i);
+                }
+            }
+        }
+        if (position < size) {
+            // Pages were deleted while the postings were collected
+            docIds = Arrays.copyOf(docIds, position);
+            frequencies = Arrays.copyOf(frequencies, position);
+            impacts = Arrays.copyOf(impacts, position);
+        }
+        PostingList postings = new PostingList(docIds, frequencies);
+        postings.setImpacts(impacts);
+        cache.add(term, postings);
+        return postings;
+    }
+
+    /**
+     * Returns a view of each immutable segment and of the mutable segment, as they are when this method is called.
+     * The view of an immutable segment returns the postings of the segment with the impacts they were written with.
+     * The view of the mutable segment copies its postings and scores them with the current statistics of the
+     * immutable segments and the mutable segment. A view of the mutable segment that is flushed later keeps
+     * returning the postings of its pages, but not those of the pages added after the flush.
+     * @return the views, in order of their doc IDs, whose postings still contain the deleted pages
+     */
+    public List<ReadOnlySearchEngine> getSegments() {
+        synchronized (lock) {
+            IndexSegment[] current = segments;
+            List<ReadOnlySearchEngine> views = new ArrayList<>(current.length + 1);
+            for (IndexSegment segment : current) {
+                views.add(new ImmutableSegmentView(segment));
+            }
+            if (memory.pageCount() > 0) {
+                views.add(new MutableSegmentView(current, memory, memoryBase));
+            }
+            return views;
+        }
+    }
+
+    /**
+     * Returns the URL of a page.
+     * @param docId the doc ID of the page
+     * @return the URL of the page
+     */
+    public String getUrl(int docId) {
+        IndexSegment segment = findSegment(docId);
+        if (segment != null) {
+            return segment.getUrl(docId);
+        }
+        synchronized (lock) {
+            segment = findSegment(docId);
+            return segment != null ? segment.getUrl(docId) : memory.urls.get(checkMemoryDocId(docId));
+        }
+    }
+
+    /**
+     * Finds a page by its URL, in the URL table of each segment from the oldest, and then in the mutable segment.
+     * @param url the URL of the page
+     * @return the doc ID of the first page with the URL, ignoring case, that is not deleted, or -1 if there is none
+     */
+    public int getDocId(String url) {
+        IndexSegment[] current;
+        int memoryDocId = -1;
+        synchronized (lock) {
+            // The segments and the mutable segment are read together, so that no flush happens in between
+            current = segments;
+            for (int i = 0; i < memory.pageCount() && memoryDocId < 0; i++) {
+                if (memory.urls.get(i).equalsIgnoreCase(url) && !deleted.get(memoryBase + i)) {
+                    memoryDocId = memoryBase + i;
+                }
+            }
+        }
+        for (IndexSegment segment : current) {
+            int docId = segment.getDocId(url, deleted);
+            if (docId >= 0) {
+                return docId;
+            }
+        }
+        return memoryDocId;
+    }
+
+    /**
+     * Returns the lowercase title of a page.
+     * @param docId the doc ID of the page
+     * @return the title of the page
+     */
+    public String getTitle(int docId) {
+        IndexSegment segment = findSegment(docId);
+        if (segment != null) {
+            return segment.getTitle(docId);
+        }
+        synchronized (lock) {
+            segment = findSegment(docId);
+            return segment != null ? segment.getTitle(docId) : memory.titles.get(checkMemoryDocId(docId));
+        }
+    }
+
+    /**
+     * Returns the number of terms on a page.
+     * @param docId the doc ID of the page
+     * @return the length of the page
+     */
+    public int getPageLength(int docId) {
+        IndexSegment segment = findSegment(docId);
+        if (segment != null) {
+            return segment.getPageLength(docId);
+        }
+        synchronized (lock) {
+            segment = findSegment(docId);
+            return segment != null ? segment.getPageLength(docId) : memory.pageLengths.get(checkMemoryDocId(docId));
+        }
+    }
+
+    /**
+     * Finds the immutable segment with a doc ID in its range.
+     * @return the segment, or null if the doc ID is in the mutable segment or is not given out yet
+     */
+    private IndexSegment findSegment(int docId) {
+        if (docId < 0) {
+            throw new IndexOutOfBoundsException(docId);
+        }
+        IndexSegment[] current = segments;
+        int low = 0;
+        int high = current.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            IndexSegment segment = current[middle];
+            if (docId < segment.base) {
+                high = middle - 1;
+            } else if (docId >= segment.base + segment.pageCount()) {
+                low = middle + 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private int checkMemoryDocId(int docId) {
+        if (docId < memoryBase || docId >= memoryBase + memory.pageCount()) {
+            throw new IndexOutOfBoundsException(docId);
+        }
+        return docId - memoryBase;
+    }
+
+    /**
+     * Returns the number of doc IDs given out, including those of deleted pages. Doc IDs go from 0 to this number minus one.
+     * @return the number of pages that have been added
+     */
+    public int getPageCount() {
+        synchronized (lock) {
+            return memoryBase + memory.pageCount();
+        }
+    }
+
+    /**
+     * Returns the number of pages that have not been deleted.
+     * @return the number of pages that queries can find
+     */
+    public int getLivePageCount() {
+        synchronized (lock) {
+            return memoryBase + memory.pageCount() - deletedCount;
+        }
+    }
+
+    /**
+     * A view of one segment for {@link #getSegments()}, which answers everything but the postings like the engine.
+     */
+    private abstract class SegmentView implements ReadOnlySearchEngine {
+        public int[] search(String searchTerm) {
+            return getPostings(searchTerm).docIds();
+        }
+
+        public List<String> getTermsWithPrefix(String prefix, int maxTerms) {
+            return SegmentedSearchEngine.this.getTermsWithPrefix(prefix, maxTerms);
+        }
+
+        public List<String> getTermsWithin(String word, int maxEdits, int prefixLength) {
+            return SegmentedSearchEngine.this.getTermsWithin(word, maxEdits, prefixLength);
+        }
+
+        public List<String> getCompletions(String prefix, int count) {
+            return SegmentedSearchEngine.this.getCompletions(prefix, count);
+        }
+
+        public int getDocumentFrequency(String searchTerm) {
+            return SegmentedSearchEngine.this.getDocumentFrequency(searchTerm);
+        }
+
+        public String getUrl(int docId) {
+            return SegmentedSearchEngine.this.getUrl(docId);
+        }
+
+        public String getTitle(int docId) {
+            return SegmentedSearchEngine.this.getTitle(docId);
+        }
+
+        public int getPageLength(int docId) {
+            return SegmentedSearchEngine.this.getPageLength(docId);
+        }
+
+        public int getDocId(String url) {
+            return SegmentedSearchEngine.this.getDocId(url);
+        }
+
+        public int getPageCount() {
+            return SegmentedSearchEngine.this.getPageCount();
+        }
+
+        public boolean isDeleted(int docId) {
+            return deleted.get(docId);
+        }
+    }
+
+    private final class ImmutableSegmentView extends SegmentView {
+        private final IndexSegment segment;
+
+        ImmutableSegmentView(IndexSegment segment) {
+            this.segment = segment;
+        }
+
+        public PostingList getPostings(String searchTerm) {
+            return segment.getPostings(searchTerm.toLowerCase());
+        }
+    }
+
+    private final class MutableSegmentView extends SegmentView {
+        private final IndexSegment[] segments;
+        private final PartialIndex memory;
+        private final int base;
+
+        MutableSegmentView(IndexSegment[] segments, PartialIndex memory, int base) {
+            this.segments = segments;
+            this.memory = memory;
+            this.base = base;
+        }
+
+        public PostingList getPostings(String searchTerm) {
+            String term = searchTerm.toLowerCase();
+            synchronized (lock) {
+                PostingListBuilder builder = memory.postings.get(term);
+                if (builder == null) {
+                    return PostingList.EMPTY;
+                }
+                PostingListBuilder shifted = new PostingListBuilder();
+                shifted.addAll(builder, base);
+                PostingList postings = shifted.build();
+                // The same statistics that the postings are scored with when the segment is flushed
+                int documentFrequency = postings.size();
+                for (IndexSegment segment : segments) {
+                    documentFrequency += segment.getPostings(term).size();
+                }
+                int pageCount = base + memory.pageCount();
+                float[] impacts = new float[postings.size()];
+                for (int i = 0; i < impacts.length; i++) {
+                    impacts[i] = (float) impactScorer.getImpact(postings.frequency(i),
+                        memory.pageLengths.get(postings.docId(i) - base), documentFrequency, pageCount);
+                }
+                postings.setImpacts(impacts);
+                return postings;
+            }
+        }
+    }
+
+    /**
+     * The scored postings of the terms looked up in one generation of the engine. Only postings collected in that
+     * generation are added, and the cache stops growing once it holds {@link #POSTINGS_CACHE_SIZE} postings.
+     */
+    private static final class PostingsCache {
+        final long generation;
+        final Map<String, PostingList> postings = new ConcurrentHashMap<>();
+        private final AtomicLong size = new AtomicLong();
+
+        PostingsCache(long generation) {
+            this.generation = generation;
+        }
+
+        void add(String term, PostingList list) {
+            // An empty list counts as one posting too, so that words that are not on any page cannot fill the cache
+            long weight = list.size() + 1;
+            if (size.get() + weight <= POSTINGS_CACHE_SIZE && postings.putIfAbsent(term, list) == null) {
+                size.addAndGet(weight);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package searchengine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The binary messages between the {@link SearchCoordinator} and the shards of a distributed index.
+ * <p>
+ * A query takes two requests to each shard, both sent with POST:
+ * </p>
+ * <ul>
+ * <li>{@value #STATISTICS_PATH} - the body is the query, and the response the {@link CollectionStatistics}
+ * of the query in the shard.</li>
+ * <li>{@value #SEARCH_PATH} - the body is the query, the number of results and the statistics of all shards,
+ * and the response the best pages of the shard, with their scores, URLs and titles.</li>
+ * </ul>
+ * <p>
+ * Numbers are written big-endian with {@link DataOutputStream}, and strings as their number of UTF-8 bytes
+ * followed by the bytes, so a message is a few bytes per result instead of a JSON document the coordinator would
+ * have to parse.
+ * </p>
+ */
+final class ShardProtocol {
+    static final String STATISTICS_PATH = "/shard/statistics";
+    static final String SEARCH_PATH = "/shard/search";
+    static final String MIME = "application/octet-stream";
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Writes a request for the statistics of a query.
+     * @param query the decoded query
+     * @return the body of the request
+     */
+    static byte[] statisticsRequest(String query) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, query);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the query of a request for statistics.
+     * @param body the body of the request
+     * @return the decoded query
+     * @throws IOException if the body is not a request for statistics
+     */
+    static String readStatisticsRequest(byte[] body) throws IOException {
+        return readString(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Writes the statistics of a query in a shard.
+     * @param statistics the statistics
+     * @return the body of the response
+     */
+    static byte[] statisticsResponse(CollectionStatistics statistics) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            statistics.write(out);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the statistics of a query in a shard.
+     * @param body the body of the response
+     * @return the statistics
+     * @throws IOException if the body is not a response with statistics
+     */
+    static CollectionStatistics readStatisticsResponse(byte[] body) throws IOException {
+        return CollectionStatistics.read(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Writes a request for the best pages of a shard.
+     * @param query the decoded query
+     * @param k the number of pages, or 0 for all pages that match the query
+     * @param statistics the statistics of the query in all shards
+     * @return the body of the request
+     */
+    static byte[] searchRequest(String query, int k, CollectionStatistics statistics) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, query);
+            out.writeInt(k);
+            statistics.write(out);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a request for the best pages of a shard.
+     * @param body the body of the request
+     * @return the request
+     * @throws IOException if the body is not a search request
+     */
+    static SearchRequest readSearchRequest(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        String query = readString(in);
+        int k = in.readInt();
+        return new SearchRequest(query, k, CollectionStatistics.read(in));
+    }
+
+    /**
+     * Writes the best pages of a shard.
+     * @param searchEngine the search engine of the shard, which has the URLs and titles of the pages
+     * @param docIds the doc IDs of the pages in the shard, best first
+     * @param scores the scores of the pages, in the same order
+     * @return the body of the response
+     */
+    static byte[] searchResponse(ReadOnlySearchEngine searchEngine, List<Integer> docIds, double[] scores) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(docIds.size());
+            for (int i = 0; i < docIds.size(); i++) {
+                out.writeInt(docIds.get(i));
+                out.writeDouble(scores[i]);
+                writeString(out, searchEngine.getUrl(docIds.get(i)));
+                writeString(out, searchEngine.getTitle(docIds.get(i)));
+            }
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the best pages of a shard.
+     * @param shard the number of the shard, which the hits are marked with
+     * @param body the body of the response
+     * @return the pages, best first
+     * @throws IOException if the body is not a search response
+     */
+    static List<Hit> readSearchResponse(int shard, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int count = in.readInt();
+        List<Hit> hits = new ArrayList<>(Math.min(count, body.length));
+        for (int i = 0; i < count; i++) {
+            int docId = in.readInt();
+            double score = in.readDouble();
+            hits.add(new Hit(shard, docId, score, readString(in), readString(in)));
+        }
+        return hits;
+    }
+
+    /**
+     * Writes a string as its number of UTF-8 bytes and the bytes.
+     * @param out the stream to write to
+     * @param value the string
+     * @throws IOException if the stream cannot be written to
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)} from a message in memory.
+     * @param in the stream of the message
+     * @return the string
+     * @throws IOException if the length of the string is more than what is left of the message
+     */
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("String of " + length + " bytes in a message with " + in.available() + " left");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A request for the best pages of a shard.
+     */
+    static final class SearchRequest {
+        final String query;
+        final int k;
+        final CollectionStatistics statistics;
+
+        SearchRequest(String query, int k, CollectionStatistics statistics) {
+            this.query = query;
+            this.k = k;
+            this.statistics = statistics;
+        }
+    }
+
+    /**
+     * A page that a shard found for a query.
+     */
+    static final class Hit {
+        /**
+         * The number of the shard, in the order the coordinator was given the shards.
+         */
+        final int shard;
+        /**
+         * The doc ID of the page in its shard.
+         */
+        final int docId;
+        final double score;
+        final String url;
+        final String title;
+
+        Hit(int shard, int docId, double score, String url, String title) {
+            this.shard = shard;
+            this.docId = docId;
+            this.score = score;
+            this.url = url;
+            this.title = title;
+        }
+    }
+}
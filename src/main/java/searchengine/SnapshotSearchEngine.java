@@ -0,0 +1,434 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A search engine that answers queries from a snapshot written by {@link IndexSnapshot}.
+ * <p>
+ * The snapshot is memory-mapped, so opening it only reads the header, the term dictionary and the number of pages
+ * of each term, for the {@link CompletionTrie}, and the operating system pages in the parts that queries touch.
+ * The postings of a term are read where they are in the file: their doc IDs are decoded straight from the mapped
+ * bytes, and the frequency and impact of a posting are only read when a query visits it, while the highest impact
+ * of each block, for skipping blocks, is stored in the snapshot. The decoded doc IDs of the terms looked up most
+ * recently are cached, up to {@link #DOC_ID_CACHE_SIZE} doc IDs, so that common terms are not decoded by every query.
+ * Scoring a few pages for a term skips through its compressed doc IDs to them instead
+ * (see {@link #addImpacts(String, int[], double[])}).
+ * The impact scores stored in the snapshot are used as they are, unless another formula is set with
+ * {@link #scorePostings(TermScorer)}. The pages themselves are not in the snapshot, so {@link #getPages()} is empty,
+ * and a {@link PostingScorer} must be used instead of a scorer that counts terms on the pages.
+ * </p>
+ */
+public class SnapshotSearchEngine implements SearchEngine {
+    /**
+     * The most decoded doc IDs that are cached, which take 4 MB.
+     */
+    static final int DOC_ID_CACHE_SIZE = 1 << 20;
+
+    private final DocIdCache docIdCache = new DocIdCache(DOC_ID_CACHE_SIZE);
+    private MappedFile file;
+    private int pageCount;
+    private int urlTableCapacity;
+    private TermDictionary terms;
+    private CompletionTrie completions;
+    private String impactFormula;
+    private final long[] sections = new long[IndexSnapshot.SECTION_COUNT];
+
+    /**
+     * The scorer whose formula is used for the impact scores, or null to use the impacts in the snapshot.
+     */
+    private volatile TermScorer impactScorer;
+
+    /**
+     * Opens a snapshot file.
+     * @param filename the name of the snapshot file, as returned by {@link IndexSnapshot#snapshotPath(String)}
+     * @throws IOException if the file cannot be read, or is not a snapshot of the current version
+     */
+    public void loadPages(String filename) throws IOException {
+        MappedFile mapped = MappedFile.open(Paths.get(filename));
+        if (mapped.size() < IndexSnapshot.HEADER_BYTES || mapped.getInt(0) != IndexSnapshot.MAGIC) {
+            throw new IOException(filename + " is not an index snapshot");
+        }
+        int version = mapped.getInt(Integer.BYTES);
+        if (version != IndexSnapshot.VERSION) {
+            throw new IOException(filename + " has snapshot version " + version
+                + " instead of " + IndexSnapshot.VERSION);
+        }
+        pageCount = mapped.getInt(2 * Integer.BYTES);
+        int termCount = mapped.getInt(3 * Integer.BYTES);
+        urlTableCapacity = mapped.getInt(4 * Integer.BYTES);
+        int maxTermLength = mapped.getInt(5 * Integer.BYTES);
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = mapped.getLong(6 * Integer.BYTES + (long) i * Long.BYTES);
+        }
+
+        // The term dictionary is small, so it is copied to the heap and looked up like the one of the index
+        int[] blockOffsets = new int[(termCount + TermDictionary.BLOCK_SIZE - 1) / TermDictionary.BLOCK_SIZE];
+        for (int i = 0; i < blockOffsets.length; i++) {
+            blockOffsets[i] = mapped.getInt(sections[IndexSnapshot.TERM_BLOCKS] + (long) i * Integer.BYTES);
+        }
+        byte[] termData = new byte[(int) (sections[IndexSnapshot.POSTING_DATA] - sections[IndexSnapshot.TERM_DATA])];
+        mapped.getBytes(sections[IndexSnapshot.TERM_DATA], termData);
+        terms = new TermDictionary(termData, blockOffsets, termCount, maxTermLength);
+        file = mapped;
+        docIdCache.clear();
+        impactFormula = file.getString(sections[IndexSnapshot.IMPACT_FORMULA] + Integer.BYTES,
+            file.getInt(sections[IndexSnapshot.IMPACT_FORMULA]));
+
+        // The completions need the number of pages of every term, which is at the start of its postings.
+        // The postings are in ordinal order, so this reads the posting data once from start to end.
+        int[] documentFrequencies = new int[termCount];
+        for (int termId = 0; termId < termCount; termId++) {
+            documentFrequencies[termId] = readDocumentFrequency(termId);
+        }
+        completions = CompletionTrie.build(terms, documentFrequencies);
+    }
+
+    /**
+     * Returns the name of the formula that computed the impacts stored in the snapshot.
+     * @return the name given by {@link IndexSnapshot#formulaName(TermScorer)}
+     */
+    public String getImpactFormula() {
+        return impactFormula;
+    }
+
+    /**
+     * Uses the formula of a scorer for the impact scores of the postings, instead of the impacts
+     * that were stored when the snapshot was written. The impacts of all postings of a term are computed when
+     * they are looked up.
+     * This is only needed if the formula is not the one named by {@link #getImpactFormula()}.
+     * @param termScorer the scorer whose {@link TermScorer#getImpact(int, int, int, int)} is used
+     */
+    public void scorePostings(TermScorer termScorer) {
+        impactScorer = termScorer;
+    }
+
+    /**
+     * The pages are not stored in a snapshot.
+     * @return an empty list
+     */
+    public List<List<String>> getPages() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Searches for pages containing the specified term.
+     * @param searchTerm the term to search for
+     * @return the sorted doc IDs of the pages containing the term
+     */
+    public int[] search(String searchTerm) {
+        int termId = terms.ordinal(searchTerm.toLowerCase());
+        if (termId < 0) {
+            return PostingList.EMPTY.docIds();
+        }
+        return docIds(termId, postingPosition(termId));
+    }
+
+    /**
+     * Returns the terms that start with a prefix, from a range of the term dictionary of the snapshot.
+     * @param prefix the prefix of the terms
+     * @param maxTerms the most terms to return
+     * @return at most {@code maxTerms} terms with the prefix, in sorted order
+     */
+    public List<String> getTermsWithPrefix(String prefix, int maxTerms) {
+        return terms.termsWithPrefix(prefix.toLowerCase(), maxTerms);
+    }
+
+    /**
+     * Returns the terms within a number of edits of a word, found with a Levenshtein automaton.
+     * @param word the word
+     * @param maxEdits the largest distance of a term to the word
+     * @param prefixLength the number of code points at the start of the word that the terms must start with
+     * @return the terms within the distance, in sorted order
+     */
+    public List<String> getTermsWithin(String word, int maxEdits, int prefixLength) {
+        return terms.termsWithin(new LevenshteinAutomaton(word.toLowerCase(), maxEdits, prefixLength));
+    }
+
+    /**
+     * Reads the number of pages that contain a term from the start of its postings, without decoding them.
+     * @param searchTerm the term to look up
+     * @return the number of pages, or 0 if no page contains the term
+     */
+    public int getDocumentFrequency(String searchTerm) {
+        int termId = terms.ordinal(searchTerm.toLowerCase());
+        return termId >= 0 ? readDocumentFrequency(termId) : 0;
+    }
+
+    private int readDocumentFrequency(int termId) {
+        return file.getInt(postingPosition(termId));
+    }
+
+    /**
+     * Returns the position of the postings of a term: their size, the length of the encoded doc IDs,
+     * the encoded doc IDs, the frequencies, the impacts and the highest impact of each block.
+     */
+    private long postingPosition(int termId) {
+        return sections[IndexSnapshot.POSTING_DATA]
+            + file.getLong(sections[IndexSnapshot.POSTING_OFFSETS] + (long) termId * Long.BYTES);
+    }
+
+    private ByteBuffer encodedDocIds(long postingPosition) {
+        return file.slice(postingPosition + 2 * Integer.BYTES, file.getInt(postingPosition + Integer.BYTES));
+    }
+
+    /**
+     * Returns the position of the frequencies of a term, after its encoded doc IDs.
+     */
+    private long frequencyPosition(long postingPosition) {
+        return postingPosition + 2 * Integer.BYTES + file.getInt(postingPosition + Integer.BYTES);
+    }
+
+    /**
+     * Returns the doc IDs of a term, decoded from the file unless they are in the cache.
+     */
+    private int[] docIds(int termId, long postingPosition) {
+        int[] docIds = docIdCache.get(termId);
+        if (docIds == null) {
+            docIds = PostingCodec.decode(encodedDocIds(postingPosition), file.getInt(postingPosition));
+            docIdCache.add(termId, docIds);
+        }
+        return docIds;
+    }
+
+    /**
+     * Returns the most common terms that start with a prefix, from the completion trie built when the snapshot
+     * was opened.
+     * @param prefix the prefix of the terms
+     * @param count the most terms to return, up to {@link CompletionTrie#MAX_COMPLETIONS}
+     * @return at most {@code count} terms with the prefix, the terms on the most pages first
+     */
+    public List<String> getCompletions(String prefix, int count) {
+        return completions.complete(prefix.toLowerCase(), count);
+    }
+
+    /**
+     * Looks up the postings of a term in the snapshot. Their frequencies and impact scores are read from the file
+     * when a posting is visited, unless another formula is set, which scores all postings of the term now.
+     * @param searchTerm the term to look up
+     * @return the postings of the term, or an empty list if no page contains it
+     */
+    public PostingList getPostings(String searchTerm) {
+        int termId = terms.ordinal(searchTerm.toLowerCase());
+        if (termId < 0) {
+            return PostingList.EMPTY;
+        }
+        long position = postingPosition(termId);
+        int size = file.getInt(position);
+        int[] docIds = docIds(termId, position);
+        long frequencies = frequencyPosition(position);
+        TermScorer scorer = impactScorer;
+        if (scorer != null) {
+            PostingList postings = new PostingList(docIds, readFrequencies(frequencies, size));
+            float[] impacts = new float[size];
+            for (int i = 0; i < size; i++) {
+                impacts[i] = (float) scorer.getImpact(postings.frequency(i), getPageLength(docIds[i]), size, pageCount);
+            }
+            postings.setImpacts(impacts);
+            return postings;
+        }
+        long blockMaxima = frequencies + 2L * Integer.BYTES * size;
+        float[] blockMaxImpacts = new float[(size + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE];
+        for (int block = 0; block < blockMaxImpacts.length; block++) {
+            blockMaxImpacts[block] = file.getFloat(blockMaxima + (long) block * Float.BYTES);
+        }
+        return new MappedPostingList(file, docIds, blockMaxImpacts, frequencies);
+    }
+
+    private int[] readFrequencies(long position, int size) {
+        int[] frequencies = new int[size];
+        for (int i = 0; i < size; i++) {
+            frequencies[i] = file.getInt(position + (long) i * Integer.BYTES);
+        }
+        return frequencies;
+    }
+
+    /**
+     * Adds the impact scores of a term to the scores of some pages. The encoded doc IDs of the term are walked with
+     * {@link PostingIterator#advance(int)}, which skips the blocks between the pages, and only the frequencies and
+     * impacts of the pages that contain the term are read from the file.
+     * @param searchTerm the term to look up
+     * @param pages the sorted doc IDs of the pages to score
+     * @param scores the scores of the pages, at the same positions, which the impacts are added to
+     */
+    void addImpacts(String searchTerm, int[] pages, double[] scores) {
+        int termId = terms.ordinal(searchTerm.toLowerCase());
+        if (termId < 0 || pages.length == 0) {
+            return;
+        }
+        long position = postingPosition(termId);
+        int size = file.getInt(position);
+        long frequencies = frequencyPosition(position);
+        long impacts = frequencies + (long) size * Integer.BYTES;
+        TermScorer scorer = impactScorer;
+        PostingIterator iterator = PostingCodec.iterator(encodedDocIds(position), size);
+        for (int i = 0; i < pages.length; i++) {
+            int docId = iterator.advance(pages[i]);
+            if (docId == PostingIterator.NO_MORE_DOCS) {
+                return;
+            }
+            if (docId == pages[i]) {
+                long index = iterator.index();
+                scores[i] += scorer == null
+                    ? file.getFloat(impacts + index * Float.BYTES)
+                    : scorer.getImpact(file.getInt(frequencies + index * Integer.BYTES), getPageLength(docId),
+                        size, pageCount);
+            }
+        }
+    }
+
+    /**
+     * Returns the URL of a page.
+     * @param docId the doc ID of the page
+     * @return the URL of the page
+     */
+    public String getUrl(int docId) {
+        checkDocId(docId);
+        long record = docRecord(docId);
+        return file.getString(record + Integer.BYTES, file.getInt(record));
+    }
+
+    /**
+     * Returns the lowercase title of a page.
+     * @param docId the doc ID of the page
+     * @return the title of the page
+     */
+    public String getTitle(int docId) {
+        checkDocId(docId);
+        long record = docRecord(docId);
+        long titleStart = record + Integer.BYTES + file.getInt(record);
+        long end = docRecord(docId + 1);
+        return file.getString(titleStart, (int) (end - titleStart));
+    }
+
+    /**
+     * Returns the position of the record of a page. The record of the page after the last one is the end of the table.
+     */
+    private long docRecord(int docId) {
+        return sections[IndexSnapshot.DOC_DATA]
+            + file.getLong(sections[IndexSnapshot.DOC_OFFSETS] + (long) docId * Long.BYTES);
+    }
+
+    private void checkDocId(int docId) {
+        if (docId < 0 || docId >= pageCount) {
+            throw new IndexOutOfBoundsException(docId);
+        }
+    }
+
+    /**
+     * Returns the number of terms on a page.
+     * @param docId the doc ID of the page
+     * @return the length of the page
+     */
+    public int getPageLength(int docId) {
+        return file.getInt(sections[IndexSnapshot.PAGE_LENGTHS] + (long) docId * Integer.BYTES);
+    }
+
+    /**
+     * Finds the page with a URL in the URL table of the snapshot, which holds the slots of a {@link UrlTable}.
+     * @param url the URL of the page
+     * @return the doc ID of the first page with the URL, ignoring case, or -1 if there is no such page
+     */
+    public int getDocId(String url) {
+        String lowerCaseUrl = url.toLowerCase();
+        int slot = UrlTable.slot(lowerCaseUrl, urlTableCapacity);
+        while (true) {
+            int docId = file.getInt(sections[IndexSnapshot.URL_TABLE] + (long) slot * Integer.BYTES);
+            if (docId == UrlTable.EMPTY || getUrl(docId).toLowerCase().equals(lowerCaseUrl)) {
+                return docId;
+            }
+            slot = (slot + 1) & (urlTableCapacity - 1);
+        }
+    }
+
+    /**
+     * Returns the number of pages in the snapshot. Doc IDs go from 0 to this number minus one.
+     * @return the number of pages
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * The postings of a term in the snapshot, whose frequencies and impacts are read from the file by position.
+     */
+    private static final class MappedPostingList extends PostingList {
+        private final MappedFile file;
+        private final long frequencies;
+        private final long impacts;
+
+        MappedPostingList(MappedFile file, int[] docIds, float[] blockMaxImpacts, long frequencies) {
+            super(docIds, blockMaxImpacts);
+            this.file = file;
+            this.frequencies = frequencies;
+            this.impacts = frequencies + (long) docIds.length * Integer.BYTES;
+        }
+
+        @Override
+        public int frequency(int index) {
+            return file.getInt(frequencies + (long) index * Integer.BYTES);
+        }
+
+        @Override
+        public float impact(int index) {
+            return file.getFloat(impacts + (long) index * Float.BYTES);
+        }
+
+        @Override
+        PostingList withImpacts(float[] impacts) {
+            int[] frequencies = new int[size()];
+            for (int i = 0; i < frequencies.length; i++) {
+                frequencies[i] = frequency(i);
+            }
+            PostingList list = new PostingList(docIds(), frequencies);
+            list.setImpacts(impacts);
+            return list;
+        }
+    }
+
+    /**
+     * The decoded doc IDs of the terms looked up most recently, by term ordinal: a {@link LinkedHashMap} in access
+     * order that evicts its least recently used entries when they hold too many doc IDs together.
+     */
+    private static final class DocIdCache extends LinkedHashMap<Integer, int[]> {
+        private final long maxDocIds;
+        private long docIds;
+
+        DocIdCache(long maxDocIds) {
+            super(16, 0.75f, true);
+            this.maxDocIds = maxDocIds;
+        }
+
+        synchronized int[] get(int termId) {
+            return super.get(termId);
+        }
+
+        /**
+         * Caches the doc IDs of a term, unless they alone would fill the cache.
+         */
+        synchronized void add(int termId, int[] termDocIds) {
+            if (termDocIds.length > maxDocIds) {
+                return;
+            }
+            int[] replaced = put(termId, termDocIds);
+            docIds += termDocIds.length - (replaced == null ? 0 : replaced.length);
+            Iterator<Map.Entry<Integer, int[]>> eldest = entrySet().iterator();
+            while (docIds > maxDocIds) {
+                docIds -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+        }
+
+        @Override
+        public synchronized void clear() {
+            super.clear();
+            docIds = 0;
+        }
+    }
+}
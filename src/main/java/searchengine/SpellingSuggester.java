@@ -0,0 +1,147 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Suggests corrections of the words of a query that no page contains ("did you mean").
+ * <p>
+ * The corrections of a word are the indexed terms within one edit of it, or two edits for words of more than
+ * {@link #SHORT_WORD_LENGTH} letters, since almost every short word is two edits away from many terms, and that
+ * start with the same letter, since misspellings rarely are in the first letter. They are found with a
+ * {@link LevenshteinAutomaton} that is run over the terms with that letter in the sorted term dictionary and skips
+ * the terms whose prefix is already too far from the word, so a lookup reads a small part of the dictionary
+ * instead of comparing the word with every term, and never more than {@link TermDictionary#MAX_VISITED_TERMS} terms.
+ * The corrections are ranked by their distance to the word, and
+ * terms at the same distance by the number of pages that contain them, so the common spelling comes first.
+ * </p>
+ * <p>
+ * A suggester keeps no state between calls, so it can be used by many threads, like its search engine.
+ * </p>
+ */
+public class SpellingSuggester {
+    /**
+     * The number of suggestions returned when no number is given.
+     */
+    public static final int DEFAULT_SUGGESTIONS = 5;
+
+    /**
+     * The longest word, in code points, that is only corrected by one edit.
+     */
+    static final int SHORT_WORD_LENGTH = 4;
+
+    /**
+     * The number of code points at the start of a word that its corrections must start with.
+     */
+    static final int PREFIX_LENGTH = 1;
+
+    // Words are anything between spaces and quotes, so the quotes of phrases stay where they are
+    private static final Pattern WORD = Pattern.compile("[^\\s\"]+");
+    private static final Pattern OPERATOR = Pattern.compile("OR|NEAR/\\d+", Pattern.CASE_INSENSITIVE);
+
+    private final ReadOnlySearchEngine searchEngine;
+
+    /**
+     * Creates a suggester of the terms of a search engine.
+     * @param searchEngine the search engine whose terms are suggested
+     */
+    public SpellingSuggester(ReadOnlySearchEngine searchEngine) {
+        this.searchEngine = searchEngine;
+    }
+
+    /**
+     * Finds the terms that a word may be a misspelling of.
+     * @param word the word to correct
+     * @param count the most corrections to return
+     * @return the indexed terms close to the word, other than the word itself, best first
+     */
+    public List<String> suggestWords(String word, int count) {
+        String lowerCaseWord = word.toLowerCase();
+        int maxEdits = lowerCaseWord.codePointCount(0, lowerCaseWord.length()) <= SHORT_WORD_LENGTH ? 1 : 2;
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton(lowerCaseWord, maxEdits, PREFIX_LENGTH);
+
+        List<Correction> corrections = new ArrayList<>();
+        for (String term : searchEngine.getTermsWithin(lowerCaseWord, maxEdits, PREFIX_LENGTH)) {
+            int documentFrequency = searchEngine.getDocumentFrequency(term);
+            if (!term.equals(lowerCaseWord) && documentFrequency > 0) {
+                corrections.add(new Correction(term, automaton.distance(term), documentFrequency));
+            }
+        }
+        corrections.sort(Comparator.comparingInt((Correction correction) -> correction.distance)
+            .thenComparing(Comparator.comparingInt((Correction correction) -> correction.documentFrequency)
+                .reversed())
+            .thenComparing(correction -> correction.term, TermDictionary.ORDER));
+
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, corrections.size()); i++) {
+            result.add(corrections.get(i).term);
+        }
+        return result;
+    }
+
+    /**
+     * Suggests queries with the words that no page contains replaced by their corrections.
+     * <p>
+     * The first suggestion replaces every unknown word by its best correction, the second by its second best
+     * correction (or its best, if it has only one), and so on. Operators, wildcard terms and the quotes of phrases
+     * are kept as they are.
+     * </p>
+     * @param query the decoded query, which can contain "OR" clauses, phrases and {@code NEAR/k} terms
+     * @param count the most suggestions to return
+     * @return the suggested queries, best first, or an empty list if every word is on some page
+     *         or no word has a correction
+     */
+    public List<String> suggestQueries(String query, int count) {
+        List<int[]> spans = new ArrayList<>();
+        List<List<String>> corrections = new ArrayList<>();
+        int mostCorrections = 0;
+        Matcher matcher = WORD.matcher(query);
+        while (matcher.find()) {
+            String word = matcher.group();
+            if (OPERATOR.matcher(word).matches() || word.endsWith("*")
+                    || searchEngine.getDocumentFrequency(word) > 0) {
+                continue;
+            }
+            List<String> wordCorrections = suggestWords(word, count);
+            if (!wordCorrections.isEmpty()) {
+                spans.add(new int[] {matcher.start(), matcher.end()});
+                corrections.add(wordCorrections);
+                mostCorrections = Math.max(mostCorrections, wordCorrections.size());
+            }
+        }
+
+        Set<String> suggestions = new LinkedHashSet<>();
+        for (int i = 0; i < mostCorrections; i++) {
+            StringBuilder suggestion = new StringBuilder();
+            int end = 0;
+            for (int w = 0; w < spans.size(); w++) {
+                List<String> wordCorrections = corrections.get(w);
+                suggestion.append(query, end, spans.get(w)[0])
+                    .append(wordCorrections.get(Math.min(i, wordCorrections.size() - 1)));
+                end = spans.get(w)[1];
+            }
+            suggestions.add(suggestion.append(query, end, query.length()).toString());
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    /**
+     * A term that a word may be a misspelling of.
+     */
+    private static final class Correction {
+        final String term;
+        final int distance;
+        final int documentFrequency;
+
+        Correction(String term, int distance, int documentFrequency) {
+            this.term = term;
+            this.distance = distance;
+            this.documentFrequency = documentFrequency;
+        }
+    }
+}
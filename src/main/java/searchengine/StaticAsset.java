@@ -0,0 +1,148 @@
+package searchengine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A file of the web interface, such as index.html or code.js, held in memory.
+ * <p>
+ * The file is read once, when the server starts, together with its gzip-compressed variant and a strong ETag
+ * computed from its content. A client that sends the ETag back in an {@code If-None-Match} header already has
+ * the file and is answered with 304 Not Modified instead of the content.
+ * </p>
+ */
+public class StaticAsset {
+    private final String mime;
+    private final String cacheControl;
+    private final byte[] content;
+    private final byte[] gzipContent;
+    private final String etag;
+    private final String gzipEtag;
+
+    /**
+     * Creates an asset from its content.
+     * @param mime the content type of the asset
+     * @param cacheControl the value of the Cache-Control header of the asset
+     * @param content the content of the asset
+     */
+    public StaticAsset(String mime, String cacheControl, byte[] content) {
+        this.mime = mime;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        byte[] compressed = gzip(content);
+        // Small or already compressed files, such as the icon, do not get smaller
+        this.gzipContent = compressed.length < content.length ? compressed : null;
+        String hash = hash(content);
+        this.etag = "\"" + hash + "\"";
+        // The compressed variant has other bytes, so a strong ETag must differ from the one of the content
+        this.gzipEtag = "\"" + hash + "-gz\"";
+    }
+
+    /**
+     * Reads an asset from a file.
+     * @param filename the path to the file
+     * @param mime the content type of the file
+     * @param cacheControl the value of the Cache-Control header of the file
+     * @return the asset with the content of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static StaticAsset load(String filename, String mime, String cacheControl) throws IOException {
+        return new StaticAsset(mime, cacheControl, Files.readAllBytes(Paths.get(filename)));
+    }
+
+    /**
+     * Returns the content type of the asset.
+     * @return the content type, without a character set
+     */
+    public String getMime() {
+        return mime;
+    }
+
+    /**
+     * Returns how long clients may cache the asset.
+     * @return the value of the Cache-Control header
+     */
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    /**
+     * Returns the content to send to a client.
+     * @param gzip true if the client accepts gzip-compressed content
+     * @return the compressed content if the client accepts it and it is smaller, otherwise the content
+     */
+    public byte[] getContent(boolean gzip) {
+        return isCompressed(gzip) ? gzipContent : content;
+    }
+
+    /**
+     * Checks if the content sent to a client is compressed.
+     * @param gzip true if the client accepts gzip-compressed content
+     * @return true if the compressed content is sent
+     */
+    public boolean isCompressed(boolean gzip) {
+        return gzip && gzipContent != null;
+    }
+
+    /**
+     * Returns the ETag of the content sent to a client, including its quotes.
+     * @param gzip true if the client accepts gzip-compressed content
+     * @return the ETag of the compressed content if it is sent, otherwise the ETag of the content
+     */
+    public String getEtag(boolean gzip) {
+        return isCompressed(gzip) ? gzipEtag : etag;
+    }
+
+    /**
+     * Checks if a client already has the asset, because the If-None-Match header of its request lists
+     * the ETag of the content or of its compressed variant, or is "*".
+     * @param ifNoneMatch the value of the If-None-Match header, or null if the request has none
+     * @return true if the client can be answered with 304 Not Modified
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // If-None-Match uses the weak comparison, which ignores the W/ prefix
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream cannot fail
+            throw new IllegalStateException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package searchengine;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
 
 /**
  * Scoring system that calculates Term Frequency Inverse Document Frequency 
@@ -36,6 +40,11 @@ public class TFIDScorer implements TermScorer {
 
     /**
      * Calculates the TFIDF scores for each term on each page.
+     * <p>
+     * Each page is read once to count its terms, and the pages are split between
+     * the threads of the common fork-join pool. The document frequencies are then
+     * collected from the counts, and the scores are computed in a second parallel pass.
+     * </p>
      *
      * @param pages A list of pages, where each page is a list of strings.
      *              The first string in each list represents the URL, 
@@ -43,43 +52,82 @@ public class TFIDScorer implements TermScorer {
      * @return A map where the key is the URL, and the value is another map of terms and their TFIDF scores.
      */
     public Map<String, Map<String, Double>> countTFIDScore(List<List<String>> pages) {
-        Map<String, Map<String, Double>> tfidfScores = new HashMap<>();
-        Map<String, Integer> documentFrequencies = new HashMap<>();
         int totalPages = pages.size();
+        List<Map<String, Integer>> termCounts = new ArrayList<>(Collections.nCopies(totalPages, null));
+        Map<String, Integer> documentFrequencies = new ConcurrentHashMap<>();
 
-        // Calculate document frequencies for each term
-        for (List<String> page : pages) {
-            Set<String> uniqueWords = new HashSet<>(page.subList(1, page.size())); 
-            for (String word : uniqueWords) {
-                documentFrequencies.put(word, documentFrequencies.getOrDefault(word, 0) + 1);
+        // Count the terms of each page, and how many pages contain each term
+        ForkJoinPool.commonPool().invoke(new PageRangeAction(0, totalPages, (from, to) -> {
+            Map<String, Integer> localFrequencies = new HashMap<>();
+            for (int p = from; p < to; p++) {
+                List<String> page = pages.get(p);
+                Map<String, Integer> counts = new HashMap<>();
+                for (int i = 1; i < page.size(); i++) {
+                    counts.merge(page.get(i), 1, Integer::sum);
+                }
+                termCounts.set(p, counts);
+                for (String word : counts.keySet()) {
+                    localFrequencies.merge(word, 1, Integer::sum);
+                }
             }
-        }
-
+            localFrequencies.forEach((word, count) -> documentFrequencies.merge(word, count, Integer::sum));
+        }));
 
         // Calculate TFIDF scores for each term on each page.
-        for (List<String> page : pages) {
-            String url = page.get(0).replace("*page:", "");
-            Map<String, Double> wordScores = new HashMap<>();
+        List<Map<String, Double>> pageScores = new ArrayList<>(Collections.nCopies(totalPages, null));
+        ForkJoinPool.commonPool().invoke(new PageRangeAction(0, totalPages, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                int pageLength = pages.get(p).size() - 1;
+                Map<String, Double> wordScores = new HashMap<>();
+                for (Map.Entry<String, Integer> entry : termCounts.get(p).entrySet()) {
+                    double termFrequency = (double) entry.getValue() / pageLength;
+                    double idf = Math.log((double) totalPages / (double) documentFrequencies.get(entry.getKey()));
+                    wordScores.put(entry.getKey(), termFrequency * idf);
+                }
+                pageScores.set(p, wordScores);
+            }
+        }));
 
-            for (int i = 1; i < page.size(); i++) {
-                String word = page.get(i);
+        // Pages are added in order, so a repeated URL keeps the scores of its last page
+        Map<String, Map<String, Double>> tfidfScores = new HashMap<>();
+        for (int p = 0; p < totalPages; p++) {
+            tfidfScores.put(pages.get(p).get(0).replace("*page:", ""), pageScores.get(p));
+        }
 
-                // Calculate term frequency
-                long wordCount = page.subList(1, page.size()).stream().filter(w -> w.equals(word)).count();
-                double termFrequency = (double) wordCount / (page.size() - 1);
+        return tfidfScores;
+    }
 
-                // Calculate inverse document frequency
-                int docFrequency = documentFrequencies.get(word);
-                double idf = Math.log((double) totalPages / (double) docFrequency);
+    /**
+     * A fork-join action that splits a range of pages in halves until the ranges are small,
+     * and then runs the given work on each small range.
+     */
+    private static class PageRangeAction extends RecursiveAction {
+        private static final int PAGES_PER_TASK = 256;
 
-                // Compute TFIDF score
-                wordScores.put(word, termFrequency * idf);
-            }
+        private final int from;
+        private final int to;
+        private final BiConsumer<Integer, Integer> work;
 
-            tfidfScores.put(url, wordScores);
+        /**
+         * @param from the first page of the range
+         * @param to the page after the last page of the range
+         * @param work the work to run on each small range, given its first page and the page after its last page
+         */
+        PageRangeAction(int from, int to, BiConsumer<Integer, Integer> work) {
+            this.from = from;
+            this.to = to;
+            this.work = work;
         }
 
-        return tfidfScores;
+        @Override
+        protected void compute() {
+            if (to - from <= PAGES_PER_TASK) {
+                work.accept(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PageRangeAction(from, middle, work), new PageRangeAction(middle, to, work));
+        }
     }
 
     /**
@@ -98,4 +146,19 @@ public class TFIDScorer implements TermScorer {
         return termFrequencies.get(url).getOrDefault(searchTerm, 0.0);
     }
 
+    /**
+     * Computes the TFIDF score of one posting from its statistics, with the same formula as {@link #countTFIDScore}.
+     *
+     * @param frequency The number of times the term occurs on the page.
+     * @param pageLength The number of terms on the page.
+     * @param documentFrequency The number of pages that contain the term.
+     * @param pageCount The number of pages in the index.
+     * @return A double representing the TFIDF score.
+     */
+    @Override
+    public double getImpact(int frequency, int pageLength, int documentFrequency, int pageCount) {
+        double termFrequency = (double) frequency / pageLength;
+        return termFrequency * Math.log((double) pageCount / (double) documentFrequency);
+    }
+
 }
@@ -0,0 +1,594 @@
+package searchengine;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted, compressed set of terms that gives each term an ordinal: its position in the sorted order.
+ * <p>
+ * The terms are stored as UTF-8 in one byte array, in blocks of {@link #BLOCK_SIZE} terms. The first term
+ * of a block is stored in full, and each other term only stores the length of the prefix it shares with
+ * the term before it, followed by the rest of its bytes. Since sorted terms often share long prefixes, this
+ * front coding takes a small fraction of the memory of a String per term in a hash table. A term is looked up
+ * with a binary search over the first terms of the blocks, followed by a scan of one block.
+ * </p>
+ * <p>
+ * Terms are sorted by their UTF-8 bytes, which is the order of their code points, see {@link #ORDER}.
+ * A dictionary cannot be changed after it is built, so it can be read by many threads at once.
+ * </p>
+ */
+public class TermDictionary implements Iterable<String> {
+    /**
+     * The number of terms in each block.
+     */
+    static final int BLOCK_SIZE = 16;
+
+    /**
+     * The order of the terms in a dictionary: by code point, which is the order of their UTF-8 bytes.
+     */
+    public static final Comparator<String> ORDER = TermDictionary::compare;
+
+    /**
+     * The most terms that {@link #termsWithin(LevenshteinAutomaton)} reads in one lookup, so that its cost has a limit
+     * that does not grow with the dictionary.
+     */
+    static final int MAX_VISITED_TERMS = 1 << 11;
+
+    static final TermDictionary EMPTY = new Builder().build();
+
+    private final byte[] data;
+    private final int[] blockOffsets;
+    private final int size;
+    private final int maxTermLength;
+
+    /**
+     * Creates a dictionary from its encoded form.
+     * @param data the front-coded blocks of terms
+     * @param blockOffsets the position of each block in the data
+     * @param size the number of terms
+     * @param maxTermLength the length in bytes of the longest term
+     */
+    TermDictionary(byte[] data, int[] blockOffsets, int size, int maxTermLength) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.size = size;
+        this.maxTermLength = maxTermLength;
+    }
+
+    /**
+     * Builds a dictionary of the given terms.
+     * @param terms the terms, in any order and without duplicates
+     * @return a dictionary with the terms
+     */
+    public static TermDictionary of(Collection<String> terms) {
+        String[] sorted = terms.toArray(new String[0]);
+        Arrays.sort(sorted, ORDER);
+        Builder builder = new Builder();
+        for (String term : sorted) {
+            builder.add(term);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of terms in the dictionary.
+     * @return the number of terms. Ordinals go from 0 to this number minus one.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the ordinal of a term, like {@link Arrays#binarySearch(int[], int)}.
+     * @param term the term to look up
+     * @return the ordinal of the term if it is in the dictionary; otherwise {@code (-(insertion point) - 1)},
+     *         where the insertion point is the ordinal of the first term that is larger than the given term
+     */
+    public int ordinal(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int block = floorBlock(key, 0);
+        if (block < 0) {
+            return -1;
+        }
+
+        // Scan the block for the key
+        BlockReader reader = new BlockReader(block);
+        while (reader.next()) {
+            int comparison = Arrays.compareUnsigned(reader.term, 0, reader.termLength, key, 0, key.length);
+            if (comparison == 0) {
+                return reader.ordinal;
+            } else if (comparison > 0) {
+                return -reader.ordinal - 1;
+            }
+        }
+        return -reader.ordinal - 2;
+    }
+
+    /**
+     * Checks if the dictionary contains a term.
+     * @param term the term to look for
+     * @return true if the term is in the dictionary
+     */
+    public boolean contains(String term) {
+        return ordinal(term) >= 0;
+    }
+
+    /**
+     * Returns the terms that start with a prefix. In UTF-8 order these terms are next to each other, so they are
+     * read from the insertion point of the prefix until the first term without it.
+     * @param prefix the prefix of the terms
+     * @param maxTerms the most terms to return
+     * @return at most {@code maxTerms} terms with the prefix, in sorted order
+     */
+    public List<String> termsWithPrefix(String prefix, int maxTerms) {
+        int ordinal = ordinal(prefix);
+        List<String> result = new ArrayList<>();
+        Iterator<String> iterator = iterator(ordinal >= 0 ? ordinal : -ordinal - 1);
+        while (result.size() < maxTerms && iterator.hasNext()) {
+            String term = iterator.next();
+            if (!term.startsWith(prefix)) {
+                break;
+            }
+            result.add(term);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the terms that a Levenshtein automaton accepts, without comparing the word with every term.
+     * <p>
+     * The terms are read in sorted order from their UTF-8 bytes, and the states of the automaton are kept for each
+     * code point of the previous term, so only the code points after the prefix shared with the previous term are
+     * run. When the automaton rejects a prefix, the terms are skipped to the next prefix that it can still accept,
+     * within the current block or with a galloping search over the later blocks. Only the accepted terms are decoded
+     * to Strings. If the automaton requires a prefix, only the range of terms with that prefix is read.
+     * </p>
+     * <p>
+     * At most {@link #MAX_VISITED_TERMS} terms are read. A lookup that would read more, like a short word with a
+     * large distance in a large dictionary, returns the terms found up to there, which come first in sorted order.
+     * </p>
+     * @param automaton the automaton of the word and the distance
+     * @return the terms within the distance of the word, in sorted order
+     */
+    List<String> termsWithin(LevenshteinAutomaton automaton) {
+        List<String> result = new ArrayList<>();
+        if (size == 0) {
+            return result;
+        }
+        // Every entry of a row is above the distance once the input is that much longer than the word
+        int maxDepth = automaton.length() + automaton.maxEdits() + 1;
+        int[][] states = new int[maxDepth + 1][automaton.length() + 1];
+        states[0] = automaton.start();
+        int[] codePoints = new int[maxTermLength];
+        int[] previous = new int[maxTermLength];
+        int previousLength = 0;
+        byte[] target = new byte[maxTermLength + 4];
+        byte[] prefix = automaton.prefix().getBytes(StandardCharsets.UTF_8);
+        Cursor cursor = new Cursor();
+        boolean hasTerm = prefix.length == 0 ? cursor.next() : cursor.seekCeiling(prefix, prefix.length);
+        for (int visited = 0; hasTerm && visited < MAX_VISITED_TERMS; visited++) {
+            BlockReader reader = cursor.reader;
+            if (reader.termLength < prefix.length
+                    || Arrays.compareUnsigned(reader.term, 0, prefix.length, prefix, 0, prefix.length) != 0) {
+                // The terms with the prefix have all been read
+                break;
+            }
+            int length = decodeCodePoints(reader.term, reader.termLength, codePoints);
+            int depth = Arrays.mismatch(previous, 0, previousLength, codePoints, 0, length);
+            depth = depth < 0 ? length : depth;
+            boolean rejected = false;
+            while (depth < length && !rejected) {
+                rejected = !automaton.step(states[depth], codePoints[depth], states[depth + 1]);
+                depth++;
+            }
+            // The states are valid up to the depth that was reached
+            System.arraycopy(codePoints, 0, previous, 0, depth);
+            previousLength = depth;
+            if (!rejected) {
+                if (automaton.distance(states[depth]) <= automaton.maxEdits()) {
+                    result.add(reader.decode());
+                }
+                hasTerm = cursor.next();
+                continue;
+            }
+
+            // Find the next prefix that can match: a larger code point at the rejected depth, or else further up
+            int targetLength = -1;
+            for (int i = depth - 1; i >= automaton.prefixLength() && targetLength < 0; i--) {
+                int codePoint = automaton.nextCodePoint(states[i], codePoints[i]);
+                if (codePoint >= 0) {
+                    // The target is the bytes of the first i code points, which are those of the term, and the new one
+                    targetLength = encodedLength(codePoints, i);
+                    System.arraycopy(reader.term, 0, target, 0, targetLength);
+                    targetLength = encode(codePoint, target, targetLength);
+                }
+            }
+            hasTerm = targetLength >= 0 && cursor.seekCeiling(target, targetLength);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of UTF-8 bytes of the first code points of a term.
+     */
+    private static int encodedLength(int[] codePoints, int count) {
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int codePoint = codePoints[i];
+            length += codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+        }
+        return length;
+    }
+
+    /**
+     * Writes the UTF-8 bytes of a code point.
+     * @return the position after the bytes
+     */
+    private static int encode(int codePoint, byte[] bytes, int position) {
+        if (codePoint < 0x80) {
+            bytes[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            bytes[position++] = (byte) (0xC0 | codePoint >> 6);
+            bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+        } else if (codePoint < 0x10000) {
+            bytes[position++] = (byte) (0xE0 | codePoint >> 12);
+            bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+        } else {
+            bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+            bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+        }
+        return position;
+    }
+
+    /**
+     * Decodes the UTF-8 bytes of a term into its code points.
+     * @return the number of code points
+     */
+    private static int decodeCodePoints(byte[] bytes, int length, int[] codePoints) {
+        int count = 0;
+        for (int i = 0; i < length; count++) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                codePoints[count] = b;
+                i++;
+            } else if (b < 0xE0) {
+                codePoints[count] = (b & 0x1F) << 6 | (bytes[i + 1] & 0x3F);
+                i += 2;
+            } else if (b < 0xF0) {
+                codePoints[count] = (b & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | (bytes[i + 2] & 0x3F);
+                i += 3;
+            } else {
+                codePoints[count] = (b & 0x07) << 18 | (bytes[i + 1] & 0x3F) << 12 | (bytes[i + 2] & 0x3F) << 6
+                    | (bytes[i + 3] & 0x3F);
+                i += 4;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the term with an ordinal.
+     * @param ordinal the ordinal of the term
+     * @return the term
+     */
+    public String term(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException(ordinal);
+        }
+        BlockReader reader = new BlockReader(ordinal / BLOCK_SIZE);
+        while (reader.ordinal < ordinal) {
+            reader.next();
+        }
+        return reader.decode();
+    }
+
+    /**
+     * Iterates over the terms in sorted order.
+     * @return an iterator over the terms
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Iterates over the terms in sorted order, starting at an ordinal.
+     * @param fromOrdinal the ordinal of the first term to return
+     * @return an iterator over the terms from the given ordinal to the end
+     */
+    public Iterator<String> iterator(int fromOrdinal) {
+        return new Iterator<>() {
+            private int ordinal = Math.max(0, fromOrdinal);
+            private BlockReader reader;
+
+            @Override
+            public boolean hasNext() {
+                return ordinal < size;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (reader == null || ordinal % BLOCK_SIZE == 0) {
+                    reader = new BlockReader(ordinal / BLOCK_SIZE);
+                }
+                while (reader.ordinal < ordinal) {
+                    reader.next();
+                }
+                ordinal++;
+                return reader.decode();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of bytes the encoded terms take, not counting the object headers.
+     * @return the size of the dictionary in bytes
+     */
+    public long sizeInBytes() {
+        return data.length + (long) blockOffsets.length * Integer.BYTES;
+    }
+
+    /**
+     * Returns the front-coded blocks of terms. The returned array must not be modified.
+     */
+    byte[] data() {
+        return data;
+    }
+
+    /**
+     * Returns the position of each block in the data. The returned array must not be modified.
+     */
+    int[] blockOffsets() {
+        return blockOffsets;
+    }
+
+    int maxTermLength() {
+        return maxTermLength;
+    }
+
+    /**
+     * Compares two terms by their code points, which gives the same order as comparing their UTF-8 bytes.
+     */
+    private static int compare(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Finds the last block from a given one whose first term is not larger than a key.
+     * @return the block, or {@code fromBlock - 1} if the first terms of all those blocks are larger
+     */
+    private int floorBlock(byte[] key, int fromBlock) {
+        return floorBlock(key, key.length, fromBlock, blockOffsets.length - 1);
+    }
+
+    /**
+     * Finds the last block in a range whose first term is not larger than a key.
+     * @return the block, or {@code fromBlock - 1} if the first terms of all blocks in the range are larger
+     */
+    private int floorBlock(byte[] key, int keyLength, int fromBlock, int toBlock) {
+        int low = fromBlock;
+        int high = toBlock;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compareFirstTerm(middle, key, keyLength) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private int compareFirstTerm(int block, byte[] key, int keyLength) {
+        int position = blockOffsets[block];
+        int length = readVarInt(position);
+        int start = position + varIntLength(length);
+        return Arrays.compareUnsigned(data, start, start + length, key, 0, keyLength);
+    }
+
+    private int readVarInt(int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the terms of one block, one after the other, into a reused buffer.
+     */
+    private class BlockReader {
+        private final byte[] term = new byte[maxTermLength];
+        private int termLength;
+        private int position;
+        private final int end;
+
+        /**
+         * The ordinal of the current term. It is one less than the first ordinal of the block before
+         * {@link #next()} is called.
+         */
+        private int ordinal;
+
+        BlockReader(int block) {
+            position = blockOffsets[block];
+            end = block + 1 < blockOffsets.length ? blockOffsets[block + 1] : data.length;
+            ordinal = block * BLOCK_SIZE - 1;
+        }
+
+        /**
+         * Decodes the next term of the block.
+         * @return false if the block has no more terms
+         */
+        boolean next() {
+            if (position >= end) {
+                return false;
+            }
+            int prefixLength = 0;
+            if ((ordinal + 1) % BLOCK_SIZE != 0) {
+                prefixLength = readVarInt(position);
+                position += varIntLength(prefixLength);
+            }
+            int suffixLength = readVarInt(position);
+            position += varIntLength(suffixLength);
+            System.arraycopy(data, position, term, prefixLength, suffixLength);
+            position += suffixLength;
+            termLength = prefixLength + suffixLength;
+            ordinal++;
+            return true;
+        }
+
+        String decode() {
+            return new String(term, 0, termLength, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Reads the terms in sorted order, and skips forward to a key without going back to the terms before it.
+     * The current term is in the buffer of {@link #reader}.
+     */
+    private class Cursor {
+        private int block;
+        private BlockReader reader = new BlockReader(0);
+
+        /**
+         * Moves to the next term.
+         * @return false if there are no more terms
+         */
+        boolean next() {
+            while (!reader.next()) {
+                if (block + 1 >= blockOffsets.length) {
+                    return false;
+                }
+                reader = new BlockReader(++block);
+            }
+            return true;
+        }
+
+        /**
+         * Moves to the first term after the current one that is not smaller than a key. If the key is past the
+         * current block, the block is found with a galloping search from the current block, since the key is often
+         * close, otherwise the current block is read on.
+         * @return false if there is no such term
+         */
+        boolean seekCeiling(byte[] key, int keyLength) {
+            int step = 1;
+            while (block + step < blockOffsets.length && compareFirstTerm(block + step, key, keyLength) <= 0) {
+                step *= 2;
+            }
+            int target = step == 1 ? block
+                : floorBlock(key, keyLength, block + step / 2 + 1, Math.min(block + step, blockOffsets.length) - 1);
+            if (target > block) {
+                block = target;
+                reader = new BlockReader(block);
+            }
+            while (next()) {
+                if (Arrays.compareUnsigned(reader.term, 0, reader.termLength, key, 0, keyLength) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Builds a dictionary from terms that are added in sorted order.
+     */
+    static class Builder {
+        private byte[] data = new byte[64];
+        private int length;
+        private final IntArrayList blockOffsets = new IntArrayList();
+        private byte[] previous = new byte[0];
+        private int size;
+        private int maxTermLength;
+
+        /**
+         * Adds a term after the terms added before.
+         * @param term the term, which must be larger than the term added before in {@link #ORDER}
+         * @throws IllegalArgumentException if the term is not larger than the term added before
+         */
+        void add(String term) {
+            byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+            if (size > 0 && Arrays.compareUnsigned(previous, bytes) >= 0) {
+                throw new IllegalArgumentException("Terms must be added in sorted order: " + term);
+            }
+            if (size % BLOCK_SIZE == 0) {
+                blockOffsets.add(length);
+                writeVarInt(bytes.length);
+                write(bytes, 0, bytes.length);
+            } else {
+                int prefixLength = Arrays.mismatch(previous, bytes);
+                writeVarInt(prefixLength);
+                writeVarInt(bytes.length - prefixLength);
+                write(bytes, prefixLength, bytes.length - prefixLength);
+            }
+            previous = bytes;
+            maxTermLength = Math.max(maxTermLength, bytes.length);
+            size++;
+        }
+
+        /**
+         * Returns the dictionary of the terms added so far.
+         * @return a new dictionary
+         */
+        TermDictionary build() {
+            return new TermDictionary(Arrays.copyOf(data, length), blockOffsets.toArray(), size, maxTermLength);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeByte(int value) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[length++] = (byte) value;
+        }
+
+        private void write(byte[] bytes, int from, int count) {
+            while (length + count > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            System.arraycopy(bytes, from, data, length, count);
+            length += count;
+        }
+    }
+}
@@ -4,6 +4,12 @@ import java.util.List;
 
 /**
  * An interface that defines the operations for a scoring system used in a search engine.
+ * <p>
+ * Thread safety: once {@link #loadPages(List)} has returned, {@link #getScore(String, String)},
+ * {@link #addScores(ReadOnlySearchEngine, int[], String, double[])} and
+ * {@link #getImpact(int, int, int, int)} may be called by many threads at once, and must not change the scorer.
+ * Loading must not run at the same time as any other call, and must happen before the calls of other threads.
+ * </p>
  */
 public interface TermScorer {
 
@@ -15,6 +21,35 @@ public interface TermScorer {
     */
     public double getScore(String url, String searchTerm);
 
+   /**
+    * Adds the scores of several pages for a term, for example the pages of one clause of a query.
+    * By default each page is scored with {@link #getScore(String, String)}; scorers that can look up scores
+    * by doc ID override this to look the term up once for all pages.
+    * @param searchEngine The search engine whose doc IDs are given.
+    * @param pages The doc IDs of the pages in increasing order.
+    * @param searchTerm The search term used to calculate the scores.
+    * @param scores The scores of the pages, at the same positions as their doc IDs, to which the scores are added.
+    */
+    public default void addScores(ReadOnlySearchEngine searchEngine, int[] pages, String searchTerm, double[] scores) {
+        for (int i = 0; i < pages.length; i++) {
+            scores[i] += getScore(searchEngine.getUrl(pages[i]), searchTerm);
+        }
+    }
+
+   /**
+    * Computes the score of one posting of the inverted index from its statistics.
+    * The index stores these scores as impacts, so that queries can rank pages without calling {@link #getScore}.
+    * By default the score is the term frequency.
+    * @param frequency The number of times the term occurs on the page.
+    * @param pageLength The number of terms on the page.
+    * @param documentFrequency The number of pages that contain the term.
+    * @param pageCount The number of pages in the index.
+    * @return A score that is not negative.
+    */
+    public default double getImpact(int frequency, int pageLength, int documentFrequency, int pageCount) {
+        return (double) frequency / pageLength;
+    }
+
    /**
     * Loads a collection of pages.
     * @param pages A list of pages, where each page is represented as a list of strings.
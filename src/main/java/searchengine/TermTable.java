@@ -0,0 +1,226 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A hash table from terms to their postings, looked up directly from the bytes of a line.
+ * <p>
+ * Terms are stored by the UTF-8 bytes of their lowercase form. A line of plain ASCII is
+ * lowercased and hashed byte by byte without creating a String, so the lowercase String
+ * of a term is only created the first time the term is seen. Lines with other characters
+ * are decoded and lowercased with {@link String#toLowerCase()} as before.
+ * </p>
+ */
+class TermTable {
+    /**
+     * Languages where {@link String#toLowerCase()} does not lowercase ASCII letters to ASCII letters.
+     */
+    private static final Set<String> SPECIAL_CASE_LANGUAGES = Set.of("tr", "az", "lt");
+    private static final boolean ASCII_LOWERCASE = !SPECIAL_CASE_LANGUAGES.contains(Locale.getDefault().getLanguage());
+
+    private byte[][] keys = new byte[1024][];
+    private int[] hashes = new int[1024];
+    private String[] terms = new String[1024];
+    private PostingListBuilder[] postings = new PostingListBuilder[1024];
+    private int size;
+    private final boolean positional;
+
+    /**
+     * Creates an empty table whose postings do not record positions.
+     */
+    TermTable() {
+        this(false);
+    }
+
+    /**
+     * Creates an empty table.
+     * @param positional whether the postings of the terms record positions
+     */
+    TermTable(boolean positional) {
+        this.positional = positional;
+    }
+
+    /**
+     * Finds the entry of the term on a line, and adds the term if it is new.
+     * The returned slot is only valid until the next term is added.
+     * @param buffer the buffer containing the line
+     * @param start the position of the first byte of the line
+     * @param end the position after the last byte of the line
+     * @return the slot of the term
+     */
+    int find(ByteBuffer buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < 0 || !ASCII_LOWERCASE) {
+                return find(decode(buffer, start, end).toLowerCase());
+            }
+            hash = 31 * hash + toLowerCase(b);
+        }
+        hash = spread(hash);
+
+        int mask = keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            byte[] key = keys[slot];
+            if (key == null) {
+                byte[] lowercase = new byte[end - start];
+                for (int i = 0; i < lowercase.length; i++) {
+                    lowercase[i] = toLowerCase(buffer.get(start + i));
+                }
+                return add(slot, lowercase, hash, new String(lowercase, StandardCharsets.US_ASCII));
+            }
+            if (hashes[slot] == hash && equalsLowerCase(key, buffer, start, end)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of a lowercase term, and adds the term if it is new.
+     * The returned slot is only valid until the next term is added.
+     * @param term the term in lowercase
+     * @return the slot of the term
+     */
+    int find(String term) {
+        byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+        int hash = 0;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        hash = spread(hash);
+
+        int mask = keys.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == null) {
+                return add(slot, bytes, hash, term);
+            }
+            if (hashes[slot] == hash && Arrays.equals(keys[slot], bytes)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Returns the lowercase term in a slot.
+     * @param slot a slot returned by find
+     * @return the term
+     */
+    String term(int slot) {
+        return terms[slot];
+    }
+
+    /**
+     * Returns the postings of the term in a slot.
+     * @param slot a slot returned by find
+     * @return the postings of the term
+     */
+    PostingListBuilder postings(int slot) {
+        return postings[slot];
+    }
+
+    /**
+     * Returns the number of terms in the table.
+     * @return the number of terms
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Calls the action for each term in the table and its postings.
+     * @param action the action to call
+     */
+    void forEach(BiConsumer<String, PostingListBuilder> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                action.accept(terms[slot], postings[slot]);
+            }
+        }
+    }
+
+    private int add(int slot, byte[] key, int hash, String term) {
+        keys[slot] = key;
+        hashes[slot] = hash;
+        terms[slot] = term;
+        postings[slot] = new PostingListBuilder(positional);
+        size++;
+        if (size * 2 > keys.length) {
+            return grow(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the table.
+     * @param slot a slot in the old table
+     * @return the slot of the same term in the new table
+     */
+    private int grow(int slot) {
+        byte[][] oldKeys = keys;
+        int[] oldHashes = hashes;
+        String[] oldTerms = terms;
+        PostingListBuilder[] oldPostings = postings;
+        keys = new byte[oldKeys.length * 2][];
+        hashes = new int[keys.length];
+        terms = new String[keys.length];
+        postings = new PostingListBuilder[keys.length];
+
+        int mask = keys.length - 1;
+        int movedSlot = -1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int newSlot = oldHashes[i] & mask;
+            while (keys[newSlot] != null) {
+                newSlot = (newSlot + 1) & mask;
+            }
+            keys[newSlot] = oldKeys[i];
+            hashes[newSlot] = oldHashes[i];
+            terms[newSlot] = oldTerms[i];
+            postings[newSlot] = oldPostings[i];
+            if (i == slot) {
+                movedSlot = newSlot;
+            }
+        }
+        return movedSlot;
+    }
+
+    private static boolean equalsLowerCase(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != toLowerCase(buffer.get(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Decodes a line of UTF-8 bytes into a String.
+     * @param buffer the buffer containing the line
+     * @param start the position of the first byte of the line
+     * @param end the position after the last byte of the line
+     * @return the decoded line
+     */
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
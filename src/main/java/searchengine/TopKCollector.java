@@ -0,0 +1,160 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the k pages with the highest scores seen so far.
+ * <p>
+ * The pages are kept in a min-heap on their score, so the lowest score in the top k,
+ * the threshold a page must beat to get in, can be read in constant time.
+ * A page that is offered again keeps the highest of its scores, which is how
+ * the results of several OR clauses are combined.
+ * </p>
+ * <p>
+ * The heap grows as pages are collected, so a large k only costs memory for the pages that are actually found.
+ * </p>
+ */
+class TopKCollector {
+    private final int k;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] docIds;
+    private double[] scores;
+    private final IntIntHashMap heapPositions = new IntIntHashMap();
+    private int size;
+
+    /**
+     * Creates an empty collector.
+     * @param k the number of pages to keep, at least 1
+     */
+    TopKCollector(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, but was " + k);
+        }
+        this.k = k;
+        this.docIds = new int[Math.min(k, INITIAL_CAPACITY)];
+        this.scores = new double[docIds.length];
+    }
+
+    /**
+     * Returns the score a page must beat to enter the top k.
+     * @return the lowest score in the top k, or negative infinity while fewer than k pages have been collected
+     */
+    double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Offers a page to the collector.
+     * @param docId the doc ID of the page
+     * @param score the score of the page
+     */
+    void offer(int docId, double score) {
+        int position = heapPositions.get(docId, -1);
+        if (position >= 0) {
+            if (score > scores[position]) {
+                scores[position] = score;
+                siftDown(position);
+            }
+            return;
+        }
+        if (size < k) {
+            if (size == docIds.length) {
+                int capacity = (int) Math.min(k, 2L * size);
+                docIds = Arrays.copyOf(docIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            docIds[size] = docId;
+            scores[size] = score;
+            heapPositions.put(docId, size);
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            heapPositions.remove(docIds[0]);
+            docIds[0] = docId;
+            scores[0] = score;
+            heapPositions.put(docId, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the collected pages, ordered by score from highest to lowest.
+     * @return a list of doc IDs
+     */
+    List<Integer> results() {
+        List<Integer> results = new ArrayList<>(size);
+        for (int position : order()) {
+            results.add(docIds[position]);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the scores of the collected pages, in the order of {@link #results()}.
+     * @return the scores from highest to lowest
+     */
+    double[] resultScores() {
+        Integer[] order = order();
+        double[] results = new double[size];
+        for (int i = 0; i < size; i++) {
+            results[i] = scores[order[i]];
+        }
+        return results;
+    }
+
+    /**
+     * Sorts the positions of the heap by score from highest to lowest. The sort is stable, so pages with the same
+     * score are always in the same order.
+     */
+    private Integer[] order() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        return order;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (scores[parent] <= scores[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int docId = docIds[a];
+        double score = scores[a];
+        docIds[a] = docIds[b];
+        scores[a] = scores[b];
+        docIds[b] = docId;
+        scores[b] = score;
+        heapPositions.put(docIds[a], a);
+        heapPositions.put(docIds[b], b);
+    }
+}
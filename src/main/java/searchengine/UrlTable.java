@@ -0,0 +1,86 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * A hash table from the URLs of a range of pages to their doc IDs, which ignores the case of the URLs.
+ * <p>
+ * The table only holds doc IDs, with open addressing and linear probing, in slots found from the hash of the
+ * lowercase URL. The URLs themselves stay in the search engine and are read when a lookup compares them, so
+ * the table takes one int per slot instead of a boxed entry per page. A snapshot stores the same slots as its
+ * URL table (see {@link IndexSnapshot}).
+ * </p>
+ */
+final class UrlTable {
+    /**
+     * The doc ID of an empty slot.
+     */
+    static final int EMPTY = -1;
+
+    private final int[] slots;
+
+    /**
+     * Builds the table of the pages with doc IDs from {@code base} to {@code base + pageCount - 1}.
+     * @param base the doc ID of the first page
+     * @param pageCount the number of pages
+     * @param urls the URL of each doc ID
+     */
+    UrlTable(int base, int pageCount, IntFunction<String> urls) {
+        int capacity = capacity(pageCount);
+        slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        // The pages are added in order, so the pages with the same URL are probed in the order of their doc IDs
+        for (int docId = base; docId < base + pageCount; docId++) {
+            int slot = slot(urls.apply(docId).toLowerCase(), capacity);
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            slots[slot] = docId;
+        }
+    }
+
+    /**
+     * Finds the first page with a URL, ignoring case.
+     * @param url the URL of the page
+     * @param urls the URL of each doc ID
+     * @param live which pages can be found, such as those that are not deleted
+     * @return the doc ID of the first page with the URL that is live, or -1 if there is no such page
+     */
+    int find(String url, IntFunction<String> urls, IntPredicate live) {
+        String lowerCaseUrl = url.toLowerCase();
+        for (int slot = slot(lowerCaseUrl, slots.length); slots[slot] != EMPTY; slot = (slot + 1) & (slots.length - 1)) {
+            int docId = slots[slot];
+            if (urls.apply(docId).toLowerCase().equals(lowerCaseUrl) && live.test(docId)) {
+                return docId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the doc ID in each slot of the table.
+     * @return the slots, which must not be modified
+     */
+    int[] slots() {
+        return slots;
+    }
+
+    /**
+     * Returns the capacity of the table for a number of pages: a power of two that is at least twice as large.
+     */
+    static int capacity(int pageCount) {
+        return Integer.highestOneBit(Math.max(1, pageCount) * 2 - 1) * 2;
+    }
+
+    /**
+     * Returns the first slot to look for a URL.
+     * @param lowerCaseUrl the URL in lowercase
+     * @param capacity the capacity of the table
+     */
+    static int slot(String lowerCaseUrl, int capacity) {
+        int hash = lowerCaseUrl.hashCode();
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+}
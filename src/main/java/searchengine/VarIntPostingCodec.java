@@ -0,0 +1,38 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores the gaps between doc IDs as variable-length integers: 7 bits per byte, so a gap below 128
+ * takes one byte. Frequent terms have small gaps, and take about one byte per doc ID instead of four.
+ */
+class VarIntPostingCodec extends BlockPostingCodec {
+
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    void encodeBlock(int[] gaps, int count, ByteWriter out) {
+        for (int i = 0; i < count; i++) {
+            out.writeVarInt(gaps[i]);
+        }
+    }
+
+    @Override
+    void decodeBlock(ByteBuffer data, int offset, int count, int[] gaps) {
+        int position = offset;
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            gaps[i] = value;
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package searchengine;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
@@ -20,11 +30,50 @@ import com.sun.net.httpserver.HttpServer;
 public class WebServer {
   static final int BACKLOG = 0;
   static final Charset CHARSET = StandardCharsets.UTF_8;
+  static final int QUERY_CACHE_SIZE = Integer.getInteger("searchengine.queryCacheSize", 4096);
+  // The most doc IDs that the cached results hold together, so that results of common words cannot fill the heap
+  static final long QUERY_CACHE_RESULTS = Long.getLong("searchengine.queryCacheResults",
+      QueryCache.DEFAULT_MAX_RESULTS);
+  static final String EXECUTOR = System.getProperty("searchengine.executor", "virtual");
+  static final int THREADS = Integer.getInteger("searchengine.threads", Runtime.getRuntime().availableProcessors());
+  static final int RELOAD_THREADS = Integer.getInteger("searchengine.reloadThreads",
+      Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  // Positions make phrase and NEAR queries exact, but the index larger and the snapshot unusable
+  static final boolean POSITIONS = Boolean.getBoolean("searchengine.positions");
+  // A segmented index can have pages added and deleted through /admin/pages, but has no snapshot and no positions,
+  // and is not reloaded, as it would lose those changes
+  static final boolean SEGMENTED = Boolean.getBoolean("searchengine.segmented");
+  // The most words that a wildcard such as denm* expands to, so that a short prefix stays cheap
+  static final int MAX_EXPANSIONS = Integer.getInteger("searchengine.maxExpansions",
+      QueryHandler.DEFAULT_MAX_EXPANSIONS);
 
   List<List<String>> pages = new ArrayList<>();
   HttpServer server;
-  private final SearchEngine searchEngine;
-  private final TermScorer termScorer;
+  final AtomicReference<SearchIndex> index = new AtomicReference<>();
+  private volatile String filename;
+  /**
+   * Whether the server answers the {@link SearchCoordinator} of a distributed index, see {@link #createContexts()}.
+   */
+  private final boolean shard;
+  private final StaticAsset indexPage;
+  private final StaticAsset favicon;
+  private final StaticAsset code;
+  private final StaticAsset style;
+  ExecutorService executor;
+  final QueryCache queryCache = new QueryCache(QUERY_CACHE_SIZE, QUERY_CACHE_RESULTS);
+  final Metrics metrics = new Metrics();
+
+  /**
+   * Reloads the index in the background, one reload at a time. A reload that is asked for while another
+   * one waits to start is merged into it, and loads the file that was asked for last.
+   */
+  private final ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "index-reloader");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+  private final AtomicReference<String> pendingReload = new AtomicReference<>();
 
 
   /**
@@ -35,22 +84,185 @@ public class WebServer {
  * @throws IOException if there is an issue reading the specified file or starting the server. 
  */
   WebServer(int port, String filename) throws IOException {
-    // Prep the objects
-    searchEngine = new InvertedIndexSearchEngine();
-    searchEngine.loadPages(filename);
+    this(port, filename, false);
+  }
+
+  /**
+   * Initializes a new web server that can also be one shard of a distributed index.
+   *
+   * @param port the number of the port on which the server will listen
+   * @param filename the name of the file that contains the webpages that the search engine is going to load.
+   * @param shard whether the server answers the requests of a {@link SearchCoordinator}, see {@link ShardProtocol}
+   * @throws IOException if there is an issue reading the specified file or starting the server.
+   */
+  WebServer(int port, String filename, boolean shard) throws IOException {
+    this.shard = shard;
+    // Open the snapshot of the pages if it is up to date, otherwise load the pages and write a snapshot
+    this.filename = filename;
+    index.set(loadIndex(filename, 0, Runtime.getRuntime().availableProcessors()));
 
-    // By default, we use the Term Frequency scorer
-    // Change it to new TFIDScorer() to use the TFIDF scorer
-    termScorer = new TermFrequencyScorer();
-    termScorer.loadPages(searchEngine.getPages());
+    // Read the files of the web interface once, so that serving them never touches the disk.
+    // They are revalidated on every page load, which is answered with 304 if they have not changed, except the icon
+    indexPage = StaticAsset.load("web/index.html", "text/html", "no-cache");
+    favicon = StaticAsset.load("web/favicon.ico", "image/x-icon", "public, max-age=86400");
+    code = StaticAsset.load("web/code.js", "application/javascript", "no-cache");
+    style = StaticAsset.load("web/style.css", "text/css", "no-cache");
 
-    // Start the server
-    server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+    // Start the server, with requests handled concurrently by the configured executor
+    server = createServer(port);
+    executor = createExecutor(EXECUTOR, THREADS);
+    server.setExecutor(executor);
     createContexts();     
     
   }
 
 
+  /**
+   * Loads the pages of a file into a new index, and publishes it in place of the current index.
+   * <p>
+   * The new index is loaded while the current one answers queries, with {@code searchengine.reloadThreads} threads
+   * (half of the processors by default), so that the requests keep the other processors. Publishing only swaps
+   * a reference: requests that already took the old index finish with it, and later requests take the new one.
+   * The cached results of the old index are dropped.
+   * </p>
+   * <p>
+   * A segmented index is never reloaded: it would be rebuilt from the file, and lose the pages that were added
+   * and deleted through {@code /admin/pages} since it was loaded.
+   * </p>
+   *
+   * @param filename the name of the file that contains the webpages.
+   * @throws IOException if the file cannot be read, in which case the current index is kept.
+   * @throws IllegalStateException if the current index is segmented.
+   */
+  synchronized void reload(String filename) throws IOException {
+    if (isSegmented()) {
+      throw new IllegalStateException("A segmented index is changed through /admin/pages, not reloaded");
+    }
+    long start = System.nanoTime();
+    SearchIndex reloaded = loadIndex(filename, index.get().version + 1, RELOAD_THREADS);
+    index.set(reloaded);
+    this.filename = filename;
+    // Results are cached by the version of the index they come from, so this only frees their memory
+    queryCache.invalidate();
+    System.out.printf("Reloaded %s as index version %d in %d ms%n", filename, reloaded.version,
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Loads the pages of a file into a segmented index if {@code searchengine.segmented} is set, and otherwise
+   * into an index that does not change, from its snapshot if it is up to date.
+   *
+   * @param filename the name of the file that contains the webpages.
+   * @param version the version of the index.
+   * @param parallelism the number of threads that load the pages.
+   * @return the loaded index.
+   * @throws IOException if the file cannot be read.
+   */
+  static SearchIndex loadIndex(String filename, long version, int parallelism) throws IOException {
+    return SEGMENTED
+        ? SearchIndex.loadSegmented(filename, version, parallelism, MAX_EXPANSIONS)
+        : SearchIndex.load(filename, version, parallelism, POSITIONS, MAX_EXPANSIONS);
+  }
+
+  /**
+   * Checks if the current index is segmented, so that its pages can be changed but it is not reloaded.
+   *
+   * @return true if the search engine of the index is a {@link SegmentedSearchEngine}.
+   */
+  boolean isSegmented() {
+    return index.get().searchEngine instanceof SegmentedSearchEngine;
+  }
+
+  /**
+   * Asks for the index to be reloaded in the background, unless it is segmented (see {@link #reload(String)}).
+   *
+   * @param filename the name of the file that contains the webpages.
+   */
+  void scheduleReload(String filename) {
+    if (isSegmented()) {
+      System.err.println("Not reloading " + filename + ", as a segmented index would lose its added and deleted pages");
+      return;
+    }
+    if (pendingReload.getAndSet(filename) != null) {
+      // The reload that is waiting to start will load this file
+      return;
+    }
+    reloader.execute(() -> {
+      String file = pendingReload.getAndSet(null);
+      try {
+        reload(file);
+      } catch (IOException e) {
+        System.err.println("Could not reload " + file + ", keeping the current index: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Returns the name of the file that the current index was loaded from.
+   *
+   * @return the name of the file that contains the webpages.
+   */
+  String getFilename() {
+    return filename;
+  }
+
+
+  /**
+   * Creates an HTTP server with TCP_NODELAY on its connections. Responses are streamed in several writes, and
+   * without TCP_NODELAY the last one waits for the delayed ACK of the client, which adds about 40 ms to every
+   * request. The JDK reads the setting once, when the first server is created, so every server of the process
+   * must be created here.
+   *
+   * @param port the port to listen on.
+   * @return the server, which is not started yet.
+   * @throws IOException if the port cannot be bound.
+   */
+  static HttpServer createServer(int port) throws IOException {
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+    return HttpServer.create(new InetSocketAddress(port), BACKLOG);
+  }
+
+  /**
+   * Creates the executor that runs the request handlers.
+   * <ul>
+   * <li>"virtual" - a new virtual thread per request. Virtual threads need Java 21, so on older versions
+   * a platform thread pool is used instead.</li>
+   * <li>"platform" - a pool with a fixed number of platform threads.</li>
+   * <li>"dispatcher" - no executor: every request runs on the single dispatcher thread of the server.</li>
+   * </ul>
+   *
+   * @param mode the kind of executor, set with the system property {@code searchengine.executor}.
+   * @param threads the number of threads of a platform pool, set with the system property {@code searchengine.threads}.
+   * @return the executor, or null to run requests on the dispatcher thread.
+   * @throws IllegalArgumentException if the mode is not known.
+   */
+  static ExecutorService createExecutor(String mode, int threads) {
+    switch (mode) {
+      case "virtual":
+        try {
+          // Looked up by reflection, so that the server still compiles and runs before Java 21
+          return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+          System.out.println("Virtual threads are not available, using " + threads + " platform threads");
+          return createExecutor("platform", threads);
+        }
+      case "platform":
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+          Thread thread = new Thread(runnable, "search-worker-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+      case "dispatcher":
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown executor " + mode + ", use virtual, platform or dispatcher");
+    }
+  }
+
+
   /**
    * This method starts the server by defining routes (contexts) for handling HTTP requests.
    * <p> 
@@ -58,21 +270,48 @@ public class WebServer {
    * </p>
    * 
    * <ul>
-   * <li>"/" - Serves the homepage (HTML file).</li>
+   * <li>"/" - Serves the homepage (HTML file). Other paths that have no context are answered with 404.</li>
    * <li>"/search" - Handles search requests with the {@code search(io)} method.</li>
+   * <li>"/spell" - Suggests corrections of the words of a query that no page contains, see {@code spell(io)}.</li>
+   * <li>"/suggest" - Suggests completions of the last word of a query as it is typed, see {@code suggest(io)}.</li>
+   * <li>"/shard/statistics" and "/shard/search" - Answer the {@link SearchCoordinator} of a distributed index,
+   * see {@link ShardProtocol}. They are only served by a server that was started as a shard, since they have no
+   * access check and should only be reachable by the coordinator.</li>
    * <li>"/favicon.ico" - Serves the favicon (browser icon).</li>
    * <li>"/code.js" - Serves JavaScript file for functionality.</li>
    * <li>"/style.css" - Serves CSS files for styling the pages.</li>
+   * <li>"/admin/reload" - Reloads the index in the background on a POST request from this machine,
+   * see {@code adminReload(io)}.</li>
+   * <li>"/admin/pages" - Adds a page to a segmented index, or deletes one, on a request from this machine,
+   * see {@code adminPages(io)}.</li>
+   * <li>"/metrics" - Serves the {@link Metrics} of the queries and the JVM in the Prometheus text format.</li>
    * </ul>
    * 
+   * The files are served from memory by {@link #serveAsset(HttpExchange, StaticAsset)}.
    * The method also prints a message to the console when the server is running, indicating the server's address and port, styled with box-drawing characters.
    */
   private void createContexts() {
-    server.createContext("/", io -> respond(io, 200, "text/html", FileReader.getFile("web/index.html")));
+    server.createContext("/", io -> {
+      if (io.getRequestURI().getPath().equals("/")) {
+        serveAsset(io, indexPage);
+      } else {
+        respond(io, 404, "text/plain", "Not found".getBytes(CHARSET));
+      }
+    });
     server.createContext("/search", io -> search(io));
-    server.createContext("/favicon.ico", io -> respond(io, 200, "image/x-icon", FileReader.getFile("web/favicon.ico")));
-    server.createContext("/code.js", io -> respond(io, 200, "application/javascript", FileReader.getFile("web/code.js")));
-    server.createContext("/style.css", io -> respond(io, 200, "text/css", FileReader.getFile("web/style.css")));
+    server.createContext("/spell", io -> spell(io));
+    server.createContext("/suggest", io -> suggest(io));
+    if (shard) {
+      server.createContext(ShardProtocol.STATISTICS_PATH, io -> shardStatistics(io));
+      server.createContext(ShardProtocol.SEARCH_PATH, io -> shardSearch(io));
+    }
+    server.createContext("/favicon.ico", io -> serveAsset(io, favicon));
+    server.createContext("/code.js", io -> serveAsset(io, code));
+    server.createContext("/style.css", io -> serveAsset(io, style));
+    server.createContext("/admin/reload", io -> adminReload(io));
+    server.createContext("/admin/pages", io -> adminPages(io));
+    server.createContext("/metrics", io -> respond(io, 200, "text/plain; version=0.0.4",
+        metrics.toPrometheus(queryCache).getBytes(CHARSET)));
     server.start();
     String msg = " WebServer running on http://localhost:" + server.getAddress().getPort() + " ";
     System.out.println("╭"+"─".repeat(msg.length())+"╮");
@@ -83,30 +322,369 @@ public class WebServer {
   /**
  * Handles HTTP requests and returns the results in JSON format.
  * <p>
- * This method processes incoming search requests by extracting the query parameter from the URI. It then uses the {@link QueryHandler} to search for matching web pages in the search engine. The results are formatted as a list of JSON objects containing the URLs and titles of the matching pages, and the response is sent back to the client in JSON format.
+ * This method processes incoming search requests by extracting the query parameter from the URI. It then uses the {@link QueryHandler} to search for matching web pages in the search engine, unless the results of the normalized query are in the {@link QueryCache}. If the URI also has a {@code k} parameter, only the k most relevant pages are retrieved. The results are streamed to the client as a list of JSON objects containing the URLs and titles of the matching pages, with chunked transfer encoding, and compressed with gzip if the client accepts it. The time of each stage of the request is recorded in the {@link Metrics} of the server.
  * </p>
  * 
  * @param io the HTTP exchange object that contains the request and allows sending the response.
  */
   void search(HttpExchange io) {
-    // Extract the query from the URI
-    String query = io.getRequestURI().getRawQuery().split("=")[1];
-    QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+    long start = System.nanoTime();
+    Metrics.Timer timer = metrics.startTimer();
+    // Extract the query, which is decoded when it is normalized, and the optional number of results, from the URI
+    String query = rawQueryParameter(io, "q");
+    String topKParameter = queryParameter(io, "k");
+    int topK = topKParameter.matches("[1-9][0-9]{0,8}") ? Integer.parseInt(topKParameter) : 0;
+    // Get the matching web pages, or only the best k of them, from the cache if the query was asked before.
+    // The request uses one version of the index throughout, and only the results of that version are cached for it
+    SearchIndex current = index.get();
+    String normalizedQuery = QueryCache.normalize(query);
+    String encodedQuery = URLEncoder.encode(normalizedQuery, CHARSET);
+    // A query has at most as many results as there are pages, whatever k the client asks for
+    int k = Math.min(topK, current.searchEngine.getPageCount());
+    timer.lap(Metrics.Stage.DECODE);
+    List<Integer> results = queryCache.get(current.cacheKey(normalizedQuery), k, () -> k > 0
+        ? current.queryHandler.getTopWebPages(encodedQuery, k, timer)
+        : current.queryHandler.getMatchingWebPages(encodedQuery, timer));
+    timer.lap(Metrics.Stage.CACHE);
+
+    // Stream the results as JSON, compressed if the client accepts it
+    try {
+      boolean gzip = acceptsGzip(io);
+      io.getResponseHeaders().set("Content-Type", String.format("application/json; charset=%s", CHARSET.name()));
+      io.getResponseHeaders().set("Vary", "Accept-Encoding");
+      if (gzip) {
+        io.getResponseHeaders().set("Content-Encoding", "gzip");
+      }
+      io.sendResponseHeaders(200, 0);
+      OutputStream body = gzip ? new GZIPOutputStream(io.getResponseBody(), 8192) : io.getResponseBody();
+      try (JsonResultWriter json = new JsonResultWriter(body)) {
+        for (int docId : results) {
+          json.writeResult(current.searchEngine.getUrl(docId), current.searchEngine.getTitle(docId));
+        }
+      }
+    } catch (IOException e) {
+      // The client has closed the connection
+    } finally {
+      timer.lap(Metrics.Stage.JSON);
+      timer.finish();
+      metrics.record(Metrics.Stage.REQUEST, System.nanoTime() - start);
+      metrics.countQuery(results.size());
+      io.close();
+    }
+  }
+
+  /**
+   * Handles a request for spelling suggestions, which the front end sends when a query has no results.
+   * <p>
+   * The {@code q} parameter is the query, like for {@link #search(HttpExchange)}. The response is a JSON array of
+   * corrected queries, best first, which is empty if every word of the query is on some page.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void spell(HttpExchange io) {
+    String query = queryParameter(io, "q");
+    List<String> suggestions = index.get().spellingSuggester.suggestQueries(query,
+        SpellingSuggester.DEFAULT_SUGGESTIONS);
+    respond(io, 200, "application/json", toJsonArray(suggestions));
+  }
+
+  /**
+   * Handles a request for completions, which the front end sends as the user types a query.
+   * <p>
+   * The {@code p} parameter is the query typed so far. The response is a JSON array of that query with its last word
+   * completed by the most common terms that start with it, which the search engine looks up in its
+   * {@link CompletionTrie}, so a request costs the same however many terms start with the word. The array is empty
+   * if the query ends with a space or no term starts with its last word.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void suggest(HttpExchange io) {
+    String typed = queryParameter(io, "p");
+    int wordStart = typed.length();
+    while (wordStart > 0 && !Character.isWhitespace(typed.charAt(wordStart - 1))
+        && typed.charAt(wordStart - 1) != '"') {
+      wordStart--;
+    }
+    List<String> suggestions = new ArrayList<>();
+    if (wordStart < typed.length()) {
+      String start = typed.substring(0, wordStart);
+      for (String completion : index.get().searchEngine.getCompletions(typed.substring(wordStart),
+          CompletionTrie.MAX_COMPLETIONS)) {
+        suggestions.add(start + completion);
+      }
+    }
+    respond(io, 200, "application/json", toJsonArray(suggestions));
+  }
+
+  /**
+   * Handles a request of a {@link SearchCoordinator} for the statistics of the words of a query in this shard.
+   * <p>
+   * The body of the POST request is the query, and the response the {@link CollectionStatistics} of its words in
+   * the current index, see {@link ShardProtocol}.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void shardStatistics(HttpExchange io) {
+    if (!io.getRequestMethod().equals("POST")) {
+      io.getResponseHeaders().set("Allow", "POST");
+      respond(io, 405, "text/plain", "Method not allowed".getBytes(CHARSET));
+      return;
+    }
+    try {
+      String query = ShardProtocol.readStatisticsRequest(io.getRequestBody().readAllBytes());
+      CollectionStatistics statistics = CollectionStatistics.of(index.get().searchEngine, query, MAX_EXPANSIONS);
+      respond(io, 200, ShardProtocol.MIME, ShardProtocol.statisticsResponse(statistics));
+    } catch (IOException e) {
+      respond(io, 400, "text/plain", ("Bad request: " + e.getMessage()).getBytes(CHARSET));
+    }
+  }
+
+  /**
+   * Handles a request of a {@link SearchCoordinator} for the best pages of this shard.
+   * <p>
+   * The body of the POST request is the query, the number of pages and the statistics of all shards. The pages
+   * are scored with those statistics by a {@link GlobalStatisticsSearchEngine} over the current index, so that
+   * their scores can be compared with those of other shards, and the response is their doc IDs, scores, URLs and
+   * titles, see {@link ShardProtocol}. The results are not cached, as the statistics change with the other shards.
+   * The number of pages is at most the number of pages of the shard, and a negative number is answered with 400.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void shardSearch(HttpExchange io) {
+    if (!io.getRequestMethod().equals("POST")) {
+      io.getResponseHeaders().set("Allow", "POST");
+      respond(io, 405, "text/plain", "Method not allowed".getBytes(CHARSET));
+      return;
+    }
+    long start = System.nanoTime();
+    ShardProtocol.SearchRequest request;
+    try {
+      request = ShardProtocol.readSearchRequest(io.getRequestBody().readAllBytes());
+    } catch (IOException e) {
+      respond(io, 400, "text/plain", ("Bad request: " + e.getMessage()).getBytes(CHARSET));
+      return;
+    }
+    if (request.k < 0) {
+      respond(io, 400, "text/plain", "Bad request: negative number of pages".getBytes(CHARSET));
+      return;
+    }
+    SearchIndex current = index.get();
+    List<Integer> docIds = List.of();
+    double[] scores = new double[0];
+    // A request for all pages is one for as many pages as the shard has, and no request is for more
+    int pageCount = current.searchEngine.getPageCount();
+    int k = request.k > 0 ? Math.min(request.k, pageCount) : pageCount;
+    if (k > 0) {
+      ReadOnlySearchEngine scored = new GlobalStatisticsSearchEngine(current.searchEngine, current.termScorer,
+          request.statistics);
+      Metrics.Timer timer = metrics.startTimer();
+      TopKCollector collector = new QueryHandler(scored, current.termScorer, metrics, MAX_EXPANSIONS)
+          .collectTopWebPages(URLEncoder.encode(request.query, CHARSET), k, timer);
+      docIds = collector.results();
+      scores = collector.resultScores();
+      timer.lap(Metrics.Stage.SORT);
+      timer.finish();
+    }
+    respond(io, 200, ShardProtocol.MIME, ShardProtocol.searchResponse(current.searchEngine, docIds, scores));
+    metrics.record(Metrics.Stage.REQUEST, System.nanoTime() - start);
+    metrics.countQuery(docIds.size());
+  }
 
-    // Get the matching web pages
-    List<String> results = queryHandler.getMatchingWebPages(query);
-    List<String> response = new ArrayList<>();
+  /**
+   * Reads a parameter of the query string of a request.
+   *
+   * @param io the HTTP exchange object that contains the request.
+   * @param name the name of the parameter.
+   * @return the decoded value of the last parameter with that name, or an empty string if there is none.
+   */
+  static String queryParameter(HttpExchange io, String name) {
+    return URLDecoder.decode(rawQueryParameter(io, name), CHARSET);
+  }
 
-    // Format the results
-    for (String page : results) {
-        String url = page.split(" - ")[0];
-        String title = page.split(" - ")[1];
-        response.add(String.format("{\"url\": \"%s\", \"title\": \"%s\"}", url, title));
+  /**
+   * Reads a parameter of the query string of a request without decoding it.
+   *
+   * @param io the HTTP exchange object that contains the request.
+   * @param name the name of the parameter.
+   * @return the URL-encoded value of the last parameter with that name, or an empty string if there is none.
+   */
+  static String rawQueryParameter(HttpExchange io, String name) {
+    String value = "";
+    String rawQuery = io.getRequestURI().getRawQuery();
+    for (String parameter : rawQuery == null ? new String[0] : rawQuery.split("&")) {
+      String[] nameAndValue = parameter.split("=", 2);
+      if (nameAndValue.length == 2 && nameAndValue[0].equals(name)) {
+        value = nameAndValue[1];
+      }
     }
+    return value;
+  }
 
-    byte[] bytes = response.toString().getBytes(CHARSET);
-    respond(io, 200, "application/json", bytes);
-}
+  /**
+   * Writes strings as a JSON array.
+   *
+   * @param strings the strings.
+   * @return the UTF-8 bytes of the array.
+   */
+  private static byte[] toJsonArray(List<String> strings) {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    try (JsonResultWriter json = new JsonResultWriter(body)) {
+      for (String string : strings) {
+        json.writeString(string);
+      }
+    } catch (IOException e) {
+      // A ByteArrayOutputStream cannot fail
+    }
+    return body.toByteArray();
+  }
+
+  /**
+   * Handles a request to reload the index from the file it was loaded from.
+   * <p>
+   * Only POST requests from the machine the server runs on are allowed. The reload runs in the background, so the
+   * response 202 Accepted is sent right away, and the new index answers queries once it is loaded.
+   * A segmented index is answered with 409 Conflict instead, as reloading it from the file would lose the pages
+   * added and deleted through {@code /admin/pages}; restart the server to start over from the file.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void adminReload(HttpExchange io) {
+    if (!io.getRemoteAddress().getAddress().isLoopbackAddress()) {
+      respond(io, 403, "text/plain", "Forbidden".getBytes(CHARSET));
+    } else if (!io.getRequestMethod().equals("POST")) {
+      io.getResponseHeaders().set("Allow", "POST");
+      respond(io, 405, "text/plain", "Method not allowed".getBytes(CHARSET));
+    } else if (isSegmented()) {
+      respond(io, 409, "text/plain",
+          "A segmented index is not reloaded, as it would lose the changes of /admin/pages".getBytes(CHARSET));
+    } else {
+      scheduleReload(filename);
+      respond(io, 202, "text/plain", ("Reloading " + filename).getBytes(CHARSET));
+    }
+  }
+
+  /**
+   * Handles a request to add a page to the index, or to delete one, which only a segmented index allows.
+   * <p>
+   * Only requests from the machine the server runs on are allowed. The body of a POST request is a page in the
+   * format of the file of pages: the {@code *PAGE:} line with the URL, the title and one word per line. It is
+   * answered with 201 Created and the doc ID of the page. A DELETE request deletes the page whose doc ID is the
+   * {@code id} parameter, and is answered with 404 if there is no such page. Queries find the change as soon
+   * as the response is sent, as results are cached by the generation of the index they come from.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   */
+  void adminPages(HttpExchange io) {
+    if (!io.getRemoteAddress().getAddress().isLoopbackAddress()) {
+      respond(io, 403, "text/plain", "Forbidden".getBytes(CHARSET));
+      return;
+    }
+    if (!isSegmented()) {
+      respond(io, 409, "text/plain",
+          "The index is not segmented, start the server with -Dsearchengine.segmented=true".getBytes(CHARSET));
+      return;
+    }
+    SegmentedSearchEngine searchEngine = (SegmentedSearchEngine) index.get().searchEngine;
+    try {
+      if (io.getRequestMethod().equals("POST")) {
+        String body = new String(io.getRequestBody().readAllBytes(), CHARSET);
+        List<String> lines = Arrays.asList(body.split("\\r?\\n"));
+        if (!PartialIndex.hasTitleAndContent(lines, 0)
+            || lines.stream().skip(1).anyMatch(line -> line.startsWith("*PAGE"))) {
+          respond(io, 400, "text/plain", "The body must be one page with a title and content".getBytes(CHARSET));
+          return;
+        }
+        respond(io, 201, "text/plain", Integer.toString(searchEngine.addPage(lines)).getBytes(CHARSET));
+      } else if (io.getRequestMethod().equals("DELETE")) {
+        String id = queryParameter(io, "id");
+        if (!id.matches("[0-9]{1,9}")) {
+          respond(io, 400, "text/plain", "The id parameter must be a doc ID".getBytes(CHARSET));
+        } else if (searchEngine.deletePage(Integer.parseInt(id))) {
+          respond(io, 200, "text/plain", ("Deleted " + id).getBytes(CHARSET));
+        } else {
+          respond(io, 404, "text/plain", "Not found".getBytes(CHARSET));
+        }
+      } else {
+        io.getResponseHeaders().set("Allow", "POST, DELETE");
+        respond(io, 405, "text/plain", "Method not allowed".getBytes(CHARSET));
+      }
+    } catch (IOException e) {
+      respond(io, 400, "text/plain", ("Bad request: " + e.getMessage()).getBytes(CHARSET));
+    }
+  }
+
+  /**
+   * Checks if the client accepts a gzip-compressed response.
+   *
+   * @param io the HTTP exchange object that contains the request.
+   * @return true if the Accept-Encoding header of the request lists gzip without a quality of 0.
+   */
+  static boolean acceptsGzip(HttpExchange io) {
+    for (String header : io.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())) {
+      for (String coding : header.split(",")) {
+        String[] nameAndParameters = coding.trim().split(";");
+        if (nameAndParameters[0].trim().equalsIgnoreCase("gzip")
+            && !coding.replace(" ", "").matches("(?i).*;q=0(\\.0*)?$")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * Sends a file of the web interface from memory.
+   * <p>
+   * The response carries the ETag and Cache-Control headers of the file, and is compressed if the client accepts gzip.
+   * If the client sends the ETag it already has in an If-None-Match header, it is answered with 304 and no content.
+   * Only GET and HEAD requests are allowed.
+   * </p>
+   *
+   * @param io the HTTP exchange object that contains the request and allows sending the response.
+   * @param asset the file to send.
+   */
+  static void serveAsset(HttpExchange io, StaticAsset asset) {
+    String method = io.getRequestMethod();
+    if (!method.equals("GET") && !method.equals("HEAD")) {
+      io.getResponseHeaders().set("Allow", "GET, HEAD");
+      respond(io, 405, "text/plain", "Method not allowed".getBytes(CHARSET));
+      return;
+    }
+    try {
+      boolean gzip = acceptsGzip(io);
+      var headers = io.getResponseHeaders();
+      headers.set("ETag", asset.getEtag(gzip));
+      headers.set("Cache-Control", asset.getCacheControl());
+      headers.set("Vary", "Accept-Encoding");
+      if (asset.isNotModified(io.getRequestHeaders().getFirst("If-None-Match"))) {
+        io.sendResponseHeaders(304, -1);
+        return;
+      }
+      headers.set("Content-Type", String.format("%s; charset=%s", asset.getMime(), CHARSET.name()));
+      if (asset.isCompressed(gzip)) {
+        headers.set("Content-Encoding", "gzip");
+      }
+      byte[] content = asset.getContent(gzip);
+      if (method.equals("HEAD")) {
+        headers.set("Content-Length", Integer.toString(content.length));
+        io.sendResponseHeaders(200, -1);
+        return;
+      }
+      io.sendResponseHeaders(200, content.length);
+      io.getResponseBody().write(content);
+    } catch (IOException e) {
+      // The client has closed the connection
+    } finally {
+      io.close();
+    }
+  }
 
 
   /**
@@ -121,11 +699,11 @@ public class WebServer {
  * @param response the response body as a byte array, which will be sent to the client.
  * @throws IOException if an error occurs while sending the response.
  */
-  void respond(HttpExchange io, int code, String mime, byte[] response) {
+  static void respond(HttpExchange io, int code, String mime, byte[] response) {
     try {
       io.getResponseHeaders()
           .set("Content-Type", String.format("%s; charset=%s", mime, CHARSET.name()));
-      io.sendResponseHeaders(200, response.length);
+      io.sendResponseHeaders(code, response.length);
       io.getResponseBody().write(response);
     } catch (Exception e) {
     } finally {
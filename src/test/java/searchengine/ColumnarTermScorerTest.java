@@ -0,0 +1,112 @@
+package searchengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnarTermScorerTest {
+    private final List<List<String>> pages = Arrays.asList(
+        Arrays.asList("*page:example.com", "java", "python", "java"),
+        Arrays.asList("*page:test.com", "python", "python", "java"),
+        Arrays.asList("*page:other.com", "rust", "go"));
+
+    /**
+     * Loads the pages into a search engine, and scores its postings with a scorer of the formula.
+     */
+    private ColumnarTermScorer load(InvertedIndexSearchEngine searchEngine, TermScorer formula) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (List<String> page : pages) {
+            lines.add(page.get(0).replace("*page:", "*PAGE:"));
+            lines.addAll(page.subList(1, page.size()));
+        }
+        Path file = Files.createTempFile("pages", ".txt");
+        try {
+            Files.write(file, lines);
+            searchEngine.loadPages(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+        ColumnarTermScorer scorer = new ColumnarTermScorer(searchEngine, formula);
+        searchEngine.scorePostings(scorer);
+        return scorer;
+    }
+
+    @Test
+    void scoresAreTheScoresOfTheFormula() throws IOException {
+        for (TermScorer formula : List.of(new TermFrequencyScorer(), new TFIDScorer())) {
+            formula.loadPages(pages);
+            ColumnarTermScorer scorer = load(new InvertedIndexSearchEngine(), formula);
+            for (String url : List.of("example.com", "test.com", "other.com", "missing.com")) {
+                for (String term : List.of("java", "python", "rust", "go", "missing")) {
+                    assertEquals((float) formula.getScore(url, term), (float) scorer.getScore(url, term), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    void getScoreByDocId() throws IOException {
+        ColumnarTermScorer scorer = load(new InvertedIndexSearchEngine(), new TermFrequencyScorer());
+        assertEquals(2.0f / 3, scorer.getScore(0, "java"));
+        assertEquals(2.0f / 3, scorer.getScore(1, "python"));
+        assertEquals(0.0, scorer.getScore(2, "java"));
+        assertEquals(0.0, scorer.getScore(0, "missing"));
+        assertEquals(2.0f / 3, scorer.getScore("EXAMPLE.com - extra data", "java"));
+    }
+
+    @Test
+    void addScoresAddsToTheScoresOfEachPage() throws IOException {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        ColumnarTermScorer scorer = load(searchEngine, new TermFrequencyScorer());
+        double[] scores = {1.0, 1.0, 1.0};
+        scorer.addScores(searchEngine, new int[] {0, 1, 2}, "java", scores);
+        scorer.addScores(searchEngine, new int[] {0, 1, 2}, "missing", scores);
+        assertEquals(1.0 + 2.0f / 3, scores[0]);
+        assertEquals(1.0 + 1.0f / 3, scores[1]);
+        assertEquals(1.0, scores[2]);
+    }
+
+    @Test
+    void scoresAreTheImpactsOfThePostings() throws IOException {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        ColumnarTermScorer scorer = load(searchEngine, new TFIDScorer());
+        // The scorer keeps no scores of its own, so the postings are scored with its formula
+        assertSame(scorer, searchEngine.impactScorer);
+        PostingList postings = searchEngine.getPostings("python");
+        for (int i = 0; i < postings.size(); i++) {
+            assertEquals(postings.impact(i), scorer.getScore(postings.docId(i), "python"));
+        }
+    }
+
+    @Test
+    void pagesThatAreNotLoadedAreFoundByTheirUrl() throws IOException {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        ColumnarTermScorer scorer = load(searchEngine, new TermFrequencyScorer());
+        scorer.loadPages(List.of());
+        assertEquals(2.0f / 3, scorer.getScore("test.com", "python"));
+        assertEquals(0.0, scorer.getScore("missing.com", "python"));
+    }
+
+    @Test
+    void queriesRankPagesLikeTheTermFrequencyScorer() throws Exception {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages("src/test/resources/test-pages.txt");
+        TermFrequencyScorer formula = new TermFrequencyScorer();
+        formula.loadPages(QueryHandlerTest.pagesOf(Files.readAllLines(Path.of("src/test/resources/test-pages.txt"))));
+        ColumnarTermScorer scorer = new ColumnarTermScorer(searchEngine, formula);
+        searchEngine.scorePostings(scorer);
+
+        for (String query : List.of("word1", "word2 OR word3", "word1 word2")) {
+            assertEquals(new QueryHandler(searchEngine, formula).getMatchingWebPages(query),
+                new QueryHandler(searchEngine, scorer).getMatchingWebPages(query));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionTrieTest {
+
+    private static CompletionTrie trie(TermDictionary terms, int... documentFrequencies) {
+        return CompletionTrie.build(terms, documentFrequencies);
+    }
+
+    @Test
+    void completionsAreTheTermsWithThePrefixOnTheMostPagesFirst() {
+        TermDictionary terms = TermDictionary.of(List.of("den", "denim", "denmark", "dennis", "dog", "york"));
+        CompletionTrie trie = trie(terms, 1, 2, 5, 2, 9, 3);
+
+        assertEquals(List.of("denmark", "denim", "dennis", "den"), trie.complete("de", 10));
+        assertEquals(List.of("denmark", "denim"), trie.complete("den", 2));
+        assertEquals(List.of("denmark"), trie.complete("denmark", 10));
+        assertEquals(List.of("dog", "denmark", "york"), trie.complete("", 3));
+        assertEquals(List.of(), trie.complete("denmarks", 10));
+        assertEquals(List.of(), trie.complete("x", 10));
+        assertEquals(List.of(), trie.complete("d", 0));
+    }
+
+    @Test
+    void aLookupReturnsAtMostTheStoredNumberOfCompletions() {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3 * CompletionTrie.MAX_COMPLETIONS; i++) {
+            words.add("word" + i);
+        }
+        CompletionTrie trie = trie(TermDictionary.of(words), new int[words.size()]);
+        assertEquals(CompletionTrie.MAX_COMPLETIONS, trie.complete("word", 100).size());
+        assertTrue(trie.nodeCount() > 1);
+    }
+
+    @Test
+    void completionsAreTheSameAsRankingEveryTermWithThePrefix() {
+        Random random = new Random(42);
+        String[] parts = {"a", "b", "c", "ø", "😀", "ab"};
+        Set<String> termSet = new TreeSet<>(TermDictionary.ORDER);
+        while (termSet.size() < 2000) {
+            StringBuilder term = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                term.append(parts[random.nextInt(parts.length)]);
+            }
+            termSet.add(term.toString());
+        }
+        TermDictionary terms = TermDictionary.of(termSet);
+        int[] documentFrequencies = new int[terms.size()];
+        for (int i = 0; i < documentFrequencies.length; i++) {
+            documentFrequencies[i] = random.nextInt(20);
+        }
+        CompletionTrie trie = trie(terms, documentFrequencies);
+        List<String> sortedTerms = new ArrayList<>(termSet);
+
+        for (String term : sortedTerms) {
+            for (int end = 0; end <= term.length(); end = term.offsetByCodePoints(end, 1)) {
+                String prefix = term.substring(0, end);
+                List<Integer> matching = new ArrayList<>();
+                for (int ordinal = 0; ordinal < sortedTerms.size(); ordinal++) {
+                    if (sortedTerms.get(ordinal).startsWith(prefix)) {
+                        matching.add(ordinal);
+                    }
+                }
+                matching.sort(Comparator.comparingInt((Integer ordinal) -> -documentFrequencies[ordinal])
+                    .thenComparingInt(ordinal -> ordinal));
+                List<String> expected = new ArrayList<>();
+                for (int ordinal : matching.subList(0, Math.min(7, matching.size()))) {
+                    expected.add(sortedTerms.get(ordinal));
+                }
+                assertEquals(expected, trie.complete(prefix, 7), prefix);
+                if (end == term.length()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Test
+    void theNumberOfFrequenciesMustBeTheNumberOfTerms() {
+        TermDictionary terms = TermDictionary.of(List.of("a", "b"));
+        assertThrows(IllegalArgumentException.class, () -> trie(terms, 1));
+        assertEquals(List.of(), CompletionTrie.EMPTY.complete("a", 5));
+    }
+}
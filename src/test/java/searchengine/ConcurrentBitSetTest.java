@@ -0,0 +1,27 @@
+package searchengine;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentBitSetTest {
+    @Test
+    void setBitsAreKeptWhenTheBitsetGrows() {
+        ConcurrentBitSet bits = new ConcurrentBitSet();
+        assertFalse(bits.get(0));
+        assertFalse(bits.get(1_000_000));
+        bits.set(3);
+        bits.set(63);
+        bits.set(64);
+        bits.set(100_000);
+        for (int index : new int[] {3, 63, 64, 100_000}) {
+            assertTrue(bits.get(index));
+        }
+        for (int index : new int[] {0, 2, 4, 62, 65, 99_999, 100_001}) {
+            assertFalse(bits.get(index));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> bits.set(-1));
+    }
+}
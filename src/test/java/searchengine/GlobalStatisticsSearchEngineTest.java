@@ -0,0 +1,97 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalStatisticsSearchEngineTest {
+
+    private static InvertedIndexSearchEngine load(List<String> lines, TermScorer scorer) throws IOException {
+        Path file = Files.createTempFile("pages", ".txt");
+        try {
+            Files.write(file, lines);
+            InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+            searchEngine.loadPages(file.toString());
+            searchEngine.scorePostings(scorer);
+            return searchEngine;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static CollectionStatistics roundTrip(CollectionStatistics statistics) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statistics.write(new DataOutputStream(bytes));
+        return CollectionStatistics.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    void postingsAreScoredWithTheStatisticsOfAllShards() throws IOException {
+        List<String> first = List.of(
+            "*PAGE:http://a.com", "A", "denmark", "york",
+            "*PAGE:http://b.com", "B", "denmark", "denmark", "dennis");
+        List<String> second = List.of(
+            "*PAGE:http://c.com", "C", "york", "york", "denim",
+            "*PAGE:http://d.com", "D", "york", "dennis", "apple",
+            "*PAGE:http://e.com", "E", "apple");
+        TermScorer tfidf = new TFIDScorer();
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        InvertedIndexSearchEngine whole = load(all, tfidf);
+        InvertedIndexSearchEngine firstShard = load(first, tfidf);
+        InvertedIndexSearchEngine secondShard = load(second, tfidf);
+
+        String query = "denmark york OR den*";
+        CollectionStatistics statistics = new CollectionStatistics();
+        statistics.add(roundTrip(CollectionStatistics.of(firstShard, query, 2)), 2);
+        statistics.add(roundTrip(CollectionStatistics.of(secondShard, query, 2)), 2);
+        assertEquals(5, statistics.getPageCount());
+        assertEquals(3, statistics.getDocumentFrequency("york"));
+        assertEquals(-1, statistics.getDocumentFrequency("missing"));
+        // The first two words with the prefix in all shards, as in one index
+        assertEquals(whole.getTermsWithPrefix("den", 2), statistics.getExpansions("den"));
+
+        int base = 0;
+        for (InvertedIndexSearchEngine shard : List.of(firstShard, secondShard)) {
+            ReadOnlySearchEngine scored = new GlobalStatisticsSearchEngine(shard, tfidf, statistics);
+            for (String word : List.of("denmark", "york", "denim")) {
+                PostingList postings = scored.getPostings(word);
+                PostingList expected = whole.getPostings(word);
+                for (int i = 0; i < postings.size(); i++) {
+                    int position = PostingIntersection.gallop(expected.docIds(), 0, base + postings.docId(i));
+                    assertEquals(expected.impact(position), postings.impact(i), word);
+                }
+                if (postings.size() > 0) {
+                    // The postings of the shard itself are not changed
+                    assertNotSame(shard.getPostings(word), postings);
+                }
+            }
+            assertEquals(statistics.getExpansions("den"), scored.getTermsWithPrefix("DEN", 10));
+            assertEquals(whole.getDocumentFrequency("york"), scored.getDocumentFrequency("york"));
+            // Words that are not in the statistics keep the scores of the shard
+            assertSame(shard.getPostings("apple"), scored.getPostings("apple"));
+            base += shard.getPageCount();
+        }
+    }
+
+    @Test
+    void theViewOnlyReadsTheShard() throws IOException {
+        InvertedIndexSearchEngine shard = load(List.of("*PAGE:http://a.com", "A", "word"), new TermFrequencyScorer());
+        ReadOnlySearchEngine scored = new GlobalStatisticsSearchEngine(shard, new TermFrequencyScorer(),
+            new CollectionStatistics());
+        // The view has no methods that load pages or score postings
+        assertFalse(scored instanceof SearchEngine);
+        assertEquals("http://a.com", scored.getUrl(0));
+        assertEquals(shard.getPageLength(0), scored.getPageLength(0));
+    }
+}
@@ -0,0 +1,234 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSnapshotTest {
+
+    /**
+     * Writes a file with random pages, with some terms that are not ASCII.
+     */
+    private Path writeCorpus(long seed) throws IOException {
+        Random random = new Random(seed);
+        String[] words = {"word", "Wort", "mot", "ord", "słowo", "λέξη", "😀"};
+        StringBuilder text = new StringBuilder();
+        for (int page = 0; page < 300; page++) {
+            text.append("*PAGE:http://page").append(page % 250).append(".com\n");
+            text.append("Title ").append(page).append("\n");
+            int length = 1 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                text.append(words[random.nextInt(words.length)]).append(random.nextInt(30)).append("\n");
+            }
+        }
+        Path file = Files.createTempFile("corpus", ".txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void snapshotAnswersLikeTheIndexItWasWrittenFrom() throws IOException {
+        Path file = writeCorpus(7);
+        InvertedIndexSearchEngine expected = new InvertedIndexSearchEngine();
+        expected.loadPages(file.toString());
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(expected, snapshotFile);
+
+        SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+        snapshot.loadPages(snapshotFile.toString());
+
+        assertEquals(expected.getPageCount(), snapshot.getPageCount());
+        for (int docId = 0; docId < expected.getPageCount(); docId++) {
+            assertEquals(expected.getUrl(docId), snapshot.getUrl(docId));
+            assertEquals(expected.getTitle(docId), snapshot.getTitle(docId));
+            assertEquals(expected.pageLengths.get(docId), snapshot.getPageLength(docId));
+        }
+        for (String term : expected.terms) {
+            PostingList expectedPostings = expected.getPostings(term);
+            PostingList postings = snapshot.getPostings(term.toUpperCase());
+            assertArrayEquals(expectedPostings.docIds(), postings.docIds());
+            for (int i = 0; i < postings.size(); i++) {
+                assertEquals(expectedPostings.frequency(i), postings.frequency(i));
+                assertEquals(expectedPostings.impact(i), postings.impact(i));
+            }
+            assertEquals(expectedPostings.maxImpact(), postings.maxImpact());
+            for (int block = 0; block < postings.blockCount(); block++) {
+                assertEquals(expectedPostings.blockMaxImpact(block), postings.blockMaxImpact(block));
+            }
+            // The doc IDs of a term that was just looked up are not decoded again
+            assertSame(postings.docIds(), snapshot.search(term));
+            String prefix = term.substring(0, Math.min(2, term.length()));
+            assertEquals(expected.getTermsWithPrefix(prefix, 5), snapshot.getTermsWithPrefix(prefix, 5));
+            assertEquals(expected.getCompletions(prefix, 5), snapshot.getCompletions(prefix, 5));
+        }
+        assertEquals(0, snapshot.search("missing").length);
+        assertEquals(0, snapshot.search("").length);
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void getDocIdFindsTheFirstPageWithAUrl() throws IOException {
+        Path file = writeCorpus(11);
+        InvertedIndexSearchEngine expected = new InvertedIndexSearchEngine();
+        expected.loadPages(file.toString());
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(expected, snapshotFile);
+
+        SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+        snapshot.loadPages(snapshotFile.toString());
+
+        for (int docId = 0; docId < expected.getPageCount(); docId++) {
+            assertEquals(expected.urls.indexOf(expected.getUrl(docId)), snapshot.getDocId(expected.getUrl(docId)));
+        }
+        assertEquals(-1, snapshot.getDocId("http://missing.com"));
+        assertEquals(expected.getDocId("http://page3.com"), snapshot.getDocId("HTTP://Page3.com"));
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void postingScorerGivesTheScoresOfTheFormula() throws IOException {
+        Path file = writeCorpus(13);
+        InvertedIndexSearchEngine expected = new InvertedIndexSearchEngine();
+        expected.loadPages(file.toString());
+        TermScorer tfidf = new TFIDScorer();
+        expected.scorePostings(tfidf);
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(expected, snapshotFile);
+
+        SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+        snapshot.loadPages(snapshotFile.toString());
+        PostingScorer scorer = new PostingScorer(snapshot, tfidf);
+        snapshot.scorePostings(scorer);
+
+        PostingList postings = snapshot.getPostings("word3");
+        PostingList expectedPostings = expected.getPostings("word3");
+        for (int i = 0; i < postings.size(); i++) {
+            String url = snapshot.getUrl(postings.docId(i));
+            assertEquals(expectedPostings.impact(i), postings.impact(i));
+            if (snapshot.getDocId(url) == postings.docId(i)) {
+                assertEquals(expectedPostings.impact(i), (float) scorer.getScore(url, "word3"));
+            }
+        }
+        assertEquals(0.0, scorer.getScore("http://missing.com", "word3"));
+        assertEquals(0.0, scorer.getScore(snapshot.getUrl(0), "missing"));
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void postingScorerReadsTheImpactsOfTheSearchEngineItIsGiven() throws IOException {
+        Path file = writeCorpus(17);
+        InvertedIndexSearchEngine other = new InvertedIndexSearchEngine();
+        other.loadPages(file.toString());
+        other.scorePostings(new TermFrequencyScorer());
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(other, snapshotFile);
+
+        SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+        snapshot.loadPages(snapshotFile.toString());
+        TermScorer scorer = new PostingScorer(snapshot, new TFIDScorer());
+        snapshot.scorePostings(scorer);
+
+        // The other engine keeps the term frequency impacts, which the scorer reads instead of those of the snapshot
+        PostingList postings = other.getPostings("word3");
+        double[] scores = new double[postings.size()];
+        scorer.addScores(other, postings.docIds(), "word3", scores);
+        for (int i = 0; i < scores.length; i++) {
+            assertEquals(postings.impact(i), scores[i]);
+            assertNotEquals(snapshot.getPostings("word3").impact(i), (float) scores[i]);
+        }
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void storedImpactsAreReadWithoutRescoring() throws IOException {
+        Path file = writeCorpus(19);
+        InvertedIndexSearchEngine expected = new InvertedIndexSearchEngine();
+        expected.loadPages(file.toString());
+        TermScorer tfidf = new ColumnarTermScorer(expected, new TFIDScorer());
+        expected.scorePostings(tfidf);
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(expected, snapshotFile);
+
+        SnapshotSearchEngine snapshot = new SnapshotSearchEngine();
+        snapshot.loadPages(snapshotFile.toString());
+        assertEquals(TFIDScorer.class.getName(), snapshot.getImpactFormula());
+        assertEquals(snapshot.getImpactFormula(), IndexSnapshot.formulaName(new PostingScorer(snapshot, tfidf)));
+
+        // Every other page, scored by skipping through the encoded doc IDs, gets its stored impact
+        TermScorer scorer = new PostingScorer(snapshot, tfidf);
+        for (String term : expected.terms) {
+            PostingList postings = expected.getPostings(term);
+            int[] pages = new int[(expected.getPageCount() + 1) / 2];
+            for (int i = 0; i < pages.length; i++) {
+                pages[i] = 2 * i;
+            }
+            double[] scores = new double[pages.length];
+            scorer.addScores(snapshot, pages, term, scores);
+            for (int i = 0; i < pages.length; i++) {
+                int index = Arrays.binarySearch(postings.docIds(), pages[i]);
+                assertEquals(index < 0 ? 0.0 : postings.impact(index), scores[i], term);
+            }
+            assertArrayEquals(postings.docIds(), snapshot.search(term));
+        }
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void loadPagesRejectsAnotherVersion() throws IOException {
+        Path file = writeCorpus(17);
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(file.toString());
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        IndexSnapshot.write(searchEngine, snapshotFile);
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, IndexSnapshot.VERSION + 1), Integer.BYTES);
+        }
+        assertThrows(IOException.class, () -> new SnapshotSearchEngine().loadPages(snapshotFile.toString()));
+
+        Files.write(snapshotFile, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> new SnapshotSearchEngine().loadPages(snapshotFile.toString()));
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+
+    @Test
+    void isUpToDateComparesModificationTimes() throws IOException {
+        Path file = writeCorpus(19);
+        Path snapshotFile = IndexSnapshot.snapshotPath(file.toString());
+        assertFalse(IndexSnapshot.isUpToDate(snapshotFile, file));
+
+        Files.write(snapshotFile, new byte[0]);
+        Files.setLastModifiedTime(snapshotFile, FileTime.fromMillis(
+            Files.getLastModifiedTime(file).toMillis() + 1000));
+        assertTrue(IndexSnapshot.isUpToDate(snapshotFile, file));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(
+            Files.getLastModifiedTime(snapshotFile).toMillis() + 1000));
+        assertFalse(IndexSnapshot.isUpToDate(snapshotFile, file));
+
+        Files.delete(snapshotFile);
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,56 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexWatcherTest {
+
+    private static void awaitVersion(WebServer server, long version) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (server.index.get().version < version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(version, server.index.get().version);
+    }
+
+    @Test
+    void changedFilesAreReloaded() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("watched");
+        Path pages = directory.resolve("pages.txt");
+        Path otherPages = directory.resolve("other.txt");
+        Path config = directory.resolve("config.txt");
+        Files.write(pages, List.of("*PAGE:http://first.com", "First", "word"));
+        Files.write(otherPages, List.of("*PAGE:http://other.com", "Other", "word"));
+        Files.writeString(config, pages.toString());
+
+        WebServer server = WebServerTest.startServer(pages.toString());
+        IndexWatcher watcher = IndexWatcher.start(server, config);
+        try {
+            // A change of the file of pages reloads it
+            Files.write(pages, List.of("*PAGE:http://second.com", "Second", "word"));
+            awaitVersion(server, 1);
+            assertEquals("http://second.com", server.index.get().searchEngine.getUrl(0));
+
+            // A change of the configuration file loads the file it names
+            Files.writeString(config, otherPages.toString());
+            awaitVersion(server, 2);
+            assertEquals("http://other.com", server.index.get().searchEngine.getUrl(0));
+            assertEquals(otherPages.toString(), server.getFilename());
+        } finally {
+            watcher.close();
+            server.server.stop(0);
+            try (var files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntHashMapTest {
+
+    @Test
+    void behavesLikeAHashMap() {
+        Random random = new Random(5);
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500) - 100;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else if (operation == 1) {
+                map.remove(key);
+                expected.remove(key);
+            }
+            assertEquals((int) expected.getOrDefault(key, -1), map.get(key, -1));
+            assertEquals(expected.size(), map.size());
+        }
+        for (int key = -100; key < 400; key++) {
+            assertEquals((int) expected.getOrDefault(key, -1), map.get(key, -1));
+        }
+    }
+
+    @Test
+    void rejectsTheReservedKey() {
+        assertThrows(IllegalArgumentException.class, () -> new IntIntHashMap().put(Integer.MIN_VALUE, 1));
+    }
+}
@@ -6,7 +6,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.ArrayList;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class InvertedIndexSearchEngineTest {
     @Test
@@ -24,10 +26,12 @@ public class InvertedIndexSearchEngineTest {
         ));
         searchEngine.loadPages(tempFile.toString());
 
-        ArrayList<String> results = searchEngine.search("test");
-        assertEquals(2, results.size());
-        assertTrue(results.contains("doc1 - title1"));
-        assertTrue(results.contains("doc2 - title2"));
+        int[] results = searchEngine.search("test");
+        assertArrayEquals(new int[] {0, 1}, results);
+        assertEquals("doc1", searchEngine.getUrl(results[0]));
+        assertEquals("title1", searchEngine.getTitle(results[0]));
+        assertEquals("doc2", searchEngine.getUrl(results[1]));
+        assertEquals("title2", searchEngine.getTitle(results[1]));
 
         
         Files.delete(tempFile);
@@ -48,10 +52,12 @@ public class InvertedIndexSearchEngineTest {
         ));
         searchEngine.loadPages(tempFile.toString());
 
-        ArrayList<String> results = searchEngine.search("TEst");
-        assertEquals(2, results.size());
-        assertTrue(results.contains("doc1 - title1"));
-        assertTrue(results.contains("doc2 - title2"));
+        int[] results = searchEngine.search("TEst");
+        assertArrayEquals(new int[] {0, 1}, results);
+        assertEquals("doc1", searchEngine.getUrl(results[0]));
+        assertEquals("title1", searchEngine.getTitle(results[0]));
+        assertEquals("doc2", searchEngine.getUrl(results[1]));
+        assertEquals("title2", searchEngine.getTitle(results[1]));
 
         
         Files.delete(tempFile);
@@ -73,9 +79,9 @@ public class InvertedIndexSearchEngineTest {
 
         searchEngine.loadPages(tempFile.toString());
 
-        ArrayList<String> results = searchEngine.search("nothing");
+        int[] results = searchEngine.search("nothing");
 
-        assertEquals(0, results.size());
+        assertEquals(0, results.length);
 
         Files.delete(tempFile);
     }
@@ -86,9 +92,9 @@ public class InvertedIndexSearchEngineTest {
 
         Path tempFile = Files.createTempFile("test", ".txt");
         searchEngine.loadPages(tempFile.toString());
-        ArrayList<String> results = searchEngine.search("test");
+        int[] results = searchEngine.search("test");
 
-        assertEquals(0, results.size());
+        assertEquals(0, results.length);
 
         Files.delete(tempFile);
 
@@ -105,12 +111,67 @@ public class InvertedIndexSearchEngineTest {
 
         searchEngine.loadPages(tempFile.toString());
 
-        List<List<String>> pages = searchEngine.getPages();
-        assertEquals(1, pages.size());
-        assertTrue(pages.get(0).contains("*page:doc1"));
+        // The page is in the document table, but its words are not kept once they are indexed
+        assertEquals(1, searchEngine.getPageCount());
+        assertEquals("doc1", searchEngine.getUrl(0));
+        assertEquals(List.of(), searchEngine.getPages());
         Files.delete(tempFile);
     }
 
+    @Test
+    public void testRepeatedWordIsIndexedOncePerPage() throws IOException {
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, List.of(
+            "*PAGE:doc1",
+            "Title1",
+            "test",
+            "Test",
+            "test",
+            "*PAGE:doc2",
+            "Title2",
+            "other"
+        ));
+        searchEngine.loadPages(tempFile.toString());
+
+        assertArrayEquals(new int[] {0}, searchEngine.search("test"));
+        assertEquals(2, searchEngine.getPageCount());
+
+        Files.delete(tempFile);
+    }
+
+    @Test
+    public void testPostingsAreScoredOutsideTheCommonPool() throws IOException {
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, List.of("*PAGE:doc1", "Title1", "test", "*PAGE:doc2", "Title2", "other"));
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(tempFile.toString(), 2);
+        Files.delete(tempFile);
+
+        // Scoring a new index must not take the threads that large queries use
+        List<ForkJoinPool> pools = new CopyOnWriteArrayList<>();
+        searchEngine.scorePostings(new TermScorer() {
+            public double getScore(String url, String searchTerm) {
+                return 0.0;
+            }
+
+            public double getImpact(int frequency, int pageLength, int documentFrequency, int pageCount) {
+                pools.add(ForkJoinTask.getPool());
+                return 1.0;
+            }
+
+            public void loadPages(List<List<String>> pages) {
+            }
+        });
+        assertFalse(pools.isEmpty());
+        for (ForkJoinPool pool : pools) {
+            assertNotNull(pool);
+            assertNotSame(ForkJoinPool.commonPool(), pool);
+        }
+        assertEquals(1.0f, searchEngine.getPostings("test").impact(0));
+    }
+
     @Test
     public void testHasTitleAndMissingContent() {
         InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
@@ -0,0 +1,69 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonResultWriterTest {
+
+    private String write(String... urlsAndTitles) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonResultWriter json = new JsonResultWriter(out)) {
+            for (int i = 0; i < urlsAndTitles.length; i += 2) {
+                json.writeResult(urlsAndTitles[i], urlsAndTitles[i + 1]);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesTheFormatOfListToString() throws IOException {
+        assertEquals("[]", write());
+        List<String> expected = new ArrayList<>();
+        expected.add("{\"url\": \"http://a.com\", \"title\": \"a\"}");
+        expected.add("{\"url\": \"http://b.com\", \"title\": \"b\"}");
+        assertEquals(expected.toString(), write("http://a.com", "a", "http://b.com", "b"));
+    }
+
+    @Test
+    void writesStringsAsAnArrayOfStrings() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonResultWriter json = new JsonResultWriter(out)) {
+            json.writeString("denmark");
+            json.writeString("\"new york\"");
+        }
+        assertEquals("[\"denmark\", \"\\\"new york\\\"\"]", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() throws IOException {
+        assertEquals("[{\"url\": \"u\", \"title\": \"say \\\"hi\\\" \\\\ \\n\\t\\u0001\"}]",
+            write("u", "say \"hi\" \\ \n\t\u0001"));
+    }
+
+    @Test
+    void encodesNonAsciiAsUtf8() throws IOException {
+        String title = "ø λ 中文 😀";
+        assertEquals("[{\"url\": \"u\", \"title\": \"" + title + "\"}]", write("u", title));
+        assertEquals("[{\"url\": \"u\", \"title\": \"?\"}]", write("u", "\uD800"));
+    }
+
+    @Test
+    void writesResultsLargerThanTheBuffer() throws IOException {
+        List<String> expected = new ArrayList<>();
+        String[] urlsAndTitles = new String[2000];
+        for (int i = 0; i < 1000; i++) {
+            String title = "title " + i + " é😀".repeat(i % 7);
+            urlsAndTitles[2 * i] = "http://page" + i + ".com";
+            urlsAndTitles[2 * i + 1] = title;
+            expected.add(String.format("{\"url\": \"%s\", \"title\": \"%s\"}", urlsAndTitles[2 * i], title));
+        }
+        assertEquals(expected.toString(), write(urlsAndTitles));
+    }
+}
@@ -0,0 +1,61 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithinThreePercent() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(value);
+            long highest = LatencyHistogram.highestValue(bucket);
+            assertTrue(highest >= value, value + " is above its bucket");
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < value, value + " is below its bucket");
+            assertTrue(highest - value <= value / LatencyHistogram.SUB_BUCKETS, value + " has a too wide bucket");
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesAreCloseToTheRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500500000L, histogram.sum());
+        assertEquals(500000, histogram.percentile(0.5), 500000 * 0.04);
+        assertEquals(990000, histogram.percentile(0.99), 990000 * 0.04);
+        assertEquals(1000000, histogram.percentile(1.0), 1000000 * 0.04);
+        assertTrue(histogram.percentile(0) <= 1000 * 1.04);
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i % 100);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400000, histogram.count());
+        assertEquals(99, histogram.percentile(1.0));
+    }
+}
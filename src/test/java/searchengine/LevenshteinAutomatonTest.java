@@ -0,0 +1,125 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevenshteinAutomatonTest {
+
+    private static int levenshtein(String a, String b) {
+        int[] x = a.codePoints().toArray();
+        int[] y = b.codePoints().toArray();
+        int[][] table = new int[x.length + 1][y.length + 1];
+        for (int i = 0; i <= x.length; i++) {
+            for (int j = 0; j <= y.length; j++) {
+                if (i == 0 || j == 0) {
+                    table[i][j] = i + j;
+                } else {
+                    table[i][j] = Math.min(table[i - 1][j - 1] + (x[i - 1] == y[j - 1] ? 0 : 1),
+                        Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+                }
+            }
+        }
+        return table[x.length][y.length];
+    }
+
+    private Set<String> randomTerms(long seed, int count) {
+        Random random = new Random(seed);
+        String[] parts = {"a", "b", "c", "d", "ø", "😀", "ab", ""};
+        Set<String> terms = new TreeSet<>(TermDictionary.ORDER);
+        while (terms.size() < count) {
+            StringBuilder term = new StringBuilder();
+            int length = random.nextInt(7);
+            for (int i = 0; i < length; i++) {
+                term.append(parts[random.nextInt(parts.length)]);
+            }
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    @Test
+    void distanceIsTheLevenshteinDistanceUpToTheLimit() {
+        LevenshteinAutomaton automaton = new LevenshteinAutomaton("denmark", 2);
+        assertEquals(0, automaton.distance("denmark"));
+        assertEquals(1, automaton.distance("denmar"));
+        assertEquals(1, automaton.distance("denmarks"));
+        assertEquals(1, automaton.distance("denmerk"));
+        assertEquals(2, automaton.distance("denmrak"));
+        assertEquals(3, automaton.distance("sweden"));
+        assertEquals(1, new LevenshteinAutomaton("ø😀", 1).distance("😀"));
+    }
+
+    @Test
+    void rejectsDistancesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new LevenshteinAutomaton("word", 3));
+        assertThrows(IllegalArgumentException.class, () -> new LevenshteinAutomaton("word", -1));
+    }
+
+    @Test
+    void termsWithinFindsTheSameTermsAsComparingEveryTerm() {
+        Set<String> terms = randomTerms(7, 3000);
+        TermDictionary dictionary = TermDictionary.of(terms);
+        for (String word : List.of("", "a", "abc", "dab", "ø😀a", "bbbbbb", "abcdabcd")) {
+            for (int maxEdits = 0; maxEdits <= 2; maxEdits++) {
+                List<String> expected = new ArrayList<>();
+                for (String term : terms) {
+                    if (levenshtein(word, term) <= maxEdits) {
+                        expected.add(term);
+                    }
+                }
+                assertEquals(expected, dictionary.termsWithin(new LevenshteinAutomaton(word, maxEdits)),
+                    word + "~" + maxEdits);
+            }
+        }
+        assertEquals(List.of(), TermDictionary.EMPTY.termsWithin(new LevenshteinAutomaton("a", 2)));
+    }
+
+    @Test
+    void termsWithinReadsAtMostTheMaximumNumberOfTerms() {
+        List<String> terms = new ArrayList<>();
+        for (char first = 'a'; first <= 'z'; first++) {
+            for (char second = 'a'; second <= 'z'; second++) {
+                for (char third = 'a'; third <= 'z'; third++) {
+                    terms.add("" + first + second + third);
+                }
+            }
+        }
+        // Every prefix of two letters is within two edits of a word of one letter, so no term is skipped
+        List<String> expected = new ArrayList<>();
+        for (String term : terms) {
+            if (levenshtein("q", term) <= 2) {
+                expected.add(term);
+            }
+        }
+        List<String> found = TermDictionary.of(terms).termsWithin(new LevenshteinAutomaton("q", 2));
+        assertTrue(found.size() < expected.size());
+        assertEquals(expected.subList(0, found.size()), found);
+    }
+
+    @Test
+    void termsWithinOnlyFindsTermsWithThePrefix() {
+        Set<String> terms = randomTerms(8, 3000);
+        TermDictionary dictionary = TermDictionary.of(terms);
+        for (String word : List.of("abc", "dab", "ø😀a", "bbbbbb")) {
+            for (int prefixLength = 1; prefixLength <= 3; prefixLength++) {
+                LevenshteinAutomaton automaton = new LevenshteinAutomaton(word, 2, prefixLength);
+                List<String> expected = new ArrayList<>();
+                for (String term : terms) {
+                    if (term.startsWith(automaton.prefix()) && levenshtein(word, term) <= 2) {
+                        expected.add(term);
+                    }
+                }
+                assertEquals(expected, dictionary.termsWithin(automaton), word + " " + prefixLength);
+            }
+        }
+        assertEquals(3, new LevenshteinAutomaton("denmark", 2, 1).distance("sweden"));
+        assertEquals(3, new LevenshteinAutomaton("denmark", 2, 1).distance("xenmark"));
+    }
+}
@@ -0,0 +1,82 @@
+package searchengine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.TestInstance.Lifecycle;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@TestInstance(Lifecycle.PER_CLASS)
+class LoadGeneratorTest {
+    WebServer server = null;
+    String url;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        server = WebServerTest.startServer("src/test/resources/test-pages.txt");
+        url = "http://localhost:" + server.server.getAddress().getPort();
+    }
+
+    @AfterAll
+    void tearDown() {
+        server.server.stop(0);
+        server = null;
+    }
+
+    @Test
+    void closedLoopAnswersEveryQuery() throws Exception {
+        LoadGenerator generator = new LoadGenerator(url, List.of("word1", "", "word2 OR word3", "nothing"), 10,
+            Duration.ofSeconds(5));
+        LoadGenerator.Report report = generator.runClosedLoop(2, Duration.ofMillis(500));
+        assertTrue(report.requests() > 0);
+        assertEquals(0, report.errors());
+        assertTrue(report.throughput() > 0);
+        assertTrue(report.percentile(0.5) <= report.percentile(0.99));
+        assertTrue(report.percentile(0.99) <= report.percentile(0.999));
+    }
+
+    @Test
+    void openLoopSendsAtTheRate() throws Exception {
+        LoadGenerator generator = new LoadGenerator(url, List.of("word1"), 0, Duration.ofSeconds(5));
+        LoadGenerator.Report report = generator.runOpenLoop(100, Duration.ofSeconds(1));
+        assertEquals(100, report.requests());
+        assertEquals(0, report.errors());
+    }
+
+    @Test
+    void countsErrors() throws Exception {
+        // Nothing listens on port 1, so every query fails
+        LoadGenerator generator = new LoadGenerator("http://localhost:1", List.of("word1"), 0, Duration.ofSeconds(1));
+        LoadGenerator.Report report = generator.runClosedLoop(1, Duration.ofMillis(200));
+        assertTrue(report.requests() > 0);
+        assertEquals(report.requests(), report.errors());
+    }
+
+    @Test
+    void queriesThatTimeOutAreFailedRequests() throws Exception {
+        // The server accepts connections but never answers, so every query times out
+        try (ServerSocket silent = new ServerSocket(0)) {
+            LoadGenerator generator = new LoadGenerator("http://localhost:" + silent.getLocalPort(), List.of("word1"),
+                0, Duration.ofMillis(300));
+            LoadGenerator.Report report = generator.runOpenLoop(50, Duration.ofMillis(200));
+            assertEquals(10, report.requests());
+            assertEquals(10, report.errors());
+            assertEquals(0.0, report.throughput());
+            assertTrue(report.percentile(1.0) >= Duration.ofMillis(300).toNanos());
+        }
+    }
+
+    @Test
+    void rejectsEmptyLog() {
+        assertThrows(IllegalArgumentException.class, () -> new LoadGenerator(url, List.of(" ", ""), 0,
+            Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,76 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void timerRecordsEachStageOncePerQuery() {
+        Metrics metrics = new Metrics();
+        Metrics.Timer timer = metrics.startTimer();
+        timer.lap(Metrics.Stage.LOOKUP);
+        timer.lap(Metrics.Stage.SCORE);
+        timer.lap(Metrics.Stage.LOOKUP);
+        timer.finish();
+
+        assertEquals(1, metrics.histogram(Metrics.Stage.LOOKUP).count());
+        assertEquals(1, metrics.histogram(Metrics.Stage.SCORE).count());
+        assertEquals(0, metrics.histogram(Metrics.Stage.JSON).count());
+    }
+
+    @Test
+    void queryHandlerRecordsTheStagesOfItsQueries() throws IOException {
+        Path file = Files.createTempFile("pages", ".txt");
+        try {
+            Files.write(file, List.of("*PAGE:http://a.com", "A", "apple", "pear", "*PAGE:http://b.com", "B", "apple"));
+            InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+            searchEngine.loadPages(file.toString());
+            TermScorer termScorer = new ColumnarTermScorer(searchEngine);
+            Metrics metrics = new Metrics();
+            QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer, metrics);
+
+            queryHandler.getMatchingWebPages("apple%20pear%20OR%20apple");
+            for (Metrics.Stage stage : List.of(Metrics.Stage.DECODE, Metrics.Stage.PARSE, Metrics.Stage.LOOKUP,
+                    Metrics.Stage.INTERSECT, Metrics.Stage.SCORE, Metrics.Stage.SORT)) {
+                assertEquals(1, metrics.histogram(stage).count(), stage.name());
+            }
+            queryHandler.getTopWebPages("apple", 1);
+            assertEquals(2, metrics.histogram(Metrics.Stage.LOOKUP).count());
+            assertEquals(0, metrics.histogram(Metrics.Stage.REQUEST).count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void prometheusTextHasStagesCountersAndJvmStats() {
+        Metrics metrics = new Metrics();
+        metrics.record(Metrics.Stage.REQUEST, 2_000_000);
+        metrics.countQuery(3);
+        QueryCache queryCache = new QueryCache(16);
+        queryCache.get("word", 0, List::of);
+        queryCache.get("word", 0, List::of);
+
+        String text = metrics.toPrometheus(queryCache);
+        assertTrue(text.contains("# TYPE searchengine_stage_seconds summary\n"));
+        assertTrue(text.contains("searchengine_stage_seconds_count{stage=\"request\"} 1\n"));
+        assertTrue(text.contains("searchengine_stage_seconds_sum{stage=\"request\"} 0.002\n"));
+        assertTrue(text.contains("searchengine_stage_seconds{stage=\"request\",quantile=\"0.99\"} 0.00"));
+        assertTrue(text.contains("searchengine_queries_total 1\n"));
+        assertTrue(text.contains("searchengine_results_total 3\n"));
+        assertTrue(text.contains("searchengine_query_cache_hits_total 1\n"));
+        assertTrue(text.contains("searchengine_query_cache_misses_total 1\n"));
+        assertTrue(text.contains("jvm_memory_heap_used_bytes "));
+        assertTrue(text.contains("jvm_gc_collections_total{gc=\""));
+        for (String line : text.split("\n")) {
+            assertTrue(line.startsWith("#") || line.matches("[a-z_]+(\\{[^}]*\\})? -?[0-9.E-]+"), line);
+        }
+    }
+}
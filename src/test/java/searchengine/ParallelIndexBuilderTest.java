@@ -0,0 +1,111 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelIndexBuilderTest {
+
+    /**
+     * Writes a file with random pages, some of them without content, and mixed line endings.
+     */
+    private Path writeCorpus(long seed) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder("text before the first page\n");
+        for (int page = 0; page < 500; page++) {
+            String lineEnd = random.nextInt(5) == 0 ? "\r\n" : "\n";
+            text.append("*PAGE:http://page").append(page).append(".com").append(lineEnd);
+            text.append("Title ").append(page).append(lineEnd);
+            int length = random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                text.append(random.nextBoolean() ? "Word" : "word").append(random.nextInt(50)).append(lineEnd);
+            }
+        }
+        text.append("*PAGE:http://last.com\n");
+        Path file = Files.createTempFile("corpus", ".txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    void buildGivesSameIndexForAnyNumberOfRanges() throws IOException {
+        Path file = writeCorpus(3);
+        PartialIndex expected = ParallelIndexBuilder.build(file, 1, 1);
+
+        for (int ranges : new int[] {2, 7, 64}) {
+            PartialIndex index = ParallelIndexBuilder.build(file, 4, ranges);
+
+            assertEquals(expected.urls, index.urls);
+            assertEquals(expected.titles, index.titles);
+            assertArrayEquals(expected.pageLengths.toArray(), index.pageLengths.toArray());
+            assertEquals(expected.postings.keySet(), index.postings.keySet());
+            for (String term : expected.postings.keySet()) {
+                PostingList expectedPostings = expected.postings.get(term).build();
+                PostingList postings = index.postings.get(term).build();
+                assertArrayEquals(expectedPostings.docIds(), postings.docIds());
+                for (int i = 0; i < postings.size(); i++) {
+                    assertEquals(expectedPostings.frequency(i), postings.frequency(i));
+                }
+            }
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    void positionsAreTheSameForAnyNumberOfRanges() throws IOException {
+        Path file = writeCorpus(3);
+        PartialIndex expected = ParallelIndexBuilder.build(file, 1, 1, true);
+
+        for (int ranges : new int[] {2, 7}) {
+            PartialIndex index = ParallelIndexBuilder.build(file, 4, ranges, true);
+            for (String term : expected.postings.keySet()) {
+                PostingList expectedPostings = expected.postings.get(term).build();
+                PostingList postings = index.postings.get(term).build();
+                assertTrue(postings.hasPositions());
+                for (int i = 0; i < postings.size(); i++) {
+                    assertArrayEquals(expectedPostings.positions(i), postings.positions(i));
+                    assertEquals(postings.frequency(i), postings.positions(i).length);
+                }
+            }
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    void lastPageWithoutContentIsKept() throws IOException {
+        Path file = writeCorpus(5);
+
+        PartialIndex index = ParallelIndexBuilder.build(file, 2, 16);
+
+        assertEquals("http://last.com", index.urls.get(index.pageCount() - 1));
+        Files.delete(file);
+    }
+
+    @Test
+    void splitAtPagesStartsRangesAtPageLines() throws IOException {
+        Path file = writeCorpus(11);
+        byte[] bytes = Files.readAllBytes(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] boundaries = ParallelIndexBuilder.splitAtPages(channel, 10);
+
+            assertEquals(0, boundaries[0]);
+            assertEquals(bytes.length, boundaries[boundaries.length - 1]);
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                assertTrue(boundaries[i] > boundaries[i - 1]);
+                String start = new String(bytes, (int) boundaries[i], 5, StandardCharsets.US_ASCII);
+                assertEquals("*PAGE", start);
+                assertTrue(bytes[(int) boundaries[i] - 1] == '\n');
+            }
+        }
+        Files.delete(file);
+    }
+}
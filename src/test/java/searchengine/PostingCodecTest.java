@@ -0,0 +1,121 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingCodecTest {
+    private static final PostingCodec[] CODECS = {PostingCodec.RAW, PostingCodec.VAR_INT, PostingCodec.BLOCK_PACKED};
+
+    /**
+     * Creates sorted doc IDs with random gaps, with a few very large gaps.
+     */
+    private int[] randomDocIds(long seed, int size, int averageGap) {
+        Random random = new Random(seed);
+        int[] docIds = new int[size];
+        int docId = random.nextInt(averageGap);
+        for (int i = 0; i < size; i++) {
+            docIds[i] = docId;
+            docId += 1 + (random.nextInt(50) == 0 ? random.nextInt(1 << 20) : random.nextInt(2 * averageGap));
+        }
+        return docIds;
+    }
+
+    private PostingIterator iterator(PostingCodec codec, int[] docIds) {
+        return codec.iterator(codec.encodeDocIds(docIds), 0, docIds.length);
+    }
+
+    @Test
+    void nextDocReturnsAllDocIds() {
+        for (int size : new int[] {0, 1, 127, 128, 129, 1000}) {
+            int[] docIds = randomDocIds(size, size, 10);
+            for (PostingCodec codec : CODECS) {
+                PostingIterator iterator = iterator(codec, docIds);
+                assertEquals(-1, iterator.docId());
+                for (int i = 0; i < docIds.length; i++) {
+                    assertEquals(docIds[i], iterator.nextDoc());
+                    assertEquals(i, iterator.index());
+                }
+                assertEquals(PostingIterator.NO_MORE_DOCS, iterator.nextDoc());
+                assertEquals(PostingIterator.NO_MORE_DOCS, iterator.nextDoc());
+            }
+        }
+    }
+
+    @Test
+    void advanceFindsFirstDocIdAtLeastTheTarget() {
+        int[] docIds = randomDocIds(1, 2000, 30);
+        Random random = new Random(2);
+        for (PostingCodec codec : CODECS) {
+            PostingIterator iterator = iterator(codec, docIds);
+            int expectedIndex = 0;
+            int target = 0;
+            while (expectedIndex < docIds.length) {
+                target += random.nextInt(500);
+                while (expectedIndex < docIds.length && docIds[expectedIndex] < target) {
+                    expectedIndex++;
+                }
+                int expected = expectedIndex < docIds.length ? docIds[expectedIndex] : PostingIterator.NO_MORE_DOCS;
+                assertEquals(expected, iterator.advance(target));
+                if (expected != PostingIterator.NO_MORE_DOCS) {
+                    assertEquals(expectedIndex, iterator.index());
+                    // Advancing to a smaller target does not move back
+                    assertEquals(expected, iterator.advance(target - 100));
+                }
+            }
+        }
+    }
+
+    @Test
+    void encodeRoundTripsWithTheChosenCodec() {
+        for (int averageGap : new int[] {1, 3, 100, 100000}) {
+            int[] docIds = randomDocIds(averageGap, 777, averageGap);
+            byte[] encoded = PostingCodec.encode(docIds);
+            assertArrayEquals(docIds, PostingCodec.decode(encoded, docIds.length));
+            assertTrue(encoded.length <= docIds.length * Integer.BYTES + 1);
+        }
+        assertArrayEquals(new int[0], PostingCodec.decode(PostingCodec.encode(new int[0]), 0));
+    }
+
+    @Test
+    void iteratorsReadAnOffsetIntoADirectBuffer() {
+        int[] docIds = randomDocIds(3, 1000, 20);
+        for (PostingCodec codec : CODECS) {
+            byte[] encoded = codec.encodeDocIds(docIds);
+            // Like the doc IDs of a memory-mapped snapshot, which are read where they are in the file
+            ByteBuffer data = ByteBuffer.allocateDirect(encoded.length + 10);
+            data.put(10, encoded, 0, encoded.length);
+            PostingIterator iterator = codec.iterator(data.asReadOnlyBuffer(), 10, docIds.length);
+            for (int docId : docIds) {
+                assertEquals(docId, iterator.nextDoc());
+            }
+            assertEquals(PostingIterator.NO_MORE_DOCS, iterator.nextDoc());
+            assertEquals(docIds[700], codec.iterator(data.slice(10, encoded.length), 0, docIds.length).advance(docIds[700]));
+        }
+    }
+
+    @Test
+    void compressedCodecsAreSmallerForDenseLists() {
+        int[] docIds = randomDocIds(5, 10000, 4);
+        int raw = PostingCodec.RAW.encodeDocIds(docIds).length;
+        assertTrue(PostingCodec.VAR_INT.encodeDocIds(docIds).length < raw / 3);
+        assertTrue(PostingCodec.BLOCK_PACKED.encodeDocIds(docIds).length < raw / 3);
+    }
+
+    @Test
+    void blockPackedHandlesLargeGaps() {
+        int[] docIds = {0, 1, Integer.MAX_VALUE - 2, Integer.MAX_VALUE - 1};
+        PostingIterator iterator = iterator(PostingCodec.BLOCK_PACKED, docIds);
+        for (int docId : docIds) {
+            assertEquals(docId, iterator.nextDoc());
+        }
+    }
+
+    @Test
+    void forIdRejectsUnknownCodec() {
+        assertThrows(IllegalArgumentException.class, () -> PostingCodec.forId((byte) 9));
+    }
+}
@@ -0,0 +1,101 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingIntersectionTest {
+
+    @Test
+    void intersectFindsCommonDocIds() {
+        int[] result = PostingIntersection.intersect(Arrays.asList(
+            new int[] {1, 3, 5, 7, 9, 11},
+            new int[] {3, 9},
+            new int[] {0, 3, 4, 9, 10}
+        ));
+
+        assertArrayEquals(new int[] {3, 9}, result);
+    }
+
+    @Test
+    void intersectWithEmptyListIsEmpty() {
+        int[] result = PostingIntersection.intersect(Arrays.asList(
+            new int[] {1, 2, 3},
+            new int[0]
+        ));
+
+        assertEquals(0, result.length);
+    }
+
+    @Test
+    void intersectWithoutListsIsEmpty() {
+        assertEquals(0, PostingIntersection.intersect(Collections.emptyList()).length);
+    }
+
+    @Test
+    void intersectMatchesSetIntersection() {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            List<int[]> lists = new ArrayList<>();
+            TreeSet<Integer> expected = null;
+            int listCount = 1 + random.nextInt(4);
+            for (int i = 0; i < listCount; i++) {
+                TreeSet<Integer> docIds = new TreeSet<>();
+                int size = random.nextInt(i == 0 ? 2000 : 50);
+                while (docIds.size() < size) {
+                    docIds.add(random.nextInt(5000));
+                }
+                lists.add(docIds.stream().mapToInt(Integer::intValue).toArray());
+                if (expected == null) {
+                    expected = docIds;
+                } else {
+                    expected.retainAll(docIds);
+                }
+            }
+
+            int[] result = PostingIntersection.intersect(lists);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), result);
+        }
+    }
+
+    @Test
+    void intersectInParallelMatchesIntersect() {
+        Random random = new Random(43);
+        for (int round = 0; round < 100; round++) {
+            List<int[]> lists = new ArrayList<>();
+            int listCount = 1 + random.nextInt(4);
+            for (int i = 0; i < listCount; i++) {
+                TreeSet<Integer> docIds = new TreeSet<>();
+                int size = random.nextInt(2000);
+                while (docIds.size() < size) {
+                    docIds.add(random.nextInt(5000));
+                }
+                lists.add(docIds.stream().mapToInt(Integer::intValue).toArray());
+            }
+
+            int rangeSize = 1 + random.nextInt(300);
+            assertArrayEquals(PostingIntersection.intersect(lists),
+                PostingIntersection.intersectInParallel(lists, rangeSize), "range size " + rangeSize);
+        }
+        int[] only = {1, 5, 9};
+        assertSame(only, PostingIntersection.intersectInParallel(List.of(only), 1));
+    }
+
+    @Test
+    void gallopFindsFirstDocIdNotSmallerThanTarget() {
+        int[] list = {2, 4, 6, 8, 10, 12, 14};
+
+        assertEquals(0, PostingIntersection.gallop(list, 0, 1));
+        assertEquals(3, PostingIntersection.gallop(list, 0, 8));
+        assertEquals(4, PostingIntersection.gallop(list, 1, 9));
+        assertEquals(7, PostingIntersection.gallop(list, 2, 15));
+        assertEquals(5, PostingIntersection.gallop(list, 5, 3));
+    }
+}
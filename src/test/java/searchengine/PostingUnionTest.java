@@ -0,0 +1,74 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingUnionTest {
+
+    private static PostingList postings(int[] docIds, int[] frequencies, float[] impacts) {
+        PostingList postings = new PostingList(docIds, frequencies);
+        postings.setImpacts(impacts);
+        return postings;
+    }
+
+    @Test
+    void unionMergesDocIdsInOrder() {
+        PostingList union = PostingUnion.union(Arrays.asList(
+            postings(new int[] {1, 5, 9}, new int[] {1, 2, 3}, new float[] {0.5f, 1f, 0.1f}),
+            postings(new int[] {0, 5}, new int[] {4, 1}, new float[] {0.2f, 2f}),
+            PostingList.EMPTY,
+            postings(new int[] {9, 12}, new int[] {1, 1}, new float[] {0.3f, 0.4f})
+        ));
+
+        assertArrayEquals(new int[] {0, 1, 5, 9, 12}, union.docIds());
+        assertEquals(3, union.frequency(2));
+        assertEquals(4, union.frequency(3));
+        assertEquals(2f, union.impact(2));
+        assertEquals(0.3f, union.impact(3));
+        assertEquals(2f, union.maxImpact());
+        assertFalse(union.hasPositions());
+    }
+
+    @Test
+    void unionOfOneListIsThatList() {
+        PostingList list = postings(new int[] {3}, new int[] {1}, new float[] {1f});
+        assertSame(list, PostingUnion.union(List.of(list)));
+        assertEquals(0, PostingUnion.union(Collections.emptyList()).size());
+        assertEquals(0, PostingUnion.union(List.of(PostingList.EMPTY, PostingList.EMPTY)).size());
+    }
+
+    @Test
+    void unionMatchesASortedMap() {
+        Random random = new Random(3);
+        List<PostingList> lists = new ArrayList<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int list = 0; list < 20; list++) {
+            PostingListBuilder builder = new PostingListBuilder();
+            for (int docId = 0; docId < 1000; docId++) {
+                if (random.nextInt(10) == 0) {
+                    builder.add(docId);
+                    expected.merge(docId, 1, Integer::sum);
+                }
+            }
+            lists.add(builder.build());
+        }
+
+        PostingList union = PostingUnion.union(lists);
+
+        assertEquals(expected.size(), union.size());
+        int i = 0;
+        for (var entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), union.docId(i));
+            assertEquals(entry.getValue(), union.frequency(i));
+            i++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package searchengine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ProximityPostingIteratorTest {
+    private Path file;
+    private InvertedIndexSearchEngine searchEngine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("positions", ".txt");
+        Files.write(file, List.of(
+            "*PAGE:http://page0.com", "Title0", "new", "york", "city",
+            "*PAGE:http://page1.com", "Title1", "york", "new",
+            "*PAGE:http://page2.com", "Title2", "new", "big", "york", "new", "york",
+            "*PAGE:http://page3.com", "Title3", "city"));
+        searchEngine = new InvertedIndexSearchEngine(true);
+        searchEngine.loadPages(file.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    private PostingList postings(String word) {
+        return searchEngine.getPostings(word);
+    }
+
+    private static int[] docIds(ProximityPostingIterator iterator) {
+        IntArrayList docIds = new IntArrayList();
+        while (iterator.nextDoc() != PostingIterator.NO_MORE_DOCS) {
+            docIds.add(iterator.docId());
+        }
+        return docIds.toArray();
+    }
+
+    @Test
+    void positionsCountTheLinesAfterThePageLine() {
+        PostingList york = postings("york");
+        assertTrue(york.hasPositions());
+        assertArrayEquals(new int[] {2}, york.positions(0));
+        assertArrayEquals(new int[] {1}, york.positions(1));
+        assertArrayEquals(new int[] {3, 5}, york.positions(2));
+        assertTrue(searchEngine.positionsSizeInBytes() > 0);
+    }
+
+    @Test
+    void positionsAreFoundInAnyOrderAcrossBlocks() {
+        PostingListBuilder builder = new PostingListBuilder(true);
+        for (int docId = 0; docId < 3 * PostingList.BLOCK_SIZE; docId++) {
+            for (int occurrence = 0; occurrence <= docId % 4; occurrence++) {
+                builder.addOccurrence(docId, docId + occurrence * 200);
+            }
+        }
+        PostingList postings = builder.build();
+        PostingList.PositionReader reader = postings.positionReader();
+        for (int index : new int[] {0, 1, 5, 127, 128, 300, 129, 2, 383}) {
+            int[] expected = new int[index % 4 + 1];
+            for (int occurrence = 0; occurrence < expected.length; occurrence++) {
+                expected[occurrence] = index + occurrence * 200;
+            }
+            assertArrayEquals(expected, reader.positions(index));
+            assertArrayEquals(expected, postings.positions(index));
+        }
+    }
+
+    @Test
+    void phraseNeedsTheWordsInOrder() {
+        assertArrayEquals(new int[] {0, 2}, docIds(ProximityPostingIterator.phrase(postings("new"), postings("york"))));
+        assertArrayEquals(new int[] {1, 2}, docIds(ProximityPostingIterator.phrase(postings("york"), postings("new"))));
+        assertArrayEquals(new int[] {0},
+            docIds(ProximityPostingIterator.phrase(postings("new"), postings("york"), postings("city"))));
+    }
+
+    @Test
+    void phraseCountsItsOccurrences() {
+        ProximityPostingIterator phrase = ProximityPostingIterator.phrase(postings("new"), postings("york"));
+        assertEquals(2, phrase.advance(1));
+        assertEquals(1, phrase.matches());
+        assertEquals(postings("new").impact(2) + postings("york").impact(2), phrase.impact());
+        assertEquals(PostingIterator.NO_MORE_DOCS, phrase.nextDoc());
+    }
+
+    @Test
+    void nearMatchesEitherOrderWithinTheDistance() {
+        assertArrayEquals(new int[] {0, 1, 2},
+            docIds(ProximityPostingIterator.near(1, postings("new"), postings("york"))));
+        assertArrayEquals(new int[] {}, docIds(ProximityPostingIterator.near(1, postings("new"), postings("city"))));
+        assertArrayEquals(new int[] {0}, docIds(ProximityPostingIterator.near(2, postings("city"), postings("new"))));
+    }
+
+    @Test
+    void nearWithTheLargestDistanceMatchesPagesWithBothWords() {
+        assertArrayEquals(new int[] {0, 1, 2},
+            docIds(ProximityPostingIterator.near(Integer.MAX_VALUE, postings("york"), postings("new"))));
+        assertArrayEquals(new int[] {0},
+            docIds(ProximityPostingIterator.near(Integer.MAX_VALUE, postings("city"), postings("new"))));
+    }
+
+    @Test
+    void conjunctionIgnoresPositions() throws IOException {
+        InvertedIndexSearchEngine withoutPositions = new InvertedIndexSearchEngine();
+        withoutPositions.loadPages(file.toString());
+        PostingList york = withoutPositions.getPostings("york");
+        PostingList city = withoutPositions.getPostings("city");
+        assertFalse(york.hasPositions());
+        assertEquals(0, withoutPositions.positionsSizeInBytes());
+
+        assertArrayEquals(new int[] {0}, docIds(ProximityPostingIterator.conjunction(york, city)));
+        assertThrows(IllegalArgumentException.class, () -> ProximityPostingIterator.phrase(york, city));
+    }
+}
@@ -0,0 +1,134 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    @Test
+    void normalizeIgnoresEncodingCaseAndOrder() {
+        String expected = QueryCache.normalize("apple%20banana%20OR%20cherry");
+        assertEquals("apple banana OR cherry", expected);
+        assertEquals(expected, QueryCache.normalize("Banana+APPLE+or+cherry"));
+        assertEquals(expected, QueryCache.normalize("cherry%20OR%20banana%20apple%20OR%20cherry"));
+        assertNotEquals(expected, QueryCache.normalize("apple%20OR%20banana%20cherry"));
+    }
+
+    @Test
+    void normalizeKeepsTheOrderOfPhrases() {
+        assertEquals("\"new york\" city", QueryCache.normalize("City+%22New+York%22"));
+        assertNotEquals(QueryCache.normalize("%22new+york%22"), QueryCache.normalize("%22york+new%22"));
+        assertNotEquals(QueryCache.normalize("x+%22a+b%22"), QueryCache.normalize("%22a+x+b%22"));
+        assertEquals(QueryCache.normalize("new+NEAR/3+york"), QueryCache.normalize("york+near/3+new"));
+        // A distance too large for an int is lowered instead of failing the request
+        assertEquals("new near/999999999 york", QueryCache.normalize("new+NEAR/99999999999999999999999+york"));
+        assertEquals(QueryCache.normalize("new+NEAR/3+york"), QueryCache.normalize("new+NEAR/0000000000003+york"));
+        assertEquals("denm* york", QueryCache.normalize("York+DENM*"));
+        assertNotEquals(QueryCache.normalize("denm*"), QueryCache.normalize("denm"));
+    }
+
+    @Test
+    void normalizedQueryFindsTheSamePages() throws IOException {
+        Path file = Files.createTempFile("test", ".txt");
+        Files.write(file, List.of(
+            "*PAGE:doc1", "Title1", "apple", "banana",
+            "*PAGE:doc2", "Title2", "banana", "cherry",
+            "*PAGE:doc3", "Title3", "cherry"));
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(file.toString());
+        TermScorer termScorer = new ColumnarTermScorer(searchEngine);
+        QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+
+        for (String query : new String[] {"banana%20apple%20OR%20cherry", "cherry+OR+cherry", "%20apple", "BANANA"}) {
+            String normalized = URLEncoder.encode(QueryCache.normalize(query), StandardCharsets.UTF_8);
+            assertEquals(new HashSet<>(queryHandler.getMatchingWebPages(query.toLowerCase())),
+                new HashSet<>(queryHandler.getMatchingWebPages(normalized)));
+        }
+        Files.delete(file);
+    }
+
+    @Test
+    void getComputesOnlyOnMiss() {
+        QueryCache cache = new QueryCache(100);
+        AtomicInteger searches = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            List<Integer> results = cache.get("query", 0, () -> {
+                searches.incrementAndGet();
+                return List.of(3, 1, 2);
+            });
+            assertEquals(List.of(3, 1, 2), results);
+        }
+        assertEquals(1, searches.get());
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // The number of results is part of the key
+        cache.get("query", 2, () -> List.of(3, 1));
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() {
+        QueryCache cache = new QueryCache(16);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("query" + i, 0, List::of);
+        }
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.size() > 0);
+
+        long misses = cache.misses();
+        cache.get("query999", 0, List::of);
+        assertEquals(misses, cache.misses());
+        cache.get("query0", 0, List::of);
+        assertEquals(misses + 1, cache.misses());
+    }
+
+    @Test
+    void theCacheIsBoundedByTheNumberOfResults() {
+        // 16 segments of 100 doc IDs each
+        QueryCache cache = new QueryCache(1000, 1600);
+        List<Integer> large = IntStream.range(0, 101).boxed().collect(Collectors.toList());
+        assertEquals(large, cache.get("large", 0, () -> large));
+        assertEquals(0, cache.size());
+
+        for (int i = 0; i < 200; i++) {
+            List<Integer> results = IntStream.range(i, i + 60).boxed().collect(Collectors.toList());
+            assertEquals(results, cache.get("query" + i, 0, () -> results));
+        }
+        // At most one entry of 60 doc IDs fits in each segment
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.size() > 0);
+        assertEquals(IntStream.range(199, 259).boxed().collect(Collectors.toList()),
+            cache.get("query199", 0, List::of));
+        assertThrows(UnsupportedOperationException.class, () -> cache.get("query199", 0, List::of).set(0, 1));
+    }
+
+    @Test
+    void invalidateRemovesEntriesAndDropsResultsComputedBefore() {
+        QueryCache cache = new QueryCache(100);
+        cache.get("query", 0, () -> List.of(1));
+        cache.invalidate();
+        assertEquals(0, cache.size());
+
+        // A search that is running while the index changes is not cached
+        cache.get("other", 0, () -> {
+            cache.invalidate();
+            return List.of(2);
+        });
+        assertEquals(0, cache.size());
+        assertEquals(List.of(3), cache.get("other", 0, () -> List.of(3)));
+    }
+}
@@ -1,7 +1,14 @@
 package searchengine;
 
 import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -21,9 +28,9 @@ public class QueryHandlerTest {
         TermScorer termScorer = new TestScoringSystem();
         QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
 
-        HashMap<String, Double> result = queryHandler.andSearch("java programming");
-        HashMap<String, Double> expected = new HashMap<>();
-        expected.put("page2", 2.0);
+        HashMap<Integer, Double> result = queryHandler.andSearch("java programming");
+        HashMap<Integer, Double> expected = new HashMap<>();
+        expected.put(2, 2.0);
 
         assertEquals(expected, result, "The AND search should return the correct pages.");
     }
@@ -38,30 +45,257 @@ public class QueryHandlerTest {
         TermScorer termScorer = new TestScoringSystem();
         QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
 
-        List<String> result = queryHandler.getMatchingWebPages("java OR programming");
-        List<String> expected = Arrays.asList("page1", "page2", "page3");
+        List<Integer> result = queryHandler.getMatchingWebPages("java OR programming");
+        List<Integer> expected = Arrays.asList(1, 2, 3);
 
         assertTrue(result.containsAll(expected) && expected.containsAll(result),
                 "The OR search should return the correct list of pages.");
     }
 
+    /**
+     * To test phrase and NEAR queries.
+     * To check that a positional index only finds the pages with the words close together,
+     * and an index without positions finds all pages with the words.
+     */
+    @Test
+    public void testPhraseAndNearQueries() throws IOException {
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, List.of(
+            "*PAGE:http://page0.com", "Title0", "new", "york",
+            "*PAGE:http://page1.com", "Title1", "york", "new",
+            "*PAGE:http://page2.com", "Title2", "new", "jersey", "and", "york"));
+        for (boolean positional : new boolean[] {true, false}) {
+            InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine(positional);
+            searchEngine.loadPages(tempFile.toString());
+            TermScorer termScorer = new ColumnarTermScorer(searchEngine);
+            QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+
+            List<Integer> phrase = positional ? List.of(0) : List.of(0, 1, 2);
+            List<Integer> near = positional ? List.of(0, 1) : List.of(0, 1, 2);
+            assertEquals(phrase, sorted(queryHandler.getMatchingWebPages("%22New+York%22")));
+            assertEquals(phrase, sorted(queryHandler.getTopWebPages("%22new+york%22", 10)));
+            assertEquals(near, sorted(queryHandler.getMatchingWebPages("new+NEAR/1+york")));
+            assertEquals(List.of(0, 1, 2), sorted(queryHandler.getTopWebPages("new+near/3+york", 10)));
+            assertEquals(List.of(0, 1, 2), sorted(queryHandler.getMatchingWebPages("new+NEAR/2147483647+york")));
+            assertEquals(List.of(0, 1, 2),
+                sorted(queryHandler.getMatchingWebPages("new+NEAR/99999999999999999999+york")));
+            assertEquals(List.of(2), sorted(queryHandler.getMatchingWebPages("%22new+jersey%22+york")));
+            assertEquals(queryHandler.getMatchingWebPages("new+york"),
+                queryHandler.getMatchingWebPages("%22new%22+%22york%22"));
+        }
+        Files.delete(tempFile);
+    }
+
+    /**
+     * To test queries with a trailing wildcard.
+     * To check that they find the pages of every word with the prefix, score a page by its best word,
+     * and only expand to as many words as the handler allows.
+     */
+    @Test
+    public void testWildcardQueries() throws IOException {
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, List.of(
+            "*PAGE:http://page0.com", "Title0", "denmark", "copenhagen",
+            "*PAGE:http://page1.com", "Title1", "denmark", "denmark", "danish",
+            "*PAGE:http://page2.com", "Title2", "denmarks", "copenhagen",
+            "*PAGE:http://page3.com", "Title3", "dennis", "copenhagen"));
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(tempFile.toString());
+        TermScorer termScorer = new ColumnarTermScorer(searchEngine);
+        searchEngine.scorePostings(termScorer);
+        QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+
+        assertEquals(List.of(0, 1, 2), sorted(queryHandler.getMatchingWebPages("DENM*")));
+        assertEquals(List.of(0, 1, 2, 3), sorted(queryHandler.getTopWebPages("den*", 10)));
+        assertEquals(List.of(0, 2), sorted(queryHandler.getMatchingWebPages("denm*+copenhagen")));
+        assertEquals(List.of(), queryHandler.getMatchingWebPages("x*"));
+        assertEquals(List.of(), queryHandler.getMatchingWebPages("*"));
+        // A page scores like its best word, so both rankings agree
+        assertEquals(queryHandler.getMatchingWebPages("denm*"), queryHandler.getTopWebPages("denm*", 10));
+        assertEquals(queryHandler.andSearch("denmark").get(1), queryHandler.andSearch("denm*").get(1));
+
+        // Only the first words in sorted order are used: denmark, then denmarks
+        QueryHandler capped = new QueryHandler(searchEngine, termScorer, new Metrics(), 1);
+        assertEquals(List.of(0, 1), sorted(capped.getMatchingWebPages("denm*")));
+        assertEquals(List.of(0, 1), sorted(capped.getTopWebPages("denm*", 10)));
+        assertThrows(IllegalArgumentException.class, () -> new QueryHandler(searchEngine, termScorer, new Metrics(), 0));
+        Files.delete(tempFile);
+    }
+
+    /**
+     * Splits the lines of a file of pages into the lowercase lines of each page, which a scorer that counts the words
+     * itself loads, as the search engine does not keep them.
+     */
+    static List<List<String>> pagesOf(List<String> lines) {
+        List<List<String>> pages = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("*PAGE")) {
+                pages.add(new ArrayList<>());
+            }
+            pages.get(pages.size() - 1).add(line.toLowerCase());
+        }
+        return pages;
+    }
+
+    private static List<Integer> sorted(List<Integer> docIds) {
+        return docIds.stream().sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * To test the getTopWebPages method.
+     * To check that it finds the same best scores as ranking all matching pages.
+     */
+    @Test
+    public void testGetTopWebPagesMatchesFullRanking() throws IOException {
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>();
+        for (int page = 0; page < 2000; page++) {
+            lines.add("*PAGE:http://page" + page + ".com");
+            lines.add("title" + page);
+            int length = 1 + random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                lines.add("w" + (int) Math.abs(random.nextGaussian() * 8));
+            }
+        }
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, lines);
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(tempFile.toString());
+        TermScorer termScorer = new TermFrequencyScorer();
+        termScorer.loadPages(pagesOf(lines));
+        searchEngine.scorePostings(termScorer);
+        QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+
+        for (String query : List.of("w0", "w1 w2", "w3 OR w12", "w0 w1 OR w5 OR w20 w2", "w99")) {
+            HashMap<Integer, Double> allScores = new HashMap<>();
+            for (String clause : query.split(" OR ")) {
+                queryHandler.andSearch(clause).forEach((page, score) -> allScores.merge(page, score, Math::max));
+            }
+            List<Double> expected = allScores.values().stream()
+                .sorted(Comparator.reverseOrder()).limit(10).collect(Collectors.toList());
+
+            List<Integer> result = queryHandler.getTopWebPages(query, 10);
+
+            assertEquals(expected.size(), result.size(), "Wrong number of results for " + query);
+            // A k larger than the index returns every match without allocating k places
+            assertEquals(allScores.size(), queryHandler.getTopWebPages(query, Integer.MAX_VALUE).size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(expected.get(i), allScores.get(result.get(i)), 1e-6);
+            }
+        }
+        Files.delete(tempFile);
+    }
+
+    /**
+     * To test that one QueryHandler can be shared by many threads.
+     * To check that concurrent queries get the same results as queries on one thread.
+     */
+    @Test
+    public void testSharedQueryHandlerIsThreadSafe() throws Exception {
+        Random random = new Random(11);
+        List<String> lines = new ArrayList<>();
+        for (int page = 0; page < 1000; page++) {
+            lines.add("*PAGE:http://page" + page + ".com");
+            lines.add("title" + page);
+            int length = 1 + random.nextInt(20);
+            for (int i = 0; i < length; i++) {
+                lines.add("w" + random.nextInt(30));
+            }
+        }
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, lines);
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(tempFile.toString());
+        TermScorer termScorer = new TermFrequencyScorer();
+        termScorer.loadPages(pagesOf(lines));
+        searchEngine.scorePostings(termScorer);
+        QueryHandler queryHandler = new QueryHandler(searchEngine, termScorer);
+
+        List<String> queries = List.of("w1", "w2 w3", "w4 OR w5 w6", "w7 OR w8 OR w9");
+        Map<String, List<Integer>> expected = new HashMap<>();
+        for (String query : queries) {
+            expected.put(query, queryHandler.getMatchingWebPages(query));
+        }
+
+        ExecutorService executor = WebServer.createExecutor("platform", 8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String query = queries.get(i % queries.size());
+            futures.add(executor.submit(() -> expected.get(query).equals(queryHandler.getMatchingWebPages(query))
+                && queryHandler.getTopWebPages(query, 5).size() == Math.min(5, expected.get(query).size())));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get());
+        }
+        executor.shutdown();
+        Files.delete(tempFile);
+    }
+
+    /**
+     * To test that queries answered in parallel get the same results as queries on the calling thread.
+     * To check both the OR clauses and the ranges of doc IDs of a large clause.
+     */
+    @Test
+    public void testParallelQueriesMatchSequentialQueries() throws IOException {
+        Random random = new Random(13);
+        List<String> lines = new ArrayList<>();
+        for (int page = 0; page < 3000; page++) {
+            lines.add("*PAGE:http://page" + page + ".com");
+            lines.add("title" + page);
+            int length = 1 + random.nextInt(20);
+            for (int i = 0; i < length; i++) {
+                lines.add("w" + (int) Math.abs(random.nextGaussian() * 6));
+            }
+        }
+        Path tempFile = Files.createTempFile("test", ".txt");
+        Files.write(tempFile, lines);
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(tempFile.toString());
+        TermScorer termScorer = new TermFrequencyScorer();
+        termScorer.loadPages(pagesOf(lines));
+        searchEngine.scorePostings(termScorer);
+        QueryHandler sequential = new QueryHandler(searchEngine, termScorer, new Metrics(),
+            QueryHandler.DEFAULT_MAX_EXPANSIONS, Integer.MAX_VALUE);
+
+        for (int threshold : List.of(0, 1, 40, 1000)) {
+            QueryHandler parallel = new QueryHandler(searchEngine, termScorer, new Metrics(),
+                QueryHandler.DEFAULT_MAX_EXPANSIONS, threshold);
+            for (String query : List.of("w0", "w0 w1", "w0 w1 OR w2 w3 OR w1 w4", "w1* OR w0", "w2 OR w99",
+                    "w99 OR w98", "%22w0+w1%22 OR w3")) {
+                assertEquals(sequential.getMatchingWebPages(query), parallel.getMatchingWebPages(query),
+                    query + " with threshold " + threshold);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> new QueryHandler(searchEngine, termScorer, new Metrics(), 1, -1));
+        Files.delete(tempFile);
+    }
+
     /**
      * A simple subclass of InvertedIndexSearchEngine to simulate its behavior for testing.
      * To provide predefined responses for specific search terms.
      */
     private static class TestSearchEngine extends InvertedIndexSearchEngine {
         /**
-         * To search for a word and returns a fixed list of pages.
-         * For example, "java" returns "page1" and "page2".
+         * To search for a word and returns a fixed list of doc IDs.
+         * For example, "java" returns page 1 and page 2.
          */
         @Override
-        public ArrayList<String> search(String word) {
+        public int[] search(String word) {
             if ("java".equalsIgnoreCase(word)) {
-                return new ArrayList<>(Arrays.asList("page1", "page2"));
+                return new int[] {1, 2};
             } else if ("programming".equalsIgnoreCase(word)) {
-                return new ArrayList<>(Arrays.asList("page2", "page3"));
+                return new int[] {2, 3};
             }
-            return new ArrayList<>();
+            return new int[0];
+        }
+
+        /**
+         * To return a fake URL for a doc ID.
+         */
+        @Override
+        public String getUrl(int docId) {
+            return "page" + docId;
         }
     }
 
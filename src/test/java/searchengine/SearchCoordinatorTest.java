@@ -0,0 +1,223 @@
+package searchengine;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SearchCoordinatorTest {
+    private static final String[] WORDS = {"apple", "banana", "cherry", "date", "denim", "denmark", "dennis", "fig"};
+    private static final List<String> QUERIES = List.of("apple", "apple banana", "cherry OR fig", "den*",
+        "den* apple OR date", "missing", "apple missing OR fig");
+
+    private Path directory;
+    private Path pages;
+    private WebServer whole;
+    private final List<WebServer> shards = new ArrayList<>();
+
+    @BeforeAll
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("shards");
+        pages = directory.resolve("pages.txt");
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>();
+        for (int page = 0; page < 60; page++) {
+            lines.add("*PAGE:http://page" + page + ".com");
+            lines.add("Title" + page);
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                // Earlier pages have more of the first words, so the shards have different statistics
+                lines.add(WORDS[random.nextInt(page < 30 ? 3 : WORDS.length)]);
+            }
+        }
+        Files.write(pages, lines);
+
+        whole = WebServerTest.startServer(pages.toString());
+        for (Path shardFile : SearchCoordinator.splitPages(pages, 3, directory)) {
+            shards.add(WebServerTest.startServer(shardFile.toString(), true));
+        }
+    }
+
+    @AfterAll
+    void tearDown() throws IOException {
+        whole.server.stop(0);
+        for (WebServer shard : shards) {
+            shard.server.stop(0);
+        }
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static URI uri(HttpServer server) {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private SearchCoordinator startCoordinator(List<URI> shardUris, Duration timeout) throws IOException {
+        var rnd = new Random();
+        while (true) {
+            try {
+                return new SearchCoordinator(rnd.nextInt(60000) + 1024, shardUris, timeout,
+                    QueryHandler.DEFAULT_MAX_EXPANSIONS);
+            } catch (BindException e) {
+                // port in use. Try again
+            }
+        }
+    }
+
+    private List<URI> shardUris() {
+        List<URI> uris = new ArrayList<>();
+        for (WebServer shard : shards) {
+            uris.add(uri(shard.server));
+        }
+        return uris;
+    }
+
+    @Test
+    void splitPagesKeepsThePagesInOrder() throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (WebServer shard : shards) {
+            SearchEngine searchEngine = shard.index.get().searchEngine;
+            assertEquals(20, searchEngine.getPageCount());
+            for (int docId = 0; docId < searchEngine.getPageCount(); docId++) {
+                urls.add(searchEngine.getUrl(docId));
+            }
+        }
+        for (int page = 0; page < 60; page++) {
+            assertEquals("http://page" + page + ".com", urls.get(page));
+        }
+        assertThrows(IllegalArgumentException.class, () -> SearchCoordinator.splitPages(pages, 0, directory));
+    }
+
+    @Test
+    void theShardsGiveEveryPageTheScoreOfOneIndex() throws IOException {
+        SearchCoordinator coordinator = startCoordinator(shardUris(), Duration.ofSeconds(10));
+        try {
+            SearchIndex index = whole.index.get();
+            for (String query : QUERIES) {
+                String encodedQuery = URLEncoder.encode(query, StandardCharsets.UTF_8);
+                TopKCollector expected = index.queryHandler.collectTopWebPages(encodedQuery, 60,
+                    index.queryHandler.getMetrics().startTimer());
+                Map<String, Double> expectedScores = new HashMap<>();
+                List<Integer> docIds = expected.results();
+                double[] scores = expected.resultScores();
+                for (int i = 0; i < docIds.size(); i++) {
+                    expectedScores.put(index.searchEngine.getUrl(docIds.get(i)), scores[i]);
+                }
+
+                SearchCoordinator.Results all = coordinator.search(query, 0);
+                assertEquals(0, all.missingShards);
+                Map<String, Double> actualScores = new HashMap<>();
+                for (ShardProtocol.Hit hit : all.hits) {
+                    actualScores.put(hit.url, hit.score);
+                }
+                assertEquals(expectedScores, actualScores, query);
+
+                // The best 5 of all shards are the best 5 of one index, up to the order of equal scores
+                SearchCoordinator.Results top = coordinator.search(query, 5);
+                assertEquals(Math.min(5, docIds.size()), top.hits.size(), query);
+                for (int i = 0; i < top.hits.size(); i++) {
+                    assertEquals(scores[i], top.hits.get(i).score, query);
+                }
+            }
+        } finally {
+            coordinator.stop();
+        }
+    }
+
+    @Test
+    void searchAnswersLikeAWebServer() throws Exception {
+        SearchCoordinator coordinator = startCoordinator(shardUris(), Duration.ofSeconds(10));
+        try {
+            String url = uri(coordinator.server) + "/search?q=apple+banana&k=2";
+            var response = HttpClient.newHttpClient().send(HttpRequest.newBuilder().uri(URI.create(url)).GET().build(),
+                BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals("0", response.headers().firstValue("X-Missing-Shards").orElse(""));
+            assertTrue(response.body().startsWith("[{\"url\": \"http://page"), response.body());
+            assertEquals(2, response.body().split("\"url\"").length - 1);
+        } finally {
+            coordinator.stop();
+        }
+    }
+
+    private static HttpResponse<byte[]> postSearch(WebServer server, int k) throws Exception {
+        byte[] body = ShardProtocol.searchRequest("apple", k, new CollectionStatistics());
+        String url = uri(server.server) + ShardProtocol.SEARCH_PATH;
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder().uri(URI.create(url))
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(), BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void onlyShardsAnswerShardRequestsForAtMostTheirPages() throws Exception {
+        assertEquals(404, postSearch(whole, 5).statusCode());
+        assertEquals(400, postSearch(shards.get(0), -1).statusCode());
+        HttpResponse<byte[]> response = postSearch(shards.get(0), Integer.MAX_VALUE);
+        assertEquals(200, response.statusCode());
+        List<ShardProtocol.Hit> hits = ShardProtocol.readSearchResponse(0, response.body());
+        assertFalse(hits.isEmpty());
+        assertTrue(hits.size() <= shards.get(0).index.get().searchEngine.getPageCount());
+    }
+
+    @Test
+    void slowAndUnreachableShardsAreLeftOut() throws IOException {
+        HttpServer slow = HttpServer.create(new InetSocketAddress(0), 0);
+        slow.createContext("/", io -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            io.close();
+        });
+        slow.start();
+        // Nothing listens on the port of a stopped server
+        HttpServer stopped = HttpServer.create(new InetSocketAddress(0), 0);
+        URI unreachable = uri(stopped);
+        stopped.stop(0);
+
+        List<URI> uris = new ArrayList<>(List.of(uri(slow), unreachable));
+        uris.add(uri(shards.get(0).server));
+        SearchCoordinator coordinator = startCoordinator(uris, Duration.ofMillis(300));
+        try {
+            long start = System.nanoTime();
+            SearchCoordinator.Results results = coordinator.search("apple", 0);
+            assertTrue(System.nanoTime() - start < 4_000_000_000L);
+            assertEquals(2, results.missingShards);
+            assertFalse(results.hits.isEmpty());
+            for (ShardProtocol.Hit hit : results.hits) {
+                assertEquals(2, hit.shard);
+            }
+        } finally {
+            coordinator.stop();
+            slow.stop(0);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedSearchEngineTest {
+
+    private static List<String> page(int number, String... words) {
+        List<String> lines = new ArrayList<>();
+        lines.add("*PAGE:http://page" + number + ".com");
+        lines.add("Title" + number);
+        lines.addAll(List.of(words));
+        return lines;
+    }
+
+    @Test
+    void addedPagesAreFoundRightAway() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine();
+        assertEquals(0, searchEngine.addPage(page(0, "apple", "banana")));
+        assertEquals(1, searchEngine.addPage(page(1, "Banana", "banana")));
+
+        assertArrayEquals(new int[] {0, 1}, searchEngine.search("banana"));
+        assertArrayEquals(new int[] {0}, searchEngine.search("APPLE"));
+        assertArrayEquals(new int[0], searchEngine.search("cherry"));
+        assertEquals("http://page1.com", searchEngine.getUrl(1));
+        assertEquals("title1", searchEngine.getTitle(1));
+        assertEquals(0, searchEngine.segmentCount());
+
+        PostingList postings = searchEngine.getPostings("banana");
+        assertEquals(2, postings.frequency(1));
+        // The term frequency scorer divides the frequency by the number of lines after the URL
+        assertEquals(2f / 3, postings.impact(1), 1e-6);
+    }
+
+    @Test
+    void deletedPagesAreNotFound() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        for (int i = 0; i < 5; i++) {
+            searchEngine.addPage(page(i, "common"));
+        }
+        assertTrue(searchEngine.deletePage(1));
+        assertTrue(searchEngine.deletePage(4));
+        assertFalse(searchEngine.deletePage(4));
+        assertFalse(searchEngine.deletePage(5));
+
+        assertArrayEquals(new int[] {0, 2, 3}, searchEngine.search("common"));
+        assertEquals(3, searchEngine.getPostings("common").size());
+        assertEquals(5, searchEngine.getPageCount());
+        assertEquals(3, searchEngine.getLivePageCount());
+        assertTrue(searchEngine.isDeleted(1));
+    }
+
+    @Test
+    void fullSegmentsAreFlushedAndMerged() throws InterruptedException {
+        int flushThreshold = 3;
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(flushThreshold);
+        int pageCount = flushThreshold * SegmentedSearchEngine.MERGE_FACTOR * SegmentedSearchEngine.MERGE_FACTOR + 2;
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < pageCount; i++) {
+            searchEngine.addPage(page(i, i % 2 == 0 ? "even" : "odd", "word" + i));
+            if (i % 2 == 0) {
+                expected.add(i);
+            }
+        }
+        searchEngine.deletePage(4);
+        expected.remove(Integer.valueOf(4));
+        searchEngine.awaitMerges();
+
+        // Sixteen flushed segments are merged into four, which are merged into one
+        assertEquals(1, searchEngine.segmentCount());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), searchEngine.search("even"));
+        for (int i = 0; i < pageCount; i++) {
+            assertEquals("http://page" + i + ".com", searchEngine.getUrl(i));
+            assertArrayEquals(i == 4 ? new int[0] : new int[] {i}, searchEngine.search("word" + i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> searchEngine.getUrl(pageCount));
+    }
+
+    @Test
+    void loadedPagesComeBeforeAddedPages() throws IOException {
+        Path file = Files.createTempFile("pages", ".txt");
+        try {
+            Files.write(file, List.of("*PAGE:http://loaded.com", "Loaded", "shared", "shared"));
+            SegmentedSearchEngine searchEngine = new SegmentedSearchEngine();
+            searchEngine.loadPages(file.toString());
+            searchEngine.addPage(page(1, "shared"));
+
+            assertArrayEquals(new int[] {0, 1}, searchEngine.search("shared"));
+            assertEquals("http://loaded.com", searchEngine.getUrl(0));
+            assertEquals("http://page1.com", searchEngine.getUrl(1));
+            assertEquals(1, searchEngine.segmentCount());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void pagesAreFoundByTheirUrlInEverySegment() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "word"));
+        searchEngine.addPage(page(1, "word"));
+        searchEngine.addPage(page(2, "word"));
+        // The same URL again, in the mutable segment
+        searchEngine.addPage(page(0, "other"));
+
+        assertEquals(0, searchEngine.getDocId("http://page0.com"));
+        assertEquals(2, searchEngine.getDocId("HTTP://PAGE2.COM"));
+        assertEquals(-1, searchEngine.getDocId("http://missing.com"));
+        // A deleted page is not found, so the next page with its URL is
+        searchEngine.deletePage(0);
+        assertEquals(3, searchEngine.getDocId("http://page0.com"));
+        searchEngine.deletePage(1);
+        assertEquals(-1, searchEngine.getDocId("http://page1.com"));
+    }
+
+    @Test
+    void topWebPagesIncludeAddedPages() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "search", "filler", "filler"));
+        searchEngine.addPage(page(1, "search", "search"));
+        searchEngine.addPage(page(2, "other"));
+        QueryHandler queryHandler = new QueryHandler(searchEngine, new TermFrequencyScorer());
+
+        assertEquals(List.of(1, 0), queryHandler.getTopWebPages("search", 10));
+        searchEngine.deletePage(1);
+        assertEquals(List.of(0), queryHandler.getTopWebPages("search", 10));
+    }
+
+    @Test
+    void scoredPostingsAreCachedUntilTheNextChange() throws InterruptedException {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "search"));
+        searchEngine.addPage(page(1, "search", "other"));
+        searchEngine.addPage(page(2, "search"));
+        long generation = searchEngine.getGeneration();
+        PostingList postings = searchEngine.getPostings("search");
+        assertSame(postings, searchEngine.getPostings("SEARCH"));
+
+        // A flush or a merge does not change the postings
+        searchEngine.flush();
+        searchEngine.awaitMerges();
+        assertSame(postings, searchEngine.getPostings("search"));
+        assertEquals(generation, searchEngine.getGeneration());
+
+        searchEngine.deletePage(1);
+        assertTrue(searchEngine.getGeneration() > generation);
+        assertArrayEquals(new int[] {0, 2}, searchEngine.getPostings("search").docIds());
+        searchEngine.addPage(page(3, "search"));
+        assertArrayEquals(new int[] {0, 2, 3}, searchEngine.search("search"));
+    }
+
+    @Test
+    void segmentAwareScorerReadsTheImpactsOfAllSegments() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        ColumnarTermScorer scorer = new ColumnarTermScorer(searchEngine, new TFIDScorer());
+        searchEngine.scorePostings(scorer);
+        // Pages 0 and 1 are flushed into a segment, and page 2 stays in the mutable segment
+        searchEngine.addPage(page(0, "other"));
+        searchEngine.addPage(page(1, "search", "filler", "filler"));
+        searchEngine.addPage(page(2, "search", "search"));
+
+        PostingList postings = searchEngine.getPostings("search");
+        double[] scores = new double[2];
+        scorer.addScores(searchEngine, new int[] {1, 2}, "search", scores);
+        assertEquals(postings.impact(0), scores[0], 1e-6);
+        assertEquals(postings.impact(1), scores[1], 1e-6);
+        assertEquals(postings.impact(1), scorer.getScore("http://page2.com", "search"), 1e-6);
+        assertEquals(List.of(2, 1), new QueryHandler(searchEngine, scorer).getMatchingWebPages("search"));
+        assertEquals(List.of(2, 1), new QueryHandler(searchEngine, scorer).getTopWebPages("search", 10));
+    }
+
+    @Test
+    void segmentsAreScoredWhenTheyAreWrittenAndNotAfterEveryChange() {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "search"));
+        searchEngine.addPage(page(1, "search", "other"));
+        searchEngine.addPage(page(2, "search"));
+        PostingList segmentPostings = searchEngine.getSegments().get(0).getPostings("search");
+        assertArrayEquals(new int[] {0, 1}, segmentPostings.docIds());
+        assertTrue(segmentPostings.impact(1) > 0);
+
+        // Adding and deleting pages neither copies nor scores the postings of the immutable segment again
+        searchEngine.addPage(page(3, "search"));
+        searchEngine.deletePage(0);
+        List<ReadOnlySearchEngine> segments = searchEngine.getSegments();
+        assertSame(segmentPostings, segments.get(0).getPostings("search"));
+        assertTrue(segments.get(0).isDeleted(0));
+        assertArrayEquals(new int[] {2, 3}, segments.get(1).search("search"));
+
+        // The deleted page is skipped while the postings of the segment are visited
+        QueryHandler queryHandler = new QueryHandler(searchEngine, new ColumnarTermScorer(searchEngine));
+        assertEquals(List.of(2, 3, 1), queryHandler.getMatchingWebPages("search"));
+        assertEquals(List.of(2, 3, 1), queryHandler.getTopWebPages("search", 10));
+        assertEquals(List.of(1), queryHandler.getMatchingWebPages("search other"));
+        assertEquals(Set.of(1, 2, 3), queryHandler.andSearch("search").keySet());
+    }
+
+    @Test
+    void termsWithPrefixComeFromAllSegments() throws InterruptedException {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "denmark", "apple"));
+        searchEngine.addPage(page(1, "dennis"));
+        searchEngine.addPage(page(2, "Denmark", "denim"));
+        searchEngine.awaitMerges();
+
+        assertEquals(List.of("denim", "denmark", "dennis"), searchEngine.getTermsWithPrefix("den", 10));
+        assertEquals(List.of("denim", "denmark"), searchEngine.getTermsWithPrefix("DEN", 2));
+        assertEquals(List.of(), searchEngine.getTermsWithPrefix("x", 10));
+    }
+
+    @Test
+    void completionsAreRankedByTheirPagesInAllSegments() throws InterruptedException {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(2);
+        searchEngine.addPage(page(0, "denmark", "dennis"));
+        searchEngine.addPage(page(1, "dennis"));
+        searchEngine.addPage(page(2, "denmark", "denim"));
+        searchEngine.addPage(page(3, "denmark"));
+        searchEngine.addPage(page(4, "denim"));
+        searchEngine.awaitMerges();
+
+        assertEquals(List.of("denmark", "denim", "dennis"), searchEngine.getCompletions("DEN", 10));
+        assertEquals(List.of("denmark"), searchEngine.getCompletions("den", 1));
+
+        // Deleted pages are not counted
+        searchEngine.deletePage(0);
+        searchEngine.deletePage(3);
+        assertEquals(List.of("denim", "denmark", "dennis"), searchEngine.getCompletions("den", 10));
+        assertEquals(List.of(), searchEngine.getCompletions("x", 10));
+    }
+
+    @Test
+    void queriesSeeEveryPageWhileItIsBeingAdded() throws InterruptedException {
+        SegmentedSearchEngine searchEngine = new SegmentedSearchEngine(7);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> failures = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    int[] docIds = searchEngine.search("word");
+                    // Pages are only added, so the doc IDs found are always 0 to n - 1
+                    for (int i = 0; i < docIds.length; i++) {
+                        assertEquals(i, docIds[i]);
+                    }
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2000; i++) {
+            searchEngine.addPage(page(i, "word"));
+        }
+        done.set(true);
+        reader.join();
+        searchEngine.awaitMerges();
+
+        assertEquals(List.of(), failures);
+        assertEquals(2000, searchEngine.search("word").length);
+    }
+}
@@ -0,0 +1,57 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpellingSuggesterTest {
+
+    private static SpellingSuggester load(Path file) throws IOException {
+        Files.write(file, List.of(
+            "*PAGE:http://page0.com", "Title0", "denmark", "copenhagen",
+            "*PAGE:http://page1.com", "Title1", "denmark", "danmark",
+            "*PAGE:http://page2.com", "Title2", "denmark", "sweden", "york",
+            "*PAGE:http://page3.com", "Title3", "danmark", "fork", "yolk"));
+        InvertedIndexSearchEngine searchEngine = new InvertedIndexSearchEngine();
+        searchEngine.loadPages(file.toString());
+        return new SpellingSuggester(searchEngine);
+    }
+
+    @Test
+    void correctionsAreRankedByDistanceAndThenByDocumentFrequency() throws IOException {
+        Path file = Files.createTempFile("pages", ".txt");
+        SpellingSuggester suggester = load(file);
+
+        // Both are one edit away, but denmark is on more pages
+        assertEquals(List.of("denmark", "danmark"), suggester.suggestWords("Dinmark", 5));
+        assertEquals(List.of("denmark"), suggester.suggestWords("dinmark", 1));
+        // A swap of two letters is two edits, and danmark is one more
+        assertEquals(List.of("denmark"), suggester.suggestWords("denmrak", 5));
+        assertEquals(List.of("danmark"), suggester.suggestWords("denmark", 5));
+        // Short words are only corrected by one edit, and corrections start with the same letter
+        assertEquals(List.of("yolk", "york"), suggester.suggestWords("yok", 5));
+        assertEquals(List.of(), suggester.suggestWords("yxzk", 5));
+        assertEquals(List.of(), suggester.suggestWords("work", 5));
+        Files.delete(file);
+    }
+
+    @Test
+    void queriesHaveTheirUnknownWordsReplaced() throws IOException {
+        Path file = Files.createTempFile("pages", ".txt");
+        SpellingSuggester suggester = load(file);
+
+        assertEquals(List.of("copenhagen denmark", "copenhagen danmark"),
+            suggester.suggestQueries("copenhagn dinmark", 5));
+        assertEquals(List.of("copenhagen denmark"), suggester.suggestQueries("copenhagn denmark", 5));
+        // Operators, wildcards and quotes are kept, and a word without corrections stays as it is
+        assertEquals(List.of("\"new york\" OR swede*"), suggester.suggestQueries("\"new yorc\" OR swede*", 5));
+        assertEquals(List.of(), suggester.suggestQueries("denmark OR sweden", 5));
+        assertEquals(List.of(), suggester.suggestQueries("xyzzyq", 5));
+        Files.delete(file);
+    }
+}
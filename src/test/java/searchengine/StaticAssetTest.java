@@ -0,0 +1,53 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticAssetTest {
+    private final byte[] text = "body { color: black; }\n".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void compressedContentDecompressesToTheContent() throws IOException {
+        StaticAsset asset = new StaticAsset("text/css", "no-cache", text);
+        assertSame(text, asset.getContent(false));
+        assertTrue(asset.isCompressed(true));
+        assertTrue(asset.getContent(true).length < text.length);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(asset.getContent(true)))) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void contentThatDoesNotGetSmallerIsNotCompressed() {
+        StaticAsset asset = new StaticAsset("image/x-icon", "no-cache", new byte[] {1, 2, 3});
+        assertFalse(asset.isCompressed(true));
+        assertArrayEquals(new byte[] {1, 2, 3}, asset.getContent(true));
+        assertEquals(asset.getEtag(false), asset.getEtag(true));
+    }
+
+    @Test
+    void etagsAreStrongAndDependOnTheContent() {
+        StaticAsset asset = new StaticAsset("text/css", "no-cache", text);
+        String etag = asset.getEtag(false);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertNotEquals(etag, asset.getEtag(true));
+        assertEquals(etag, new StaticAsset("text/css", "no-cache", text.clone()).getEtag(false));
+        assertNotEquals(etag, new StaticAsset("text/css", "no-cache", new byte[] {1}).getEtag(false));
+    }
+
+    @Test
+    void isNotModifiedMatchesEitherEtag() {
+        StaticAsset asset = new StaticAsset("text/css", "no-cache", text);
+        assertFalse(asset.isNotModified(null));
+        assertFalse(asset.isNotModified("\"other\""));
+        assertTrue(asset.isNotModified(asset.getEtag(false)));
+        assertTrue(asset.isNotModified("\"other\", W/" + asset.getEtag(true)));
+        assertTrue(asset.isNotModified("*"));
+    }
+}
@@ -69,4 +69,20 @@ class TFIDScorerTest {
         assertTrue(tfidfScores.get("page1").containsKey("test1"), "TFIDF scores should include term 'test1'");
         assertTrue(tfidfScores.get("page1").containsKey("test2"), "TFIDF scores should include term 'test2'");
     }
+
+    @Test
+    void countTFIDScoreComputesTermFrequencyTimesIdf() {
+        List<List<String>> pages = Arrays.asList(
+                Arrays.asList("*page:page1", "test1", "test2", "test1"),
+                Arrays.asList("*page:page2", "test2", "test3"),
+                Arrays.asList("*page:page3", "test1", "test3")
+        );
+
+        Map<String, Map<String, Double>> tfidfScores = tfidScorer.countTFIDScore(pages);
+
+        assertEquals(2.0 / 3 * Math.log(3.0 / 2), tfidfScores.get("page1").get("test1"));
+        assertEquals(1.0 / 3 * Math.log(3.0 / 2), tfidfScores.get("page1").get("test2"));
+        assertEquals(1.0 / 2 * Math.log(3.0 / 2), tfidfScores.get("page2").get("test3"));
+        assertEquals(3, tfidfScores.size());
+    }
 }
@@ -0,0 +1,121 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermDictionaryTest {
+
+    private Set<String> randomTerms(long seed, int count) {
+        Random random = new Random(seed);
+        String[] parts = {"a", "ab", "abc", "b", "ø", "λ", "😀", "z", "zz", "0", ""};
+        Set<String> terms = new TreeSet<>(TermDictionary.ORDER);
+        while (terms.size() < count) {
+            StringBuilder term = new StringBuilder();
+            int length = random.nextInt(5);
+            for (int i = 0; i < length; i++) {
+                term.append(parts[random.nextInt(parts.length)]);
+            }
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    @Test
+    void ordinalFindsEveryTermInSortedOrder() {
+        Set<String> terms = randomTerms(1, 1000);
+        TermDictionary dictionary = TermDictionary.of(terms);
+
+        assertEquals(terms.size(), dictionary.size());
+        int ordinal = 0;
+        for (String term : terms) {
+            assertEquals(ordinal, dictionary.ordinal(term));
+            assertEquals(term, dictionary.term(ordinal));
+            ordinal++;
+        }
+    }
+
+    @Test
+    void iteratorReturnsTermsInSortedOrder() {
+        Set<String> terms = randomTerms(2, 500);
+        TermDictionary dictionary = TermDictionary.of(terms);
+
+        List<String> iterated = new ArrayList<>();
+        dictionary.forEach(iterated::add);
+        assertEquals(new ArrayList<>(terms), iterated);
+
+        Iterator<String> fromMiddle = dictionary.iterator(37);
+        for (int ordinal = 37; ordinal < dictionary.size(); ordinal++) {
+            assertEquals(dictionary.term(ordinal), fromMiddle.next());
+        }
+        assertFalse(fromMiddle.hasNext());
+    }
+
+    @Test
+    void ordinalOfMissingTermIsTheInsertionPoint() {
+        Set<String> terms = randomTerms(3, 300);
+        TermDictionary dictionary = TermDictionary.of(terms);
+        List<String> sorted = new ArrayList<>(terms);
+
+        for (String missing : randomTerms(4, 600)) {
+            if (terms.contains(missing)) {
+                continue;
+            }
+            int insertionPoint = 0;
+            while (insertionPoint < sorted.size() && TermDictionary.ORDER.compare(sorted.get(insertionPoint), missing) < 0) {
+                insertionPoint++;
+            }
+            assertEquals(-insertionPoint - 1, dictionary.ordinal(missing));
+            assertFalse(dictionary.contains(missing));
+        }
+        assertEquals(-terms.size() - 1, dictionary.ordinal("😀😀😀😀😀"));
+    }
+
+    @Test
+    void orderIsTheOrderOfUtf8Bytes() {
+        // A supplementary character is larger than U+FFFF in UTF-8, but smaller in UTF-16
+        assertTrue(TermDictionary.ORDER.compare("￿", "😀") < 0);
+        assertTrue(TermDictionary.ORDER.compare("ab", "abc") < 0);
+        assertEquals(0, TermDictionary.ORDER.compare("abc", "abc"));
+    }
+
+    @Test
+    void termsWithPrefixAreTheRangeOfTermsThatStartWithIt() {
+        Set<String> terms = randomTerms(5, 1000);
+        TermDictionary dictionary = TermDictionary.of(terms);
+
+        for (String prefix : List.of("", "a", "ab", "abcz", "ø", "😀z", "q")) {
+            List<String> expected = new ArrayList<>();
+            for (String term : terms) {
+                if (term.startsWith(prefix)) {
+                    expected.add(term);
+                }
+            }
+            assertEquals(expected, dictionary.termsWithPrefix(prefix, Integer.MAX_VALUE), prefix);
+            assertEquals(expected.subList(0, Math.min(3, expected.size())), dictionary.termsWithPrefix(prefix, 3));
+        }
+    }
+
+    @Test
+    void emptyDictionaryHasNoTerms() {
+        TermDictionary dictionary = TermDictionary.of(List.of());
+        assertEquals(0, dictionary.size());
+        assertEquals(-1, dictionary.ordinal("term"));
+        assertFalse(dictionary.iterator().hasNext());
+    }
+
+    @Test
+    void builderRejectsTermsOutOfOrder() {
+        TermDictionary.Builder builder = new TermDictionary.Builder();
+        builder.add("b");
+        assertThrows(IllegalArgumentException.class, () -> builder.add("a"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("b"));
+    }
+}
@@ -0,0 +1,54 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermTableTest {
+
+    private static int find(TermTable table, String line) {
+        ByteBuffer buffer = ByteBuffer.wrap(("#" + line + "#").getBytes(StandardCharsets.UTF_8));
+        return table.find(buffer, 1, buffer.limit() - 1);
+    }
+
+    @Test
+    void findLowercasesAsciiLines() {
+        TermTable table = new TermTable();
+
+        int slot = find(table, "Denmark");
+        assertEquals("denmark", table.term(slot));
+        assertSame(table.term(slot), table.term(find(table, "DENMARK")));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void findLowercasesOtherLines() {
+        TermTable table = new TermTable();
+
+        int slot = find(table, "ÉCOLE");
+        assertEquals("école", table.term(slot));
+        assertSame(table.term(slot), table.term(table.find("école")));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void termsKeepTheirPostingsWhenTableGrows() {
+        TermTable table = new TermTable();
+        for (int i = 0; i < 5000; i++) {
+            table.postings(find(table, "Word" + i)).add(i);
+        }
+
+        assertEquals(5000, table.size());
+        Set<String> terms = new HashSet<>();
+        table.forEach((term, postings) -> {
+            terms.add(term);
+            assertEquals("word" + postings.build().docId(0), term);
+        });
+        assertEquals(5000, terms.size());
+    }
+}
@@ -0,0 +1,61 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKCollectorTest {
+
+    @Test
+    void keepsHighestScoresInOrder() {
+        TopKCollector collector = new TopKCollector(3);
+        collector.offer(1, 0.5);
+        collector.offer(2, 0.1);
+        collector.offer(3, 0.9);
+        collector.offer(4, 0.7);
+        collector.offer(5, 0.2);
+
+        assertEquals(Arrays.asList(3, 4, 1), collector.results());
+        assertEquals(0.5, collector.threshold());
+    }
+
+    @Test
+    void thresholdIsOpenUntilFull() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.offer(1, 0.5);
+
+        assertEquals(Double.NEGATIVE_INFINITY, collector.threshold());
+    }
+
+    @Test
+    void repeatedPageKeepsHighestScore() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.offer(1, 0.3);
+        collector.offer(2, 0.4);
+        collector.offer(1, 0.8);
+        collector.offer(2, 0.1);
+
+        assertEquals(Arrays.asList(1, 2), collector.results());
+        assertEquals(0.4, collector.threshold());
+    }
+
+    @Test
+    void hugeTopKOnlyGrowsWithThePages() {
+        TopKCollector collector = new TopKCollector(Integer.MAX_VALUE);
+        for (int docId = 0; docId < 100; docId++) {
+            collector.offer(docId, docId % 10);
+        }
+        collector.offer(5, 20.0);
+
+        assertEquals(100, collector.results().size());
+        assertEquals(5, collector.results().get(0));
+        assertEquals(Double.NEGATIVE_INFINITY, collector.threshold());
+    }
+
+    @Test
+    void rejectsEmptyTopK() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector(0));
+    }
+}
@@ -2,15 +2,31 @@
 package searchengine;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.TestInstance.Lifecycle;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.BindException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -27,7 +43,7 @@ class WebServerTest {
             var rnd = new Random();
             while (server == null) {
                 try {
-                    server = new WebServer(rnd.nextInt(60000) + 1024, "data/test-file.txt");
+                    server = new WebServer(rnd.nextInt(60000) + 1024, "src/test/resources/test-pages.txt");
                 } catch (BindException e) {
                     // port in use. Try again
                 }
@@ -43,6 +59,14 @@ class WebServerTest {
         server = null;
     }
 
+    @Test
+    void serversAreCreatedWithNoDelay() throws IOException {
+        // The coordinator creates its server through the same helper, which sets the property before the JDK reads it
+        var created = WebServer.createServer(0);
+        assertEquals("true", System.getProperty("sun.net.httpserver.nodelay"));
+        created.stop(0);
+    }
+
     @Test
     void lookupWebServer() {
         String baseURL = String.format("http://localhost:%d/search?q=", server.server.getAddress().getPort());
@@ -56,6 +80,241 @@ class WebServerTest {
             httpGet(baseURL + "word4"));
     }
 
+    @Test
+    void searchWithoutAQueryFindsNothing() {
+        String baseURL = String.format("http://localhost:%d/search", server.server.getAddress().getPort());
+        assertEquals("[]", httpGet(baseURL));
+        assertEquals("[]", httpGet(baseURL + "?k=5"));
+    }
+
+    @Test
+    void equivalentQueriesShareCachedResults() {
+        String baseURL = String.format("http://localhost:%d/search?q=", server.server.getAddress().getPort());
+        String expected = httpGet(baseURL + "word2%20OR%20word3");
+        long hits = server.queryCache.hits();
+        assertEquals(expected, httpGet(baseURL + "WORD3+or+word2"));
+        assertEquals(hits + 1, server.queryCache.hits());
+    }
+
+    @Test
+    void searchIsCompressedWhenTheClientAcceptsGzip() throws Exception {
+        String url = String.format("http://localhost:%d/search?q=word1", server.server.getAddress().getPort());
+        var request = HttpRequest.newBuilder().uri(URI.create(url)).header("Accept-Encoding", "gzip").GET().build();
+        var response = HttpClient.newHttpClient().send(request, BodyHandlers.ofByteArray());
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertEquals(httpGet(url), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void assetsAreRevalidatedWithTheirEtag() throws Exception {
+        String url = String.format("http://localhost:%d/code.js", server.server.getAddress().getPort());
+        var client = HttpClient.newHttpClient();
+        var response = client.send(HttpRequest.newBuilder().uri(URI.create(url)).GET().build(), BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(Files.readString(Path.of("web/code.js")), response.body());
+        assertEquals("no-cache", response.headers().firstValue("Cache-Control").orElse(""));
+
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        var revalidation = HttpRequest.newBuilder().uri(URI.create(url)).header("If-None-Match", etag).GET().build();
+        var notModified = client.send(revalidation, BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+    }
+
+    @Test
+    void spellSuggestsCorrectionsOfUnknownWords() {
+        String baseURL = String.format("http://localhost:%d/spell?q=", server.server.getAddress().getPort());
+        assertEquals("[\"word1 OR word2\"]", httpGet(baseURL + "word1+OR+wrd2"));
+        // word1 is on two pages, the others on one
+        assertEquals("[\"word1\", \"word2\", \"word3\"]", httpGet(baseURL + "wordx"));
+        assertEquals("[]", httpGet(baseURL + "word1"));
+        assertEquals("[]", httpGet(baseURL));
+    }
+
+    @Test
+    void suggestCompletesTheLastWordOfTheQuery() {
+        String baseURL = String.format("http://localhost:%d/suggest?p=", server.server.getAddress().getPort());
+        // word1 is on two pages, the others on one
+        assertEquals("[\"word1\", \"word2\", \"word3\"]", httpGet(baseURL + "wo"));
+        assertEquals("[\"word1 word2\"]", httpGet(baseURL + "word1+WORD2"));
+        assertEquals("[]", httpGet(baseURL + "word1+"));
+        assertEquals("[]", httpGet(baseURL + "x"));
+        assertEquals("[]", httpGet(baseURL));
+    }
+
+    @Test
+    void unknownPathsAreNotFound() throws Exception {
+        String url = String.format("http://localhost:%d/missing.html", server.server.getAddress().getPort());
+        var response = HttpClient.newHttpClient().send(HttpRequest.newBuilder().uri(URI.create(url)).GET().build(),
+            BodyHandlers.ofString());
+        assertEquals(404, response.statusCode());
+    }
+
+    @Test
+    void reloadPublishesTheNewPagesWhileQueriesContinue() throws Exception {
+        Path file = Files.createTempFile("pages", ".txt");
+        Files.write(file, List.of("*PAGE:http://old.com", "Old", "word"));
+        WebServer reloading = startServer(file.toString());
+        try {
+            String url = String.format("http://localhost:%d/search?q=word", reloading.server.getAddress().getPort());
+            String oldResults = "[{\"url\": \"http://old.com\", \"title\": \"old\"}]";
+            String newResults = "[{\"url\": \"http://new.com\", \"title\": \"new\"}]";
+            assertEquals(oldResults, httpGet(url));
+
+            // Every query answered during the reload sees either all old or all new pages
+            AtomicBoolean reloaded = new AtomicBoolean();
+            List<String> unexpected = new CopyOnWriteArrayList<>();
+            Thread queries = new Thread(() -> {
+                while (!reloaded.get()) {
+                    String results = httpGet(url);
+                    if (!results.equals(oldResults) && !results.equals(newResults)) {
+                        unexpected.add(results);
+                    }
+                }
+            });
+            queries.start();
+            Files.write(file, List.of("*PAGE:http://new.com", "New", "word"));
+            reloading.reload(file.toString());
+            reloaded.set(true);
+            queries.join();
+
+            assertEquals(List.of(), unexpected);
+            assertEquals(1, reloading.index.get().version);
+            // The results of the old index are not served from the cache
+            assertEquals(newResults, httpGet(url));
+        } finally {
+            reloading.server.stop(0);
+            Files.deleteIfExists(IndexSnapshot.snapshotPath(file.toString()));
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void metricsCountTheQueries() throws Exception {
+        String baseURL = String.format("http://localhost:%d/", server.server.getAddress().getPort());
+        long queries = server.metrics.queries();
+        httpGet(baseURL + "search?q=word1");
+        // The query is counted after its response has been sent
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.metrics.queries() == queries && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        var response = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder().uri(URI.create(baseURL + "metrics")).GET().build(), BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        // Queries of earlier tests may still be counted, so the total is at least one higher
+        var total = Pattern.compile("(?m)^searchengine_queries_total (\\d+)$").matcher(response.body());
+        assertTrue(total.find());
+        assertTrue(Long.parseLong(total.group(1)) > queries);
+        assertTrue(response.body().contains("searchengine_stage_seconds_count{stage=\"json\"}"));
+    }
+
+    @Test
+    void adminReloadOnlyAcceptsPost() throws Exception {
+        String url = String.format("http://localhost:%d/admin/reload", server.server.getAddress().getPort());
+        var client = HttpClient.newHttpClient();
+        var get = client.send(HttpRequest.newBuilder().uri(URI.create(url)).GET().build(), BodyHandlers.ofString());
+        assertEquals(405, get.statusCode());
+
+        long version = server.index.get().version;
+        var post = client.send(HttpRequest.newBuilder().uri(URI.create(url)).POST(BodyPublishers.noBody()).build(),
+            BodyHandlers.ofString());
+        assertEquals(202, post.statusCode());
+        long deadline = System.currentTimeMillis() + 10000;
+        while (server.index.get().version == version && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(version + 1, server.index.get().version);
+    }
+
+    @Test
+    void adminPagesAddsAndDeletesPagesOfASegmentedIndex() throws Exception {
+        Path file = Files.createTempFile("pages", ".txt");
+        Files.write(file, List.of("*PAGE:http://old.com", "Old", "word"));
+        WebServer segmented = startServer(file.toString());
+        try {
+            String baseURL = String.format("http://localhost:%d/", segmented.server.getAddress().getPort());
+            var client = HttpClient.newHttpClient();
+            var pages = URI.create(baseURL + "admin/pages");
+            String page = "*PAGE:http://new.com\nNew\nword\n";
+            var notSegmented = client.send(HttpRequest.newBuilder().uri(pages).POST(BodyPublishers.ofString(page))
+                .build(), BodyHandlers.ofString());
+            assertEquals(409, notSegmented.statusCode());
+
+            segmented.index.set(SearchIndex.loadSegmented(file.toString(), 1, 1, WebServer.MAX_EXPANSIONS));
+            assertEquals("[{\"url\": \"http://old.com\", \"title\": \"old\"}]", httpGet(baseURL + "search?q=word"));
+            var added = client.send(HttpRequest.newBuilder().uri(pages).POST(BodyPublishers.ofString(page)).build(),
+                BodyHandlers.ofString());
+            assertEquals(201, added.statusCode());
+            assertEquals("1", added.body());
+            // The results cached before the change are not used
+            assertEquals("[{\"url\": \"http://old.com\", \"title\": \"old\"}, "
+                + "{\"url\": \"http://new.com\", \"title\": \"new\"}]", httpGet(baseURL + "search?q=word"));
+
+            var deleted = client.send(HttpRequest.newBuilder().uri(URI.create(baseURL + "admin/pages?id=0"))
+                .DELETE().build(), BodyHandlers.ofString());
+            assertEquals(200, deleted.statusCode());
+            assertEquals("[{\"url\": \"http://new.com\", \"title\": \"new\"}]", httpGet(baseURL + "search?q=word"));
+            var deletedAgain = client.send(HttpRequest.newBuilder().uri(URI.create(baseURL + "admin/pages?id=0"))
+                .DELETE().build(), BodyHandlers.ofString());
+            assertEquals(404, deletedAgain.statusCode());
+
+            var twoPages = client.send(HttpRequest.newBuilder().uri(pages)
+                .POST(BodyPublishers.ofString(page + page)).build(), BodyHandlers.ofString());
+            assertEquals(400, twoPages.statusCode());
+            var get = client.send(HttpRequest.newBuilder().uri(pages).GET().build(), BodyHandlers.ofString());
+            assertEquals(405, get.statusCode());
+
+            // A reload would rebuild the index from the file, without the added page
+            var reload = client.send(HttpRequest.newBuilder().uri(URI.create(baseURL + "admin/reload"))
+                .POST(BodyPublishers.noBody()).build(), BodyHandlers.ofString());
+            assertEquals(409, reload.statusCode());
+            segmented.scheduleReload(file.toString());
+            assertThrows(IllegalStateException.class, () -> segmented.reload(file.toString()));
+            assertEquals(1, segmented.index.get().version);
+            assertEquals("[{\"url\": \"http://new.com\", \"title\": \"new\"}]", httpGet(baseURL + "search?q=word"));
+        } finally {
+            segmented.server.stop(0);
+            Files.deleteIfExists(IndexSnapshot.snapshotPath(file.toString()));
+            Files.delete(file);
+        }
+    }
+
+    static WebServer startServer(String filename) throws IOException {
+        return startServer(filename, false);
+    }
+
+    static WebServer startServer(String filename, boolean shard) throws IOException {
+        var rnd = new Random();
+        while (true) {
+            try {
+                return new WebServer(rnd.nextInt(60000) + 1024, filename, shard);
+            } catch (BindException e) {
+                // port in use. Try again
+            }
+        }
+    }
+
+    @Test
+    void createExecutorSupportsEachMode() {
+        ExecutorService platform = WebServer.createExecutor("platform", 3);
+        assertEquals(3, ((ThreadPoolExecutor) platform).getMaximumPoolSize());
+        platform.shutdown();
+
+        // Falls back to platform threads before Java 21
+        ExecutorService virtual = WebServer.createExecutor("virtual", 2);
+        assertNotNull(virtual);
+        virtual.shutdown();
+
+        assertNull(WebServer.createExecutor("dispatcher", 2));
+        assertThrows(IllegalArgumentException.class, () -> WebServer.createExecutor("unknown", 2));
+    }
+
     private String httpGet(String url) {
         var uri = URI.create(url);
         var client = HttpClient.newHttpClient();
@@ -7,6 +7,7 @@ const performSearch = () => {
       if (data.length === 0) {
         document.getElementById("responsesize").innerHTML =
           "<p>No web page contains the query word.</p>";
+        showSpellingSuggestions();
       } else {
         document.getElementById("responsesize").innerHTML =
           "<p>" + data.length + " websites retrieved</p>";
@@ -18,8 +19,60 @@ const performSearch = () => {
     });
 };
 
+const showSpellingSuggestions = () => {
+  fetch("/spell?q=" + encodeURIComponent(document.getElementById("searchbox").value))
+    .then((response) => response.json())
+    .then((suggestions) => {
+      if (suggestions.length === 0) {
+        return;
+      }
+      const links = suggestions
+        .map((suggestion) => {
+          const link = document.createElement("a");
+          link.href = "#";
+          link.textContent = suggestion;
+          link.onclick = (event) => {
+            event.preventDefault();
+            document.getElementById("searchbox").value = suggestion;
+            performSearch();
+          };
+          return link;
+        });
+      const paragraph = document.createElement("p");
+      paragraph.append("Did you mean ");
+      links.forEach((link, i) => {
+        if (i > 0) {
+          paragraph.append(", ");
+        }
+        paragraph.append(link);
+      });
+      paragraph.append("?");
+      document.getElementById("responsesize").append(paragraph);
+    });
+};
+
+const showCompletions = () => {
+  const typed = document.getElementById("searchbox").value;
+  fetch("/suggest?p=" + encodeURIComponent(typed))
+    .then((response) => response.json())
+    .then((completions) => {
+      // A slow response must not replace the completions of what has been typed since
+      if (document.getElementById("searchbox").value !== typed) {
+        return;
+      }
+      const options = completions.map((completion) => {
+        const option = document.createElement("option");
+        option.value = completion;
+        return option;
+      });
+      document.getElementById("suggestions").replaceChildren(...options);
+    });
+};
+
 document.getElementById("searchbutton").onclick = performSearch;
 
+document.getElementById("searchbox").oninput = showCompletions;
+
 document.getElementById("searchbox").onkeydown = (event) => {
   if (event.key === "Enter") {
     performSearch();